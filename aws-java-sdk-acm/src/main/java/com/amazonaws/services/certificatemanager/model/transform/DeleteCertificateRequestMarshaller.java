@@ -12,7 +12,6 @@
  */
 package com.amazonaws.services.certificatemanager.model.transform;
 
-import java.io.ByteArrayInputStream;
 import java.util.Collections;
 import java.util.Map;
 import java.util.List;
@@ -22,6 +21,7 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.Request;
 import com.amazonaws.DefaultRequest;
 import com.amazonaws.http.HttpMethodName;
+import com.amazonaws.internal.ChunkedByteArrayInputStream;
 import com.amazonaws.services.certificatemanager.model.*;
 import com.amazonaws.transform.Marshaller;
 import com.amazonaws.util.BinaryUtils;
@@ -65,9 +65,9 @@ public class DeleteCertificateRequestMarshaller implements Marshaller<Request<De
 
             jsonGenerator.writeEndObject();
 
-            byte[] content = jsonGenerator.getBytes();
-            request.setContent(new ByteArrayInputStream(content));
-            request.addHeader("Content-Length", Integer.toString(content.length));
+            ChunkedByteArrayInputStream content = StructuredJsonContent.of(jsonGenerator);
+            request.setContent(content);
+            request.addHeader("Content-Length", Long.toString(content.getLength()));
             request.addHeader("Content-Type", protocolFactory.getContentType());
         } catch (Throwable t) {
             throw new AmazonClientException("Unable to marshall request to JSON: " + t.getMessage(), t);
@@ -17,7 +17,7 @@ import com.amazonaws.services.autoscaling.AmazonAutoScaling;
 import com.amazonaws.services.autoscaling.model.*;
 import com.amazonaws.waiters.*;
 
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Executors;
 
 public class AmazonAutoScalingWaiters {
@@ -27,7 +27,7 @@ public class AmazonAutoScalingWaiters {
      */
     private final AmazonAutoScaling client;
 
-    private final ExecutorService executorService = Executors.newFixedThreadPool(50);
+    private final ScheduledExecutorService executorService = Executors.newScheduledThreadPool(50);
 
     /**
      * Constructs a new AmazonAutoScalingWaiters with the given client
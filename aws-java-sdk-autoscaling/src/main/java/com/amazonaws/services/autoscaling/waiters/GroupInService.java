@@ -46,6 +46,8 @@ class GroupInService {
                                 new JmesPathLiteral("\"InService\"")))), new JmesPathField("MinSize"))))), new JmesPathIdentity()),
                 new JmesPathLiteral("false"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -56,8 +58,7 @@ class GroupInService {
          */
         @Override
         public boolean matches(DescribeAutoScalingGroupsResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.path(expectedResult, finalResult);
         }
 
@@ -89,6 +90,8 @@ class GroupInService {
                                 new JmesPathLiteral("\"InService\"")))), new JmesPathField("MinSize"))))), new JmesPathIdentity()),
                 new JmesPathLiteral("false"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -99,8 +102,7 @@ class GroupInService {
          */
         @Override
         public boolean matches(DescribeAutoScalingGroupsResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.path(expectedResult, finalResult);
         }
 
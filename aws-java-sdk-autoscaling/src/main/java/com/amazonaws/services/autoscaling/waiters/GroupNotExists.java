@@ -43,6 +43,8 @@ class GroupNotExists {
         private static final JmesPathExpression ast = new OpGreaterThan(new JmesPathLengthFunction(new JmesPathField("AutoScalingGroups")),
                 new JmesPathLiteral("0"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -53,8 +55,7 @@ class GroupNotExists {
          */
         @Override
         public boolean matches(DescribeAutoScalingGroupsResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.path(expectedResult, finalResult);
         }
 
@@ -83,6 +84,8 @@ class GroupNotExists {
         private static final JmesPathExpression ast = new OpGreaterThan(new JmesPathLengthFunction(new JmesPathField("AutoScalingGroups")),
                 new JmesPathLiteral("0"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -93,8 +96,7 @@ class GroupNotExists {
          */
         @Override
         public boolean matches(DescribeAutoScalingGroupsResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.path(expectedResult, finalResult);
         }
 
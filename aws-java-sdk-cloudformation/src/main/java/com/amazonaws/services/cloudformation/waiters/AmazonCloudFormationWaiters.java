@@ -17,7 +17,7 @@ import com.amazonaws.services.cloudformation.AmazonCloudFormation;
 import com.amazonaws.services.cloudformation.model.*;
 import com.amazonaws.waiters.*;
 
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Executors;
 
 public class AmazonCloudFormationWaiters {
@@ -27,7 +27,7 @@ public class AmazonCloudFormationWaiters {
      */
     private final AmazonCloudFormation client;
 
-    private final ExecutorService executorService = Executors.newFixedThreadPool(50);
+    private final ScheduledExecutorService executorService = Executors.newScheduledThreadPool(50);
 
     /**
      * Constructs a new AmazonCloudFormationWaiters with the given client
@@ -42,6 +42,8 @@ class StackCreateComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("Stacks")), new JmesPathField("StackStatus"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -52,8 +54,7 @@ class StackCreateComplete {
          */
         @Override
         public boolean matches(DescribeStacksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAll(expectedResult, finalResult);
         }
 
@@ -81,6 +82,8 @@ class StackCreateComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("Stacks")), new JmesPathField("StackStatus"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -91,8 +94,7 @@ class StackCreateComplete {
          */
         @Override
         public boolean matches(DescribeStacksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
@@ -120,6 +122,8 @@ class StackCreateComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("Stacks")), new JmesPathField("StackStatus"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -130,8 +134,7 @@ class StackCreateComplete {
          */
         @Override
         public boolean matches(DescribeStacksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
@@ -159,6 +162,8 @@ class StackCreateComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("Stacks")), new JmesPathField("StackStatus"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -169,8 +174,7 @@ class StackCreateComplete {
          */
         @Override
         public boolean matches(DescribeStacksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
@@ -198,6 +202,8 @@ class StackCreateComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("Stacks")), new JmesPathField("StackStatus"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -208,8 +214,7 @@ class StackCreateComplete {
          */
         @Override
         public boolean matches(DescribeStacksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
@@ -237,6 +242,8 @@ class StackCreateComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("Stacks")), new JmesPathField("StackStatus"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -247,8 +254,7 @@ class StackCreateComplete {
          */
         @Override
         public boolean matches(DescribeStacksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
@@ -276,6 +282,8 @@ class StackCreateComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("Stacks")), new JmesPathField("StackStatus"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -286,8 +294,7 @@ class StackCreateComplete {
          */
         @Override
         public boolean matches(DescribeStacksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
@@ -315,6 +322,8 @@ class StackCreateComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("Stacks")), new JmesPathField("StackStatus"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -325,8 +334,7 @@ class StackCreateComplete {
          */
         @Override
         public boolean matches(DescribeStacksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
@@ -42,6 +42,8 @@ class StackDeleteComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("Stacks")), new JmesPathField("StackStatus"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -52,8 +54,7 @@ class StackDeleteComplete {
          */
         @Override
         public boolean matches(DescribeStacksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAll(expectedResult, finalResult);
         }
 
@@ -106,6 +107,8 @@ class StackDeleteComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("Stacks")), new JmesPathField("StackStatus"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -116,8 +119,7 @@ class StackDeleteComplete {
          */
         @Override
         public boolean matches(DescribeStacksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
@@ -145,6 +147,8 @@ class StackDeleteComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("Stacks")), new JmesPathField("StackStatus"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -155,8 +159,7 @@ class StackDeleteComplete {
          */
         @Override
         public boolean matches(DescribeStacksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
@@ -184,6 +187,8 @@ class StackDeleteComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("Stacks")), new JmesPathField("StackStatus"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -194,8 +199,7 @@ class StackDeleteComplete {
          */
         @Override
         public boolean matches(DescribeStacksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
@@ -223,6 +227,8 @@ class StackDeleteComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("Stacks")), new JmesPathField("StackStatus"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -233,8 +239,7 @@ class StackDeleteComplete {
          */
         @Override
         public boolean matches(DescribeStacksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
@@ -262,6 +267,8 @@ class StackDeleteComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("Stacks")), new JmesPathField("StackStatus"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -272,8 +279,7 @@ class StackDeleteComplete {
          */
         @Override
         public boolean matches(DescribeStacksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
@@ -301,6 +307,8 @@ class StackDeleteComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("Stacks")), new JmesPathField("StackStatus"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -311,8 +319,7 @@ class StackDeleteComplete {
          */
         @Override
         public boolean matches(DescribeStacksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
@@ -340,6 +347,8 @@ class StackDeleteComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("Stacks")), new JmesPathField("StackStatus"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -350,8 +359,7 @@ class StackDeleteComplete {
          */
         @Override
         public boolean matches(DescribeStacksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
@@ -379,6 +387,8 @@ class StackDeleteComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("Stacks")), new JmesPathField("StackStatus"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -389,8 +399,7 @@ class StackDeleteComplete {
          */
         @Override
         public boolean matches(DescribeStacksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
@@ -418,6 +427,8 @@ class StackDeleteComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("Stacks")), new JmesPathField("StackStatus"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -428,8 +439,7 @@ class StackDeleteComplete {
          */
         @Override
         public boolean matches(DescribeStacksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
@@ -457,6 +467,8 @@ class StackDeleteComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("Stacks")), new JmesPathField("StackStatus"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -467,8 +479,7 @@ class StackDeleteComplete {
          */
         @Override
         public boolean matches(DescribeStacksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
@@ -496,6 +507,8 @@ class StackDeleteComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("Stacks")), new JmesPathField("StackStatus"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -506,8 +519,7 @@ class StackDeleteComplete {
          */
         @Override
         public boolean matches(DescribeStacksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
@@ -535,6 +547,8 @@ class StackDeleteComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("Stacks")), new JmesPathField("StackStatus"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -545,8 +559,7 @@ class StackDeleteComplete {
          */
         @Override
         public boolean matches(DescribeStacksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
@@ -574,6 +587,8 @@ class StackDeleteComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("Stacks")), new JmesPathField("StackStatus"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -584,8 +599,7 @@ class StackDeleteComplete {
          */
         @Override
         public boolean matches(DescribeStacksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
@@ -613,6 +627,8 @@ class StackDeleteComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("Stacks")), new JmesPathField("StackStatus"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -623,8 +639,7 @@ class StackDeleteComplete {
          */
         @Override
         public boolean matches(DescribeStacksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
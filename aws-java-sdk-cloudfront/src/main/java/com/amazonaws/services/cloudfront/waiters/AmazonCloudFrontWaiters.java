@@ -17,7 +17,7 @@ import com.amazonaws.services.cloudfront.AmazonCloudFront;
 import com.amazonaws.services.cloudfront.model.*;
 import com.amazonaws.waiters.*;
 
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Executors;
 
 public class AmazonCloudFrontWaiters {
@@ -27,7 +27,7 @@ public class AmazonCloudFrontWaiters {
      */
     private final AmazonCloudFront client;
 
-    private final ExecutorService executorService = Executors.newFixedThreadPool(50);
+    private final ScheduledExecutorService executorService = Executors.newScheduledThreadPool(50);
 
     /**
      * Constructs a new AmazonCloudFrontWaiters with the given client
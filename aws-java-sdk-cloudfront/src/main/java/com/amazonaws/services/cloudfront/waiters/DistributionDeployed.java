@@ -42,6 +42,8 @@ class DistributionDeployed {
 
         private static final JmesPathExpression ast = new JmesPathSubExpression(new JmesPathField("Distribution"), new JmesPathField("Status"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -52,8 +54,7 @@ class DistributionDeployed {
          */
         @Override
         public boolean matches(GetDistributionResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.path(expectedResult, finalResult);
         }
 
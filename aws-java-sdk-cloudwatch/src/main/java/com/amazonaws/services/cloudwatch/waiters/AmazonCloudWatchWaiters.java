@@ -17,7 +17,7 @@ import com.amazonaws.services.cloudwatch.AmazonCloudWatch;
 import com.amazonaws.services.cloudwatch.model.*;
 import com.amazonaws.waiters.*;
 
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Executors;
 
 public class AmazonCloudWatchWaiters {
@@ -27,7 +27,7 @@ public class AmazonCloudWatchWaiters {
      */
     private final AmazonCloudWatch client;
 
-    private final ExecutorService executorService = Executors.newFixedThreadPool(50);
+    private final ScheduledExecutorService executorService = Executors.newScheduledThreadPool(50);
 
     /**
      * Constructs a new AmazonCloudWatchWaiters with the given client
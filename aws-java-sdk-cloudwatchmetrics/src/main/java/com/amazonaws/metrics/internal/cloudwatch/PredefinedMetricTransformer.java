@@ -87,10 +87,13 @@ public class PredefinedMetricTransformer {
                 case HttpClientReceiveResponseTime:
                 case HttpRequestTime:
                 case HttpSocketReadTime:
+                case RateLimiterWaitTime:
                     return latencyMetricOf(predefined, request, response, INCLUDE_REQUEST_TYPE);
                 case Exception:
                 case ThrottleException:
                     return counterMetricOf(predefined, request, response, INCLUDE_REQUEST_TYPE);
+                case ClientSideRateLimit:
+                    return rateLimitMetricOf(request, response);
                 default:
                     break;
             }
@@ -310,4 +313,34 @@ public class PredefinedMetricTransformer {
         }
         return result;
     }
+
+    /**
+     * Returns a request type specific metric for
+     * {@link Field#ClientSideRateLimit}, which is a gauge rather than a
+     * counter: the data are summarized like the others, but only the average,
+     * minimum and maximum of the statistic set are meaningful, and a datum
+     * across all request types is not created since the rates of different
+     * operations don't add up.
+     */
+    protected List<MetricDatum> rateLimitMetricOf(Request<?> req, Object response) {
+        AWSRequestMetrics m = req.getAWSRequestMetrics();
+        TimingInfo ti = m.getTimingInfo();
+        final String metricName = Field.ClientSideRateLimit.name();
+        Number rate = ti.getCounter(metricName);
+        if (rate == null) {
+            return Collections.emptyList();
+        }
+        MetricDatum datum = new MetricDatum()
+            .withMetricName(req.getServiceName())
+            .withDimensions(new Dimension()
+                    .withName(Dimensions.MetricType.name())
+                    .withValue(metricName),
+                new Dimension()
+                    .withName(Dimensions.RequestType.name())
+                    .withValue(requestType(req)))
+            .withUnit(StandardUnit.CountSecond)
+            .withValue(rate.doubleValue())
+            .withTimestamp(endTimestamp(ti));
+        return Collections.singletonList(datum);
+    }
 }
@@ -284,6 +284,17 @@ public class OperationModel extends DocumentationModel {
         this.simpleMethods.add(form);
     }
 
+    /**
+     * @return True if the operation streams its input or its output. The asynchronous client runs
+     *         such operations on its executor, as the non-blocking transport buffers payloads.
+     */
+    @JsonIgnore
+    public boolean isStreaming() {
+        return inputStreamPropertyName != null
+               || (inputShape != null && inputShape.isHasStreamingMember())
+               || (outputShape != null && outputShape.isHasStreamingMember());
+    }
+
     public boolean getHasBlobMemberAsPayload() {
         return this.hasBlobMemberAsPayload;
     }
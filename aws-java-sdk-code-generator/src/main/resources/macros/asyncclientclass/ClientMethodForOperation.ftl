@@ -1,4 +1,4 @@
-<#macro content operation>
+<#macro content operation metadata>
 
 @Override
 <#if operation.deprecated>
@@ -18,6 +18,8 @@ public ${operation.asyncFutureType} ${operation.methodName}Async(
     final ${operation.input.variableType} request,
     final ${operation.asyncHandlerType} asyncHandler) {
 
+<#if operation.streaming>
+    <#-- The non-blocking transport buffers payloads, so streams stay on the executor -->
     return executorService.submit(new ${operation.asyncCallableType}() {
         @Override
         public ${operation.asyncReturnType} call() throws Exception {
@@ -43,5 +45,37 @@ public ${operation.asyncFutureType} ${operation.methodName}Async(
             return result;
         }
     });
+<#else>
+    ExecutionContext executionContext = createExecutionContext(request);
+    AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+    awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+    Request<${operation.input.variableType}> marshalled = null;
+
+    try {
+        awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+        try {
+            marshalled = <@RequestMarshallerCreation.content operation />.marshall(
+                super.beforeMarshalling(request));
+            // Binds the request metrics to the current request.
+            marshalled.setAWSRequestMetrics(awsRequestMetrics);
+        } finally {
+            awsRequestMetrics.endEvent(Field.RequestMarshallTime);
+        }
+
+        <#if operation.returnType??>
+            <@ResponseHandlerCreation.content operation, metadata, "new ${operation.syncReturnType}${metadata.unmarshallerClassSuffix}()", operation.returnType.returnType />
+        <#else>
+            <@ResponseHandlerCreation.content operation, metadata, "null", "Void" />
+        </#if>
+        <#if operation.authenticated>
+        return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        <#else>
+        return anonymousInvokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        </#if>
+    } catch (RuntimeException e) {
+        endClientExecution(awsRequestMetrics, marshalled, null);
+        return failedAsync(e, asyncHandler);
+    }
+</#if>
 }
 </#macro>
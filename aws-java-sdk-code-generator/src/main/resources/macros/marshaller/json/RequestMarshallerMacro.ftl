@@ -7,7 +7,6 @@
 ${dataModel.fileHeader}
 package ${metadata.packageName}.model.transform;
 
-import java.io.ByteArrayInputStream;
 import java.util.Collections;
 import java.util.Map;
 import java.util.List;
@@ -17,6 +16,7 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.Request;
 import com.amazonaws.DefaultRequest;
 import com.amazonaws.http.HttpMethodName;
+import com.amazonaws.internal.ChunkedByteArrayInputStream;
 import ${metadata.packageName}.model.*;
 import com.amazonaws.transform.Marshaller;
 import com.amazonaws.util.BinaryUtils;
@@ -66,9 +66,9 @@ public class ${shapeName}Marshaller implements Marshaller<Request<${shapeName}>,
 
           jsonGenerator.writeEndObject();
 
-          byte[] content = jsonGenerator.getBytes();
-          request.setContent(new ByteArrayInputStream(content));
-          request.addHeader("Content-Length", Integer.toString(content.length));
+          ChunkedByteArrayInputStream content = StructuredJsonContent.of(jsonGenerator);
+          request.setContent(content);
+          request.addHeader("Content-Length", Long.toString(content.getLength()));
           request.addHeader("Content-Type", protocolFactory.getContentType());
         } catch(Throwable t) {
           throw new AmazonClientException("Unable to marshall request to JSON: " + t.getMessage(), t);
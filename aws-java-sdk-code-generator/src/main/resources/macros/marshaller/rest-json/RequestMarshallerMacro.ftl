@@ -25,6 +25,7 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.Request;
 import com.amazonaws.DefaultRequest;
 import com.amazonaws.http.HttpMethodName;
+import com.amazonaws.internal.ChunkedByteArrayInputStream;
 import ${metadata.packageName}.model.*;
 import com.amazonaws.transform.Marshaller;
 import com.amazonaws.util.BinaryUtils;
@@ -88,9 +89,9 @@ public class ${shapeName}Marshaller implements Marshaller<Request<${shapeName}>,
                         jsonGenerator.writeEndObject();
                     }
 
-                    byte[] content = jsonGenerator.getBytes();
-                    request.setContent(new ByteArrayInputStream(content));
-                    request.addHeader("Content-Length", Integer.toString(content.length));
+                    ChunkedByteArrayInputStream content = StructuredJsonContent.of(jsonGenerator);
+                    request.setContent(content);
+                    request.addHeader("Content-Length", Long.toString(content.getLength()));
                     if (!request.getHeaders().containsKey("Content-Type")) {
                         request.addHeader("Content-Type", protocolFactory.getContentType());
                     }
@@ -115,9 +116,9 @@ public class ${shapeName}Marshaller implements Marshaller<Request<${shapeName}>,
 
             jsonGenerator.writeEndObject();
 
-            byte[] content = jsonGenerator.getBytes();
-            request.setContent(new ByteArrayInputStream(content));
-            request.addHeader("Content-Length", Integer.toString(content.length));
+            ChunkedByteArrayInputStream content = StructuredJsonContent.of(jsonGenerator);
+            request.setContent(content);
+            request.addHeader("Content-Length", Long.toString(content.getLength()));
             if (!request.getHeaders().containsKey("Content-Type")) {
                 request.addHeader("Content-Type", protocolFactory.getContentType());
             }
@@ -1,5 +1,5 @@
 <#macro content serviceModelRoot>
-    private final SdkJsonProtocolFactory protocolFactory = new SdkJsonProtocolFactory(new JsonClientMetadata()
+    final SdkJsonProtocolFactory protocolFactory = new SdkJsonProtocolFactory(new JsonClientMetadata()
         .withProtocolVersion("${serviceModelRoot.metadata.jsonVersion}")
         .withSupportsCbor(${serviceModelRoot.metadata.cborProtocol?c})
         .withSupportsIon(${serviceModelRoot.metadata.ionProtocol?c})
@@ -2,8 +2,14 @@ ${fileHeader}
 package ${metadata.packageName};
 
 import ${metadata.packageName}.model.*;
+import ${metadata.packageName}.model.transform.*;
+import com.amazonaws.*;
 import com.amazonaws.client.AwsAsyncClientParams;
 import com.amazonaws.annotation.ThreadSafe;
+import com.amazonaws.http.*;
+import com.amazonaws.protocol.json.*;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
 
 /**
  * Interface for accessing ${metadata.serviceName} asynchronously. Each
@@ -235,7 +241,7 @@ public class ${metadata.asyncClient} extends ${metadata.syncClient}
     }
 
   <#list operations?values as operationModel>
-    <@AsyncClientMethodForOperation.content operationModel />
+    <@AsyncClientMethodForOperation.content operationModel metadata />
     <@AsyncClientMethodForOperationWithSimpleForm.content operationModel />
   </#list>
 
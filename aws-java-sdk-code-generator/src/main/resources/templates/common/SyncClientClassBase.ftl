@@ -326,6 +326,51 @@ public class ${metadata.syncClient} extends AmazonWebServiceClient implements ${
                 errorResponseHandler, executionContext);
     }
 
+    /**
+     * Asynchronous counterpart of {@link #invoke}, used by ${metadata.asyncClient}.
+     **/
+    <X, Y extends AmazonWebServiceRequest> java.util.concurrent.Future<X> invokeAsync(Y originalRequest,
+            Request<Y> request,
+            HttpResponseHandler<AmazonWebServiceResponse<X>> responseHandler,
+            ExecutionContext executionContext,
+            AsyncHandler<Y, X> asyncHandler) {
+
+        executionContext.setCredentialsProvider(CredentialUtils.getCredentialsProvider
+            (request.getOriginalRequest(), awsCredentialsProvider));
+
+        return doInvokeAsync(originalRequest, request, responseHandler, executionContext, asyncHandler);
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #anonymousInvoke}, used by ${metadata.asyncClient}.
+     **/
+    <X, Y extends AmazonWebServiceRequest> java.util.concurrent.Future<X> anonymousInvokeAsync(Y originalRequest,
+            Request<Y> request,
+            HttpResponseHandler<AmazonWebServiceResponse<X>> responseHandler,
+            ExecutionContext executionContext,
+            AsyncHandler<Y, X> asyncHandler) {
+
+        return doInvokeAsync(originalRequest, request, responseHandler, executionContext, asyncHandler);
+    }
+
+    /**
+     * Sends the request on the non-blocking transport of the http client, so no thread waits on it
+     * while it is in flight.
+     **/
+    private <X, Y extends AmazonWebServiceRequest> java.util.concurrent.Future<X> doInvokeAsync(Y originalRequest,
+            Request<Y> request,
+            HttpResponseHandler<AmazonWebServiceResponse<X>> responseHandler,
+            ExecutionContext executionContext,
+            AsyncHandler<Y, X> asyncHandler) {
+        request.setEndpoint(endpoint);
+        request.setTimeOffset(timeOffset);
+
+        <@ClientInvokeMethodErrorResponseHandlerCreation.content metadata customizationConfig />
+
+        return executeAsync(originalRequest, request, responseHandler,
+                errorResponseHandler, executionContext, asyncHandler);
+    }
+
     <#if hasWaiters>
         public ${metadata.syncInterface}Waiters waiters(){
             if(waiters == null) {
@@ -50,6 +50,8 @@ class ${waiter.waiterName} {
 
             private static final JmesPathExpression ast = ${acceptor.ast};
 
+            private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
             /**
               * Takes the result and determines whether the state of the
               * resource matches the expected state. To determine the current
@@ -62,8 +64,7 @@ class ${waiter.waiterName} {
               */
             @Override
             public boolean matches(${outputType} result) {
-                JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-                JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+                JsonNode finalResult = compiledAst.evaluate(result);
                 return AcceptorPathMatcher.${acceptor.matcher}(expectedResult, finalResult);
             }
         </#if>
@@ -6,7 +6,7 @@ import ${metadata.packageName}.${metadata.syncInterface};
 import ${metadata.packageName}.model.*;
 import com.amazonaws.waiters.*;
 
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Executors;
 
 public class ${className}{
@@ -16,7 +16,7 @@ public class ${className}{
       */
     private final ${metadata.syncInterface} client;
 
-    private final ExecutorService executorService = Executors.newFixedThreadPool(50);
+    private final ScheduledExecutorService executorService = Executors.newScheduledThreadPool(50);
 
     /**
       * Constructs a new ${className} with the
@@ -17,7 +17,7 @@ import com.amazonaws.services.codedeploy.AmazonCodeDeploy;
 import com.amazonaws.services.codedeploy.model.*;
 import com.amazonaws.waiters.*;
 
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Executors;
 
 public class AmazonCodeDeployWaiters {
@@ -27,7 +27,7 @@ public class AmazonCodeDeployWaiters {
      */
     private final AmazonCodeDeploy client;
 
-    private final ExecutorService executorService = Executors.newFixedThreadPool(50);
+    private final ScheduledExecutorService executorService = Executors.newScheduledThreadPool(50);
 
     /**
      * Constructs a new AmazonCodeDeployWaiters with the given client
@@ -20,10 +20,12 @@ import com.amazonaws.auth.RegionAwareSigner;
 import com.amazonaws.auth.Signer;
 import com.amazonaws.auth.SignerFactory;
 import com.amazonaws.client.AwsSyncClientParams;
+import com.amazonaws.handlers.AsyncHandler;
 import com.amazonaws.handlers.RequestHandler;
 import com.amazonaws.handlers.RequestHandler2;
 import com.amazonaws.http.AmazonHttpClient;
 import com.amazonaws.http.ExecutionContext;
+import com.amazonaws.http.HttpResponseHandler;
 import com.amazonaws.internal.DefaultServiceEndpointBuilder;
 import com.amazonaws.internal.auth.DefaultSignerProvider;
 import com.amazonaws.internal.auth.SignerProviderContext;
@@ -45,7 +47,10 @@ import org.apache.commons.logging.LogFactory;
 
 import java.net.URI;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import static com.amazonaws.SDKGlobalConfiguration.PROFILING_SYSTEM_PROPERTY;
 
@@ -443,7 +448,7 @@ public abstract class AmazonWebServiceClient {
 
     protected ExecutionContext createExecutionContext(AmazonWebServiceRequest req,
                                                       SignerProvider signerProvider) {
-        boolean isMetricsEnabled = isRequestMetricsEnabled(req) || isProfilingEnabled();
+        boolean isMetricsEnabled = isFullRequestMetricsEnabled(req) || isProfilingEnabled();
         return ExecutionContext.builder()
                 .withRequestHandler2s(requestHandler2s)
                 .withUseRequestMetrics(isMetricsEnabled)
@@ -476,6 +481,21 @@ public abstract class AmazonWebServiceClient {
         return isRMCEnabledAtClientOrSdkLevel();
     }
 
+    /**
+     * Returns true if request metric collection is applicable to the given
+     * request and the collector needs the full request metrics; false
+     * otherwise.
+     *
+     * @see RequestMetricCollector#isFullSupportRequired()
+     */
+    private boolean isFullRequestMetricsEnabled(AmazonWebServiceRequest req) {
+        RequestMetricCollector c = req.getRequestMetricCollector(); // request level collector
+        if (c == null || !c.isEnabled()) {
+            c = requestMetricCollector();
+        }
+        return c != null && c.isEnabled() && c.isFullSupportRequired();
+    }
+
     /**
      * Returns true if request metric collection is enabled at the service
      * client or AWS SDK level request; false otherwise.
@@ -590,6 +610,120 @@ public abstract class AmazonWebServiceClient {
         }
     }
 
+    /**
+     * Sends an already marshalled request on the non-blocking transport of the http client. Once
+     * the request has completed, the client execution started by the caller is ended the same way
+     * {@link #endClientExecution(AWSRequestMetrics, Request, Response)} ends it for a synchronous
+     * call, then the optional handler is notified with the request the caller was given, and only
+     * then is the returned future completed.
+     *
+     * @param originalRequest The request as passed in by the caller of the asynchronous method
+     * @param request The marshalled request, with its endpoint and request metrics already set
+     * @param asyncHandler Optional callback notified once the request has completed; may be null
+     * @return A future holding the unmarshalled result, or the exception the request failed with.
+     */
+    @SdkProtectedApi
+    protected final <X extends AmazonWebServiceRequest, Y extends AmazonWebServiceRequest, T> Future<T> executeAsync(
+            X originalRequest, Request<Y> request,
+            HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler,
+            HttpResponseHandler<AmazonServiceException> errorResponseHandler,
+            ExecutionContext executionContext, AsyncHandler<X, T> asyncHandler) {
+        AsyncClientExecution<X, Y, T> execution = new AsyncClientExecution<X, Y, T>(
+                originalRequest, request, executionContext.getAwsRequestMetrics(), asyncHandler);
+        execution.setHttpFuture(client.executeAsyncWithResponse(request, responseHandler,
+                errorResponseHandler, executionContext, execution));
+        return execution;
+    }
+
+    /**
+     * Returns a future that has already failed with the given exception, after notifying the
+     * optional handler; used by the asynchronous clients when a request can't even be sent, for
+     * instance because it failed to marshall.
+     */
+    @SdkProtectedApi
+    protected final <X extends AmazonWebServiceRequest, T> Future<T> failedAsync(
+            Exception exception, AsyncHandler<X, T> asyncHandler) {
+        AsyncClientExecution<X, X, T> execution = new AsyncClientExecution<X, X, T>(
+                null, null, null, asyncHandler);
+        execution.onError(exception);
+        return execution;
+    }
+
+    /**
+     * Future returned by {@link #executeAsync}; completed from the callback of the http client
+     * rather than by running a task, and cancelling it aborts the request on the wire.
+     */
+    private class AsyncClientExecution<X extends AmazonWebServiceRequest, Y extends AmazonWebServiceRequest, T>
+            extends FutureTask<T> implements AsyncHandler<Y, Response<T>> {
+
+        private final X originalRequest;
+        private final Request<Y> request;
+        private final AWSRequestMetrics awsRequestMetrics;
+        private final AsyncHandler<X, T> asyncHandler;
+        private volatile Future<Response<T>> httpFuture;
+
+        AsyncClientExecution(X originalRequest, Request<Y> request,
+                             AWSRequestMetrics awsRequestMetrics, AsyncHandler<X, T> asyncHandler) {
+            super(new Callable<T>() {
+                @Override
+                public T call() {
+                    throw new IllegalStateException("Completed by the http client");
+                }
+            });
+            this.originalRequest = originalRequest;
+            this.request = request;
+            this.awsRequestMetrics = awsRequestMetrics;
+            this.asyncHandler = asyncHandler;
+        }
+
+        void setHttpFuture(Future<Response<T>> httpFuture) {
+            this.httpFuture = httpFuture;
+            // The caller may have cancelled before the http client handed back its future.
+            if (isCancelled()) {
+                httpFuture.cancel(true);
+            }
+        }
+
+        @Override
+        public void onSuccess(Y ignored, Response<T> response) {
+            endClientExecution(awsRequestMetrics, request, response);
+            T result = response.getAwsResponse();
+            if (asyncHandler != null) {
+                try {
+                    asyncHandler.onSuccess(originalRequest, result);
+                } catch (RuntimeException e) {
+                    log.warn("AsyncHandler.onSuccess threw an exception", e);
+                }
+            }
+            set(result);
+        }
+
+        @Override
+        public void onError(Exception exception) {
+            if (request != null) {
+                endClientExecution(awsRequestMetrics, request, null);
+            }
+            if (asyncHandler != null) {
+                try {
+                    asyncHandler.onError(exception);
+                } catch (RuntimeException e) {
+                    log.warn("AsyncHandler.onError threw an exception", e);
+                }
+            }
+            setException(exception);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            Future<Response<T>> current = httpFuture;
+            if (cancelled && current != null) {
+                current.cancel(true);
+            }
+            return cancelled;
+        }
+    }
+
     /**
      * @deprecated by {@link #getServiceName()}.
      */
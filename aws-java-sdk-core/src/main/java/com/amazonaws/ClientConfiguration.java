@@ -113,6 +113,46 @@ public class ClientConfiguration {
      */
     public static final int DEFAULT_RESPONSE_METADATA_CACHE_SIZE = 50;
 
+    /**
+     * The default response metadata sample interval, i.e. the metadata of every response is
+     * cached.
+     */
+    public static final int DEFAULT_RESPONSE_METADATA_SAMPLE_INTERVAL = 1;
+
+    /**
+     * The default on whether to coalesce the byte transfer progress events of a request.
+     */
+    public static final boolean DEFAULT_USE_PROGRESS_EVENT_COALESCING = false;
+
+    /**
+     * The default maximum time in milliseconds byte transfer progress events are held back
+     * before being delivered, when they are coalesced.
+     */
+    public static final int DEFAULT_PROGRESS_EVENT_COALESCING_INTERVAL = 100;
+
+    /**
+     * The default number of transferred bytes that causes coalesced byte transfer progress events
+     * to be delivered before the interval elapses.
+     */
+    public static final int DEFAULT_PROGRESS_EVENT_COALESCING_BYTE_THRESHOLD = 1024 * 1024;
+
+    /**
+     * The default number of I/O dispatcher threads used by the non-blocking transport. A value of
+     * zero means one dispatcher per available processor.
+     */
+    public static final int DEFAULT_NON_BLOCKING_IO_THREAD_COUNT = 0;
+
+    /**
+     * The default on whether to limit the rate of requests on the client side.
+     */
+    public static final boolean DEFAULT_USE_CLIENT_SIDE_RATE_LIMITING = false;
+
+    /**
+     * The default maximum time, in milliseconds, a request waits for the client side rate
+     * limiter. A negative value means requests wait as long as needed.
+     */
+    public static final long DEFAULT_CLIENT_SIDE_RATE_LIMIT_MAX_WAIT = -1;
+
 
     /** A prefix to the HTTP user agent header passed with all HTTP requests.  */
     private String userAgentPrefix = DEFAULT_USER_AGENT;
@@ -270,6 +310,29 @@ public class ClientConfiguration {
      */
     private int responseMetadataCacheSize = DEFAULT_RESPONSE_METADATA_CACHE_SIZE;
 
+    /**
+     * One in how many successful responses have their metadata cached; zero to only cache the
+     * metadata of failed requests.
+     */
+    private int responseMetadataSampleInterval = DEFAULT_RESPONSE_METADATA_SAMPLE_INTERVAL;
+
+    /**
+     * Whether the byte transfer progress events of a request are coalesced and delivered to its
+     * progress listener in batches.
+     */
+    private boolean useProgressEventCoalescing = DEFAULT_USE_PROGRESS_EVENT_COALESCING;
+
+    /**
+     * The maximum time in milliseconds coalesced byte transfer progress events are held back.
+     */
+    private int progressEventCoalescingInterval = DEFAULT_PROGRESS_EVENT_COALESCING_INTERVAL;
+
+    /**
+     * The number of transferred bytes that causes coalesced byte transfer progress events to be
+     * delivered before the interval elapses.
+     */
+    private int progressEventCoalescingByteThreshold = DEFAULT_PROGRESS_EVENT_COALESCING_BYTE_THRESHOLD;
+
     /**
      * The DNS Resolver to resolve IP addresses of Amazon Web Services.
      */
@@ -303,6 +366,24 @@ public class ClientConfiguration {
      */
     private final ApacheHttpClientConfig apacheHttpClientConfig;
 
+    /**
+     * Number of I/O dispatcher threads driving the event loop of the non-blocking transport used
+     * by {@link com.amazonaws.http.AmazonHttpClient#executeAsync}. The same number of threads is
+     * used to run signing, request handler callbacks and unmarshalling for asynchronous requests.
+     */
+    private int nonBlockingIoThreadCount = DEFAULT_NON_BLOCKING_IO_THREAD_COUNT;
+
+    /**
+     * Whether the rate of requests is limited on the client side, from the throttling responses
+     * of the service.
+     */
+    private boolean useClientSideRateLimiting = DEFAULT_USE_CLIENT_SIDE_RATE_LIMITING;
+
+    /**
+     * The maximum time, in milliseconds, a request waits for the client side rate limiter.
+     */
+    private long clientSideRateLimitMaxWait = DEFAULT_CLIENT_SIDE_RATE_LIMIT_MAX_WAIT;
+
     public ClientConfiguration() {
         apacheHttpClientConfig = new ApacheHttpClientConfig();
     }
@@ -334,6 +415,10 @@ public class ClientConfiguration {
         this.socketSendBufferSizeHint = other.socketSendBufferSizeHint;
         this.signerOverride = other.signerOverride;
         this.responseMetadataCacheSize = other.responseMetadataCacheSize;
+        this.responseMetadataSampleInterval = other.responseMetadataSampleInterval;
+        this.useProgressEventCoalescing = other.useProgressEventCoalescing;
+        this.progressEventCoalescingInterval = other.progressEventCoalescingInterval;
+        this.progressEventCoalescingByteThreshold = other.progressEventCoalescingByteThreshold;
         this.dnsResolver = other.dnsResolver;
         this.useExpectContinue = other.useExpectContinue;
         this.apacheHttpClientConfig = new ApacheHttpClientConfig(other.apacheHttpClientConfig);
@@ -342,6 +427,9 @@ public class ClientConfiguration {
         this.connectionMaxIdleMillis = other.connectionMaxIdleMillis;
         this.tcpKeepAlive = other.tcpKeepAlive;
         this.secureRandom = other.secureRandom;
+        this.nonBlockingIoThreadCount = other.nonBlockingIoThreadCount;
+        this.useClientSideRateLimiting = other.useClientSideRateLimiting;
+        this.clientSideRateLimitMaxWait = other.clientSideRateLimitMaxWait;
         this.headers.clear();
         this.headers.putAll(other.headers);
     }
@@ -1841,6 +1929,155 @@ public class ClientConfiguration {
         return this;
     }
 
+    /**
+     * Returns one in how many successful responses have their metadata cached. Zero means only
+     * the metadata of failed requests is cached.
+     */
+    public int getResponseMetadataSampleInterval() {
+        return responseMetadataSampleInterval;
+    }
+
+    /**
+     * Sets one in how many successful responses have their metadata cached, when response
+     * metadata caching is enabled. The metadata of failed requests, which holds the request ID
+     * of the last error response, is always cached. Sampling keeps metadata available for
+     * troubleshooting while reducing the overhead of caching in high throughput applications.
+     * By default, it is set to {@value #DEFAULT_RESPONSE_METADATA_SAMPLE_INTERVAL}, i.e. the
+     * metadata of every response is cached.
+     *
+     * @param responseMetadataSampleInterval
+     *            one in how many successful responses to cache the metadata of, or zero to only
+     *            cache the metadata of failed requests.
+     */
+    public void setResponseMetadataSampleInterval(int responseMetadataSampleInterval) {
+        this.responseMetadataSampleInterval = responseMetadataSampleInterval;
+    }
+
+    /**
+     * Sets one in how many successful responses have their metadata cached, when response
+     * metadata caching is enabled. By default, it is set to
+     * {@value #DEFAULT_RESPONSE_METADATA_SAMPLE_INTERVAL}.
+     *
+     * @param responseMetadataSampleInterval
+     *            one in how many successful responses to cache the metadata of, or zero to only
+     *            cache the metadata of failed requests.
+     * @return The updated ClientConfiguration object.
+     * @see #setResponseMetadataSampleInterval(int)
+     */
+    public ClientConfiguration withResponseMetadataSampleInterval(int responseMetadataSampleInterval) {
+        setResponseMetadataSampleInterval(responseMetadataSampleInterval);
+        return this;
+    }
+
+    /**
+     * Checks if byte transfer progress events are coalesced.
+     *
+     * @return true if byte transfer progress events are coalesced.
+     */
+    public boolean useProgressEventCoalescing() {
+        return useProgressEventCoalescing;
+    }
+
+    /**
+     * Sets whether the byte transfer progress events of a request are coalesced. When enabled,
+     * the bytes reported by consecutive byte transfer events are added up and delivered to the
+     * progress listener of the request as a single event once the configured number of bytes has
+     * been transferred, the configured interval has elapsed or another kind of event is
+     * published, whichever comes first. Events are then delivered in batches rather than one
+     * callback task per event, and publishing them never blocks the thread doing the I/O. By
+     * default, it is set to {@value #DEFAULT_USE_PROGRESS_EVENT_COALESCING}.
+     *
+     * @param use
+     *            true if byte transfer progress events should be coalesced.
+     */
+    public void setUseProgressEventCoalescing(boolean use) {
+        this.useProgressEventCoalescing = use;
+    }
+
+    /**
+     * Sets whether the byte transfer progress events of a request are coalesced, and returns the
+     * updated ClientConfiguration object.
+     *
+     * @param use
+     *            true if byte transfer progress events should be coalesced.
+     * @return The updated ClientConfiguration object.
+     * @see #setUseProgressEventCoalescing(boolean)
+     */
+    public ClientConfiguration withProgressEventCoalescing(boolean use) {
+        setUseProgressEventCoalescing(use);
+        return this;
+    }
+
+    /**
+     * Returns the maximum time in milliseconds coalesced byte transfer progress events are held
+     * back before being delivered.
+     */
+    public int getProgressEventCoalescingInterval() {
+        return progressEventCoalescingInterval;
+    }
+
+    /**
+     * Sets the maximum time in milliseconds coalesced byte transfer progress events are held back
+     * before being delivered, when progress event coalescing is enabled. By default, it is set
+     * to {@value #DEFAULT_PROGRESS_EVENT_COALESCING_INTERVAL}.
+     *
+     * @param progressEventCoalescingInterval
+     *            the maximum time in milliseconds to hold back byte transfer progress events.
+     */
+    public void setProgressEventCoalescingInterval(int progressEventCoalescingInterval) {
+        this.progressEventCoalescingInterval = progressEventCoalescingInterval;
+    }
+
+    /**
+     * Sets the maximum time in milliseconds coalesced byte transfer progress events are held back
+     * before being delivered, and returns the updated ClientConfiguration object.
+     *
+     * @param progressEventCoalescingInterval
+     *            the maximum time in milliseconds to hold back byte transfer progress events.
+     * @return The updated ClientConfiguration object.
+     * @see #setProgressEventCoalescingInterval(int)
+     */
+    public ClientConfiguration withProgressEventCoalescingInterval(int progressEventCoalescingInterval) {
+        setProgressEventCoalescingInterval(progressEventCoalescingInterval);
+        return this;
+    }
+
+    /**
+     * Returns the number of transferred bytes that causes coalesced byte transfer progress events
+     * to be delivered before the interval elapses.
+     */
+    public int getProgressEventCoalescingByteThreshold() {
+        return progressEventCoalescingByteThreshold;
+    }
+
+    /**
+     * Sets the number of transferred bytes that causes coalesced byte transfer progress events to
+     * be delivered before the interval elapses, when progress event coalescing is enabled. By
+     * default, it is set to {@value #DEFAULT_PROGRESS_EVENT_COALESCING_BYTE_THRESHOLD}.
+     *
+     * @param progressEventCoalescingByteThreshold
+     *            the number of bytes after which coalesced events are delivered.
+     */
+    public void setProgressEventCoalescingByteThreshold(int progressEventCoalescingByteThreshold) {
+        this.progressEventCoalescingByteThreshold = progressEventCoalescingByteThreshold;
+    }
+
+    /**
+     * Sets the number of transferred bytes that causes coalesced byte transfer progress events to
+     * be delivered before the interval elapses, and returns the updated ClientConfiguration
+     * object.
+     *
+     * @param progressEventCoalescingByteThreshold
+     *            the number of bytes after which coalesced events are delivered.
+     * @return The updated ClientConfiguration object.
+     * @see #setProgressEventCoalescingByteThreshold(int)
+     */
+    public ClientConfiguration withProgressEventCoalescingByteThreshold(
+            int progressEventCoalescingByteThreshold) {
+        setProgressEventCoalescingByteThreshold(progressEventCoalescingByteThreshold);
+        return this;
+    }
+
     /**
      * Returns a non-null object that can be used to specify Apache HTTP client specific custom
      * configurations.
@@ -1908,6 +2145,119 @@ public class ClientConfiguration {
         return this;
     }
 
+    /**
+     * Returns the number of I/O dispatcher threads used by the non-blocking transport. A value of
+     * zero (the default) means one dispatcher thread per available processor.
+     */
+    public int getNonBlockingIoThreadCount() {
+        return nonBlockingIoThreadCount;
+    }
+
+    /**
+     * Sets the number of I/O dispatcher threads used by the non-blocking transport. The same number
+     * of threads is used to run signing, request handler callbacks and unmarshalling for requests
+     * executed asynchronously. By default, it is set to
+     * {@value #DEFAULT_NON_BLOCKING_IO_THREAD_COUNT}, i.e. one thread per available processor.
+     *
+     * @param nonBlockingIoThreadCount
+     *            number of I/O dispatcher threads.
+     */
+    public void setNonBlockingIoThreadCount(int nonBlockingIoThreadCount) {
+        this.nonBlockingIoThreadCount = nonBlockingIoThreadCount;
+    }
+
+    /**
+     * Sets the number of I/O dispatcher threads used by the non-blocking transport. By default, it
+     * is set to {@value #DEFAULT_NON_BLOCKING_IO_THREAD_COUNT}, i.e. one thread per available
+     * processor.
+     *
+     * @param nonBlockingIoThreadCount
+     *            number of I/O dispatcher threads.
+     * @return The updated ClientConfiguration object.
+     */
+    public ClientConfiguration withNonBlockingIoThreadCount(int nonBlockingIoThreadCount) {
+        setNonBlockingIoThreadCount(nonBlockingIoThreadCount);
+        return this;
+    }
+
+    /**
+     * Checks if the rate of requests is limited on the client side.
+     * <p>
+     * Client side rate limiting slows down the requests of an operation once the service starts
+     * throttling them. Each operation is limited to a rate which is decreased each time a request
+     * is throttled and slowly increased as requests succeed, until requests are no longer
+     * throttled. Requests wait before being sent rather than being throttled and retried.
+     * </p>
+     *
+     * @return true if client side rate limiting is used
+     */
+    public boolean useClientSideRateLimiting() {
+        return useClientSideRateLimiting;
+    }
+
+    /**
+     * Sets whether the rate of requests is limited on the client side. By default, it is set to
+     * {@value #DEFAULT_USE_CLIENT_SIDE_RATE_LIMITING}.
+     *
+     * @param use
+     *            true if client side rate limiting should be used
+     * @see #useClientSideRateLimiting()
+     */
+    public void setUseClientSideRateLimiting(boolean use) {
+        this.useClientSideRateLimiting = use;
+    }
+
+    /**
+     * Sets whether the rate of requests is limited on the client side. By default, it is set to
+     * {@value #DEFAULT_USE_CLIENT_SIDE_RATE_LIMITING}.
+     *
+     * @param use
+     *            true if client side rate limiting should be used
+     * @return The updated ClientConfiguration object.
+     * @see #useClientSideRateLimiting()
+     */
+    public ClientConfiguration withClientSideRateLimiting(boolean use) {
+        setUseClientSideRateLimiting(use);
+        return this;
+    }
+
+    /**
+     * Returns the maximum time, in milliseconds, a request waits for the client side rate limiter
+     * before failing with an {@link AmazonClientException}. A negative value (the default) means
+     * requests wait as long as needed, and zero means requests fail instead of waiting.
+     */
+    public long getClientSideRateLimitMaxWait() {
+        return clientSideRateLimitMaxWait;
+    }
+
+    /**
+     * Sets the maximum time, in milliseconds, a request waits for the client side rate limiter
+     * before failing with an {@link AmazonClientException}. A negative value means requests wait
+     * as long as needed, and zero means requests fail instead of waiting. By default, it is set
+     * to {@value #DEFAULT_CLIENT_SIDE_RATE_LIMIT_MAX_WAIT}.
+     *
+     * @param clientSideRateLimitMaxWait
+     *            the maximum wait in milliseconds.
+     */
+    public void setClientSideRateLimitMaxWait(long clientSideRateLimitMaxWait) {
+        this.clientSideRateLimitMaxWait = clientSideRateLimitMaxWait;
+    }
+
+    /**
+     * Sets the maximum time, in milliseconds, a request waits for the client side rate limiter
+     * before failing with an {@link AmazonClientException}. By default, it is set to
+     * {@value #DEFAULT_CLIENT_SIDE_RATE_LIMIT_MAX_WAIT}.
+     *
+     * @param clientSideRateLimitMaxWait
+     *            the maximum wait in milliseconds.
+     * @return The updated ClientConfiguration object.
+     * @see #setClientSideRateLimitMaxWait(long)
+     */
+    public ClientConfiguration withClientSideRateLimitMaxWait(long clientSideRateLimitMaxWait) {
+        setClientSideRateLimitMaxWait(clientSideRateLimitMaxWait);
+        return this;
+    }
+
     /**
      * Adds a header to be added on all requests and returns the {@link ClientConfiguration} object
      *
@@ -20,7 +20,12 @@ import com.amazonaws.SignableRequest;
 import com.amazonaws.auth.internal.AWS4SignerRequestParams;
 import com.amazonaws.auth.internal.AWS4SignerUtils;
 import com.amazonaws.auth.internal.SignerKey;
+import com.amazonaws.auth.internal.SigningScope;
+import com.amazonaws.auth.internal.SigningDigest;
+import com.amazonaws.event.ProgressInputStream;
+import com.amazonaws.internal.ChunkedByteArrayInputStream;
 import com.amazonaws.internal.FIFOCache;
+import com.amazonaws.internal.ReleasableInputStream;
 import com.amazonaws.log.InternalLogApi;
 import com.amazonaws.log.InternalLogFactory;
 import com.amazonaws.util.BinaryUtils;
@@ -38,6 +43,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.TimeUnit;
 
 import static com.amazonaws.auth.internal.SignerConstants.AUTHORIZATION;
@@ -66,6 +72,14 @@ public class AWS4Signer extends AbstractAWSSigner implements
     private static final FIFOCache<SignerKey> signerCache = new FIFOCache<SignerKey>(SIGNER_CACHE_MAX_SIZE);
     private static final List<String> listOfHeadersToIgnoreInLowerCase = Arrays.asList("connection");
 
+    /**
+     * Whether each signer class can stream the canonical request and string to sign into their
+     * digests; it can unless it overrides a method computing them. Weakly keyed so as not to
+     * keep the class loaders of signer subclasses alive.
+     */
+    private static final Map<Class<?>, Boolean> streamingSignerClasses =
+            Collections.synchronizedMap(new WeakHashMap<Class<?>, Boolean>());
+
     /**
      * Service name override for use when the endpoint can't be used to
      * determine the service name.
@@ -81,6 +95,13 @@ public class AWS4Signer extends AbstractAWSSigner implements
     /** Date override for testing only */
     protected Date overriddenDate;
 
+    /**
+     * The region, scope and signing key of the last request signed, reused
+     * while requests go to the same endpoint with the same credentials on the
+     * same day.
+     */
+    private volatile SigningScope lastSigningScope;
+
     /**
      * Whether double url-encode the resource path when constructing the
      * canonical request. By default, we enable double url-encoding.
@@ -186,7 +207,7 @@ public class AWS4Signer extends AbstractAWSSigner implements
 
         final AWS4SignerRequestParams signerParams = new AWS4SignerRequestParams(
                 request, overriddenDate, regionName, serviceName,
-                AWS4_SIGNING_ALGORITHM);
+                AWS4_SIGNING_ALGORITHM, lastSigningScope);
 
         addHostHeader(request);
         request.addHeader(X_AMZ_DATE,
@@ -198,22 +219,38 @@ public class AWS4Signer extends AbstractAWSSigner implements
             request.addHeader(X_AMZ_CONTENT_SHA256, contentSha256);
         }
 
-        final String canonicalRequest = createCanonicalRequest(request,
-                contentSha256);
-
-        final String stringToSign = createStringToSign(canonicalRequest,
-                signerParams);
-
-        final byte[] signingKey = deriveSigningKey(sanitizedCredentials,
-                signerParams);
-
-        final byte[] signature = computeSignature(stringToSign, signingKey,
-                signerParams);
-
-        request.addHeader(
-                AUTHORIZATION,
-                buildAuthorizationHeader(request, signature,
-                        sanitizedCredentials, signerParams));
+        final byte[] signingKey;
+        final byte[] signature;
+        if (canStreamSigningData()) {
+            final String[] signedHeaders = getSortedSignedHeaders(request);
+            final String signedHeadersString = joinSignedHeaders(signedHeaders);
+
+            signingKey = deriveSigningKey(sanitizedCredentials, signerParams);
+            signature = computeSignature(request, contentSha256, signedHeaders,
+                    signedHeadersString, signingKey, signerParams);
+
+            request.addHeader(
+                    AUTHORIZATION,
+                    buildAuthorizationHeader(signedHeadersString, signature,
+                            sanitizedCredentials, signerParams));
+        } else {
+            final String canonicalRequest = createCanonicalRequest(request,
+                    contentSha256);
+
+            final String stringToSign = createStringToSign(canonicalRequest,
+                    signerParams);
+
+            signingKey = deriveSigningKey(sanitizedCredentials,
+                    signerParams);
+
+            signature = computeSignature(stringToSign, signingKey,
+                    signerParams);
+
+            request.addHeader(
+                    AUTHORIZATION,
+                    buildAuthorizationHeader(request, signature,
+                            sanitizedCredentials, signerParams));
+        }
 
         processRequestPayload(request, signature, signingKey,
                 signerParams);
@@ -244,7 +281,7 @@ public class AWS4Signer extends AbstractAWSSigner implements
 
         final AWS4SignerRequestParams signerRequestParams = new AWS4SignerRequestParams(
                 request, overriddenDate, regionName, serviceName,
-                AWS4_SIGNING_ALGORITHM);
+                AWS4_SIGNING_ALGORITHM, lastSigningScope);
 
         // Add the important parameters for v4 signing
         final String timeStamp = signerRequestParams.getFormattedSigningDateTime();
@@ -336,6 +373,23 @@ public class AWS4Signer extends AbstractAWSSigner implements
      */
     private final byte[] deriveSigningKey(AWSCredentials credentials,
             AWS4SignerRequestParams signerRequestParams) {
+        final SigningScope lastScope = lastSigningScope;
+        if (lastScope != null && lastScope.hasSigningKeyFor(signerRequestParams,
+                credentials.getAWSSecretKey())) {
+            return lastScope.getSigningKey();
+        }
+        final byte[] signingKey = deriveSigningKeyFromCache(credentials, signerRequestParams);
+        lastSigningScope = new SigningScope(signerRequestParams.getRequest().getEndpoint().getHost(),
+                signerRequestParams, credentials.getAWSSecretKey(), signingKey);
+        return signingKey;
+    }
+
+    /**
+     * Returns the signing key from the cache shared by all signers, deriving
+     * and caching it if needed.
+     */
+    private final byte[] deriveSigningKeyFromCache(AWSCredentials credentials,
+            AWS4SignerRequestParams signerRequestParams) {
 
         final String cacheKey = computeSigningCacheKeyName(credentials,
                 signerRequestParams);
@@ -390,6 +444,75 @@ public class AWS4Signer extends AbstractAWSSigner implements
                 SigningAlgorithm.HmacSHA256);
     }
 
+    /**
+     * Computes the signature of the given request by writing its canonical
+     * request into a SHA-256 digest, and the string to sign into a HMAC, with
+     * no intermediate strings. Produces the same signature as
+     * {@link #createCanonicalRequest}, {@link #createStringToSign} and
+     * {@link #computeSignature(String, byte[], AWS4SignerRequestParams)}.
+     */
+    private byte[] computeSignature(SignableRequest<?> request,
+            String contentSha256, String[] signedHeaders,
+            String signedHeadersString, byte[] signingKey,
+            AWS4SignerRequestParams signerParams) {
+        /* This would url-encode the resource path for the first time. */
+        final String path = SdkHttpUtils.appendUri(
+                request.getEndpoint().getPath(), request.getResourcePath());
+
+        final SigningDigest digest = SigningDigest.get();
+        digest.append(request.getHttpMethod().toString())
+                .append('\n')
+                // This would optionally double url-encode the resource path
+                .append(getCanonicalizedResourcePath(path, doubleUrlEncode))
+                .append('\n')
+                .append(getCanonicalizedQueryString(request))
+                .append('\n');
+
+        final Map<String, String> requestHeaders = request.getHeaders();
+        for (String header : signedHeaders) {
+            digest.appendCompactedLowerCase(header).append(':');
+            final String value = requestHeaders.get(header);
+            if (value != null) {
+                digest.appendCompacted(value);
+            }
+            digest.append('\n');
+        }
+        digest.append('\n')
+                .append(signedHeadersString)
+                .append('\n')
+                .append(contentSha256);
+        final byte[] canonicalRequestHash = digest.digest();
+
+        return digest.startMac(signingKey)
+                .append(signerParams.getSigningAlgorithm())
+                .append('\n')
+                .append(signerParams.getFormattedSigningDateTime())
+                .append('\n')
+                .append(signerParams.getScope())
+                .append('\n')
+                .appendHex(canonicalRequestHash)
+                .sign();
+    }
+
+    /**
+     * Creates the authorization header to be included in the request.
+     */
+    private String buildAuthorizationHeader(String signedHeadersString,
+            byte[] signature, AWSCredentials credentials,
+            AWS4SignerRequestParams signerParams) {
+        return new StringBuilder(256)
+                .append(AWS4_SIGNING_ALGORITHM)
+                .append(" Credential=")
+                .append(credentials.getAWSAccessKeyId())
+                .append("/")
+                .append(signerParams.getScope())
+                .append(", SignedHeaders=")
+                .append(signedHeadersString)
+                .append(", Signature=")
+                .append(BinaryUtils.toHex(signature))
+                .toString();
+    }
+
     /**
      * Creates the authorization header to be included in the request.
      */
@@ -488,8 +611,83 @@ public class AWS4Signer extends AbstractAWSSigner implements
         return buffer.toString();
     }
 
+    /**
+     * Returns the names of the headers to sign, sorted as in
+     * {@link #getSignedHeadersString(SignableRequest)}.
+     */
+    private String[] getSortedSignedHeaders(SignableRequest<?> request) {
+        final Map<String, String> headers = request.getHeaders();
+        String[] sortedHeaders = headers.keySet().toArray(new String[headers.size()]);
+        Arrays.sort(sortedHeaders, String.CASE_INSENSITIVE_ORDER);
+
+        int signed = 0;
+        for (String header : sortedHeaders) {
+            if (!shouldExcludeHeaderFromSigning(header)) {
+                sortedHeaders[signed++] = header;
+            }
+        }
+        return signed == sortedHeaders.length ? sortedHeaders
+                : Arrays.copyOf(sortedHeaders, signed);
+    }
+
+    private static String joinSignedHeaders(String[] signedHeaders) {
+        final StringBuilder buffer = new StringBuilder(16 * signedHeaders.length);
+        for (String header : signedHeaders) {
+            if (buffer.length() > 0)
+                buffer.append(";");
+            buffer.append(StringUtils.lowerCase(header));
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Returns whether this signer can compute signatures without building the
+     * canonical request and string to sign; it cannot when they are logged,
+     * or when a subclass overrides a method computing them.
+     */
+    private boolean canStreamSigningData() {
+        if (log.isDebugEnabled()) {
+            return false;
+        }
+        final Class<?> signerClass = getClass();
+        Boolean streaming = streamingSignerClasses.get(signerClass);
+        if (streaming == null) {
+            streaming = !overridesSigningData(signerClass);
+            streamingSignerClasses.put(signerClass, streaming);
+        }
+        return streaming;
+    }
+
+    private static boolean overridesSigningData(Class<?> signerClass) {
+        for (Class<?> c = signerClass; c != AWS4Signer.class; c = c.getSuperclass()) {
+            if (declares(c, "createCanonicalRequest", SignableRequest.class, String.class)
+                    || declares(c, "createStringToSign", String.class, AWS4SignerRequestParams.class)
+                    || declares(c, "getCanonicalizedHeaderString", SignableRequest.class)
+                    || declares(c, "getSignedHeadersString", SignableRequest.class)
+                    || declares(c, "sign", byte[].class, byte[].class, SigningAlgorithm.class)
+                    || declares(c, "hash", String.class)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean declares(Class<?> c, String name, Class<?>... parameterTypes) {
+        try {
+            c.getDeclaredMethod(name, parameterTypes);
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
     protected boolean shouldExcludeHeaderFromSigning(String header) {
-        return listOfHeadersToIgnoreInLowerCase.contains(header.toLowerCase());
+        for (String ignored : listOfHeadersToIgnoreInLowerCase) {
+            if (ignored.equalsIgnoreCase(header)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     protected void addHostHeader(SignableRequest<?> request) {
@@ -515,6 +713,10 @@ public class AWS4Signer extends AbstractAWSSigner implements
      */
     protected String calculateContentHash(SignableRequest<?> request) {
         InputStream payloadStream = getBinaryRequestPayloadStream(request);
+        byte[] precomputedHash = getPrecomputedContentHash(payloadStream);
+        if (precomputedHash != null) {
+            return BinaryUtils.toHex(precomputedHash);
+        }
         ReadLimitInfo info = request.getReadLimitInfo();
         payloadStream.mark(info == null ? -1 : info.getReadLimit());
         String contentSha256 = BinaryUtils.toHex(hash(payloadStream));
@@ -528,6 +730,28 @@ public class AWS4Signer extends AbstractAWSSigner implements
         return contentSha256;
     }
 
+    /**
+     * Returns the hash of the remaining payload if it has already been
+     * computed as the payload was generated, or null otherwise. Only the
+     * wrappers known to pass the payload through unchanged are unwrapped.
+     */
+    private static byte[] getPrecomputedContentHash(InputStream payloadStream) {
+        InputStream is = payloadStream;
+        while (true) {
+            if (is instanceof ReleasableInputStream) {
+                is = ((ReleasableInputStream) is).getWrappedInputStream();
+            } else if (is instanceof ProgressInputStream) {
+                is = ((ProgressInputStream) is).getWrappedInputStream();
+            } else {
+                break;
+            }
+        }
+        if (is instanceof ChunkedByteArrayInputStream) {
+            return ((ChunkedByteArrayInputStream) is).getUnreadContentSha256();
+        }
+        return null;
+    }
+
     /**
      * Subclass could override this method to perform any additional procedure
      * on the request payload, with access to the result from signing the
@@ -47,9 +47,38 @@ public class ContainerCredentialsProvider implements AWSCredentialsProvider {
         this(new ECSCredentialsEndpointProvider());
     }
 
+    /**
+     * Refreshes the credentials in the background if refreshCredentialsAsync
+     * is set to true, otherwise the credentials will be refreshed from the
+     * container credentials endpoint synchronously.
+     * <p>
+     * When refreshed in the background, the credentials are first loaded
+     * right away, then reloaded by a shared background thread at a randomized
+     * time before they would need to be refreshed. Callers keep being served
+     * the current credentials without waiting while they are still valid.
+     *
+     * @param refreshCredentialsAsync
+     *            true if credentials needs to be refreshed asynchronously else
+     *            false.
+     */
+    public ContainerCredentialsProvider(boolean refreshCredentialsAsync) {
+        this(new ECSCredentialsEndpointProvider(), refreshCredentialsAsync);
+    }
+
     @SdkInternalApi
     public ContainerCredentialsProvider(CredentialsEndpointProvider credentailsEndpointProvider) {
-        this.credentialsFetcher = new EC2CredentialsFetcher(credentailsEndpointProvider);
+        this(credentailsEndpointProvider, false);
+    }
+
+    @SdkInternalApi
+    public ContainerCredentialsProvider(CredentialsEndpointProvider credentailsEndpointProvider,
+            boolean refreshCredentialsAsync) {
+        this.credentialsFetcher = new EC2CredentialsFetcher(credentailsEndpointProvider,
+                refreshCredentialsAsync);
+
+        if (refreshCredentialsAsync) {
+            credentialsFetcher.refreshInBackground();
+        }
     }
 
     @Override
@@ -15,8 +15,16 @@
 package com.amazonaws.auth;
 
 import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.net.URISyntaxException;
 import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -52,6 +60,25 @@ class EC2CredentialsFetcher {
      */
     private static final int EXPIRATION_THRESHOLD = 1000 * 60 * 15;
 
+    /**
+     * The time before credentials expire (in milliseconds) within which
+     * callers block to load new credentials, even when they are refreshed
+     * in the background.
+     */
+    private static final int ASYNC_BLOCKING_THRESHOLD = 1000 * 60;
+
+    /**
+     * The minimum time (in milliseconds) between background refreshes.
+     */
+    private static final int ASYNC_MIN_REFRESH_DELAY = 1000 * 60;
+
+    /**
+     * The maximum time (in milliseconds) background refreshes are brought
+     * forward by, so that the hosts of a fleet do not all call the endpoint
+     * at the same time.
+     */
+    private static final int ASYNC_REFRESH_JITTER = 1000 * 60 * 5;
+
     /** The name of the Json Object that contains the access key.*/
     private static final String ACCESS_KEY_ID = "AccessKeyId";
 
@@ -73,13 +100,42 @@ class EC2CredentialsFetcher {
     /** Used to load the endpoint where the credentials are stored. */
     private final CredentialsEndpointProvider credentailsEndpointProvider;
 
+    /** Whether credentials are refreshed in the background before they are needed. */
+    private final boolean refreshAsync;
+
+    /** Whether a background refresh is submitted or running. */
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    /** The next background refresh scheduled ahead of the expiration. */
+    private volatile ScheduledFuture<?> scheduledRefresh;
+
     public EC2CredentialsFetcher(CredentialsEndpointProvider credentailsEndpointProvider) {
+        this(credentailsEndpointProvider, false);
+    }
+
+    /**
+     * @param refreshAsync
+     *            true if credentials should be refreshed by a background task
+     *            ahead of their expiration, and callers be served the current
+     *            credentials without waiting for a refresh while they are
+     *            still valid; false to refresh them synchronously.
+     */
+    public EC2CredentialsFetcher(CredentialsEndpointProvider credentailsEndpointProvider,
+            boolean refreshAsync) {
         this.credentailsEndpointProvider = credentailsEndpointProvider;
+        this.refreshAsync = refreshAsync;
     }
 
     public AWSCredentials getCredentials() {
-        if (needsToLoadCredentials())
-            fetchCredentials();
+        if (needsToLoadCredentials()) {
+            if (refreshAsync && !isWithinBlockingThreshold()) {
+                if (isPastAsyncRefreshDelay()) {
+                    refreshInBackground();
+                }
+            } else {
+                fetchCredentials();
+            }
+        }
         if (expired()) {
             throw new AmazonClientException(
                     "The credentials received have been expired");
@@ -110,7 +166,14 @@ class EC2CredentialsFetcher {
      */
     private synchronized void fetchCredentials() {
         if (!needsToLoadCredentials()) return;
+        loadCredentials();
+    }
 
+    /**
+     * Loads the credentials from the endpoint, and schedules the next
+     * background refresh if enabled.
+     */
+    private synchronized void loadCredentials() {
         JsonNode accessKey;
         JsonNode secretKey;
         JsonNode node;
@@ -159,6 +222,77 @@ class EC2CredentialsFetcher {
             handleError("Unable to load credentials from service endpoint", e);
         } catch (URISyntaxException e) {
             handleError("Unable to load credentials from service endpoint", e);
+        } finally {
+            if (refreshAsync) {
+                scheduleRefresh();
+            }
+        }
+    }
+
+    /**
+     * Submits a background refresh of the credentials, unless one is
+     * already in progress. Never blocks.
+     */
+    public void refreshInBackground() {
+        if (refreshing.compareAndSet(false, true)) {
+            try {
+                LazyHolder.executor.execute(new RefreshTask(this));
+            } catch (RuntimeException e) {
+                refreshing.set(false);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Schedules the next background refresh shortly before the credentials
+     * would otherwise be loaded by the callers, less a random jitter.
+     */
+    private void scheduleRefresh() {
+        final long now = System.currentTimeMillis();
+        long delay = (lastInstanceProfileCheck == null ? now : lastInstanceProfileCheck.getTime())
+                + REFRESH_THRESHOLD - now;
+        if (credentialsExpiration != null) {
+            delay = Math.min(delay, credentialsExpiration.getTime() - EXPIRATION_THRESHOLD - now);
+        }
+        if (delay > 0) {
+            delay -= LazyHolder.random.nextInt((int) Math.min(ASYNC_REFRESH_JITTER, delay / 2) + 1);
+        }
+        delay = Math.max(delay, ASYNC_MIN_REFRESH_DELAY);
+
+        final ScheduledFuture<?> previous = scheduledRefresh;
+        if (previous != null) {
+            previous.cancel(false);
+        }
+        scheduledRefresh = LazyHolder.executor.schedule(new ScheduledRefreshTask(this),
+                delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reloads the credentials in the background, keeping the current ones if
+     * that fails. Holds the fetcher weakly so that pending refreshes do not
+     * keep discarded providers alive.
+     */
+    private static final class RefreshTask implements Runnable {
+        private final WeakReference<EC2CredentialsFetcher> fetcher;
+
+        RefreshTask(EC2CredentialsFetcher fetcher) {
+            this.fetcher = new WeakReference<EC2CredentialsFetcher>(fetcher);
+        }
+
+        @Override
+        public void run() {
+            final EC2CredentialsFetcher target = fetcher.get();
+            if (target == null) {
+                return;
+            }
+            try {
+                target.loadCredentials();
+            } catch (RuntimeException e) {
+                LOG.warn("Unable to refresh credentials in the background", e);
+            } finally {
+                target.refreshing.set(false);
+            }
         }
     }
 
@@ -204,6 +338,27 @@ class EC2CredentialsFetcher {
         return (System.currentTimeMillis() - lastInstanceProfileCheck.getTime()) > REFRESH_THRESHOLD;
     }
 
+    /**
+     * Returns true if the last attempt to load credentials is older than the
+     * minimum delay between background refreshes, so that callers don't
+     * retry a failing refresh on every call.
+     */
+    private boolean isPastAsyncRefreshDelay() {
+        final Date lastCheck = lastInstanceProfileCheck;
+        return lastCheck == null
+                || (System.currentTimeMillis() - lastCheck.getTime()) >= ASYNC_MIN_REFRESH_DELAY;
+    }
+
+    /**
+     * Returns true if there are no current credentials, or they expire too
+     * soon to be served while being refreshed in the background.
+     */
+    private boolean isWithinBlockingThreshold() {
+        if (credentials == null) return true;
+        return credentialsExpiration != null
+                && (credentialsExpiration.getTime() - System.currentTimeMillis()) < ASYNC_BLOCKING_THRESHOLD;
+    }
+
     private boolean expired() {
         if (credentialsExpiration != null) {
             if (credentialsExpiration.getTime() < System.currentTimeMillis()) {
@@ -222,4 +377,42 @@ class EC2CredentialsFetcher {
     public String toString() {
         return getClass().getSimpleName();
     }
+
+    /**
+     * Submits a background refresh when the scheduled time comes, holding the
+     * fetcher weakly too.
+     */
+    private static final class ScheduledRefreshTask implements Runnable {
+        private final WeakReference<EC2CredentialsFetcher> fetcher;
+
+        ScheduledRefreshTask(EC2CredentialsFetcher fetcher) {
+            this.fetcher = new WeakReference<EC2CredentialsFetcher>(fetcher);
+        }
+
+        @Override
+        public void run() {
+            final EC2CredentialsFetcher target = fetcher.get();
+            if (target != null) {
+                target.refreshInBackground();
+            }
+        }
+    }
+
+    /**
+     * Used to avoid creating the extra thread until absolutely necessary.
+     */
+    private static final class LazyHolder {
+        /** A single daemon thread refreshing the credentials of all fetchers in the background. */
+        private static final ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r);
+                        t.setName("java-sdk-credentials-refresh-thread");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+
+        private static final Random random = new Random();
+    }
 }
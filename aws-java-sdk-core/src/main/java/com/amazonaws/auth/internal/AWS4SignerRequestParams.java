@@ -18,6 +18,7 @@ import java.util.Date;
 
 import com.amazonaws.SignableRequest;
 import com.amazonaws.util.AwsHostNameUtils;
+import com.amazonaws.util.DateUtils;
 
 /**
  * Parameters that are used for computing a AWS 4 signature for a request.
@@ -35,6 +36,11 @@ public final class AWS4SignerRequestParams {
      */
     private final long signingDateTimeMilli;
 
+    /**
+     * The number of days since epoch of the signing date.
+     */
+    private final long numberOfDaysSinceEpoch;
+
     /**
      * The scope of the signature.
      */
@@ -72,6 +78,23 @@ public final class AWS4SignerRequestParams {
     public AWS4SignerRequestParams(SignableRequest<?> request,
             Date signingDateOverride, String regionNameOverride,
             String serviceName, String signingAlgorithm) {
+        this(request, signingDateOverride, regionNameOverride, serviceName,
+                signingAlgorithm, null);
+    }
+
+    /**
+     * Generates an instance of AWS4signerRequestParams that holds the
+     * parameters used for computing a AWS 4 signature for a request, reusing
+     * the region, date and scope of the given signing scope if it applies to
+     * the request.
+     *
+     * @param previousScope
+     *            the scope a previous request was signed with; may be null
+     */
+    public AWS4SignerRequestParams(SignableRequest<?> request,
+            Date signingDateOverride, String regionNameOverride,
+            String serviceName, String signingAlgorithm,
+            SigningScope previousScope) {
         if (request == null) {
             throw new IllegalArgumentException("Request cannot be null");
         }
@@ -82,14 +105,22 @@ public final class AWS4SignerRequestParams {
         this.request = request;
         this.signingDateTimeMilli = signingDateOverride != null ? signingDateOverride
                 .getTime() : getSigningDate(request);
-        this.formattedSigningDate = AWS4SignerUtils
-                .formatDateStamp(signingDateTimeMilli);
+        this.numberOfDaysSinceEpoch = DateUtils.numberOfDaysSinceEpoch(signingDateTimeMilli);
         this.serviceName = serviceName;
-        this.regionName = regionNameOverride != null ? regionNameOverride
-                : AwsHostNameUtils.parseRegionName(request.getEndpoint()
-                        .getHost(), this.serviceName);
-        this.scope = generateScope(request, formattedSigningDate, this.serviceName,
-                regionName);
+        if (previousScope != null && previousScope.appliesTo(request.getEndpoint().getHost(),
+                regionNameOverride, serviceName, numberOfDaysSinceEpoch)) {
+            this.formattedSigningDate = previousScope.getFormattedSigningDate();
+            this.regionName = previousScope.getRegionName();
+            this.scope = previousScope.getScope();
+        } else {
+            this.formattedSigningDate = AWS4SignerUtils
+                    .formatDateStamp(signingDateTimeMilli);
+            this.regionName = regionNameOverride != null ? regionNameOverride
+                    : AwsHostNameUtils.parseRegionName(request.getEndpoint()
+                            .getHost(), this.serviceName);
+            this.scope = generateScope(request, formattedSigningDate, this.serviceName,
+                    regionName);
+        }
         this.formattedSigningDateTime = AWS4SignerUtils
                 .formatTimestamp(signingDateTimeMilli);
         this.signingAlgorithm = signingAlgorithm;
@@ -142,6 +173,13 @@ public final class AWS4SignerRequestParams {
         return signingDateTimeMilli;
     }
 
+    /**
+     * Returns the number of days since epoch of the signing date.
+     */
+    public long getNumberOfDaysSinceEpoch() {
+        return numberOfDaysSinceEpoch;
+    }
+
     /**
      * Returns the AWS region name to be used while computing the signature.
      */
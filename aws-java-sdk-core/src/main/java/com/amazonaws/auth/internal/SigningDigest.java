@@ -0,0 +1,248 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.auth.internal;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.annotation.SdkInternalApi;
+import com.amazonaws.auth.SigningAlgorithm;
+import com.amazonaws.util.StringUtils;
+
+/**
+ * Per-thread SHA-256 digest and HMAC-SHA256 into which the parts of a
+ * canonical request and string to sign are encoded as UTF-8 directly, through
+ * a reused buffer, rather than being joined into strings first.
+ * <p>
+ * Instances are not thread safe; use {@link #get()} to obtain the one of the
+ * current thread, reset and ready to be written to.
+ */
+@SdkInternalApi
+public final class SigningDigest {
+
+    private static final int BUFFER_SIZE = 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<SigningDigest> INSTANCE = new ThreadLocal<SigningDigest>() {
+        @Override
+        protected SigningDigest initialValue() {
+            return new SigningDigest();
+        }
+    };
+
+    private final MessageDigest sha256;
+    private final Mac hmac;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    /** Writes go to the Mac rather than the digest. */
+    private boolean writingMac;
+    /** Key the Mac is initialized with; a Mac keeps its key across computations. */
+    private byte[] macKey;
+
+    private SigningDigest() {
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+            hmac = Mac.getInstance(SigningAlgorithm.HmacSHA256.toString());
+        } catch (GeneralSecurityException e) {
+            throw new AmazonClientException("Unable to get SHA256 Function" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the instance of the current thread, ready to hash a new message.
+     */
+    public static SigningDigest get() {
+        final SigningDigest digest = INSTANCE.get();
+        digest.sha256.reset();
+        digest.position = 0;
+        digest.writingMac = false;
+        return digest;
+    }
+
+    /**
+     * Appends the UTF-8 encoding of the given string.
+     */
+    public SigningDigest append(String value) {
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char ch = value.charAt(i);
+            if (ch < 0x80) {
+                writeByte(ch);
+            } else {
+                i = appendNonAscii(value, i);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Appends the given ASCII character.
+     */
+    public SigningDigest append(char ch) {
+        writeByte(ch);
+        return this;
+    }
+
+    /**
+     * Appends the UTF-8 encoding of the given string with each run of white
+     * space replaced by a single space, as
+     * {@link StringUtils#appendCompactedString} would.
+     */
+    public SigningDigest appendCompacted(String value) {
+        return appendCompacted(value, false);
+    }
+
+    /**
+     * Appends the UTF-8 encoding of the given string in lower case, as
+     * {@link StringUtils#lowerCase(String)} would, with each run of white
+     * space replaced by a single space.
+     */
+    public SigningDigest appendCompactedLowerCase(String value) {
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) >= 0x80) {
+                // Locale specific rules may apply beyond ASCII
+                return appendCompacted(StringUtils.lowerCase(value), false);
+            }
+        }
+        return appendCompacted(value, true);
+    }
+
+    private SigningDigest appendCompacted(String value, boolean asciiLowerCase) {
+        boolean previousIsWhiteSpace = false;
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char ch = value.charAt(i);
+            if (isWhiteSpace(ch)) {
+                if (!previousIsWhiteSpace) {
+                    writeByte(' ');
+                    previousIsWhiteSpace = true;
+                }
+            } else {
+                if (ch >= 0x80) {
+                    i = appendNonAscii(value, i);
+                } else if (asciiLowerCase && ch >= 'A' && ch <= 'Z') {
+                    writeByte(ch + ('a' - 'A'));
+                } else {
+                    writeByte(ch);
+                }
+                previousIsWhiteSpace = false;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Appends the lower case hex encoding of the given bytes.
+     */
+    public SigningDigest appendHex(byte[] bytes) {
+        for (byte b : bytes) {
+            writeByte(HEX[(b >> 4) & 0xf]);
+            writeByte(HEX[b & 0xf]);
+        }
+        return this;
+    }
+
+    /**
+     * Completes the SHA-256 hash of what has been appended and returns it.
+     */
+    public byte[] digest() {
+        flush();
+        return sha256.digest();
+    }
+
+    /**
+     * Starts a HMAC-SHA256 computation with the given key; what is appended
+     * from now on is signed by {@link #sign()}.
+     */
+    public SigningDigest startMac(byte[] key) {
+        flush();
+        if (!Arrays.equals(key, macKey)) {
+            try {
+                hmac.init(new SecretKeySpec(key, SigningAlgorithm.HmacSHA256.toString()));
+            } catch (GeneralSecurityException e) {
+                macKey = null;
+                throw new AmazonClientException(
+                        "Unable to calculate a request signature: " + e.getMessage(), e);
+            }
+            macKey = key.clone();
+        } else {
+            hmac.reset();
+        }
+        writingMac = true;
+        return this;
+    }
+
+    /**
+     * Completes the HMAC-SHA256 of what has been appended since
+     * {@link #startMac(byte[])} and returns it.
+     */
+    public byte[] sign() {
+        flush();
+        writingMac = false;
+        return hmac.doFinal();
+    }
+
+    private int appendNonAscii(String value, int index) {
+        final char ch = value.charAt(index);
+        if (ch < 0x800) {
+            writeByte(0xc0 | (ch >> 6));
+            writeByte(0x80 | (ch & 0x3f));
+        } else if (Character.isHighSurrogate(ch) && index + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(index + 1))) {
+            final int codePoint = Character.toCodePoint(ch, value.charAt(index + 1));
+            writeByte(0xf0 | (codePoint >> 18));
+            writeByte(0x80 | ((codePoint >> 12) & 0x3f));
+            writeByte(0x80 | ((codePoint >> 6) & 0x3f));
+            writeByte(0x80 | (codePoint & 0x3f));
+            return index + 1;
+        } else if (ch >= Character.MIN_SURROGATE && ch <= Character.MAX_SURROGATE) {
+            // Unpaired surrogates are replaced, as String.getBytes does
+            writeByte('?');
+        } else {
+            writeByte(0xe0 | (ch >> 12));
+            writeByte(0x80 | ((ch >> 6) & 0x3f));
+            writeByte(0x80 | (ch & 0x3f));
+        }
+        return index;
+    }
+
+    private void writeByte(int b) {
+        if (position == BUFFER_SIZE) {
+            flush();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    private void flush() {
+        if (position > 0) {
+            if (writingMac) {
+                hmac.update(buffer, 0, position);
+            } else {
+                sha256.update(buffer, 0, position);
+            }
+            position = 0;
+        }
+    }
+
+    private static boolean isWhiteSpace(char ch) {
+        return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\u000b' || ch == '\r' || ch == '\f';
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.auth.internal;
+
+import com.amazonaws.annotation.Immutable;
+import com.amazonaws.annotation.SdkInternalApi;
+
+/**
+ * The parts of a signature that only depend on the endpoint, the credentials
+ * and the signing day: the region, the scope and the signing key. A signer
+ * keeps the last one it used, so that signing further requests to the same
+ * endpoint on the same day neither parses the region from the host nor
+ * formats the scope or derives the signing key again.
+ */
+@Immutable
+@SdkInternalApi
+public final class SigningScope {
+
+    private final String host;
+    private final String regionName;
+    private final String serviceName;
+    private final long numberOfDaysSinceEpoch;
+    private final String formattedSigningDate;
+    private final String scope;
+    private final String secretKey;
+    private final byte[] signingKey;
+
+    /**
+     * @param host
+     *            the host of the endpoint the request was signed for
+     * @param signerParams
+     *            the parameters the request was signed with
+     * @param secretKey
+     *            the secret key the signing key was derived from
+     * @param signingKey
+     *            the signing key derived for the region, service and day of
+     *            the parameters
+     */
+    public SigningScope(String host, AWS4SignerRequestParams signerParams, String secretKey,
+            byte[] signingKey) {
+        this.host = host;
+        this.regionName = signerParams.getRegionName();
+        this.serviceName = signerParams.getServiceName();
+        this.numberOfDaysSinceEpoch = signerParams.getNumberOfDaysSinceEpoch();
+        this.formattedSigningDate = signerParams.getFormattedSigningDate();
+        this.scope = signerParams.getScope();
+        this.secretKey = secretKey;
+        this.signingKey = signingKey.clone();
+    }
+
+    /**
+     * Returns true if a request to the given host, signed for the given
+     * service on the given day, has the same region and scope.
+     *
+     * @param regionNameOverride
+     *            the region to sign for, or null to parse it from the host
+     */
+    boolean appliesTo(String host, String regionNameOverride, String serviceName,
+            long numberOfDaysSinceEpoch) {
+        return this.numberOfDaysSinceEpoch == numberOfDaysSinceEpoch
+                && same(this.serviceName, serviceName)
+                && (regionNameOverride == null
+                        ? same(this.host, host)
+                        : same(this.regionName, regionNameOverride));
+    }
+
+    /**
+     * Returns true if the signing key applies to the given parameters and
+     * secret key.
+     */
+    public boolean hasSigningKeyFor(AWS4SignerRequestParams signerParams, String secretKey) {
+        return numberOfDaysSinceEpoch == signerParams.getNumberOfDaysSinceEpoch()
+                && same(regionName, signerParams.getRegionName())
+                && same(serviceName, signerParams.getServiceName())
+                && same(this.secretKey, secretKey);
+    }
+
+    String getRegionName() {
+        return regionName;
+    }
+
+    String getFormattedSigningDate() {
+        return formattedSigningDate;
+    }
+
+    String getScope() {
+        return scope;
+    }
+
+    /**
+     * Returns a copy of the signing key.
+     */
+    public byte[] getSigningKey() {
+        return signingKey.clone();
+    }
+
+    private static boolean same(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.event;
+
+import static com.amazonaws.event.ProgressEventType.REQUEST_BYTE_TRANSFER_EVENT;
+import static com.amazonaws.event.ProgressEventType.RESPONSE_BYTE_TRANSFER_EVENT;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.ClientConfiguration;
+
+/**
+ * A progress listener that coalesces the byte transfer events published to
+ * it and delivers them, along with all other events, to the wrapped listener
+ * in batches.
+ * <p>
+ * The bytes reported by consecutive request or response byte transfer events
+ * are added up and delivered as a single event once the byte threshold is
+ * reached, the interval has elapsed, or an event of another type is published,
+ * so that events are delivered to the wrapped listener in the order they were
+ * published. Publishing an event never blocks: events are queued without
+ * locking, and the queue is drained by a single task at a time, on the
+ * {@link SDKProgressPublisher} callback thread unless the wrapped listener is
+ * safe to call synchronously.
+ */
+public class CoalescingProgressListener implements ProgressListener, DeliveryMode {
+    private final ProgressListener listener;
+    private final boolean syncCallSafe;
+    private final long intervalMillis;
+    private final long byteThreshold;
+
+    private final AtomicLong requestBytes = new AtomicLong();
+    private final AtomicLong responseBytes = new AtomicLong();
+    private final Queue<ProgressEvent> pending = new ConcurrentLinkedQueue<ProgressEvent>();
+    /** Whether a task draining the pending events is running or submitted. */
+    private final AtomicBoolean delivering = new AtomicBoolean();
+    /** Whether a flush of the coalesced byte counts is scheduled. */
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private final Runnable deliveryTask = new Runnable() {
+        @Override
+        public void run() {
+            deliverPending();
+        }
+    };
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flushScheduled.set(false);
+            if (flushBytes()) {
+                deliver();
+            }
+        }
+    };
+
+    /**
+     * @param listener
+     *            the listener events are delivered to
+     * @param intervalMillis
+     *            the maximum time in milliseconds byte transfer events are
+     *            held back
+     * @param byteThreshold
+     *            the number of transferred bytes that causes byte transfer
+     *            events to be delivered before the interval elapses
+     */
+    public CoalescingProgressListener(ProgressListener listener, long intervalMillis,
+            long byteThreshold) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+        this.listener = listener;
+        this.syncCallSafe = DeliveryMode.Check.isSyncCallSafe(listener);
+        this.intervalMillis = intervalMillis;
+        this.byteThreshold = byteThreshold;
+    }
+
+    /**
+     * Returns the given listener wrapped as configured by the given client
+     * configuration; or the listener itself if coalescing of progress events
+     * is not enabled.
+     */
+    public static ProgressListener wrap(ProgressListener listener, ClientConfiguration config) {
+        if (!config.useProgressEventCoalescing()) {
+            return listener;
+        }
+        return wrap(listener, config.getProgressEventCoalescingInterval(),
+                config.getProgressEventCoalescingByteThreshold());
+    }
+
+    /**
+     * Returns the given listener wrapped so that its byte transfer events are
+     * coalesced; or the listener itself if it receives no events or is already
+     * coalescing.
+     */
+    public static ProgressListener wrap(ProgressListener listener, long intervalMillis,
+            long byteThreshold) {
+        if (listener == null || listener == ProgressListener.NOOP
+                || listener instanceof CoalescingProgressListener) {
+            return listener;
+        }
+        return new CoalescingProgressListener(listener, intervalMillis, byteThreshold);
+    }
+
+    /**
+     * Always returns true; events are queued and never delivered on the
+     * publishing thread unless the wrapped listener is itself safe to call
+     * synchronously.
+     */
+    @Override
+    public boolean isSyncCallSafe() {
+        return true;
+    }
+
+    @Override
+    public void progressChanged(ProgressEvent progressEvent) {
+        final ProgressEventType type = progressEvent.getEventType();
+        if (type == REQUEST_BYTE_TRANSFER_EVENT) {
+            coalesce(requestBytes, progressEvent.getBytes());
+        } else if (type == RESPONSE_BYTE_TRANSFER_EVENT) {
+            coalesce(responseBytes, progressEvent.getBytes());
+        } else {
+            flushBytes();
+            pending.offer(progressEvent);
+            deliver();
+        }
+    }
+
+    /**
+     * Returns the listener events are delivered to.
+     */
+    public ProgressListener getWrappedListener() {
+        return listener;
+    }
+
+    private void coalesce(AtomicLong counter, long bytes) {
+        if (counter.addAndGet(bytes) >= byteThreshold || intervalMillis <= 0) {
+            if (flushBytes()) {
+                deliver();
+            }
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            LazyHolder.timer.schedule(flushTask, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Queues the bytes coalesced so far as byte transfer events.
+     *
+     * @return true if any event was queued.
+     */
+    private boolean flushBytes() {
+        final long request = requestBytes.getAndSet(0);
+        if (request > 0) {
+            pending.offer(new ProgressEvent(REQUEST_BYTE_TRANSFER_EVENT, request));
+        }
+        final long response = responseBytes.getAndSet(0);
+        if (response > 0) {
+            pending.offer(new ProgressEvent(RESPONSE_BYTE_TRANSFER_EVENT, response));
+        }
+        return request > 0 || response > 0;
+    }
+
+    /**
+     * Makes sure the queued events are delivered, unless a delivery is
+     * already in progress, in which case it will pick them up.
+     */
+    private void deliver() {
+        if (delivering.compareAndSet(false, true)) {
+            if (syncCallSafe) {
+                deliverPending();
+            } else {
+                SDKProgressPublisher.setLatestFutureTask(
+                        SDKProgressPublisher.getExecutorService().submit(deliveryTask));
+            }
+        }
+    }
+
+    private void deliverPending() {
+        do {
+            ProgressEvent event;
+            while ((event = pending.poll()) != null) {
+                try {
+                    listener.progressChanged(event);
+                } catch (Throwable t) {
+                    // Failures are ignored, as they are when delivering events one at a time
+                    LogFactory.getLog(CoalescingProgressListener.class)
+                            .debug("Failure from the event listener", t);
+                }
+            }
+            delivering.set(false);
+            // Events queued after the last poll but before the flag was cleared
+        } while (!pending.isEmpty() && delivering.compareAndSet(false, true));
+    }
+
+    /**
+     * Used to avoid creating the extra thread until absolutely necessary.
+     */
+    private static final class LazyHolder {
+        /** A single thread flushing the byte counts held back by all listeners. */
+        private static final ScheduledExecutorService timer = createTimer();
+
+        private static ScheduledExecutorService createTimer() {
+            return new ScheduledThreadPoolExecutor(1,
+                    new ThreadFactory() {
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r);
+                            t.setName("java-sdk-progress-coalescing-timer");
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+        }
+    }
+}
@@ -55,6 +55,36 @@ public abstract class ProgressInputStream extends SdkFilterInputStream {
              : new ResponseProgressInputStream(is, req.getGeneralProgressListener());
     }
 
+    /**
+     * Returns an input stream for request progress tracking purposes, which
+     * reports the bytes read to the given listener. If the listener is null,
+     * this method simply return the given input stream as is.
+     *
+     * @param is the request content input stream
+     * @param listener the listener to report progress to
+     */
+    public static InputStream inputStreamForRequest(InputStream is,
+            ProgressListener listener) {
+        return listener == null
+             ? is
+             : new RequestProgressInputStream(is, listener);
+    }
+
+    /**
+     * Returns an input stream for response progress tracking purposes, which
+     * reports the bytes read to the given listener. If the listener is null,
+     * this method simply return the given input stream as is.
+     *
+     * @param is the response content input stream
+     * @param listener the listener to report progress to
+     */
+    public static InputStream inputStreamForResponse(InputStream is,
+            ProgressListener listener) {
+        return listener == null
+             ? is
+             : new ResponseProgressInputStream(is, listener);
+    }
+
     /** The threshold of bytes between notifications. */
     private static final int DEFAULT_NOTIFICATION_THRESHOLD = 8 * 1024;
 
@@ -34,11 +34,14 @@ import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.auth.CanHandleNullCredentials;
 import com.amazonaws.auth.Signer;
+import com.amazonaws.event.CoalescingProgressListener;
 import com.amazonaws.event.ProgressEventType;
 import com.amazonaws.event.ProgressInputStream;
 import com.amazonaws.event.ProgressListener;
+import com.amazonaws.handlers.AsyncHandler;
 import com.amazonaws.handlers.CredentialsRequestHandler;
 import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.http.apache.client.impl.ApacheAsyncHttpClientFactory;
 import com.amazonaws.http.apache.client.impl.ApacheHttpClientFactory;
 import com.amazonaws.http.apache.client.impl.ConnectionManagerAwareHttpClient;
 import com.amazonaws.http.apache.request.impl.ApacheHttpRequestFactory;
@@ -50,6 +53,7 @@ import com.amazonaws.http.response.AwsResponseHandlerAdapter;
 import com.amazonaws.http.settings.HttpClientSettings;
 import com.amazonaws.http.timers.client.ClientExecutionTimeoutException;
 import com.amazonaws.http.timers.client.ClientExecutionTimer;
+import com.amazonaws.http.timers.client.NoOpClientExecutionAbortTrackerTask;
 import com.amazonaws.http.timers.client.SdkInterruptedException;
 import com.amazonaws.http.timers.request.HttpRequestAbortTaskTracker;
 import com.amazonaws.http.timers.request.HttpRequestTimer;
@@ -60,6 +64,7 @@ import com.amazonaws.internal.SdkBufferedInputStream;
 import com.amazonaws.internal.auth.SignerProviderContext;
 import com.amazonaws.metrics.AwsSdkMetrics;
 import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.retry.AdaptiveRateLimiter;
 import com.amazonaws.retry.RetryPolicy;
 import com.amazonaws.retry.RetryUtils;
 import com.amazonaws.retry.internal.AuthErrorRetryStrategy;
@@ -75,6 +80,7 @@ import com.amazonaws.util.ImmutableMapParameter;
 import com.amazonaws.util.MetadataCache;
 import com.amazonaws.util.NullResponseMetadataCache;
 import com.amazonaws.util.ResponseMetadataCache;
+import com.amazonaws.util.SampledResponseMetadataCache;
 import com.amazonaws.util.RuntimeHttpUtils;
 import com.amazonaws.util.SdkHttpUtils;
 import com.amazonaws.util.TimingInfo;
@@ -85,12 +91,22 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
 import org.apache.http.HttpStatus;
 import org.apache.http.StatusLine;
 import org.apache.http.annotation.ThreadSafe;
+import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
 import org.apache.http.pool.ConnPoolControl;
 import org.apache.http.protocol.HttpContext;
 
@@ -109,6 +125,17 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.amazonaws.SDKGlobalConfiguration.PROFILING_SYSTEM_PROPERTY;
 import static com.amazonaws.event.SDKProgressPublisher.publishProgress;
@@ -141,6 +168,7 @@ public class AmazonHttpClient {
 
     private static final HttpClientFactory<ConnectionManagerAwareHttpClient> httpClientFactory = new
             ApacheHttpClientFactory();
+
     /**
      * Used for testing via failure injection.
      */
@@ -178,6 +206,15 @@ public class AmazonHttpClient {
      * Internal client for sending HTTP requests
      */
     private ConnectionManagerAwareHttpClient httpClient;
+    /**
+     * Non-blocking client used by {@link #executeAsync}; created on first use.
+     */
+    private volatile CloseableHttpAsyncClient asyncHttpClient;
+    /**
+     * Runs the completion stages (unmarshalling, request handler callbacks) of asynchronous requests
+     * and schedules their retries and timeouts; created on first use.
+     */
+    private volatile ScheduledExecutorService asyncStageExecutor;
     /**
      * Client configuration options, such as proxy httpClientSettings, max retries, etc.
      */
@@ -191,6 +228,11 @@ public class AmazonHttpClient {
      * Cache of metadata for recently executed requests for diagnostic purposes
      */
     private final MetadataCache responseMetadataCache;
+    /**
+     * Cache the metadata of successful responses is added to; samples the responses added into
+     * {@link #responseMetadataCache} when configured to.
+     */
+    private final MetadataCache successMetadataCache;
     /**
      * Timer to enforce HTTP request timeouts.
      */
@@ -199,6 +241,9 @@ public class AmazonHttpClient {
     /** Retry capacity manager, used to manage throttled retry resource */
     private final CapacityManager retryCapacity;
 
+    /** Client side rate limiter; or null if client side rate limiting is disabled. */
+    private final AdaptiveRateLimiter rateLimiter;
+
     /**
      * Timer to enforce timeouts on the whole execution of the request (request handlers, retries, backoff strategy,
      * unmarshalling, etc)
@@ -303,6 +348,7 @@ public class AmazonHttpClient {
         this.requestMetricCollector = requestMetricCollector;
         this.responseMetadataCache = clientConfig.getCacheResponseMetadata() ? new ResponseMetadataCache(clientConfig
                 .getResponseMetadataCacheSize()) : new NullResponseMetadataCache();
+        this.successMetadataCache = newSuccessMetadataCache(clientConfig, responseMetadataCache);
         this.httpRequestTimer = new HttpRequestTimer();
         this.clientExecutionTimer = new ClientExecutionTimer();
 
@@ -311,6 +357,32 @@ public class AmazonHttpClient {
         int throttledRetryMaxCapacity = clientConfig.useThrottledRetries()
                 ? THROTTLED_RETRY_COST * THROTTLED_RETRIES : -1;
         this.retryCapacity = new CapacityManager(throttledRetryMaxCapacity);
+        this.rateLimiter = clientConfig.useClientSideRateLimiting() ? new AdaptiveRateLimiter() : null;
+    }
+
+    private static MetadataCache newSuccessMetadataCache(ClientConfiguration clientConfig,
+                                                         MetadataCache responseMetadataCache) {
+        final int sampleInterval = clientConfig.getResponseMetadataSampleInterval();
+        if (!clientConfig.getCacheResponseMetadata() || sampleInterval == 1) {
+            return responseMetadataCache;
+        }
+        return sampleInterval > 1 ? new SampledResponseMetadataCache(responseMetadataCache, sampleInterval)
+                : new NullResponseMetadataCache();
+    }
+
+    /**
+     * Returns the listener the progress events of the given request are published to: the one
+     * already set on the execution context, if any, so that the events the client publishes
+     * itself go through the same instance; otherwise the general progress listener of the
+     * request, coalescing its byte transfer events if so configured.
+     */
+    private ProgressListener progressListenerOf(AmazonWebServiceRequest awsreq,
+                                                ExecutionContext executionContext) {
+        final ProgressListener listener = executionContext.getProgressListener();
+        if (listener != null) {
+            return listener;
+        }
+        return CoalescingProgressListener.wrap(awsreq.getGeneralProgressListener(), config);
     }
 
     private static boolean isTemporaryRedirect(org.apache.http.HttpResponse response) {
@@ -374,7 +446,7 @@ public class AmazonHttpClient {
                 getNonNullResponseHandler(responseHandler),
                 request,
                 executionContext.getAwsRequestMetrics(),
-                responseMetadataCache);
+                successMetadataCache);
         return execute(request, executionContext, awsResponseHandler, errorResponseHandler);
     }
 
@@ -403,6 +475,104 @@ public class AmazonHttpClient {
         }
     }
 
+    /**
+     * Executes the request on the non-blocking transport and returns immediately. Signing, request
+     * handler callbacks, unmarshalling and retries run as completion stages on a small pool of
+     * threads (see {@link ClientConfiguration#setNonBlockingIoThreadCount(int)}), so no thread is
+     * held while the request is on the wire or backing off before a retry.
+     * <p>
+     * Responses are buffered in memory before they are unmarshalled, so this method is meant for
+     * request/response style operations rather than for streaming large payloads.
+     * <p>
+     * The generated asynchronous service clients send their request/response operations through
+     * this method, so an in-flight call doesn't hold a thread of the client's executor.
+     *
+     * @param request              The AmazonWebServices request to send to the remote server
+     * @param responseHandler      A response handler to accept a successful response from the remote server
+     * @param errorResponseHandler A response handler to accept an unsuccessful response from the remote server
+     * @param executionContext     Additional information about the context of this web service call
+     * @param asyncHandler         Optional callback notified once the request has completed; may be null
+     * @return A future holding the response, or the exception the request failed with.
+     */
+    public <X extends AmazonWebServiceRequest, T> Future<Response<T>> executeAsync(
+            Request<X> request,
+            HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler,
+            HttpResponseHandler<AmazonServiceException> errorResponseHandler,
+            ExecutionContext executionContext,
+            final AsyncHandler<X, T> asyncHandler) {
+        AsyncHandler<X, Response<T>> responseCallback = null;
+        if (asyncHandler != null) {
+            responseCallback = new AsyncHandler<X, Response<T>>() {
+                @Override
+                public void onError(Exception exception) {
+                    asyncHandler.onError(exception);
+                }
+
+                @Override
+                public void onSuccess(X request, Response<T> response) {
+                    asyncHandler.onSuccess(request, response.getAwsResponse());
+                }
+            };
+        }
+        return executeAsyncWithResponse(request, responseHandler, errorResponseHandler, executionContext,
+                responseCallback);
+    }
+
+    /**
+     * Same as {@link #executeAsync(Request, HttpResponseHandler, HttpResponseHandler,
+     * ExecutionContext, AsyncHandler)}, except that the callback is handed the whole {@link Response}
+     * rather than just the unmarshalled result, so callers can finish collecting request metrics
+     * before anybody waiting on the outcome is notified.
+     *
+     * @param responseCallback Optional callback notified once the request has completed; may be null
+     * @return A future holding the response, or the exception the request failed with.
+     */
+    public <X extends AmazonWebServiceRequest, T> Future<Response<T>> executeAsyncWithResponse(
+            Request<X> request,
+            HttpResponseHandler<AmazonWebServiceResponse<T>> responseHandler,
+            HttpResponseHandler<AmazonServiceException> errorResponseHandler,
+            ExecutionContext executionContext,
+            AsyncHandler<X, Response<T>> responseCallback) {
+        if (executionContext == null) {
+            throw new AmazonClientException("Internal SDK Error: No execution context parameter specified.");
+        }
+        final HttpResponseHandler<T> awsResponseHandler = new AwsResponseHandlerAdapter<T>(
+                getNonNullResponseHandler(responseHandler),
+                request,
+                executionContext.getAwsRequestMetrics(),
+                successMetadataCache);
+        initAsyncTransport();
+        return new AsyncRequestExecution<X, T>(request, awsResponseHandler,
+                getNonNullResponseHandler(errorResponseHandler), executionContext, responseCallback).start();
+    }
+
+    /**
+     * Creates the non-blocking client and the stage executor the first time an asynchronous request
+     * is executed, so clients that only use {@link #execute} don't pay for the event loop.
+     */
+    private void initAsyncTransport() {
+        if (asyncHttpClient != null) {
+            return;
+        }
+        synchronized (this) {
+            if (asyncHttpClient == null) {
+                ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(
+                        httpClientSettings.getNonBlockingIoThreadCount(), new ThreadFactory() {
+                            private final AtomicInteger threadCount = new AtomicInteger();
+
+                            @Override
+                            public Thread newThread(Runnable runnable) {
+                                Thread thread = new Thread(runnable, "aws-async-stage-" + threadCount.incrementAndGet());
+                                thread.setDaemon(true);
+                                return thread;
+                            }
+                        });
+                asyncStageExecutor = executor;
+                asyncHttpClient = new ApacheAsyncHttpClientFactory().create(httpClientSettings);
+            }
+        }
+    }
+
     /**
      * Ensures the response handler is not null. If it is this method returns a dummy response handler.
      *
@@ -464,7 +634,8 @@ public class AmazonHttpClient {
         setSdkTransactionId(request);
         setUserAgent(request);
 
-        ProgressListener listener = awsreq.getGeneralProgressListener();
+        final ProgressListener listener = progressListenerOf(awsreq, executionContext);
+        executionContext.setProgressListener(listener);
         // add custom headers
         request.getHeaders().putAll(config.getHeaders());
         Map<String, String> customHeaders = awsreq.getCustomRequestHeaders();
@@ -479,7 +650,7 @@ public class AmazonHttpClient {
         final AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
         Response<T> response = null;
         final InputStream origContent = request.getContent();
-        final InputStream toBeClosed = beforeRequest(request); // for progress tracking
+        final InputStream toBeClosed = beforeRequest(request, listener); // for progress tracking
         // make "notCloseable", so reset would work with retries
         final InputStream notCloseable = (toBeClosed == null) ? null
                 : ReleasableInputStream.wrap(toBeClosed).disableClose();
@@ -594,9 +765,7 @@ public class AmazonHttpClient {
      * @return an input stream, which will be made mark-and-resettable if possible, for progress tracking purposes; or
      * null if the request doesn't have an input stream
      */
-    private InputStream beforeRequest(Request<?> request) {
-        final AmazonWebServiceRequest awsreq = request.getOriginalRequest();
-        ProgressListener listener = awsreq.getGeneralProgressListener();
+    private InputStream beforeRequest(Request<?> request, ProgressListener listener) {
         Map<String, String> headers = request.getHeaders();
         String s = headers.get("Content-Length");
         if (s != null) {
@@ -626,7 +795,7 @@ public class AmazonHttpClient {
         }
         if (!content.markSupported())
             content = new SdkBufferedInputStream(content);
-        final InputStream is = ProgressInputStream.inputStreamForRequest(content, awsreq);
+        final InputStream is = ProgressInputStream.inputStreamForRequest(content, listener);
         if (AmazonHttpClient.unreliableTestConfig == null)
             return is;
         return new UnreliableFilterInputStream(is, unreliableTestConfig.isFakeIOException())
@@ -845,34 +1014,15 @@ public class AmazonHttpClient {
         }
         final AWSCredentials credentials = getCredentialsFromContext(execContext, awsRequestMetrics);
         final AmazonWebServiceRequest awsreq = request.getOriginalRequest();
-        final ProgressListener listener = awsreq.getGeneralProgressListener();
+        final ProgressListener listener = execContext.getProgressListener();
 
         if (execOneParams.isRetry()) {
             pauseBeforeRetry(request, awsRequestMetrics, execOneParams, listener);
         }
+        pauseForRateLimit(request, awsRequestMetrics);
         updateRetryHeaderInfo(request, execOneParams);
 
-        // Sign the request if a signer was provided
-        execOneParams.newSigner(request, execContext);
-        if (execOneParams.signer != null && (credentials != null || execOneParams.signer instanceof CanHandleNullCredentials)) {
-            awsRequestMetrics.startEvent(Field.RequestSigningTime);
-            try {
-                if (timeOffset != 0) {
-                    // Always use the client level timeOffset if it was
-                    // non-zero; Otherwise, we respect the timeOffset in the
-                    // request, which could have been externally configured (at
-                    // least for the 1st non-retry request).
-                    //
-                    // For retry due to clock skew, the timeOffset in the
-                    // request used for the retry is assumed to have been
-                    // adjusted when execution reaches here.
-                    request.setTimeOffset(timeOffset);
-                }
-                execOneParams.signer.sign(request, credentials);
-            } finally {
-                awsRequestMetrics.endEvent(Field.RequestSigningTime);
-            }
-        }
+        signRequest(request, credentials, execContext, awsRequestMetrics, execOneParams);
 
         checkInterrupted();
         execOneParams.newApacheRequest(httpRequestFactory, request, httpClientSettings);
@@ -939,6 +1089,7 @@ public class AmazonHttpClient {
             } else {
                 retryCapacity.release();
             }
+            recordRateLimitSuccess(request);
             return new Response<T>(response, httpResponse);
         }
         if (isTemporaryRedirect(execOneParams.apacheResponse)) {
@@ -963,6 +1114,7 @@ public class AmazonHttpClient {
         awsRequestMetrics.addPropertyWith(Field.AWSRequestID, ase.getRequestId())
                 .addPropertyWith(Field.AWSErrorCode, ase.getErrorCode())
                 .addPropertyWith(Field.StatusCode, ase.getStatusCode());
+        recordRateLimitThrottle(request, ase);
         // Check whether we should internally retry the auth error
         execOneParams.authRetryParam = null;
         AuthErrorRetryStrategy authRetry = execContext.getAuthErrorRetryStrategy();
@@ -973,6 +1125,7 @@ public class AmazonHttpClient {
         }
         if (execOneParams.authRetryParam == null && !shouldRetry(request.getOriginalRequest(),
                 execOneParams, ase, execContext)) {
+            cacheFailedResponseMetadata(request, ase);
             throw ase;
         }
         // Comment out for now. Ref: CR2662349
@@ -996,6 +1149,36 @@ public class AmazonHttpClient {
         return null; // => retry
     }
 
+    /**
+     * Sign the request if a signer was provided.
+     */
+    private void signRequest(final Request<?> request,
+                             final AWSCredentials credentials,
+                             final ExecutionContext execContext,
+                             final AWSRequestMetrics awsRequestMetrics,
+                             ExecOneRequestParams execOneParams) {
+        execOneParams.newSigner(request, execContext);
+        if (execOneParams.signer != null && (credentials != null || execOneParams.signer instanceof CanHandleNullCredentials)) {
+            awsRequestMetrics.startEvent(Field.RequestSigningTime);
+            try {
+                if (timeOffset != 0) {
+                    // Always use the client level timeOffset if it was
+                    // non-zero; Otherwise, we respect the timeOffset in the
+                    // request, which could have been externally configured (at
+                    // least for the 1st non-retry request).
+                    //
+                    // For retry due to clock skew, the timeOffset in the
+                    // request used for the retry is assumed to have been
+                    // adjusted when execution reaches here.
+                    request.setTimeOffset(timeOffset);
+                }
+                execOneParams.signer.sign(request, credentials);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestSigningTime);
+            }
+        }
+    }
+
     /**
      * Reset the input stream of the request before a retry.
      *
@@ -1108,6 +1291,12 @@ public class AmazonHttpClient {
         IdleConnectionReaper.removeConnectionManager(httpClient
                 .getHttpClientConnectionManager());
         httpClient.getHttpClientConnectionManager().shutdown();
+        synchronized (this) {
+            if (asyncHttpClient != null) {
+                closeQuietly(asyncHttpClient, log);
+                asyncStageExecutor.shutdownNow();
+            }
+        }
     }
 
     /**
@@ -1206,8 +1395,7 @@ public class AmazonHttpClient {
                                  org.apache.http.HttpResponse apacheHttpResponse,
                                  ExecutionContext executionContext,
                                  List<RequestHandler2> requestHandlers) throws IOException, InterruptedException {
-        AmazonWebServiceRequest awsreq = request.getOriginalRequest();
-        ProgressListener listener = awsreq.getGeneralProgressListener();
+        ProgressListener listener = executionContext.getProgressListener();
         try {
             /*
              * Apply the byte counting stream wrapper if the legacy runtime profiling is enabled.
@@ -1219,7 +1407,7 @@ public class AmazonHttpClient {
                     is = countingInputStream = new CountingInputStream(is);
                     httpResponse.setContent(is);
                 }
-                httpResponse.setContent(ProgressInputStream.inputStreamForResponse(is, awsreq));
+                httpResponse.setContent(ProgressInputStream.inputStreamForResponse(is, listener));
             }
             Map<String, String> headers = httpResponse.getHeaders();
             String s = headers.get("Content-Length");
@@ -1395,6 +1583,81 @@ public class AmazonHttpClient {
         }
     }
 
+    /**
+     * Caches the request ID of the error response a request failed with, so that the metadata of
+     * failed requests is available even when successful responses are sampled.
+     */
+    private void cacheFailedResponseMetadata(final Request<?> request, final AmazonServiceException ase) {
+        if (config.getCacheResponseMetadata() && ase.getRequestId() != null) {
+            responseMetadataCache.add(request.getOriginalRequest(), new ResponseMetadata(
+                    Collections.singletonMap(ResponseMetadata.AWS_REQUEST_ID, ase.getRequestId())));
+        }
+    }
+
+    /**
+     * Waits for the client side rate limiter, if enabled, to permit sending the given request.
+     */
+    private void pauseForRateLimit(final Request<?> request,
+                                   final AWSRequestMetrics awsRequestMetrics) throws InterruptedException {
+        final long delayNanos = reserveRateLimitPermit(request, awsRequestMetrics);
+        if (delayNanos > 0) {
+            awsRequestMetrics.startEvent(Field.RateLimiterWaitTime);
+            try {
+                TimeUnit.NANOSECONDS.sleep(delayNanos);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RateLimiterWaitTime);
+            }
+        }
+    }
+
+    /**
+     * Reserves a permit to send the given request from the client side rate limiter, if enabled.
+     *
+     * @return the number of nanoseconds to wait before sending the request.
+     * @throws AmazonClientException if the permit is not available within the configured maximum
+     *             wait.
+     */
+    private long reserveRateLimitPermit(final Request<?> request,
+                                        final AWSRequestMetrics awsRequestMetrics) {
+        if (rateLimiter == null) {
+            return 0;
+        }
+        final String operation = rateLimitedOperationOf(request);
+        final long maxWait = config.getClientSideRateLimitMaxWait();
+        final long delayNanos = rateLimiter.reserve(operation,
+                maxWait < 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(maxWait));
+        final double rate = rateLimiter.getRate(operation);
+        if (rate >= 0) {
+            awsRequestMetrics.setCounter(Field.ClientSideRateLimit, (long) Math.ceil(rate));
+        }
+        if (delayNanos < 0) {
+            throw new AmazonClientException("Client side rate limit exceeded: unable to send "
+                    + operation + " within " + maxWait + " ms");
+        }
+        return delayNanos;
+    }
+
+    private void recordRateLimitSuccess(final Request<?> request) {
+        if (rateLimiter != null) {
+            rateLimiter.onSuccess(rateLimitedOperationOf(request));
+        }
+    }
+
+    private void recordRateLimitThrottle(final Request<?> request, final AmazonServiceException ase) {
+        if (rateLimiter != null && RetryUtils.isThrottlingException(ase)) {
+            rateLimiter.onThrottle(rateLimitedOperationOf(request));
+        }
+    }
+
+    /**
+     * Returns the name of the operation the client side rate limiter accounts the given request
+     * to, qualified by the service name since request classes of different services may share
+     * a simple name.
+     */
+    private static String rateLimitedOperationOf(final Request<?> request) {
+        return request.getServiceName() + "." + request.getOriginalRequest().getClass().getSimpleName();
+    }
+
     /**
      * Sleep for a period of time on failed request to avoid flooding a service with retries.
      *
@@ -1524,6 +1787,654 @@ public class AmazonHttpClient {
 
     }
 
+    /**
+     * Drives one request through the non-blocking transport. Every step that follows the
+     * initial send (unmarshalling, retry decisions, request handler callbacks) runs as a callback
+     * on {@link #asyncStageExecutor}, and backoff delays are scheduled rather than slept.
+     */
+    private class AsyncRequestExecution<X extends AmazonWebServiceRequest, T>
+            implements FutureCallback<org.apache.http.HttpResponse> {
+
+        private final Request<X> request;
+        private final HttpResponseHandler<T> responseHandler;
+        private final HttpResponseHandler<AmazonServiceException> errorResponseHandler;
+        private final ExecutionContext executionContext;
+        private final AsyncHandler<X, Response<T>> asyncHandler;
+        private final ProgressListener listener;
+        private final ExecOneRequestParams execOneParams = new ExecOneRequestParams();
+        private final AsyncResponseFuture<T> future = new AsyncResponseFuture<T>(this);
+        /** Set once the execution has reached a terminal state, whichever stage gets there first. */
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private List<RequestHandler2> requestHandler2s = Collections.emptyList();
+        private AWSRequestMetrics awsRequestMetrics;
+        private Map<String, List<String>> originalParameters;
+        private Map<String, String> originalHeaders;
+        private InputStream origContent;
+        private InputStream toBeClosed;
+        private InputStream originalContent;
+        private HttpClientContext localRequestContext;
+
+        private volatile Future<org.apache.http.HttpResponse> inFlight;
+        /**
+         * Number of attempts that may still read the request content: the one being prepared, and
+         * those whose request producer the transport hasn't closed yet.
+         */
+        private final AtomicInteger contentReaders = new AtomicInteger();
+        private final AtomicBoolean contentReleased = new AtomicBoolean();
+        private volatile ScheduledFuture<?> requestTimeoutTask;
+        private volatile boolean requestTimedOut;
+        /** Whether the client side rate limiter already permitted the next attempt. */
+        private boolean rateLimitPermitted;
+        private volatile ScheduledFuture<?> clientExecutionTimeoutTask;
+
+        AsyncRequestExecution(Request<X> request,
+                              HttpResponseHandler<T> responseHandler,
+                              HttpResponseHandler<AmazonServiceException> errorResponseHandler,
+                              ExecutionContext executionContext,
+                              AsyncHandler<X, Response<T>> asyncHandler) {
+            this.request = request;
+            this.responseHandler = responseHandler;
+            this.errorResponseHandler = errorResponseHandler;
+            this.executionContext = executionContext;
+            this.asyncHandler = asyncHandler;
+            this.listener = progressListenerOf(request.getOriginalRequest(), executionContext);
+            executionContext.setProgressListener(listener);
+        }
+
+        /**
+         * Prepares the request the same way {@link #doExecute} does and sends the first attempt.
+         */
+        Future<Response<T>> start() {
+            try {
+                executionContext.setClientExecutionTrackerTask(NoOpClientExecutionAbortTrackerTask.INSTANCE);
+                awsRequestMetrics = executionContext.getAwsRequestMetrics();
+                requestHandler2s = requestHandler2s(request, executionContext);
+                AmazonWebServiceRequest awsreq = request.getOriginalRequest();
+
+                setSdkTransactionId(request);
+                setUserAgent(request);
+                request.getHeaders().putAll(config.getHeaders());
+                Map<String, String> customHeaders = awsreq.getCustomRequestHeaders();
+                if (customHeaders != null) {
+                    request.getHeaders().putAll(customHeaders);
+                }
+                Map<String, List<String>> customQueryParams = awsreq.getCustomQueryParameters();
+                if (customQueryParams != null) {
+                    mergeQueryParameters(request, customQueryParams);
+                }
+                origContent = request.getContent();
+                toBeClosed = beforeRequest(request, listener);
+                originalContent = (toBeClosed == null) ? null
+                        : ReleasableInputStream.wrap(toBeClosed).disableClose();
+                request.setContent(originalContent);
+                publishProgress(listener, ProgressEventType.CLIENT_REQUEST_STARTED_EVENT);
+
+                awsRequestMetrics.addPropertyWith(Field.RequestType, awsreq.getClass().getSimpleName())
+                        .addPropertyWith(Field.ServiceName, request.getServiceName())
+                        .addPropertyWith(Field.ServiceEndpoint, request.getEndpoint());
+                originalParameters = new LinkedHashMap<String, List<String>>(request.getParameters());
+                originalHeaders = new HashMap<String, String>(request.getHeaders());
+                if (originalContent != null && originalContent.markSupported()) {
+                    originalContent.mark(awsreq.getRequestClientOptions().getReadLimit());
+                }
+
+                final int clientExecutionTimeout = getClientExecutionTimeout(awsreq);
+                if (clientExecutionTimeout > 0) {
+                    clientExecutionTimeoutTask = asyncStageExecutor.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            fail(new ClientExecutionTimeoutException());
+                        }
+                    }, clientExecutionTimeout, TimeUnit.MILLISECONDS);
+                }
+                attempt();
+            } catch (Throwable t) {
+                fail(t);
+            }
+            return future;
+        }
+
+        /**
+         * Signs and sends one attempt of the request; the response is delivered to
+         * {@link #completed}, {@link #failed} or {@link #cancelled} on an I/O dispatcher thread.
+         */
+        private void attempt() {
+            // Claimed before checking for a terminal state, so that a concurrent failure or
+            // cancellation leaves the content to this attempt to release.
+            contentReaders.incrementAndGet();
+            boolean sent = false;
+            try {
+                if (done.get()) {
+                    return;
+                }
+                if (!rateLimitPermitted) {
+                    final long delayNanos = reserveRateLimitPermit(request, awsRequestMetrics);
+                    if (delayNanos > 0) {
+                        waitForRateLimit(delayNanos);
+                        return;
+                    }
+                }
+                rateLimitPermitted = false;
+                execOneParams.initPerRetry();
+                if (execOneParams.redirectedURI != null) {
+                    String scheme = execOneParams.redirectedURI.getScheme();
+                    String beforeAuthority = scheme == null ? "" : scheme + "://";
+                    String authority = execOneParams.redirectedURI.getAuthority();
+                    String path = execOneParams.redirectedURI.getPath();
+
+                    request.setEndpoint(URI.create(beforeAuthority + authority));
+                    request.setResourcePath(SdkHttpUtils.urlEncode(path, true));
+                }
+                if (execOneParams.authRetryParam != null) {
+                    request.setEndpoint(execOneParams.authRetryParam.getEndpointForRetry());
+                }
+                awsRequestMetrics.setCounter(Field.RequestCount, execOneParams.requestCount);
+                if (execOneParams.isRetry()) {
+                    request.setParameters(originalParameters);
+                    request.setHeaders(originalHeaders);
+                    request.setContent(originalContent);
+                    resetRequestInputStream(request);
+                }
+                if (requestLog.isDebugEnabled()) {
+                    requestLog.debug((execOneParams.isRetry() ? "Retrying " : "Sending ") + "Request: " + request);
+                }
+                final AWSCredentials credentials = getCredentialsFromContext(executionContext, awsRequestMetrics);
+                updateRetryHeaderInfo(request, execOneParams);
+                signRequest(request, credentials, executionContext, awsRequestMetrics, execOneParams);
+
+                execOneParams.newApacheRequest(httpRequestFactory, request, httpClientSettings);
+                localRequestContext = ApacheUtils.newClientContext(httpClientSettings, ImmutableMapParameter.of
+                        (AWSRequestMetrics.class.getSimpleName(), awsRequestMetrics));
+                execOneParams.resetBeforeHttpRequest();
+                publishProgress(listener, ProgressEventType.HTTP_REQUEST_STARTED_EVENT);
+                awsRequestMetrics.startEvent(Field.HttpRequestTime);
+                awsRequestMetrics.setCounter(Field.RetryCapacityConsumed, retryCapacity.consumedCapacity());
+
+                requestTimedOut = false;
+                final HttpHost target = URIUtils.extractHost(execOneParams.apacheRequest.getURI());
+                if (target == null) {
+                    throw new ClientProtocolException("URI does not specify a valid host name: "
+                            + execOneParams.apacheRequest.getURI());
+                }
+                final HttpAsyncRequestProducer producer = new ContentReleasingRequestProducer(
+                        HttpAsyncMethods.create(target, execOneParams.apacheRequest), new Runnable() {
+                            @Override
+                            public void run() {
+                                contentReadFinished();
+                            }
+                        });
+                inFlight = asyncHttpClient.execute(producer, HttpAsyncMethods.createConsumer(),
+                        localRequestContext, this);
+                sent = true;
+                final int requestTimeout = getRequestTimeout(request.getOriginalRequest());
+                if (requestTimeout > 0) {
+                    requestTimeoutTask = asyncStageExecutor.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            requestTimedOut = true;
+                            abortInFlight();
+                        }
+                    }, requestTimeout, TimeUnit.MILLISECONDS);
+                }
+                if (done.get()) {
+                    // Raced with a cancellation or client execution timeout.
+                    abortInFlight();
+                }
+            } catch (IOException ioe) {
+                onIOException(ioe);
+            } catch (Throwable t) {
+                fail(captureExceptionMetrics(t, awsRequestMetrics));
+            } finally {
+                if (!sent) {
+                    // Once sent, the request producer reports when the transport is done with the content
+                    contentReadFinished();
+                }
+            }
+        }
+
+        @Override
+        public void completed(final org.apache.http.HttpResponse apacheResponse) {
+            runStage(new Runnable() {
+                @Override
+                public void run() {
+                    onResponse(apacheResponse);
+                }
+            });
+        }
+
+        @Override
+        public void failed(final Exception ex) {
+            runStage(new Runnable() {
+                @Override
+                public void run() {
+                    onFailure(ex);
+                }
+            });
+        }
+
+        @Override
+        public void cancelled() {
+            failed(new IOException("The HTTP request was aborted"));
+        }
+
+        /**
+         * Called once an attempt can no longer read the request content; releases the content if
+         * the execution has meanwhile reached a terminal state and no other attempt reads it.
+         */
+        private void contentReadFinished() {
+            if (contentReaders.decrementAndGet() == 0 && done.get()) {
+                releaseContent();
+            }
+        }
+
+        /**
+         * Hands a completion stage off the I/O dispatcher thread so that unmarshalling and user
+         * callbacks never stall the event loop.
+         */
+        private void runStage(Runnable stage) {
+            try {
+                asyncStageExecutor.execute(stage);
+            } catch (RejectedExecutionException e) {
+                fail(new AbortedException("The HTTP client has been shut down", e));
+            }
+        }
+
+        private void onResponse(org.apache.http.HttpResponse apacheResponse) {
+            endHttpRequest();
+            if (done.get()) {
+                return;
+            }
+            publishProgress(listener, ProgressEventType.HTTP_REQUEST_COMPLETED_EVENT);
+            execOneParams.apacheResponse = apacheResponse;
+            try {
+                final StatusLine statusLine = apacheResponse.getStatusLine();
+                final int statusCode = statusLine == null ? -1 : statusLine.getStatusCode();
+                if (isRequestSuccessful(apacheResponse)) {
+                    awsRequestMetrics.addProperty(Field.StatusCode, statusCode);
+                    HttpResponse httpResponse = createResponse(execOneParams.apacheRequest, request,
+                            apacheResponse, localRequestContext);
+                    T response = handleResponse(request, responseHandler, execOneParams.apacheRequest,
+                            httpResponse, apacheResponse, executionContext, requestHandler2s);
+                    if (execOneParams.isRetry() && executionContext.retryCapacityConsumed()) {
+                        retryCapacity.release(THROTTLED_RETRY_COST);
+                    } else {
+                        retryCapacity.release();
+                    }
+                    recordRateLimitSuccess(request);
+                    succeed(new Response<T>(response, httpResponse));
+                    return;
+                }
+                if (isTemporaryRedirect(apacheResponse)) {
+                    String redirectedLocation = apacheResponse.getHeaders("location")[0].getValue();
+                    if (log.isDebugEnabled())
+                        log.debug("Redirecting to: " + redirectedLocation);
+                    execOneParams.redirectedURI = URI.create(redirectedLocation);
+                    awsRequestMetrics.addPropertyWith(Field.StatusCode, statusCode)
+                            .addPropertyWith(Field.RedirectLocation, redirectedLocation)
+                            .addPropertyWith(Field.AWSRequestID, null);
+                    retry();
+                    return;
+                }
+                final AmazonServiceException ase = handleErrorResponse(request, errorResponseHandler,
+                        execOneParams.apacheRequest, apacheResponse, localRequestContext);
+                awsRequestMetrics.addPropertyWith(Field.AWSRequestID, ase.getRequestId())
+                        .addPropertyWith(Field.AWSErrorCode, ase.getErrorCode())
+                        .addPropertyWith(Field.StatusCode, ase.getStatusCode());
+                recordRateLimitThrottle(request, ase);
+                execOneParams.authRetryParam = null;
+                AuthErrorRetryStrategy authRetry = executionContext.getAuthErrorRetryStrategy();
+                if (authRetry != null) {
+                    HttpResponse httpResponse = createResponse(execOneParams.apacheRequest, request,
+                            apacheResponse, localRequestContext);
+                    execOneParams.authRetryParam = authRetry.shouldRetryWithAuthParam(request, httpResponse, ase);
+                }
+                if (execOneParams.authRetryParam == null && !shouldRetry(request.getOriginalRequest(),
+                        execOneParams, ase, executionContext)) {
+                    cacheFailedResponseMetadata(request, ase);
+                    fail(lastReset(captureExceptionMetrics(ase, awsRequestMetrics), request));
+                    return;
+                }
+                if (RetryUtils.isThrottlingException(ase)) {
+                    awsRequestMetrics.incrementCounterWith(Field.ThrottleException)
+                            .addProperty(Field.ThrottleException, ase);
+                }
+                execOneParams.retriedException = ase;
+                if (RetryUtils.isClockSkewError(ase)) {
+                    int clockSkew = parseClockSkewOffset(apacheResponse, ase);
+                    SDKGlobalTime.setGlobalTimeOffset(timeOffset = clockSkew);
+                    request.setTimeOffset(timeOffset);
+                }
+                retry();
+            } catch (IOException ioe) {
+                onIOException(ioe);
+            } catch (InterruptedException ie) {
+                fail(new AbortedException(ie));
+            } catch (Throwable t) {
+                fail(lastReset(captureExceptionMetrics(t, awsRequestMetrics), request));
+            }
+        }
+
+        private void onFailure(Exception ex) {
+            endHttpRequest();
+            if (done.get()) {
+                return;
+            }
+            if (requestTimedOut) {
+                onIOException(new HttpRequestTimeoutException(ex));
+            } else if (ex instanceof IOException) {
+                onIOException((IOException) ex);
+            } else {
+                fail(lastReset(captureExceptionMetrics(new AmazonClientException(
+                        "Unable to execute HTTP request: " + ex.getMessage(), ex), awsRequestMetrics), request));
+            }
+        }
+
+        /**
+         * Same handling as the {@link IOException} branch of {@link #executeHelper}.
+         */
+        private void onIOException(IOException ioe) {
+            captureExceptionMetrics(ioe, awsRequestMetrics);
+            awsRequestMetrics.addProperty(Field.AWSRequestID, null);
+            AmazonClientException ace = new AmazonClientException(
+                    "Unable to execute HTTP request: " + ioe.getMessage(), ioe);
+            boolean willRetry = shouldRetry(request.getOriginalRequest(), execOneParams, ace,
+                    executionContext);
+            if (log.isDebugEnabled()) {
+                log.debug(ace.getMessage() + (willRetry ? " Request will be retried." : ""), ioe);
+            }
+            if (!willRetry) {
+                fail(lastReset(ace, request));
+                return;
+            }
+            execOneParams.retriedException = ace;
+            retry();
+        }
+
+        /**
+         * Schedules the next attempt after the backoff delay instead of sleeping on a thread.
+         */
+        private void retry() {
+            publishProgress(listener, ProgressEventType.CLIENT_REQUEST_RETRY_EVENT);
+            long delay = 0;
+            if (execOneParams.retriedException != null) {
+                // requestCount has not been advanced for the next attempt yet
+                final int retries = execOneParams.requestCount - 1;
+                delay = config.getRetryPolicy().getBackoffStrategy().delayBeforeNextRetry(
+                        request.getOriginalRequest(), execOneParams.retriedException, retries);
+                execOneParams.lastBackoffDelay = delay;
+                if (log.isDebugEnabled()) {
+                    log.debug("Retriable error detected, " + "will retry in " + delay + "ms, attempt number: "
+                            + retries);
+                }
+            }
+            awsRequestMetrics.startEvent(Field.RetryPauseTime);
+            try {
+                asyncStageExecutor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        awsRequestMetrics.endEvent(Field.RetryPauseTime);
+                        attempt();
+                    }
+                }, delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                fail(new AbortedException("The HTTP client has been shut down", e));
+            }
+        }
+
+        /**
+         * Schedules the next attempt once the client side rate limiter permits it, rather than
+         * blocking a stage thread.
+         */
+        private void waitForRateLimit(long delayNanos) {
+            rateLimitPermitted = true;
+            awsRequestMetrics.startEvent(Field.RateLimiterWaitTime);
+            try {
+                asyncStageExecutor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        awsRequestMetrics.endEvent(Field.RateLimiterWaitTime);
+                        attempt();
+                    }
+                }, delayNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                fail(new AbortedException("The HTTP client has been shut down", e));
+            }
+        }
+
+        private void succeed(Response<T> response) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            cancelClientExecutionTimer();
+            try {
+                publishProgress(listener, ProgressEventType.CLIENT_REQUEST_SUCCESS_EVENT);
+                TimingInfo timingInfo = awsRequestMetrics.getTimingInfo().endTiming();
+                afterResponse(request, requestHandler2s, response, timingInfo);
+            } catch (AmazonClientException e) {
+                notifyFailure(response, e);
+                return;
+            } catch (Throwable t) {
+                notifyFailure(response, new AmazonClientException(t));
+                return;
+            } finally {
+                releaseContent();
+            }
+            future.complete(response);
+            if (asyncHandler != null) {
+                try {
+                    asyncHandler.onSuccess(originalRequest(), response);
+                } catch (RuntimeException e) {
+                    log.warn("AsyncHandler.onSuccess threw an exception", e);
+                }
+            }
+        }
+
+        /**
+         * The marshaller that produced {@link #request} was handed the original request of type X.
+         */
+        @SuppressWarnings("unchecked")
+        private X originalRequest() {
+            return (X) request.getOriginalRequest();
+        }
+
+        private void fail(Throwable t) {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            cancelClientExecutionTimer();
+            abortInFlight();
+            try {
+                notifyFailure(null, t);
+            } finally {
+                releaseContentIfIdle();
+            }
+        }
+
+        private void notifyFailure(Response<?> response, Throwable t) {
+            if (t instanceof AmazonClientException) {
+                publishProgress(listener, ProgressEventType.CLIENT_REQUEST_FAILED_EVENT);
+                try {
+                    afterError(request, response, requestHandler2s, (AmazonClientException) t);
+                } catch (Throwable handlerFailure) {
+                    log.warn("RequestHandler2.afterError threw an exception", handlerFailure);
+                }
+            }
+            future.fail(t);
+            if (asyncHandler != null) {
+                try {
+                    asyncHandler.onError(t instanceof Exception ? (Exception) t : new AmazonClientException(t));
+                } catch (RuntimeException e) {
+                    log.warn("AsyncHandler.onError threw an exception", e);
+                }
+            }
+        }
+
+        /**
+         * Invoked when the caller cancels the returned future.
+         */
+        void cancel() {
+            if (!done.compareAndSet(false, true)) {
+                return;
+            }
+            cancelClientExecutionTimer();
+            abortInFlight();
+            releaseContentIfIdle();
+            if (asyncHandler != null) {
+                asyncHandler.onError(new AbortedException("The request was cancelled"));
+            }
+        }
+
+        private void abortInFlight() {
+            Future<org.apache.http.HttpResponse> current = inFlight;
+            if (current != null) {
+                current.cancel(true);
+            }
+        }
+
+        private void endHttpRequest() {
+            ScheduledFuture<?> timeoutTask = requestTimeoutTask;
+            if (timeoutTask != null) {
+                timeoutTask.cancel(false);
+            }
+            awsRequestMetrics.endEvent(Field.HttpRequestTime);
+        }
+
+        private void cancelClientExecutionTimer() {
+            ScheduledFuture<?> timeoutTask = clientExecutionTimeoutTask;
+            if (timeoutTask != null) {
+                timeoutTask.cancel(false);
+            }
+        }
+
+        /**
+         * Releases the request content unless an aborted attempt may still be reading it, in which
+         * case {@link #contentReadFinished} releases it once the transport has closed its producer.
+         */
+        private void releaseContentIfIdle() {
+            if (contentReaders.get() == 0) {
+                releaseContent();
+            }
+        }
+
+        private void releaseContent() {
+            if (!contentReleased.compareAndSet(false, true)) {
+                return;
+            }
+            // Always close so any progress tracking would get the final events propagated.
+            closeQuietly(toBeClosed, log);
+            request.setContent(origContent);
+        }
+    }
+
+    /**
+     * Request producer that reports when the transport is done with the request content. The I/O
+     * dispatcher reads the content while producing it, but the exchange may be closed on another
+     * thread, for instance when it's cancelled, so producing and closing are serialized: once
+     * closed, the content is no longer read and may be released.
+     */
+    private static class ContentReleasingRequestProducer implements HttpAsyncRequestProducer {
+
+        private final HttpAsyncRequestProducer delegate;
+        private final Runnable onClose;
+        /** Set before waiting for the content being produced, so that no more is produced meanwhile. */
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        ContentReleasingRequestProducer(HttpAsyncRequestProducer delegate, Runnable onClose) {
+            this.delegate = delegate;
+            this.onClose = onClose;
+        }
+
+        @Override
+        public HttpHost getTarget() {
+            return delegate.getTarget();
+        }
+
+        @Override
+        public org.apache.http.HttpRequest generateRequest() throws IOException, HttpException {
+            return delegate.generateRequest();
+        }
+
+        @Override
+        public synchronized void produceContent(ContentEncoder encoder, IOControl ioctrl) throws IOException {
+            if (closed.get()) {
+                throw new IOException("The request content has been released");
+            }
+            delegate.produceContent(encoder, ioctrl);
+        }
+
+        @Override
+        public void requestCompleted(HttpContext context) {
+            delegate.requestCompleted(context);
+        }
+
+        @Override
+        public void failed(Exception ex) {
+            delegate.failed(ex);
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return delegate.isRepeatable();
+        }
+
+        @Override
+        public synchronized void resetRequest() throws IOException {
+            delegate.resetRequest();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            synchronized (this) {
+                // Waits for the content being produced, if any
+            }
+            try {
+                delegate.close();
+            } finally {
+                onClose.run();
+            }
+        }
+    }
+
+    /**
+     * Future returned by {@link #executeAsync}; completed by the stages of an
+     * {@link AsyncRequestExecution} rather than by running a task.
+     */
+    private static class AsyncResponseFuture<T> extends FutureTask<Response<T>> {
+
+        private final AsyncRequestExecution<?, T> execution;
+
+        AsyncResponseFuture(AsyncRequestExecution<?, T> execution) {
+            super(new Callable<Response<T>>() {
+                @Override
+                public Response<T> call() {
+                    throw new IllegalStateException("Completed by the request execution");
+                }
+            });
+            this.execution = execution;
+        }
+
+        void complete(Response<T> response) {
+            set(response);
+        }
+
+        void fail(Throwable t) {
+            setException(t);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                execution.cancel();
+            }
+            return cancelled;
+        }
+    }
+
     /**
      * Stateful parameters that are used for executing a single httpClientSettings request.
      */
@@ -18,6 +18,7 @@ import com.amazonaws.AmazonWebServiceClient;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.auth.Signer;
+import com.amazonaws.event.ProgressListener;
 import com.amazonaws.handlers.RequestHandler2;
 import com.amazonaws.http.timers.client.ClientExecutionAbortTrackerTask;
 import com.amazonaws.internal.auth.NoOpSignerProvider;
@@ -58,6 +59,11 @@ public class ExecutionContext {
 
     private ClientExecutionAbortTrackerTask clientExecutionTrackerTask;
 
+    /**
+     * The listener the progress events of this execution are published to.
+     */
+    private ProgressListener progressListener;
+
     /** For testing purposes. */
     public ExecutionContext(boolean isMetricEnabled) {
         this(builder().withUseRequestMetrics(isMetricEnabled).withSignerProvider(new NoOpSignerProvider()));
@@ -195,6 +201,23 @@ public class ExecutionContext {
         this.clientExecutionTrackerTask = clientExecutionTrackerTask;
     }
 
+    /**
+     * Returns the listener the progress events of this execution are published to, which may
+     * wrap the general progress listener of the original request; or null if not yet set.
+     */
+    public ProgressListener getProgressListener() {
+        return progressListener;
+    }
+
+    /**
+     * Sets the listener the progress events of this execution are published to. Clients that
+     * publish events of their own around an execution set it beforehand, so that all events go
+     * through the same listener; otherwise it is set when the execution starts.
+     */
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
     public static ExecutionContext.Builder builder() { return new ExecutionContext.Builder(); }
 
     public static class Builder {
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http.apache.client.impl;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.SDKGlobalConfiguration;
+import com.amazonaws.http.AmazonHttpClient;
+import com.amazonaws.http.DelegatingDnsResolver;
+import com.amazonaws.http.apache.SdkProxyRoutePlanner;
+import com.amazonaws.http.apache.utils.ApacheUtils;
+import com.amazonaws.http.client.HttpClientFactory;
+import com.amazonaws.http.conn.SdkConnectionKeepAliveStrategy;
+import com.amazonaws.http.settings.HttpClientSettings;
+import com.amazonaws.internal.SdkSSLContext;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.RedirectStrategy;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.conn.NoopIOSessionStrategy;
+import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.protocol.HttpContext;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factory class that builds the non-blocking apache http client from the settings. The returned
+ * client is driven by a small number of I/O dispatcher threads and has already been started.
+ */
+public class ApacheAsyncHttpClientFactory implements HttpClientFactory<CloseableHttpAsyncClient> {
+
+    private static final Log LOG = LogFactory.getLog(AmazonHttpClient.class);
+
+    private static final AtomicInteger CLIENT_COUNT = new AtomicInteger();
+
+    @Override
+    public CloseableHttpAsyncClient create(HttpClientSettings settings) {
+        final int clientId = CLIENT_COUNT.incrementAndGet();
+        final PoolingNHttpClientConnectionManager cm = createConnectionManager(settings, clientId);
+
+        final HttpAsyncClientBuilder builder = HttpAsyncClients.custom()
+                .setConnectionManager(cm)
+                .setThreadFactory(new DaemonThreadFactory("aws-nio-reactor-" + clientId + "-"))
+                .setRedirectStrategy(NoRedirectStrategy.INSTANCE)
+                .disableCookieManagement();
+
+        if (settings.getMaxIdleConnectionTime() > 0) {
+            builder.setKeepAliveStrategy(new SdkConnectionKeepAliveStrategy(settings.getMaxIdleConnectionTime()));
+        }
+
+        HttpResponseInterceptor itcp = new CRC32ChecksumResponseInterceptor();
+        if (settings.calculateCRC32FromCompressedData()) {
+            builder.addInterceptorFirst(itcp);
+        } else {
+            builder.addInterceptorLast(itcp);
+        }
+
+        if (settings.getProxyHost() != null && settings.getProxyPort() > 0) {
+            LOG.info("Configuring Proxy. Proxy Host: " + settings.getProxyHost() + " " +
+                    "Proxy Port: " + settings.getProxyPort());
+            builder.setRoutePlanner(new SdkProxyRoutePlanner(
+                    settings.getProxyHost(), settings.getProxyPort(), settings.getNonProxyHosts()));
+            if (settings.getProxyUsername() != null && settings.getProxyPassword() != null) {
+                builder.setDefaultCredentialsProvider(ApacheUtils.newProxyCredentialsProvider(settings));
+            }
+        }
+
+        final CloseableHttpAsyncClient httpClient = builder.build();
+        httpClient.start();
+        return httpClient;
+    }
+
+    private PoolingNHttpClientConnectionManager createConnectionManager(HttpClientSettings settings,
+                                                                        int clientId) {
+        final IOReactorConfig.Builder reactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(settings.getNonBlockingIoThreadCount())
+                .setConnectTimeout(settings.getConnectionTimeout())
+                .setSoTimeout(settings.getSocketTimeout())
+                .setSoKeepAlive(settings.useTcpKeepAlive())
+                .setTcpNoDelay(true);
+        if (settings.getSocketBufferSize()[0] > 0) {
+            reactorConfig.setSndBufSize(settings.getSocketBufferSize()[0]);
+        }
+        if (settings.getSocketBufferSize()[1] > 0) {
+            reactorConfig.setRcvBufSize(settings.getSocketBufferSize()[1]);
+        }
+
+        final DefaultConnectingIOReactor ioReactor;
+        try {
+            ioReactor = new DefaultConnectingIOReactor(reactorConfig.build(),
+                    new DaemonThreadFactory("aws-nio-dispatcher-" + clientId + "-"));
+        } catch (IOReactorException e) {
+            throw new AmazonClientException("Unable to create the non-blocking I/O reactor: " + e.getMessage(), e);
+        }
+
+        final PoolingNHttpClientConnectionManager cm = new PoolingNHttpClientConnectionManager(
+                ioReactor,
+                null,
+                createSessionStrategyRegistry(settings),
+                DefaultSchemePortResolver.INSTANCE,
+                new DelegatingDnsResolver(settings.getDnsResolver()),
+                settings.getConnectionPoolTTL(),
+                TimeUnit.MILLISECONDS);
+        cm.setDefaultMaxPerRoute(settings.getMaxConnections());
+        cm.setMaxTotal(settings.getMaxConnections());
+
+        int socketBufferSize = Math.max(settings.getSocketBufferSize()[0], settings.getSocketBufferSize()[1]);
+        if (socketBufferSize > 0) {
+            cm.setDefaultConnectionConfig(ConnectionConfig.custom().setBufferSize(socketBufferSize).build());
+        }
+        return cm;
+    }
+
+    private Registry<SchemeIOSessionStrategy> createSessionStrategyRegistry(HttpClientSettings settings) {
+        SSLContext sslContext;
+        HostnameVerifier hostnameVerifier;
+        if (SDKGlobalConfiguration.isCertCheckingDisabled()) {
+            if (LOG.isWarnEnabled()) {
+                LOG.warn("SSL Certificate checking for endpoints has been explicitly disabled.");
+            }
+            sslContext = createTrustingSSLContext();
+            hostnameVerifier = SSLConnectionSocketFactory.ALLOW_ALL_HOSTNAME_VERIFIER;
+        } else {
+            sslContext = SdkSSLContext.getPreferredSSLContext(settings.getSecureRandom());
+            hostnameVerifier = settings.useBrowserCompatibleHostNameVerifier()
+                    ? SSLConnectionSocketFactory.BROWSER_COMPATIBLE_HOSTNAME_VERIFIER
+                    : SSLConnectionSocketFactory.STRICT_HOSTNAME_VERIFIER;
+        }
+        return RegistryBuilder.<SchemeIOSessionStrategy>create()
+                .register("http", NoopIOSessionStrategy.INSTANCE)
+                .register("https", new SSLIOSessionStrategy(sslContext, null, null, hostnameVerifier))
+                .build();
+    }
+
+    private static SSLContext createTrustingSSLContext() {
+        try {
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(null, new TrustManager[]{new TrustingX509TrustManager()}, null);
+            return context;
+        } catch (Exception e) {
+            throw new AmazonClientException("Unable to create SSL context: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Redirects are handled by {@link AmazonHttpClient} itself, as is the case for the blocking
+     * client.
+     */
+    private static class NoRedirectStrategy implements RedirectStrategy {
+
+        private static final NoRedirectStrategy INSTANCE = new NoRedirectStrategy();
+
+        @Override
+        public boolean isRedirected(HttpRequest request, HttpResponse response, HttpContext context) {
+            return false;
+        }
+
+        @Override
+        public HttpUriRequest getRedirect(HttpRequest request, HttpResponse response, HttpContext context) {
+            return null;
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadCount = new AtomicInteger();
+        private final String namePrefix;
+
+        private DaemonThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Simple implementation of X509TrustManager that trusts all certificates.
+     * This class is only intended to be used for testing purposes.
+     */
+    private static class TrustingX509TrustManager implements X509TrustManager {
+        private static final X509Certificate[] X509_CERTIFICATES = new X509Certificate[0];
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return X509_CERTIFICATES;
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) {
+            // No-op, to trust all certs
+        }
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) {
+            // No-op, to trust all certs
+        }
+    }
+}
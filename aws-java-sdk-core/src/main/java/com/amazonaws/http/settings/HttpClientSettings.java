@@ -159,4 +159,13 @@ public class HttpClientSettings {
         return config.isUseExpectContinue();
     }
 
+    /**
+     * Returns the number of I/O dispatcher threads for the non-blocking transport, resolving the
+     * default of zero to the number of available processors.
+     */
+    public int getNonBlockingIoThreadCount() {
+        final int threads = config.getNonBlockingIoThreadCount();
+        return threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
 }
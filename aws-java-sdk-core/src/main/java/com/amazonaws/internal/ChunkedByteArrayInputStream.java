@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.internal;
+
+import static com.amazonaws.internal.ChunkedByteArrayOutputStream.CHUNK_SIZE;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import com.amazonaws.annotation.SdkProtectedApi;
+
+/**
+ * A repeatable input stream over the chunks written to a
+ * {@link ChunkedByteArrayOutputStream}, which supports mark and reset without
+ * any read limit.
+ * <p>
+ * The SHA-256 digest of the content, computed as it was written, is exposed
+ * so that a signer doesn't have to read the content again to hash it.
+ */
+@SdkProtectedApi
+public class ChunkedByteArrayInputStream extends SdkInputStream {
+
+    /**
+     * The content, or null once closed. Each read works on the chunks it finds
+     * when it starts, so closing the stream from another thread never fails a
+     * read in progress.
+     */
+    private volatile List<byte[]> chunks;
+
+    private final long length;
+
+    private final byte[] sha256;
+
+    private long pos;
+
+    private long mark;
+
+    ChunkedByteArrayInputStream(List<byte[]> chunks, long length, byte[] sha256) {
+        this.chunks = chunks;
+        this.length = length;
+        this.sha256 = sha256;
+    }
+
+    /**
+     * Returns the total length of the content of this stream.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Returns the SHA-256 digest of the content of this stream if none of it
+     * has been read yet; or null otherwise.
+     */
+    public byte[] getUnreadContentSha256() {
+        return pos == 0 && chunks != null ? sha256.clone() : null;
+    }
+
+    @Override
+    public int read() throws IOException {
+        abortIfNeeded();
+        final List<byte[]> chunks = ensureOpen();
+        if (pos >= length)
+            return -1;
+        int b = chunks.get((int) (pos / CHUNK_SIZE))[(int) (pos % CHUNK_SIZE)] & 0xFF;
+        pos++;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        abortIfNeeded();
+        final List<byte[]> chunks = ensureOpen();
+        if (len == 0)
+            return 0;
+        if (pos >= length)
+            return -1;
+        int total = (int) Math.min(len, length - pos);
+        int remaining = total;
+        while (remaining > 0) {
+            byte[] chunk = chunks.get((int) (pos / CHUNK_SIZE));
+            int chunkPos = (int) (pos % CHUNK_SIZE);
+            int n = (int) Math.min(remaining, Math.min(CHUNK_SIZE - chunkPos, length - pos));
+            System.arraycopy(chunk, chunkPos, b, off, n);
+            pos += n;
+            off += n;
+            remaining -= n;
+        }
+        return total;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        abortIfNeeded();
+        ensureOpen();
+        if (n <= 0)
+            return 0;
+        long skipped = Math.min(n, length - pos);
+        pos += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        ensureOpen();
+        return (int) Math.min(length - pos, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    /**
+     * Marks the current position in this stream; the read limit is ignored as
+     * the whole content is held in memory.
+     */
+    @Override
+    public void mark(int readlimit) {
+        abortIfNeeded();
+        mark = pos;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        abortIfNeeded();
+        ensureOpen();
+        pos = mark;
+    }
+
+    /**
+     * Closes this stream, which can no longer be read. The chunks are left to
+     * the garbage collector rather than reused, since the http client may
+     * still be sending them from another thread.
+     */
+    @Override
+    public void close() {
+        chunks = null;
+    }
+
+    private List<byte[]> ensureOpen() throws IOException {
+        final List<byte[]> current = chunks;
+        if (current == null)
+            throw new IOException("Stream closed");
+        return current;
+    }
+
+    @Override
+    protected InputStream getWrappedInputStream() {
+        return null;
+    }
+}
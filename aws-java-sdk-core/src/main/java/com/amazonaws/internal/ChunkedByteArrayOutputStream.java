@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.annotation.SdkInternalApi;
+
+/**
+ * An output stream that writes into a list of fixed size chunks, rather than
+ * into a single array that has to be grown and copied, and computes the
+ * SHA-256 digest of the content as it's written.
+ * <p>
+ * The content is handed over with {@link #toInputStream()} as a repeatable
+ * {@link ChunkedByteArrayInputStream}. The chunks are not recycled: the http
+ * client may still be sending them when the request content is closed, for
+ * example when an asynchronous request is cancelled. The digest is reused
+ * though: each thread keeps one, which a stream borrows until its content is
+ * handed over.
+ */
+@SdkInternalApi
+public class ChunkedByteArrayOutputStream extends OutputStream {
+
+    /**
+     * Size of each chunk, which is large enough to hold the content of most
+     * requests in a single chunk.
+     */
+    static final int CHUNK_SIZE = 8 * 1024;
+
+    /**
+     * The SHA-256 digest of each thread that isn't borrowed by a stream.
+     */
+    private static final ThreadLocal<MessageDigest> SHA256 = new ThreadLocal<MessageDigest>();
+
+    private List<byte[]> chunks = new ArrayList<byte[]>();
+
+    /**
+     * Digest of the content, returned to the thread once the content is
+     * handed over.
+     */
+    private MessageDigest sha256;
+
+    /**
+     * Current chunk, or null if no chunk has been acquired yet.
+     */
+    private byte[] curr;
+
+    /**
+     * Position within the current chunk.
+     */
+    private int pos;
+
+    private long length;
+
+    public ChunkedByteArrayOutputStream() {
+        this.sha256 = borrowSha256();
+    }
+
+    /**
+     * Returns the digest of the current thread, or a new one if it is
+     * borrowed by another stream, for instance one that was never handed
+     * over.
+     */
+    private static MessageDigest borrowSha256() {
+        final MessageDigest digest = SHA256.get();
+        if (digest != null) {
+            SHA256.set(null);
+            return digest;
+        }
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AmazonClientException(
+                    "Unable to get SHA256 Function" + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        chunk()[pos++] = (byte) b;
+        sha256.update((byte) b);
+        length++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (chunks == null)
+            throw new IllegalStateException("Content has already been handed over");
+        sha256.update(b, off, len);
+        length += len;
+        while (len > 0) {
+            final byte[] chunk = chunk();
+            final int n = Math.min(len, CHUNK_SIZE - pos);
+            System.arraycopy(b, off, chunk, pos, n);
+            pos += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Returns the chunk to write into, acquiring a new one if the current one
+     * is full.
+     */
+    private byte[] chunk() {
+        if (chunks == null)
+            throw new IllegalStateException("Content has already been handed over");
+        if (curr == null || pos == CHUNK_SIZE) {
+            curr = new byte[CHUNK_SIZE];
+            chunks.add(curr);
+            pos = 0;
+        }
+        return curr;
+    }
+
+    /**
+     * Returns the number of bytes written so far.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Returns a copy of the content written so far as a single array.
+     */
+    public byte[] toByteArray() {
+        if (chunks == null)
+            throw new IllegalStateException("Content has already been handed over");
+        if (length > Integer.MAX_VALUE)
+            throw new IllegalStateException("Content is too large for an array: " + length);
+        byte[] bytes = new byte[(int) length];
+        int off = 0;
+        for (byte[] chunk : chunks) {
+            int n = Math.min(chunk.length, bytes.length - off);
+            System.arraycopy(chunk, 0, bytes, off, n);
+            off += n;
+        }
+        return bytes;
+    }
+
+    /**
+     * Hands over the content written to this stream, which can no longer be
+     * written to, as a repeatable input stream.
+     */
+    public ChunkedByteArrayInputStream toInputStream() {
+        if (chunks == null)
+            throw new IllegalStateException("Content has already been handed over");
+        ChunkedByteArrayInputStream content =
+                new ChunkedByteArrayInputStream(chunks, length, sha256.digest());
+        chunks = null;
+        curr = null;
+        // digest() has reset it for the next stream written on this thread
+        SHA256.set(sha256);
+        sha256 = null;
+        return content;
+    }
+}
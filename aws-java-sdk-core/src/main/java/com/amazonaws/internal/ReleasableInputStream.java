@@ -104,6 +104,13 @@ public class ReleasableInputStream extends SdkFilterInputStream implements Relea
         return closeDisabled;
     }
 
+    /**
+     * Returns the underlying input stream.
+     */
+    public final InputStream getWrappedInputStream() {
+        return in;
+    }
+
     /**
      * Used to disable the close method. Once the close method is disabled,
      * caller would be responsible to release resources via {@link #release()}.
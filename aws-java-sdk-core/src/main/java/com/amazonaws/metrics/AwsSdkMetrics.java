@@ -897,6 +897,8 @@ public enum AwsSdkMetrics {
             metricTypes.add(Field.RetryCount);
             metricTypes.add(Field.RetryCapacityConsumed);
             metricTypes.add(Field.ThrottledRetryCount);
+            metricTypes.add(Field.ClientSideRateLimit);
+            metricTypes.add(Field.RateLimiterWaitTime);
             metricTypes.add(Field.HttpClientSendRequestTime);
             metricTypes.add(Field.HttpClientReceiveResponseTime);
             metricTypes.add(Field.HttpSocketReadTime);
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.annotation.ThreadSafe;
+import com.amazonaws.metrics.internal.ConcurrentHistogram;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.TimingInfo;
+
+/**
+ * An in-process request metric collector that records the latencies of each
+ * operation into lock-free histograms, for applications that want latency
+ * distributions without shipping every measurement elsewhere.
+ * <p>
+ * Recording a request takes no lock and allocates nothing once an operation
+ * has been seen. By default only {@link Field#ClientExecuteTime} is recorded,
+ * from the start and end time of the request, so requests are measured
+ * without the per-event bookkeeping of the full request metrics. Recording
+ * the latency of other events, such as {@link #LATENCY_BREAKDOWN_FIELDS}, or
+ * counting throttled requests, requires the full request metrics. The
+ * histograms are aggregated when read, either through
+ * {@link #getSnapshots()} or through JMX, where the snapshots of the collector
+ * used at the AWS SDK level are exposed by {@link MetricAdminMBean}. To use
+ * it at the AWS SDK level:
+ *
+ * <pre>
+ * HistogramRequestMetricCollector collector = new HistogramRequestMetricCollector();
+ * AwsSdkMetrics.setMetricCollector(collector.toMetricCollector());
+ * </pre>
+ *
+ * It may also be given to a client or request as its request metric
+ * collector.
+ */
+@ThreadSafe
+public class HistogramRequestMetricCollector extends RequestMetricCollector {
+
+    /**
+     * Latency metrics that break down the time taken by a request, which can
+     * be recorded in addition to {@link Field#ClientExecuteTime}.
+     */
+    public static final Field[] LATENCY_BREAKDOWN_FIELDS = {
+        Field.HttpRequestTime,
+        Field.HttpClientSendRequestTime,
+        Field.HttpClientReceiveResponseTime,
+        Field.RequestMarshallTime,
+        Field.RequestSigningTime,
+        Field.ResponseProcessingTime,
+        Field.CredentialsRequestTime,
+        Field.RetryPauseTime,
+        Field.RateLimiterWaitTime,
+    };
+
+    private final Field[] fields;
+
+    /** Operations by request class, by service name. */
+    private volatile ConcurrentMap<String, ConcurrentMap<Class<?>, OperationMetrics>> services =
+            new ConcurrentHashMap<String, ConcurrentMap<Class<?>, OperationMetrics>>();
+
+    /**
+     * Records only {@link Field#ClientExecuteTime}, which does not need the
+     * full request metrics.
+     */
+    public HistogramRequestMetricCollector() {
+        this(new Field[0]);
+    }
+
+    /**
+     * @param fields
+     *            the latency metrics to record, in addition to
+     *            {@link Field#ClientExecuteTime} which is always recorded.
+     *            Recording any of them requires the full request metrics.
+     */
+    public HistogramRequestMetricCollector(Field... fields) {
+        final List<Field> list = new ArrayList<Field>();
+        for (Field field : fields) {
+            if (field != Field.ClientExecuteTime && !list.contains(field)) {
+                list.add(field);
+            }
+        }
+        this.fields = list.toArray(new Field[list.size()]);
+    }
+
+    /**
+     * Returns true only if latency metrics other than
+     * {@link Field#ClientExecuteTime} are recorded.
+     */
+    @Override
+    public boolean isFullSupportRequired() {
+        return fields.length > 0;
+    }
+
+    @Override
+    public void collectMetrics(Request<?> request, Response<?> response) {
+        final AWSRequestMetrics metrics = request.getAWSRequestMetrics();
+        if (metrics == null || request.getServiceName() == null
+                || request.getOriginalRequest() == null) {
+            return;
+        }
+        final TimingInfo root = metrics.getTimingInfo();
+        if (!root.isEndTimeKnown()) {
+            return;
+        }
+        final OperationMetrics operation = operationOf(request);
+        operation.clientExecuteTime.record(microsOf(root));
+        for (int i = 0; i < fields.length; i++) {
+            final List<TimingInfo> timings = root.getAllSubMeasurements(fields[i].name());
+            if (timings != null) {
+                for (int j = 0; j < timings.size(); j++) {
+                    final TimingInfo timing = timings.get(j);
+                    if (timing.isEndTimeKnown()) {
+                        operation.latencies[i].record(microsOf(timing));
+                    }
+                }
+            }
+        }
+        if (response == null) {
+            operation.failures.incrementAndGet();
+        }
+        final Number throttles = root.getCounter(Field.ThrottleException.name());
+        if (throttles != null && throttles.longValue() > 0) {
+            operation.throttled.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns a snapshot of the latency distributions recorded so far, for
+     * each operation and metric with at least one measurement.
+     */
+    public List<LatencySnapshot> getSnapshots() {
+        final List<LatencySnapshot> snapshots = new ArrayList<LatencySnapshot>();
+        for (ConcurrentMap<Class<?>, OperationMetrics> operations : services.values()) {
+            for (OperationMetrics operation : operations.values()) {
+                addSnapshot(snapshots, operation, Field.ClientExecuteTime, operation.clientExecuteTime);
+                for (int i = 0; i < fields.length; i++) {
+                    addSnapshot(snapshots, operation, fields[i], operation.latencies[i]);
+                }
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * Returns the number of failed requests of the given operation recorded
+     * so far.
+     *
+     * @param serviceName
+     *            the name of the service, such as AmazonDynamoDBv2.
+     * @param operationName
+     *            the simple name of the request class of the operation.
+     */
+    public long getFailureCount(String serviceName, String operationName) {
+        final OperationMetrics operation = findOperation(serviceName, operationName);
+        return operation == null ? 0 : operation.failures.get();
+    }
+
+    /**
+     * Returns the number of requests of the given operation recorded so far
+     * which had at least one attempt throttled. Throttled attempts are only
+     * known from the full request metrics, so this is always zero for a
+     * collector recording only {@link Field#ClientExecuteTime}.
+     *
+     * @param serviceName
+     *            the name of the service, such as AmazonDynamoDBv2.
+     * @param operationName
+     *            the simple name of the request class of the operation.
+     */
+    public long getThrottledCount(String serviceName, String operationName) {
+        final OperationMetrics operation = findOperation(serviceName, operationName);
+        return operation == null ? 0 : operation.throttled.get();
+    }
+
+    /**
+     * Discards everything recorded so far.
+     */
+    public void reset() {
+        services = new ConcurrentHashMap<String, ConcurrentMap<Class<?>, OperationMetrics>>();
+    }
+
+    /**
+     * Returns a metric collector using this collector as its request metric
+     * collector, and no service metric collector, that can be set at the AWS
+     * SDK level via {@link AwsSdkMetrics#setMetricCollector(MetricCollector)}.
+     */
+    public MetricCollector toMetricCollector() {
+        return new MetricCollector() {
+            @Override public boolean start() { return true; }
+            @Override public boolean stop() { return true; }
+            @Override public boolean isEnabled() { return true; }
+            @Override public RequestMetricCollector getRequestMetricCollector() {
+                return HistogramRequestMetricCollector.this;
+            }
+            @Override public ServiceMetricCollector getServiceMetricCollector() {
+                return ServiceMetricCollector.NONE;
+            }
+        };
+    }
+
+    private OperationMetrics operationOf(Request<?> request) {
+        final String serviceName = request.getServiceName();
+        ConcurrentMap<Class<?>, OperationMetrics> operations = services.get(serviceName);
+        if (operations == null) {
+            final ConcurrentMap<Class<?>, OperationMetrics> created =
+                    new ConcurrentHashMap<Class<?>, OperationMetrics>();
+            operations = services.putIfAbsent(serviceName, created);
+            if (operations == null) {
+                operations = created;
+            }
+        }
+        final Class<?> requestClass = request.getOriginalRequest().getClass();
+        OperationMetrics operation = operations.get(requestClass);
+        if (operation == null) {
+            final OperationMetrics created = new OperationMetrics(serviceName,
+                    requestClass.getSimpleName(), fields.length);
+            operation = operations.putIfAbsent(requestClass, created);
+            if (operation == null) {
+                operation = created;
+            }
+        }
+        return operation;
+    }
+
+    private OperationMetrics findOperation(String serviceName, String operationName) {
+        final ConcurrentMap<Class<?>, OperationMetrics> operations = services.get(serviceName);
+        if (operations != null) {
+            for (OperationMetrics operation : operations.values()) {
+                if (operation.operationName.equals(operationName)) {
+                    return operation;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void addSnapshot(List<LatencySnapshot> snapshots, OperationMetrics operation,
+            Field field, ConcurrentHistogram histogram) {
+        final LatencySnapshot snapshot = new LatencySnapshot(operation.serviceName,
+                operation.operationName, field.name(), histogram);
+        if (snapshot.getCount() > 0) {
+            snapshots.add(snapshot);
+        }
+    }
+
+    private static long microsOf(TimingInfo timing) {
+        return (timing.getEndTimeNano() - timing.getStartTimeNano()) / 1000;
+    }
+
+    /**
+     * The histograms and counters of an operation.
+     */
+    private static final class OperationMetrics {
+        private final String serviceName;
+        private final String operationName;
+        private final ConcurrentHistogram clientExecuteTime = new ConcurrentHistogram();
+        private final ConcurrentHistogram[] latencies;
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong throttled = new AtomicLong();
+
+        OperationMetrics(String serviceName, String operationName, int fieldCount) {
+            this.serviceName = serviceName;
+            this.operationName = operationName;
+            this.latencies = new ConcurrentHistogram[fieldCount];
+            for (int i = 0; i < fieldCount; i++) {
+                latencies[i] = new ConcurrentHistogram();
+            }
+        }
+    }
+}
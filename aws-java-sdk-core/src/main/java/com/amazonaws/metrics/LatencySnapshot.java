@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.metrics;
+
+import com.amazonaws.annotation.Immutable;
+import com.amazonaws.metrics.internal.ConcurrentHistogram;
+
+/**
+ * The distribution of a latency metric of the requests of an operation, as
+ * recorded by a {@link HistogramRequestMetricCollector} up to the time the
+ * snapshot was taken.
+ * <p>
+ * Percentiles are accurate to within about 6% of their value; the mean and
+ * maximum are exact.
+ */
+@Immutable
+public class LatencySnapshot {
+    private final String serviceName;
+    private final String operationName;
+    private final String metricName;
+    private final long[] bucketCounts;
+    private final long count;
+    private final long sumMicros;
+    private final long maxMicros;
+
+    LatencySnapshot(String serviceName, String operationName, String metricName,
+            ConcurrentHistogram histogram) {
+        this.serviceName = serviceName;
+        this.operationName = operationName;
+        this.metricName = metricName;
+        this.bucketCounts = new long[ConcurrentHistogram.BUCKET_COUNT];
+        final long[] totals = histogram.snapshot(bucketCounts);
+        this.count = totals[0];
+        this.sumMicros = totals[1];
+        this.maxMicros = totals[2];
+    }
+
+    /**
+     * Returns the name of the service, such as AmazonDynamoDBv2.
+     */
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    /**
+     * Returns the name of the operation, given by the simple name of its
+     * request class, such as PutItemRequest.
+     */
+    public String getOperationName() {
+        return operationName;
+    }
+
+    /**
+     * Returns the name of the metric, such as HttpRequestTime.
+     */
+    public String getMetricName() {
+        return metricName;
+    }
+
+    /**
+     * Returns the number of measurements.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the mean of the measurements in milliseconds; or zero if there
+     * is none.
+     */
+    public double getMeanMillis() {
+        return count == 0 ? 0 : sumMicros / 1000.0 / count;
+    }
+
+    /**
+     * Returns the largest measurement in milliseconds; or zero if there is
+     * none.
+     */
+    public double getMaxMillis() {
+        return maxMicros / 1000.0;
+    }
+
+    /**
+     * Returns the value in milliseconds below which the given percentage of
+     * the measurements fall; or zero if there is none.
+     *
+     * @param percentile
+     *            the percentage, between 0 and 100.
+     */
+    public double getPercentileMillis(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100) / 100));
+        long seen = 0;
+        for (int i = 0; i < bucketCounts.length; i++) {
+            seen += bucketCounts[i];
+            if (seen >= rank) {
+                final long value = (ConcurrentHistogram.lowestValueOf(i)
+                        + ConcurrentHistogram.highestValueOf(i)) / 2;
+                return Math.min(value, maxMicros) / 1000.0;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s %s: count=%d, mean=%.3fms, p50=%.3fms, p90=%.3fms, "
+                + "p99=%.3fms, p99.9=%.3fms, max=%.3fms",
+                serviceName, operationName, metricName, count, getMeanMillis(),
+                getPercentileMillis(50), getPercentileMillis(90), getPercentileMillis(99),
+                getPercentileMillis(99.9), getMaxMillis());
+    }
+}
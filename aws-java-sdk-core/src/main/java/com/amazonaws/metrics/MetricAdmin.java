@@ -16,6 +16,7 @@ package com.amazonaws.metrics;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.List;
 
 import com.amazonaws.regions.Regions;
 
@@ -140,4 +141,19 @@ public class MetricAdmin implements MetricAdminMBean {
     public void setSingleMetricNamespace(boolean singleMetricNamespace) {
         AwsSdkMetrics.setSingleMetricNamespace(singleMetricNamespace);
     }
+
+    @Override
+    public String[] getRequestLatencySnapshots() {
+        MetricCollector mc = AwsSdkMetrics.getInternalMetricCollector();
+        RequestMetricCollector rmc = mc == null ? null : mc.getRequestMetricCollector();
+        if (!(rmc instanceof HistogramRequestMetricCollector)) {
+            return new String[0];
+        }
+        List<LatencySnapshot> snapshots = ((HistogramRequestMetricCollector) rmc).getSnapshots();
+        String[] summaries = new String[snapshots.size()];
+        for (int i = 0; i < summaries.length; i++) {
+            summaries[i] = snapshots.get(i).toString();
+        }
+        return summaries;
+    }
 }
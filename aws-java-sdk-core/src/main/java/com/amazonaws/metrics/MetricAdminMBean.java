@@ -184,4 +184,11 @@ public interface MetricAdminMBean {
      * Used to set whether a single metric name space is to be used.
      */
     public void setSingleMetricNamespace(boolean singleMetricNamespace);
+
+    /**
+     * Returns a summary of each latency distribution recorded by the request
+     * metric collector in use at the AWS SDK level, if it is a
+     * {@link HistogramRequestMetricCollector}; or an empty array otherwise.
+     */
+    public String[] getRequestLatencySnapshots();
 }
\ No newline at end of file
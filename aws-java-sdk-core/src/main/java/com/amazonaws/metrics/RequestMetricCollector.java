@@ -17,6 +17,7 @@ package com.amazonaws.metrics;
 
 import com.amazonaws.Request;
 import com.amazonaws.Response;
+import com.amazonaws.util.AWSRequestMetrics;
 
 /**
  * A service provider interface that can be used to implement an AWS SDK
@@ -43,6 +44,16 @@ public abstract class RequestMetricCollector {
     public abstract void collectMetrics(Request<?> request, Response<?> response);
     public boolean isEnabled() { return true; }
 
+    /**
+     * Returns true if this collector needs the full request metrics, with the
+     * timing of each event and the counters of a request; false if it only
+     * uses the start and end time of the root
+     * {@link AWSRequestMetrics#getTimingInfo() timing info}, in which case
+     * the request is measured without recording its events. Returns true by
+     * default.
+     */
+    public boolean isFullSupportRequired() { return true; }
+
     /** A convenient instance of a no-op request metric collector. */
     public static final RequestMetricCollector NONE = new RequestMetricCollector() {
         @Override public void collectMetrics(Request<?> request, Response<?> response) {}
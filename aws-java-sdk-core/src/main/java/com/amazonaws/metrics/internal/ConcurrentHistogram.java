@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.metrics.internal;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.amazonaws.annotation.SdkInternalApi;
+import com.amazonaws.annotation.ThreadSafe;
+
+/**
+ * A lock-free histogram of non-negative long values with log-linear buckets,
+ * in the manner of HdrHistogram: values below 32 are counted exactly, and
+ * each power of two above is split into 16 buckets, bounding the error of a
+ * reported value to 1/16 of it. Values of 2^40 and above are counted in the
+ * last bucket.
+ * <p>
+ * Recording is allocation free and never blocks. To keep threads recording
+ * concurrently from contending on the same counters, the counts are striped
+ * by thread, up to one stripe per processor, and only added up when a
+ * snapshot is taken. Stripes are allocated when first recorded into.
+ */
+@SdkInternalApi
+@ThreadSafe
+public final class ConcurrentHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+    /** Values below this are counted in a bucket of their own. */
+    private static final int EXACT_LIMIT = 2 * SUB_BUCKET_COUNT;
+    private static final int MAX_EXPONENT = 40;
+    private static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+
+    /** The number of buckets of a histogram. */
+    public static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    /** Slots following the buckets of a stripe. */
+    private static final int SUM = BUCKET_COUNT;
+    private static final int MAX = BUCKET_COUNT + 1;
+    private static final int STRIPE_LENGTH = BUCKET_COUNT + 2;
+
+    private static final int STRIPE_COUNT = stripeCount();
+
+    private final AtomicReferenceArray<AtomicLongArray> stripes =
+            new AtomicReferenceArray<AtomicLongArray>(STRIPE_COUNT);
+
+    /**
+     * Records the given value; negative values are recorded as zero.
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        final AtomicLongArray stripe = stripeOf(Thread.currentThread());
+        stripe.incrementAndGet(bucketOf(value));
+        stripe.addAndGet(SUM, value);
+        long max = stripe.get(MAX);
+        while (value > max && !stripe.compareAndSet(MAX, max, value)) {
+            max = stripe.get(MAX);
+        }
+    }
+
+    /**
+     * Adds the counts of all stripes into the given array, which must have
+     * {@link #BUCKET_COUNT} elements, and returns the total count, sum and
+     * maximum of the recorded values, in that order.
+     */
+    public long[] snapshot(long[] bucketCounts) {
+        long count = 0;
+        long sum = 0;
+        long max = 0;
+        for (int s = 0; s < STRIPE_COUNT; s++) {
+            final AtomicLongArray stripe = stripes.get(s);
+            if (stripe == null) {
+                continue;
+            }
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                final long n = stripe.get(i);
+                bucketCounts[i] += n;
+                count += n;
+            }
+            sum += stripe.get(SUM);
+            max = Math.max(max, stripe.get(MAX));
+        }
+        return new long[] {count, sum, max};
+    }
+
+    /**
+     * Returns the index of the bucket the given non-negative value is counted
+     * in.
+     */
+    public static int bucketOf(long value) {
+        if (value < EXACT_LIMIT) {
+            return (int) value;
+        }
+        if (value > MAX_VALUE) {
+            value = MAX_VALUE;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT
+                + (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & SUB_BUCKET_MASK);
+    }
+
+    /**
+     * Returns the smallest value counted in the given bucket.
+     */
+    public static long lowestValueOf(int bucket) {
+        if (bucket < EXACT_LIMIT) {
+            return bucket;
+        }
+        final int exponent = bucket / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        return (long) (SUB_BUCKET_COUNT + (bucket & SUB_BUCKET_MASK)) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * Returns the largest value counted in the given bucket.
+     */
+    public static long highestValueOf(int bucket) {
+        if (bucket < EXACT_LIMIT) {
+            return bucket;
+        }
+        final int exponent = bucket / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        return lowestValueOf(bucket) + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    private AtomicLongArray stripeOf(Thread thread) {
+        final int index = (int) thread.getId() & (STRIPE_COUNT - 1);
+        final AtomicLongArray stripe = stripes.get(index);
+        if (stripe != null) {
+            return stripe;
+        }
+        stripes.compareAndSet(index, null, new AtomicLongArray(STRIPE_LENGTH));
+        return stripes.get(index);
+    }
+
+    private static int stripeCount() {
+        final int processors = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+        int count = 1;
+        while (count < processors) {
+            count <<= 1;
+        }
+        return count;
+    }
+}
@@ -14,7 +14,6 @@
  */
 package com.amazonaws.protocol.json;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -22,6 +21,8 @@ import java.nio.ByteBuffer;
 import java.util.Date;
 
 import com.amazonaws.AmazonClientException;
+import com.amazonaws.internal.ChunkedByteArrayInputStream;
+import com.amazonaws.internal.ChunkedByteArrayOutputStream;
 import com.amazonaws.util.BinaryUtils;
 import software.amazon.ion.IonType;
 import software.amazon.ion.IonWriter;
@@ -30,12 +31,12 @@ import software.amazon.ion.system.IonBinaryWriterBuilder;
 
 class SdkIonGenerator implements StructuredJsonGenerator {
     private final String contentType;
-    private final ByteArrayOutputStream bytes;
+    private final ChunkedByteArrayOutputStream bytes;
     private final IonWriter writer;
 
     public SdkIonGenerator(IonBinaryWriterBuilder writerBuilder, String contentType) {
         this.contentType = contentType;
-        this.bytes = new ByteArrayOutputStream();
+        this.bytes = new ChunkedByteArrayOutputStream();
         this.writer = writerBuilder.build(bytes);
     }
 
@@ -197,12 +198,27 @@ class SdkIonGenerator implements StructuredJsonGenerator {
 
     @Override
     public byte[] getBytes() {
+        finish();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Finishes writing and hands over the generated content as a repeatable
+     * input stream, without copying it into a single array.
+     *
+     * @see StructuredJsonContent#of(StructuredJsonGenerator)
+     */
+    public ChunkedByteArrayInputStream getContent() {
+        finish();
+        return bytes.toInputStream();
+    }
+
+    private void finish() {
         try {
             writer.finish();
         } catch (IOException e) {
             throw new AmazonClientException(e);
         }
-        return bytes.toByteArray();
     }
 
     @Override
@@ -16,12 +16,13 @@ package com.amazonaws.protocol.json;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.annotation.SdkInternalApi;
+import com.amazonaws.internal.ChunkedByteArrayInputStream;
+import com.amazonaws.internal.ChunkedByteArrayOutputStream;
 import com.amazonaws.util.BinaryUtils;
 import com.amazonaws.util.DateUtils;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -34,12 +35,6 @@ import java.util.Date;
 @SdkInternalApi
 public class SdkJsonGenerator implements StructuredJsonGenerator {
 
-    /**
-     * Default buffer size for the BAOS. Chosen somewhat arbitrarily. Should be large enough to
-     * prevent frequent resizings but small enough to avoid wasted allocations for small requests.
-     */
-    private static final int DEFAULT_BUFFER_SIZE = 1024;
-
     /**
      * Indicates an issue writing JSON content.
      */
@@ -50,7 +45,7 @@ public class SdkJsonGenerator implements StructuredJsonGenerator {
         }
     }
 
-    private final ByteArrayOutputStream baos = new ByteArrayOutputStream(DEFAULT_BUFFER_SIZE);
+    private final ChunkedByteArrayOutputStream out = new ChunkedByteArrayOutputStream();
 
     private final JsonGenerator generator;
 
@@ -62,7 +57,7 @@ public class SdkJsonGenerator implements StructuredJsonGenerator {
              * A {@link JsonGenerator} created is by default enabled with
              * UTF-8 encoding
              */
-            this.generator = factory.createGenerator(baos);
+            this.generator = factory.createGenerator(out);
             this.contentType = contentType;
         } catch (IOException e) {
             throw new JsonGenerationException(e);
@@ -256,7 +251,18 @@ public class SdkJsonGenerator implements StructuredJsonGenerator {
     @Override
     public byte[] getBytes() {
         close();
-        return baos.toByteArray();
+        return out.toByteArray();
+    }
+
+    /**
+     * Finishes writing and hands over the generated content as a repeatable
+     * input stream, without copying it into a single array.
+     *
+     * @see StructuredJsonContent#of(StructuredJsonGenerator)
+     */
+    public ChunkedByteArrayInputStream getContent() {
+        close();
+        return out.toInputStream();
     }
 
     @Override
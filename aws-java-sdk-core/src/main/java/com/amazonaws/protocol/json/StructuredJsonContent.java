@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.protocol.json;
+
+import java.io.IOException;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.annotation.SdkProtectedApi;
+import com.amazonaws.internal.ChunkedByteArrayInputStream;
+import com.amazonaws.internal.ChunkedByteArrayOutputStream;
+
+/**
+ * Hands over the content of a {@link StructuredJsonGenerator} as a repeatable
+ * {@link ChunkedByteArrayInputStream}, whose SHA-256 digest is computed as
+ * it's written so that it doesn't have to be read again for signing.
+ * <p>
+ * The generators of the SDK write their content in chunks that are handed
+ * over without copying. The content of other implementations is obtained
+ * from {@link StructuredJsonGenerator#getBytes()}.
+ */
+@SdkProtectedApi
+public final class StructuredJsonContent {
+
+    private StructuredJsonContent() {
+    }
+
+    /**
+     * Finishes writing and returns the content of the given generator.
+     */
+    public static ChunkedByteArrayInputStream of(StructuredJsonGenerator generator) {
+        if (generator instanceof SdkJsonGenerator) {
+            return ((SdkJsonGenerator) generator).getContent();
+        }
+        if (generator instanceof SdkIonGenerator) {
+            return ((SdkIonGenerator) generator).getContent();
+        }
+        ChunkedByteArrayOutputStream out = new ChunkedByteArrayOutputStream();
+        try {
+            out.write(generator.getBytes());
+        } catch (IOException e) {
+            throw new AmazonClientException(e);
+        }
+        return out.toInputStream();
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.retry;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client side rate limiter whose rate is tuned from the throttling responses
+ * of the service, with one token bucket per operation.
+ * <p>
+ * An operation is not limited until one of its requests is throttled. The
+ * bucket then starts filling at a fraction of the rate at which requests were
+ * being sent, and the rate is adjusted following an additive increase,
+ * multiplicative decrease scheme: it is cut each time a request is throttled,
+ * and grows linearly as requests succeed. Once the rate has grown well past
+ * the rate at which throttling last occurred, the operation is no longer
+ * limited.
+ * <p>
+ * Requests reserve their permit before being sent, and are told how long to
+ * wait for it; the waiting is left to the caller, which can sleep or schedule
+ * the request for later.
+ */
+public class AdaptiveRateLimiter {
+
+    /** The lowest rate, in requests per second, an operation is limited to. */
+    static final double MIN_RATE = 0.5;
+
+    /** Factor applied to the rate when a request is throttled. */
+    static final double DECREASE_FACTOR = 0.7;
+
+    /**
+     * Fraction of the rate at which throttling last occurred by which the
+     * rate grows per second of successful requests.
+     */
+    static final double INCREASE_FRACTION = 0.05;
+
+    /**
+     * Limiting stops once the rate reaches this multiple of the rate at which
+     * throttling last occurred.
+     */
+    static final double RELEASE_FACTOR = 2.0;
+
+    /**
+     * Throttling responses received within this delay of a decrease are
+     * not counted again, since their requests were sent before it.
+     */
+    static final long DECREASE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private static final long ONE_SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<String, TokenBucket>();
+
+    /**
+     * Reserves a permit to send a request of the given operation.
+     *
+     * @param operation
+     *            the name of the operation.
+     * @param maxWaitNanos
+     *            the longest the caller accepts to wait for the permit; a
+     *            negative value means no limit.
+     * @return the number of nanoseconds to wait before sending the request,
+     *         or -1 if the permit would not be available within maxWaitNanos,
+     *         in which case nothing is reserved.
+     */
+    public long reserve(String operation, long maxWaitNanos) {
+        return bucketOf(operation).reserve(nanoTime(), maxWaitNanos);
+    }
+
+    /**
+     * Records that a request of the given operation succeeded.
+     */
+    public void onSuccess(String operation) {
+        final TokenBucket bucket = buckets.get(operation);
+        if (bucket != null) {
+            bucket.onSuccess(nanoTime());
+        }
+    }
+
+    /**
+     * Records that a request of the given operation was throttled by the
+     * service.
+     */
+    public void onThrottle(String operation) {
+        bucketOf(operation).onThrottle(nanoTime());
+    }
+
+    /**
+     * Returns the rate, in requests per second, the given operation is
+     * currently limited to; or -1 if it is not limited.
+     */
+    public double getRate(String operation) {
+        final TokenBucket bucket = buckets.get(operation);
+        return bucket == null ? -1 : bucket.rate();
+    }
+
+    /**
+     * Returns the current time in nanoseconds; overridden by tests.
+     */
+    long nanoTime() {
+        return System.nanoTime();
+    }
+
+    private TokenBucket bucketOf(String operation) {
+        TokenBucket bucket = buckets.get(operation);
+        if (bucket == null) {
+            final TokenBucket newBucket = new TokenBucket(nanoTime());
+            bucket = buckets.putIfAbsent(operation, newBucket);
+            if (bucket == null) {
+                bucket = newBucket;
+            }
+        }
+        return bucket;
+    }
+
+    private static final class TokenBucket {
+        /** Requests sent since the start of the measurement window. */
+        private final AtomicLong sent = new AtomicLong();
+        private volatile long windowStart;
+        /** Send rate measured over the last complete window. */
+        private volatile double measuredRate;
+        private volatile boolean enabled;
+
+        // Guarded by this
+        private double fillRate;
+        private double tokens;
+        private long lastRefill;
+        private double throttledRate;
+        private long lastDecrease;
+
+        private TokenBucket(long now) {
+            this.windowStart = now;
+        }
+
+        private long reserve(long now, long maxWaitNanos) {
+            measure(now);
+            if (!enabled) {
+                return 0;
+            }
+            synchronized (this) {
+                if (!enabled) {
+                    return 0;
+                }
+                refill(now);
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return 0;
+                }
+                final long wait = (long) Math.ceil((1 - tokens) / fillRate * ONE_SECOND_NANOS);
+                if (maxWaitNanos >= 0 && wait > maxWaitNanos) {
+                    return -1;
+                }
+                // Going into debt makes later requests wait their turn
+                tokens -= 1;
+                return wait;
+            }
+        }
+
+        private void onSuccess(long now) {
+            if (!enabled) {
+                return;
+            }
+            synchronized (this) {
+                if (!enabled) {
+                    return;
+                }
+                refill(now);
+                // Successful requests arrive at about fillRate per second, so
+                // the rate grows by increase per second
+                final double increase = Math.max(MIN_RATE, throttledRate * INCREASE_FRACTION);
+                fillRate += increase / fillRate;
+                if (fillRate >= throttledRate * RELEASE_FACTOR) {
+                    enabled = false;
+                }
+            }
+        }
+
+        private synchronized void onThrottle(long now) {
+            if (enabled && now - lastDecrease < DECREASE_INTERVAL_NANOS) {
+                return;
+            }
+            final double sendRate = sendRate(now);
+            final double baseRate;
+            if (enabled) {
+                refill(now);
+                baseRate = sendRate > 0 ? Math.min(fillRate, sendRate) : fillRate;
+            } else {
+                baseRate = sendRate;
+                tokens = 0;
+                lastRefill = now;
+            }
+            throttledRate = Math.max(MIN_RATE, baseRate);
+            fillRate = Math.max(MIN_RATE, baseRate * DECREASE_FACTOR);
+            tokens = Math.min(tokens, Math.max(1, fillRate));
+            lastDecrease = now;
+            enabled = true;
+        }
+
+        private double rate() {
+            if (!enabled) {
+                return -1;
+            }
+            synchronized (this) {
+                return enabled ? fillRate : -1;
+            }
+        }
+
+        /**
+         * Adds the tokens accumulated since the last refill, up to one
+         * second worth of requests. Must be called with the lock held.
+         */
+        private void refill(long now) {
+            final double elapsed = (double) (now - lastRefill) / ONE_SECOND_NANOS;
+            if (elapsed > 0) {
+                tokens = Math.min(Math.max(1, fillRate), tokens + elapsed * fillRate);
+                lastRefill = now;
+            }
+        }
+
+        /**
+         * Counts a request sent, starting a new measurement window every
+         * second.
+         */
+        private void measure(long now) {
+            sent.incrementAndGet();
+            if (now - windowStart >= ONE_SECOND_NANOS) {
+                synchronized (this) {
+                    final long elapsed = now - windowStart;
+                    if (elapsed >= ONE_SECOND_NANOS) {
+                        measuredRate = (double) sent.getAndSet(0) * ONE_SECOND_NANOS / elapsed;
+                        windowStart = now;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns the current send rate: the rate of the last complete window,
+         * or of the current one if it is higher or there is no complete
+         * window yet.
+         */
+        private double sendRate(long now) {
+            final long elapsed = Math.max(now - windowStart, ONE_SECOND_NANOS / 10);
+            final double currentRate = (double) sent.get() * ONE_SECOND_NANOS / elapsed;
+            return Math.max(measuredRate, currentRate);
+        }
+    }
+}
@@ -95,6 +95,16 @@ public class AWSRequestMetrics {
          * Number of retries that were not attempted due to retry throttling.
          */
         ThrottledRetryCount,
+        /**
+         * Snapshot of the rate, in requests per second, to which the client
+         * side rate limiter limits the operation of a request.
+         */
+        ClientSideRateLimit,
+        /**
+         * Number of milliseconds a request waited for the client side rate
+         * limiter before being sent.
+         */
+        RateLimiterWaitTime,
         /**
          * Number of retries of the underlying http client library in sending a
          * request to AWS.
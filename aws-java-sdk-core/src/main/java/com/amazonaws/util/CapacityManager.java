@@ -14,17 +14,21 @@
  */
 package com.amazonaws.util;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * Manages capacity of a finite resource.  Capacity can be acquired and
  * released.
+ * <p>
+ * This class is lock-free: the available capacity is updated with
+ * compare-and-set, so that the threads releasing capacity on every
+ * successful request do not contend on a monitor.
  */
 public class CapacityManager {
 
-    private volatile int availableCapacity;
+    private final AtomicInteger availableCapacity;
     private final int maxCapacity;
 
-    private final Object lock = new Object();
-
     /**
      * Creates a CapacityManager.
      *
@@ -35,7 +39,7 @@ public class CapacityManager {
      */
     public CapacityManager(final int maxCapacity) {
         this.maxCapacity = maxCapacity;
-        this.availableCapacity = maxCapacity;
+        this.availableCapacity = new AtomicInteger(maxCapacity);
     }
 
     /**
@@ -61,17 +65,17 @@ public class CapacityManager {
             throw new IllegalArgumentException("capacity to acquire cannot be negative");
         }
 
-        if (availableCapacity < 0) {
-            return true;
-        }
-
-        synchronized (lock) {
-            if (availableCapacity - capacity >= 0) {
-                availableCapacity -= capacity;
+        for (;;) {
+            final int available = availableCapacity.get();
+            if (available < 0) {
                 return true;
-            } else {
+            }
+            if (available - capacity < 0) {
                 return false;
             }
+            if (availableCapacity.compareAndSet(available, available - capacity)) {
+                return true;
+            }
         }
     }
 
@@ -95,11 +99,16 @@ public class CapacityManager {
             throw new IllegalArgumentException("capacity to release cannot be negative");
         }
 
-        // in the common 'good' case where we have our full capacity available we can
-        // short circuit going any further and avoid unnecessary locking.
-        if (availableCapacity >= 0 && availableCapacity != maxCapacity) {
-            synchronized (lock) {
-                availableCapacity = Math.min((availableCapacity + capacity), maxCapacity);
+        for (;;) {
+            final int available = availableCapacity.get();
+            // in the common 'good' case where we have our full capacity available we can
+            // short circuit going any further and avoid an unnecessary write.
+            if (available < 0 || available == maxCapacity) {
+                return;
+            }
+            final int released = (int) Math.min((long) available + capacity, maxCapacity);
+            if (availableCapacity.compareAndSet(available, released)) {
+                return;
             }
         }
     }
@@ -110,7 +119,8 @@ public class CapacityManager {
      * @return consumed capacity
      */
     public int consumedCapacity() {
-        return (availableCapacity < 0) ? 0 : (maxCapacity - availableCapacity);
+        final int available = availableCapacity.get();
+        return (available < 0) ? 0 : (maxCapacity - available);
     }
 
     /**
@@ -119,6 +129,6 @@ public class CapacityManager {
      * @return available capacity
      */
     public int availableCapacity() {
-        return availableCapacity;
+        return availableCapacity.get();
     }
 }
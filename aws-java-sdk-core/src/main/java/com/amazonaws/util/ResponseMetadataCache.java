@@ -14,20 +14,25 @@
  */
 package com.amazonaws.util;
 
-import java.util.LinkedHashMap;
-import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import com.amazonaws.ResponseMetadata;
 import com.amazonaws.annotation.SdkInternalApi;
 
 /**
- * Cache of response metadata for recently executed requests for diagnostic
- * purposes. This cache has a max size and as entries are added, the oldest
- * entry is aged out once the max size has been reached.
+ * Bounded cache of response metadata, evicting the oldest entries first.
+ * <p>
+ * Entries are kept in a ring buffer: adding an entry claims the next slot
+ * with a single atomic increment, so threads recording the metadata of their
+ * responses never wait on each other. Lookups scan the buffer from the most
+ * recent entry, which is fine for the small sizes this diagnostic cache is
+ * used with.
  */
 @SdkInternalApi
 public class ResponseMetadataCache implements MetadataCache {
-    private final InternalCache internalCache;
+    private final AtomicReferenceArray<Entry> entries;
+    private final AtomicInteger next = new AtomicInteger();
 
     /**
      * Creates a new cache that will contain, at most the specified number of
@@ -37,41 +42,42 @@ public class ResponseMetadataCache implements MetadataCache {
      *            The maximum size of this cache.
      */
     public ResponseMetadataCache(int maxEntries) {
-        internalCache = new InternalCache(maxEntries);
+        entries = new AtomicReferenceArray<Entry>(Math.max(0, maxEntries));
     }
 
     @Override
-    public synchronized void add(Object obj, ResponseMetadata metadata) {
-        if (obj == null) return;
-        internalCache.put(System.identityHashCode(obj), metadata);
+    public void add(Object obj, ResponseMetadata metadata) {
+        if (obj == null || entries.length() == 0) return;
+        final int slot = (next.getAndIncrement() & Integer.MAX_VALUE) % entries.length();
+        entries.set(slot, new Entry(System.identityHashCode(obj), metadata));
     }
 
     @Override
-    public synchronized ResponseMetadata get(Object obj) {
+    public ResponseMetadata get(Object obj) {
+        final int length = entries.length();
+        if (length == 0) return null;
         // System.identityHashCode isn't guaranteed to be unique
         // on all platforms, but should be reasonable enough to use
         // for a few requests at a time.  We can always easily move
         // to our own unique IDs if needed.
-        return internalCache.get(System.identityHashCode(obj));
+        final int key = System.identityHashCode(obj);
+        final int newest = ((next.get() & Integer.MAX_VALUE) - 1 + length) % length;
+        for (int i = 0; i < length; i++) {
+            final Entry entry = entries.get((newest - i + length) % length);
+            if (entry != null && entry.key == key) {
+                return entry.metadata;
+            }
+        }
+        return null;
     }
 
-    /**
-     * Simple implementation of LinkedHashMap that overrides the
-     * <code>removeEldestEntry</code> method to turn LinkedHashMap into a
-     * FIFO cache that automatically evicts old entries.
-     */
-    private static final class InternalCache extends LinkedHashMap<Integer, ResponseMetadata> {
-        private static final long serialVersionUID = 1L;
-        private int maxSize;
-
-        InternalCache(int maxSize) {
-            super(maxSize);
-            this.maxSize = maxSize;
-        }
+    private static final class Entry {
+        private final int key;
+        private final ResponseMetadata metadata;
 
-        @Override
-        protected boolean removeEldestEntry(Entry<Integer,ResponseMetadata> eldest) {
-            return size() > maxSize;
+        Entry(int key, ResponseMetadata metadata) {
+            this.key = key;
+            this.metadata = metadata;
         }
     }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.util;
+
+import com.amazonaws.ResponseMetadata;
+import com.amazonaws.annotation.SdkInternalApi;
+
+/**
+ * Records the metadata of about one in every N entries added into another
+ * cache.
+ * <p>
+ * Entries are sampled by the identity hash code of their key rather than with
+ * a shared counter, so sampling adds no contention between threads. The
+ * metadata of a given request is either always or never recorded.
+ */
+@SdkInternalApi
+public class SampledResponseMetadataCache implements MetadataCache {
+    private final MetadataCache cache;
+    private final int sampleInterval;
+
+    /**
+     * @param cache
+     *            The cache the sampled entries are added into.
+     * @param sampleInterval
+     *            One in how many entries to record; must be positive.
+     */
+    public SampledResponseMetadataCache(MetadataCache cache, int sampleInterval) {
+        if (sampleInterval < 1) {
+            throw new IllegalArgumentException("sampleInterval must be positive");
+        }
+        this.cache = cache;
+        this.sampleInterval = sampleInterval;
+    }
+
+    @Override
+    public void add(Object obj, ResponseMetadata metadata) {
+        if (obj != null && (System.identityHashCode(obj) & Integer.MAX_VALUE) % sampleInterval == 0) {
+            cache.add(obj, metadata);
+        }
+    }
+
+    @Override
+    public ResponseMetadata get(Object obj) {
+        return cache.get(obj);
+    }
+}
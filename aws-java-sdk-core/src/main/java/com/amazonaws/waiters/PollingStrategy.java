@@ -90,4 +90,25 @@ public class PollingStrategy{
         void delayBeforeNextRetry(PollingStrategyContext pollingStrategyContext) throws InterruptedException;
 
     }
+
+    /**
+     * A delay strategy that computes the delay before the next retry up
+     * front, which allows an asynchronous waiter to schedule its next poll
+     * instead of keeping a thread asleep between retries. Its
+     * {@link #delayBeforeNextRetry} is expected to wait for the computed
+     * delay; an asynchronous waiter still calls it instead if a subclass
+     * overrides it without also overriding
+     * {@link #computeDelayBeforeNextRetry}.
+     */
+    public interface ComputedDelayStrategy extends DelayStrategy {
+
+        /**
+         * Computes the delay before the next retry
+         *
+         * @param pollingStrategyContext Provides the polling context required to define custom delay
+         * @return Delay in milliseconds before the next retry
+         * @see PollingStrategyContext
+         */
+        long computeDelayBeforeNextRetry(PollingStrategyContext pollingStrategyContext);
+    }
 }
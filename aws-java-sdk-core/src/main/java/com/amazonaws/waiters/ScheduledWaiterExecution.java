@@ -0,0 +1,188 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.waiters;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.annotation.SdkInternalApi;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a waiter execution as a chain of tasks on a scheduled executor, where
+ * each task polls the resource once and schedules the next poll after the
+ * delay computed by the polling strategy, so that no thread is kept asleep
+ * between retries.
+ * <p>
+ * A delay strategy that doesn't compute its delay, or that overrides how
+ * {@link FixedDelayStrategy} waits, is called to wait before the next poll is
+ * scheduled, as it would be by a synchronous waiter.
+ * <p>
+ * This future completes once the resource transitioned into the desired
+ * state or not; cancelling it cancels the next scheduled poll.
+ */
+@SdkInternalApi
+class ScheduledWaiterExecution<Input extends AmazonWebServiceRequest, Output> extends FutureTask<Void> {
+
+    private static final Callable<Void> NO_OP = new Callable<Void>() {
+        @Override
+        public Void call() {
+            return null;
+        }
+    };
+
+    private final WaiterExecution<Input, Output> waiterExecution;
+
+    private final PollingStrategy.DelayStrategy delayStrategy;
+
+    /**
+     * Whether the delay strategy only waits for the delay it computes, which
+     * can then be scheduled instead.
+     */
+    private final boolean computesDelay;
+
+    private final ScheduledExecutorService scheduledExecutorService;
+
+    /**
+     * Original request passed to the callback on success
+     */
+    private final Input request;
+
+    private final WaiterHandler<Input> callback;
+
+    /**
+     * Only accessed by the poll task, which never runs concurrently with
+     * itself as each poll is scheduled by the previous one.
+     */
+    private int retriesAttempted;
+
+    private volatile Future<?> nextPoll;
+
+    private final Runnable poll = new Runnable() {
+        @Override
+        public void run() {
+            if (isDone()) {
+                return;
+            }
+            try {
+                PollingStrategyContext pollingStrategyContext = waiterExecution.pollOnce(retriesAttempted);
+                if (pollingStrategyContext == null) {
+                    callback.onWaitSuccess(request);
+                    set(null);
+                    return;
+                }
+                retriesAttempted++;
+                if (computesDelay) {
+                    schedule(((PollingStrategy.ComputedDelayStrategy) delayStrategy)
+                            .computeDelayBeforeNextRetry(pollingStrategyContext));
+                } else {
+                    waiterExecution.safeCustomDelay(pollingStrategyContext);
+                    schedule(0);
+                }
+            } catch (Exception ex) {
+                fail(ex);
+            }
+        }
+    };
+
+    ScheduledWaiterExecution(WaiterExecution<Input, Output> waiterExecution,
+                             ScheduledExecutorService scheduledExecutorService,
+                             Input request,
+                             WaiterHandler<Input> callback) {
+        super(NO_OP);
+        this.waiterExecution = waiterExecution;
+        this.delayStrategy = waiterExecution.getPollingStrategy().getDelayStrategy();
+        this.computesDelay = computesDelay(delayStrategy);
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.request = request;
+        this.callback = callback;
+    }
+
+    /**
+     * Schedules the first poll of the resource.
+     *
+     * @return This future
+     */
+    ScheduledWaiterExecution<Input, Output> start() {
+        try {
+            schedule(0);
+        } catch (RejectedExecutionException ex) {
+            fail(ex);
+        }
+        return this;
+    }
+
+    /**
+     * Returns true if waiting before the next retry amounts to waiting for the
+     * computed delay; false if the strategy doesn't compute its delay, or if
+     * its class overrides {@link PollingStrategy.DelayStrategy#delayBeforeNextRetry}
+     * without also computing the delay, like a subclass of
+     * {@link FixedDelayStrategy} waiting differently.
+     */
+    static boolean computesDelay(PollingStrategy.DelayStrategy delayStrategy) {
+        if (!(delayStrategy instanceof PollingStrategy.ComputedDelayStrategy)) {
+            return false;
+        }
+        try {
+            Class<?> declaringClass = delayStrategy.getClass()
+                    .getMethod("delayBeforeNextRetry", PollingStrategyContext.class)
+                    .getDeclaringClass();
+            if (declaringClass != FixedDelayStrategy.class) {
+                declaringClass.getDeclaredMethod("computeDelayBeforeNextRetry", PollingStrategyContext.class);
+            }
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private void schedule(long delayMillis) {
+        nextPoll = scheduledExecutorService.schedule(poll, delayMillis, TimeUnit.MILLISECONDS);
+        if (isCancelled()) {
+            // Cancelled before the poll could be seen by cancel
+            nextPoll.cancel(false);
+        }
+    }
+
+    private void fail(Exception ex) {
+        try {
+            callback.onWaitFailure(ex);
+        } finally {
+            setException(ex);
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        Future<?> next = nextPoll;
+        if (cancelled && next != null) {
+            next.cancel(mayInterruptIfRunning);
+        }
+        return cancelled;
+    }
+
+    /**
+     * Does nothing, as this future is only completed by the scheduled polls.
+     */
+    @Override
+    public void run() {
+    }
+}
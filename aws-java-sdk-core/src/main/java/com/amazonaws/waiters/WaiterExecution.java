@@ -70,27 +70,50 @@ public class WaiterExecution<Input extends AmazonWebServiceRequest, Output> {
      */
     public boolean pollResource() throws AmazonServiceException, WaiterTimedOutException, WaiterUnrecoverableException {
         int retriesAttempted = 0;
-        while (true) {
-            switch (getCurrentState()) {
-                case SUCCESS:
-                    return true;
-                case FAILURE:
-                    throw new WaiterUnrecoverableException("Resource never entered the desired state as it failed.");
-                case RETRY:
-                    PollingStrategyContext pollingStrategyContext = new PollingStrategyContext(request, retriesAttempted);
-                    if (pollingStrategy.getRetryStrategy().shouldRetry(pollingStrategyContext)) {
-                        safeCustomDelay(pollingStrategyContext);
-                        retriesAttempted++;
-                    } else {
-
-                        throw new WaiterTimedOutException("Reached maximum attempts without transitioning to the desired state");
-                    }
-                    break;
-            }
+        PollingStrategyContext pollingStrategyContext;
+        while ((pollingStrategyContext = pollOnce(retriesAttempted)) != null) {
+            safeCustomDelay(pollingStrategyContext);
+            retriesAttempted++;
+        }
+        return true;
+    }
 
+    /**
+     * Polls the resource once and determines whether polling should be
+     * retried.
+     *
+     * @param retriesAttempted Number of retries attempted so far
+     * @return Polling strategy context of the next retry, or null if the
+     * resource transitioned into desired state.
+     * @throws AmazonServiceException       If the service exception thrown doesn't match any of the expected
+     *                                      exceptions, it's re-thrown.
+     * @throws WaiterUnrecoverableException If the resource transitions into a failure/unexpected state.
+     * @throws WaiterTimedOutException      If the resource doesn't transition into the desired state
+     *                                      even after a certain number of retries.
+     */
+    PollingStrategyContext pollOnce(int retriesAttempted)
+            throws AmazonServiceException, WaiterTimedOutException, WaiterUnrecoverableException {
+        switch (getCurrentState()) {
+            case SUCCESS:
+                return null;
+            case FAILURE:
+                throw new WaiterUnrecoverableException("Resource never entered the desired state as it failed.");
+            default:
+                PollingStrategyContext pollingStrategyContext = new PollingStrategyContext(request, retriesAttempted);
+                if (pollingStrategy.getRetryStrategy().shouldRetry(pollingStrategyContext)) {
+                    return pollingStrategyContext;
+                }
+                throw new WaiterTimedOutException("Reached maximum attempts without transitioning to the desired state");
         }
     }
 
+    /**
+     * @return Polling strategy of this execution
+     */
+    PollingStrategy getPollingStrategy() {
+        return pollingStrategy;
+    }
+
     /**
      * Fetches the current state of the resource based on the acceptor it matches
      *
@@ -113,7 +136,7 @@ public class WaiterExecution<Input extends AmazonWebServiceRequest, Output> {
      *                               Includes request and number of retries
      *                               attempted so far.
      */
-    private void safeCustomDelay(PollingStrategyContext pollingStrategyContext) {
+    void safeCustomDelay(PollingStrategyContext pollingStrategyContext) {
         try {
             pollingStrategy.getDelayStrategy().delayBeforeNextRetry(pollingStrategyContext);
         } catch (InterruptedException e) {
@@ -23,6 +23,7 @@ import com.amazonaws.util.ValidationUtils;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 
 @SdkProtectedApi
 public class WaiterImpl<Input extends AmazonWebServiceRequest, Output> implements Waiter<Input>{
@@ -74,25 +75,34 @@ public class WaiterImpl<Input extends AmazonWebServiceRequest, Output> implement
     public void run(WaiterParameters<Input> waiterParameters)
             throws AmazonServiceException, WaiterTimedOutException, WaiterUnrecoverableException {
 
+        newWaiterExecution(waiterParameters).pollResource();
+
+    }
+
+    private WaiterExecution<Input, Output> newWaiterExecution(WaiterParameters<Input> waiterParameters) {
         ValidationUtils.assertNotNull(waiterParameters, "waiterParameters");
         @SuppressWarnings("unchecked")
         Input request = (Input) ValidationUtils.assertNotNull(waiterParameters.getRequest(), "request").clone();
         request.getRequestClientOptions().appendUserAgent("waiter-request");
-        WaiterExecution<Input, Output> waiterExecution = new WaiterExecutionBuilder<Input, Output>()
+        return new WaiterExecutionBuilder<Input, Output>()
                 .withRequest(request)
                 .withPollingStrategy(waiterParameters.getPollingStrategy() != null ? waiterParameters.getPollingStrategy() : defaultPollingStrategy)
                 .withAcceptors(acceptors)
                 .withSdkFunction(sdkFunction)
                 .build();
-
-        waiterExecution.pollResource();
-
     }
 
     /**
      * Polls asynchronously until it is determined that the resource
      * transitioned into the desired state or not. Includes additional
      * callback.
+     * <p>
+     * If the executor service of this waiter is a
+     * {@link ScheduledExecutorService}, each poll is run as a separate task
+     * that schedules the next one. When the delay strategy in use is a
+     * {@link PollingStrategy.ComputedDelayStrategy}, the next poll is
+     * scheduled after the computed delay rather than keeping a thread asleep
+     * between retries; any other delay strategy is called to wait first.
      *
      * @param waiterParameters Custom provided parameters. Includes request and
      *                         optional custom polling strategy
@@ -103,6 +113,13 @@ public class WaiterImpl<Input extends AmazonWebServiceRequest, Output> implement
     public Future<Void> runAsync(final WaiterParameters<Input> waiterParameters, final WaiterHandler callback)
             throws AmazonServiceException, WaiterTimedOutException, WaiterUnrecoverableException {
 
+        if (executorService instanceof ScheduledExecutorService && isScheduled(waiterParameters)) {
+            @SuppressWarnings("unchecked")
+            WaiterHandler<Input> handler = callback;
+            return new ScheduledWaiterExecution<Input, Output>(newWaiterExecution(waiterParameters),
+                    (ScheduledExecutorService) executorService, waiterParameters.getRequest(), handler).start();
+        }
+
         return executorService.submit(new java.util.concurrent.Callable<Void>() {
             @Override
             public Void call() throws Exception {
@@ -119,4 +136,13 @@ public class WaiterImpl<Input extends AmazonWebServiceRequest, Output> implement
         });
 
     }
+
+    /**
+     * Returns true if the given parameters are valid, so that polls can be
+     * scheduled; otherwise they are left to a single task that reports the
+     * invalid parameters as a synchronous waiter would.
+     */
+    private boolean isScheduled(WaiterParameters<Input> waiterParameters) {
+        return waiterParameters != null && waiterParameters.getRequest() != null;
+    }
 }
@@ -16,6 +16,7 @@ package com.amazonaws;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -23,8 +24,12 @@ import org.junit.Test;
 import com.amazonaws.auth.AWS4Signer;
 import com.amazonaws.auth.QueryStringSigner;
 import com.amazonaws.http.IdleConnectionReaper;
+import com.amazonaws.metrics.HistogramRequestMetricCollector;
 import com.amazonaws.regions.Region;
 import com.amazonaws.regions.Regions;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.AWSRequestMetricsFullSupport;
 
 public class AmazonWebServiceClientTest {
 
@@ -85,6 +90,21 @@ public class AmazonWebServiceClientTest {
      *
      * @see <a href="https://github.com/aws/aws-sdk-java/issues/722">Issue #722</a>
      */
+    @Test
+    public void fullRequestMetricsOnlyForCollectorsThatRequireThem() {
+        AmazonTestClient client = new AmazonTestClient();
+        AmazonWebServiceRequest request = new AmazonWebServiceRequest() { };
+        assertFalse(client.createExecutionContext(request).getAwsRequestMetrics().isEnabled());
+
+        request.setRequestMetricCollector(new HistogramRequestMetricCollector());
+        AWSRequestMetrics metrics = client.createExecutionContext(request).getAwsRequestMetrics();
+        assertFalse(metrics instanceof AWSRequestMetricsFullSupport);
+
+        request.setRequestMetricCollector(new HistogramRequestMetricCollector(Field.HttpRequestTime));
+        metrics = client.createExecutionContext(request).getAwsRequestMetrics();
+        assertTrue(metrics instanceof AWSRequestMetricsFullSupport);
+    }
+
     @Test
     public void connectionManagersAreUnregisteredFromIdleConnectionReaper() {
         // Clears out the IdleConnectionReaper. This is helpful when there are open registered connections from previous tests.
@@ -16,13 +16,22 @@ package com.amazonaws.auth;
 
 import com.amazonaws.SignableRequest;
 import com.amazonaws.auth.internal.AWS4SignerUtils;
+import com.amazonaws.internal.ChunkedByteArrayInputStream;
+import com.amazonaws.internal.ChunkedByteArrayOutputStream;
+import com.amazonaws.internal.ReleasableInputStream;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.List;
 import java.util.SimpleTimeZone;
 import java.util.TimeZone;
 
@@ -71,6 +80,24 @@ public class AWS4SignerTest {
 
     private AWS4Signer signer = new AWS4Signer();
 
+    private static Level signerLogLevel;
+
+    /**
+     * The canonical request is only streamed into the digest when it is not
+     * logged, so that the test vectors check the streamed signatures.
+     */
+    @BeforeClass
+    public static void disableSignerDebugLogging() {
+        Logger logger = Logger.getLogger(AWS4Signer.class);
+        signerLogLevel = logger.getLevel();
+        logger.setLevel(Level.INFO);
+    }
+
+    @AfterClass
+    public static void restoreSignerLogging() {
+        Logger.getLogger(AWS4Signer.class).setLevel(signerLogLevel);
+    }
+
     @Test
     public void testDoubleURLEncode() {
         // Sanity-check that doubleUrlEncode is true by default.
@@ -112,6 +139,42 @@ public class AWS4SignerTest {
                 request.getHeaders().get("Authorization"));
     }
 
+    /**
+     * Tests that the content hash computed as the content was generated is
+     * used, through the wrappers added by the http client, and produces the
+     * same signature as hashing the content when signing.
+     */
+    @Test
+    public void testSigningWithPrecomputedContentHash() throws Exception {
+        final String EXPECTED_AUTHORIZATION_HEADER_WITH_SHA256_HEADER =
+            "AWS4-HMAC-SHA256 Credential=access/19810216/us-east-1/demo/aws4_request, SignedHeaders=host;x-amz-archive-description;x-amz-date;x-amz-sha256, Signature=e73e20539446307a5dc71252dbd5b97e861f1d1267456abda3ebd8d57e519951";
+
+        AWSCredentials credentials = new BasicAWSCredentials("access", "secret");
+        ChunkedByteArrayOutputStream out = new ChunkedByteArrayOutputStream();
+        out.write("{\"TableName\": \"foo\"}".getBytes());
+        ChunkedByteArrayInputStream content = out.toInputStream();
+        SignableRequest<?> request = MockRequestBuilder.create()
+                .withContent(ReleasableInputStream.wrap(content).disableClose())
+                .withHeader("Host", "demo.us-east-1.amazonaws.com")
+                .withHeader("x-amz-archive-description", "test  test")
+                .withHeader("x-amz-sha256", "required")
+                .withPath("/")
+                .withEndpoint("http://demo.us-east-1.amazonaws.com").build();
+
+        Calendar c = new GregorianCalendar();
+        c.set(1981, 1, 16, 6, 30, 0);
+        c.setTimeZone(TimeZone.getTimeZone("UTC"));
+
+        signer.setOverrideDate(c.getTime());
+        signer.setServiceName("demo");
+
+        signer.sign(request, credentials);
+        assertEquals(EXPECTED_AUTHORIZATION_HEADER_WITH_SHA256_HEADER,
+                request.getHeaders().get("Authorization"));
+        assertEquals('{', content.read());
+        assertNull(content.getUnreadContentSha256());
+    }
+
     @Test
     public void testPresigning() throws Exception {
         final String EXPECTED_AMZ_SIGNATURE = "bf7ae1c2f266d347e290a2aee7b126d38b8a695149d003b9fab2ed1eb6d6ebda";
@@ -139,6 +202,121 @@ public class AWS4SignerTest {
         assertEquals(EXPECTED_AMZ_EXPIRES, request.getParameters().get("X-Amz-Expires").get(0));
     }
 
+    /**
+     * Tests that streaming the canonical request into the digest produces the
+     * same signatures as building it, which subclasses overriding any of the
+     * canonicalization methods still do.
+     */
+    @Test
+    public void testStreamedSigningMatchesCanonicalRequest() throws Exception {
+        AWS4Signer stringSigner = new AWS4Signer() {
+            @Override
+            protected String createCanonicalRequest(SignableRequest<?> request,
+                    String contentSha256) {
+                return super.createCanonicalRequest(request, contentSha256);
+            }
+        };
+        AWSCredentials credentials = new BasicAWSCredentials("access", "secret");
+        Calendar c = new GregorianCalendar();
+        c.set(1981, 1, 16, 6, 30, 0);
+        c.setTimeZone(TimeZone.getTimeZone("UTC"));
+        for (AWS4Signer s : new AWS4Signer[] {signer, stringSigner}) {
+            s.setOverrideDate(c.getTime());
+            s.setServiceName("demo");
+            s.setRegionName("eu-west-1");
+        }
+
+        List<SignableRequest<?>> streamed = generateCanonicalizationRequests();
+        List<SignableRequest<?>> built = generateCanonicalizationRequests();
+        for (int i = 0; i < streamed.size(); i++) {
+            signer.sign(streamed.get(i), credentials);
+            stringSigner.sign(built.get(i), credentials);
+            assertEquals(built.get(i).getHeaders().get("Authorization"),
+                    streamed.get(i).getHeaders().get("Authorization"));
+        }
+    }
+
+    /**
+     * Tests that a signer reusing the scope and signing key of the previous
+     * request signs like a new signer whenever the endpoint, the credentials
+     * or the day change.
+     */
+    @Test
+    public void testReusedSigningScopeMatchesNewSigner() throws Exception {
+        AWSCredentials credentials = new BasicAWSCredentials("access", "secret");
+        AWSCredentials otherCredentials = new BasicAWSCredentials("access", "other-secret");
+        Calendar c = new GregorianCalendar();
+        c.set(1981, 1, 16, 6, 30, 0);
+        c.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Date day = c.getTime();
+        c.add(Calendar.HOUR_OF_DAY, 1);
+        Date sameDay = c.getTime();
+        c.add(Calendar.DAY_OF_MONTH, 1);
+        Date nextDay = c.getTime();
+
+        signer.setServiceName("demo");
+        assertSignsLikeNewSigner("demo.us-east-1.amazonaws.com", credentials, day);
+        assertSignsLikeNewSigner("demo.us-east-1.amazonaws.com", credentials, sameDay);
+        assertSignsLikeNewSigner("demo.eu-west-1.amazonaws.com", credentials, sameDay);
+        assertSignsLikeNewSigner("demo.eu-west-1.amazonaws.com", otherCredentials, sameDay);
+        assertSignsLikeNewSigner("demo.eu-west-1.amazonaws.com", otherCredentials, nextDay);
+        assertSignsLikeNewSigner("demo.us-east-1.amazonaws.com", otherCredentials, nextDay);
+    }
+
+    private void assertSignsLikeNewSigner(String host, AWSCredentials credentials, Date date) {
+        AWS4Signer newSigner = new AWS4Signer();
+        newSigner.setServiceName("demo");
+        newSigner.setOverrideDate(date);
+        SignableRequest<?> expected = generateRequestTo(host);
+        newSigner.sign(expected, credentials);
+
+        signer.setOverrideDate(date);
+        SignableRequest<?> actual = generateRequestTo(host);
+        signer.sign(actual, credentials);
+        assertEquals(expected.getHeaders().get("Authorization"),
+                actual.getHeaders().get("Authorization"));
+    }
+
+    private SignableRequest<?> generateRequestTo(String host) {
+        return MockRequestBuilder.create()
+                .withContent(new ByteArrayInputStream(new byte[0]))
+                .withHeader("Host", host)
+                .withPath("/")
+                .withEndpoint("https://" + host).build();
+    }
+
+    private List<SignableRequest<?>> generateCanonicalizationRequests() throws Exception {
+        List<SignableRequest<?>> requests = new ArrayList<SignableRequest<?>>();
+        requests.add(generateBasicRequest());
+        requests.add(MockRequestBuilder.create()
+                .withContent(new ByteArrayInputStream(new byte[0]))
+                .withHeader("Host", "demo.eu-west-1.amazonaws.com:8443")
+                .withHeader("Connection", "keep-alive")
+                .withHeader("X-Amz-Target", "DynamoDB_20120810.PutItem")
+                .withHeader("x-amz-meta-Spaces", "  a \t\t b  ")
+                .withHeader("x-amz-meta-unicode", "caf\u00e9 \u20ac \ud83d\ude00")
+                .withHeader("x-amz-meta-empty", "")
+                .withParameter("b", "2")
+                .withParameter("a", "x y")
+                .withParameter("a", "1")
+                .withPath("/path with spaces/caf\u00e9")
+                .withEndpoint("https://demo.eu-west-1.amazonaws.com:8443")
+                .build());
+        // Longer than the buffer the canonical request is encoded through
+        StringBuilder longValue = new StringBuilder();
+        for (int j = 0; j < 500; j++) {
+            longValue.append("value-").append(j).append(' ');
+        }
+        requests.add(MockRequestBuilder.create()
+                .withContent(new ByteArrayInputStream("payload".getBytes("UTF-8")))
+                .withHeader("Host", "demo.eu-west-1.amazonaws.com")
+                .withHeader("x-amz-meta-long", longValue.toString())
+                .withPath("/")
+                .withEndpoint("http://demo.eu-west-1.amazonaws.com")
+                .build());
+        return requests;
+    }
+
     /**
      * Tests that if passed anonymous credentials, signer will not generate a signature
      */
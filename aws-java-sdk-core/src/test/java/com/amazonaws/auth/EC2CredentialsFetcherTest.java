@@ -16,8 +16,10 @@ package com.amazonaws.auth;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -37,6 +39,7 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.internal.CredentialsEndpointProvider;
 import com.amazonaws.util.DateUtils;
 import com.amazonaws.util.IOUtils;
+import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.junit.WireMockRule;
 
 public class EC2CredentialsFetcherTest {
@@ -149,6 +152,102 @@ public class EC2CredentialsFetcherTest {
         }
     }
 
+    /**
+     * Tests that, with background refresh enabled, callers keep being served
+     * the current credentials without waiting while a single background
+     * request loads new ones.
+     */
+    @Test
+    public void testAsyncRefreshServesCurrentCredentialsWhileRefreshing() throws Exception {
+        WireMock.reset();
+        stubForCredentials("OLD_KEY", new Date(System.currentTimeMillis() + ONE_MINUTE * 14), 0);
+        TestCredentialsProvider credentialsProvider = new TestCredentialsProvider(true);
+
+        // Nothing to serve yet, so the first load blocks
+        assertEquals("OLD_KEY", credentialsProvider.getCredentials().getAWSAccessKeyId());
+        assertTrue(credentialsProvider.needsToLoadCredentials());
+
+        // The endpoint is slow; callers must not wait for it
+        stubForCredentials("NEW_KEY", new Date(System.currentTimeMillis() + ONE_MINUTE * 60 * 6), 2000);
+        credentialsProvider.setLastInstanceProfileCheck(new Date(System.currentTimeMillis() - ONE_MINUTE * 2));
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 100; i++) {
+            assertEquals("OLD_KEY", credentialsProvider.getCredentials().getAWSAccessKeyId());
+        }
+        assertTrue(System.currentTimeMillis() - start < 1000);
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!"NEW_KEY".equals(credentialsProvider.getCredentials().getAWSAccessKeyId())) {
+            assertTrue("Credentials were not refreshed in the background",
+                    System.currentTimeMillis() < deadline);
+            Thread.sleep(50);
+        }
+        assertFalse(credentialsProvider.needsToLoadCredentials());
+        verify(2, getRequestedFor(urlPathEqualTo(CREDENTIALS_PATH)));
+    }
+
+    /**
+     * Tests that a failed background refresh keeps the current credentials.
+     */
+    @Test
+    public void testAsyncRefreshKeepsCredentialsOnError() throws Exception {
+        WireMock.reset();
+        stubForCredentials("OLD_KEY", new Date(System.currentTimeMillis() + ONE_MINUTE * 14), 0);
+        TestCredentialsProvider credentialsProvider = new TestCredentialsProvider(true);
+        credentialsProvider.getCredentials();
+
+        stubForErrorResponse();
+        credentialsProvider.setLastInstanceProfileCheck(new Date(System.currentTimeMillis() - ONE_MINUTE * 2));
+        credentialsProvider.getCredentials();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (WireMock.findAll(getRequestedFor(urlPathEqualTo(CREDENTIALS_PATH))).size() < 2) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(50);
+        }
+        assertEquals("OLD_KEY", credentialsProvider.getCredentials().getAWSAccessKeyId());
+    }
+
+    /**
+     * Tests that callers don't retry a failed background refresh until the
+     * minimum delay between refreshes has passed.
+     */
+    @Test
+    public void testAsyncRefreshIsNotRetriedByEveryCallerAfterError() throws Exception {
+        WireMock.reset();
+        stubForCredentials("OLD_KEY", new Date(System.currentTimeMillis() + ONE_MINUTE * 14), 0);
+        TestCredentialsProvider credentialsProvider = new TestCredentialsProvider(true);
+        credentialsProvider.getCredentials();
+
+        stubForErrorResponse();
+        credentialsProvider.setLastInstanceProfileCheck(new Date(System.currentTimeMillis() - ONE_MINUTE * 2));
+        credentialsProvider.getCredentials();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (WireMock.findAll(getRequestedFor(urlPathEqualTo(CREDENTIALS_PATH))).size() < 2) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(50);
+        }
+        // Wait for the failed refresh to complete before calling again
+        Thread.sleep(200);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals("OLD_KEY", credentialsProvider.getCredentials().getAWSAccessKeyId());
+            Thread.sleep(2);
+        }
+        verify(2, getRequestedFor(urlPathEqualTo(CREDENTIALS_PATH)));
+    }
+
+    private void stubForCredentials(String accessKeyId, Date expiration, int delayMillis) {
+        stubFor(
+                get(urlPathEqualTo(CREDENTIALS_PATH))
+                .willReturn(aResponse()
+                                .withStatus(200)
+                                .withHeader("Content-Type", "application/json")
+                                .withHeader("charset", "utf-8")
+                                .withFixedDelay(delayMillis)
+                                .withBody("{\"AccessKeyId\":\"" + accessKeyId + "\",\"SecretAccessKey\":\"SECRET_ACCESS_KEY\","
+                                        + "\"Expiration\":\"" + DateUtils.formatISO8601Date(expiration) + "\"}")));
+    }
+
     private void stubForSuccessResponseWithCustomBody(int statusCode, String body) {
         stubFor(
                 get(urlPathEqualTo(CREDENTIALS_PATH))
@@ -183,7 +282,11 @@ public class EC2CredentialsFetcherTest {
 
     private static class TestCredentialsProvider extends EC2CredentialsFetcher {
         public TestCredentialsProvider() {
-            super(new TestCredentialsEndpointProvider("http://localhost:" + mockServer.port()));
+            this(false);
+        }
+
+        public TestCredentialsProvider(boolean refreshAsync) {
+            super(new TestCredentialsEndpointProvider("http://localhost:" + mockServer.port()), refreshAsync);
         }
 
         public void setLastInstanceProfileCheck(Date lastInstanceProfileCheck) {
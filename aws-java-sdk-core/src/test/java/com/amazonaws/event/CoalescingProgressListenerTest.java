@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.event;
+
+import static com.amazonaws.event.SDKProgressPublisher.publishProgress;
+import static com.amazonaws.event.SDKProgressPublisher.publishRequestBytesTransferred;
+import static com.amazonaws.event.SDKProgressPublisher.publishResponseBytesTransferred;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class CoalescingProgressListenerTest {
+
+    @Test
+    public void bytesAreCoalescedUntilThreshold() {
+        RecordingListener recorder = new RecordingListener();
+        ProgressListener listener = CoalescingProgressListener.wrap(recorder, 60000, 100);
+
+        for (int i = 0; i < 9; i++) {
+            publishRequestBytesTransferred(listener, 10);
+        }
+        assertTrue(recorder.events.isEmpty());
+
+        publishRequestBytesTransferred(listener, 10);
+        assertEquals(1, recorder.events.size());
+        assertEquals(ProgressEventType.REQUEST_BYTE_TRANSFER_EVENT,
+                recorder.events.get(0).getEventType());
+        assertEquals(100, recorder.events.get(0).getBytes());
+    }
+
+    @Test
+    public void otherEventsFlushCoalescedBytesInOrder() {
+        RecordingListener recorder = new RecordingListener();
+        ProgressListener listener = CoalescingProgressListener.wrap(recorder, 60000, 1000);
+
+        publishProgress(listener, ProgressEventType.HTTP_REQUEST_STARTED_EVENT);
+        publishRequestBytesTransferred(listener, 30);
+        publishRequestBytesTransferred(listener, 20);
+        publishProgress(listener, ProgressEventType.HTTP_REQUEST_COMPLETED_EVENT);
+        publishResponseBytesTransferred(listener, 5);
+        publishProgress(listener, ProgressEventType.HTTP_RESPONSE_COMPLETED_EVENT);
+
+        assertEquals(5, recorder.events.size());
+        assertEquals(ProgressEventType.HTTP_REQUEST_STARTED_EVENT, recorder.events.get(0).getEventType());
+        assertEquals(ProgressEventType.REQUEST_BYTE_TRANSFER_EVENT, recorder.events.get(1).getEventType());
+        assertEquals(50, recorder.events.get(1).getBytes());
+        assertEquals(ProgressEventType.HTTP_REQUEST_COMPLETED_EVENT, recorder.events.get(2).getEventType());
+        assertEquals(ProgressEventType.RESPONSE_BYTE_TRANSFER_EVENT, recorder.events.get(3).getEventType());
+        assertEquals(5, recorder.events.get(3).getBytes());
+        assertEquals(ProgressEventType.HTTP_RESPONSE_COMPLETED_EVENT, recorder.events.get(4).getEventType());
+    }
+
+    @Test
+    public void bytesAreFlushedAfterInterval() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        RecordingListener recorder = new RecordingListener() {
+            @Override
+            public void progressChanged(ProgressEvent progressEvent) {
+                super.progressChanged(progressEvent);
+                latch.countDown();
+            }
+        };
+        ProgressListener listener = CoalescingProgressListener.wrap(recorder, 10, Long.MAX_VALUE);
+
+        publishRequestBytesTransferred(listener, 10);
+        publishRequestBytesTransferred(listener, 15);
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(1, recorder.events.size());
+        assertEquals(25, recorder.events.get(0).getBytes());
+    }
+
+    @Test
+    public void asyncListenerReceivesBatchOnCallbackThread() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final List<ProgressEvent> events = Collections.synchronizedList(new ArrayList<ProgressEvent>());
+        final List<String> threads = Collections.synchronizedList(new ArrayList<String>());
+        ProgressListener asyncListener = new ProgressListener() {
+            @Override
+            public void progressChanged(ProgressEvent progressEvent) {
+                events.add(progressEvent);
+                threads.add(Thread.currentThread().getName());
+                if (progressEvent.getEventType() == ProgressEventType.CLIENT_REQUEST_SUCCESS_EVENT) {
+                    latch.countDown();
+                }
+            }
+        };
+        ProgressListener listener = CoalescingProgressListener.wrap(asyncListener, 60000, 1000);
+
+        for (int i = 0; i < 100; i++) {
+            publishRequestBytesTransferred(listener, 1);
+        }
+        publishProgress(listener, ProgressEventType.CLIENT_REQUEST_SUCCESS_EVENT);
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        assertEquals(2, events.size());
+        assertEquals(100, events.get(0).getBytes());
+        for (String thread : threads) {
+            assertEquals("java-sdk-progress-listener-callback-thread", thread);
+        }
+    }
+
+    @Test
+    public void concurrentPublishersDeliverAllBytes() throws InterruptedException {
+        final RecordingListener recorder = new RecordingListener();
+        final ProgressListener listener = CoalescingProgressListener.wrap(recorder, 60000, 64);
+        final int threadCount = 4;
+        final int eventsPerThread = 10000;
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < eventsPerThread; j++) {
+                        publishRequestBytesTransferred(listener, 1);
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        publishProgress(listener, ProgressEventType.CLIENT_REQUEST_SUCCESS_EVENT);
+
+        long total = 0;
+        synchronized (recorder.events) {
+            for (ProgressEvent event : recorder.events) {
+                total += event.getBytes();
+            }
+        }
+        assertEquals(threadCount * eventsPerThread, total);
+    }
+
+    @Test
+    public void wrapSkipsNoopAndCoalescingListeners() {
+        assertSame(ProgressListener.NOOP, CoalescingProgressListener.wrap(ProgressListener.NOOP, 100, 100));
+        ProgressListener coalescing = CoalescingProgressListener.wrap(new RecordingListener(), 100, 100);
+        assertSame(coalescing, CoalescingProgressListener.wrap(coalescing, 100, 100));
+    }
+
+    private static class RecordingListener extends SyncProgressListener {
+        final List<ProgressEvent> events = Collections.synchronizedList(new ArrayList<ProgressEvent>());
+
+        @Override
+        public void progressChanged(ProgressEvent progressEvent) {
+            events.add(progressEvent);
+        }
+    }
+}
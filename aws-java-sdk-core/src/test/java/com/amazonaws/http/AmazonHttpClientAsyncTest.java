@@ -0,0 +1,252 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.http;
+
+import static com.amazonaws.http.AmazonHttpClient.HEADER_SDK_RETRY_INFO;
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.stubFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.AmazonWebServiceResponse;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.retry.RetryPolicy;
+import com.amazonaws.util.IOUtils;
+
+import utils.http.WireMockTestBase;
+import utils.retry.AlwaysRetryCondition;
+import utils.retry.SimpleArrayBackoffStrategy;
+
+public class AmazonHttpClientAsyncTest extends WireMockTestBase {
+
+    private static final String RESOURCE_PATH = "/async/";
+
+    private AmazonHttpClient httpClient;
+
+    @After
+    public void tearDown() {
+        if (httpClient != null) {
+            httpClient.shutdown();
+        }
+    }
+
+    @Test
+    public void successfulResponse_CompletesFutureAndNotifiesHandler() throws Exception {
+        stubFor(get(urlEqualTo(RESOURCE_PATH)).willReturn(aResponse().withStatus(200).withBody("hello")));
+        httpClient = new AmazonHttpClient(new ClientConfiguration().withNonBlockingIoThreadCount(1));
+        RecordingAsyncHandler asyncHandler = new RecordingAsyncHandler();
+
+        Future<Response<String>> future = httpClient.executeAsync(newAsyncGetRequest(), new BodyResponseHandler(),
+                stubErrorHandler(), new ExecutionContext(), asyncHandler);
+
+        assertEquals("hello", future.get(10, TimeUnit.SECONDS).getAwsResponse());
+        assertTrue(asyncHandler.latch.await(10, TimeUnit.SECONDS));
+        assertEquals("hello", asyncHandler.result.get());
+        assertNull(asyncHandler.error.get());
+    }
+
+    @Test
+    public void serverErrors_AreRetriedWithBackoffThenFail() throws Exception {
+        stubFor(get(urlEqualTo(RESOURCE_PATH)).willReturn(aResponse().withStatus(500)));
+        RetryPolicy retryPolicy = new RetryPolicy(new AlwaysRetryCondition(),
+                new SimpleArrayBackoffStrategy(new int[] { 0, 10, 20 }), 3, false);
+        httpClient = new AmazonHttpClient(new ClientConfiguration().withRetryPolicy(retryPolicy)
+                .withNonBlockingIoThreadCount(1));
+        RecordingAsyncHandler asyncHandler = new RecordingAsyncHandler();
+
+        Future<Response<String>> future = httpClient.executeAsync(newAsyncGetRequest(), new BodyResponseHandler(),
+                stubErrorHandler(), new ExecutionContext(), asyncHandler);
+
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("Expected exception");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof AmazonServiceException);
+            assertTrue(asyncHandler.latch.await(10, TimeUnit.SECONDS));
+            assertSame(expected.getCause(), asyncHandler.error.get());
+        }
+        verify(1, getRequestedFor(urlEqualTo(RESOURCE_PATH)).withHeader(HEADER_SDK_RETRY_INFO, containing("0/0/")));
+        verify(1, getRequestedFor(urlEqualTo(RESOURCE_PATH)).withHeader(HEADER_SDK_RETRY_INFO, containing("1/0/")));
+        verify(1, getRequestedFor(urlEqualTo(RESOURCE_PATH)).withHeader(HEADER_SDK_RETRY_INFO, containing("2/10/")));
+        verify(1, getRequestedFor(urlEqualTo(RESOURCE_PATH)).withHeader(HEADER_SDK_RETRY_INFO, containing("3/20/")));
+    }
+
+    @Test
+    public void manyConcurrentRequests_DoNotNeedAThreadPerRequest() throws Exception {
+        final int requests = 200;
+        stubFor(get(urlEqualTo(RESOURCE_PATH))
+                .willReturn(aResponse().withStatus(200).withBody("slow").withFixedDelay(100)));
+        httpClient = new AmazonHttpClient(new ClientConfiguration()
+                .withNonBlockingIoThreadCount(2)
+                .withMaxConnections(requests));
+        List<Future<Response<String>>> futures = new ArrayList<Future<Response<String>>>();
+        for (int i = 0; i < requests; i++) {
+            futures.add(httpClient.executeAsync(newAsyncGetRequest(), new BodyResponseHandler(),
+                    stubErrorHandler(), new ExecutionContext(), null));
+        }
+        for (Future<Response<String>> future : futures) {
+            assertEquals("slow", future.get(30, TimeUnit.SECONDS).getAwsResponse());
+        }
+        // reactor thread, two dispatchers and two stage threads
+        assertTrue(countTransportThreads() <= 5);
+    }
+
+    @Test
+    public void cancellation_ReleasesContentOnceTheTransportStopsReadingIt() throws Exception {
+        stubFor(post(urlEqualTo(RESOURCE_PATH)).willReturn(aResponse().withStatus(200).withBody("posted")));
+        httpClient = new AmazonHttpClient(new ClientConfiguration().withNonBlockingIoThreadCount(1));
+        final BlockingInputStream content = new BlockingInputStream();
+        Request<AmazonWebServiceRequest> request = newAsyncGetRequest();
+        request.setHttpMethod(HttpMethodName.POST);
+        request.setContent(content);
+
+        final Future<Response<String>> future = httpClient.executeAsync(request, new BodyResponseHandler(),
+                stubErrorHandler(), new ExecutionContext(), null);
+        assertTrue(content.reading.await(10, TimeUnit.SECONDS));
+        Thread canceller = new Thread() {
+            @Override
+            public void run() {
+                future.cancel(true);
+            }
+        };
+        canceller.start();
+        canceller.join(200);
+        assertFalse("content closed while being read", content.closed.get());
+
+        content.unblock.countDown();
+        canceller.join(10000);
+        assertTrue(future.isCancelled());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!content.closed.get() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue("content not released", content.closed.get());
+    }
+
+    private int countTransportThreads() {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("aws-") && thread.isAlive()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Request<AmazonWebServiceRequest> newAsyncGetRequest() {
+        Request<AmazonWebServiceRequest> request = new DefaultRequest<AmazonWebServiceRequest>("mock");
+        request.setEndpoint(URI.create("http://localhost:" + mockServer.port() + RESOURCE_PATH));
+        request.setHttpMethod(HttpMethodName.GET);
+        return request;
+    }
+
+    /**
+     * Single byte content whose read blocks until it is unblocked, as if the transport were still
+     * reading it.
+     */
+    private static class BlockingInputStream extends InputStream {
+
+        private final CountDownLatch reading = new CountDownLatch(1);
+        private final CountDownLatch unblock = new CountDownLatch(1);
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private boolean consumed;
+
+        @Override
+        public int read() throws IOException {
+            if (consumed) {
+                return -1;
+            }
+            consumed = true;
+            reading.countDown();
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            }
+            return 'a';
+        }
+
+        @Override
+        public void close() {
+            closed.set(true);
+        }
+    }
+
+    private static class BodyResponseHandler implements HttpResponseHandler<AmazonWebServiceResponse<String>> {
+
+        @Override
+        public AmazonWebServiceResponse<String> handle(HttpResponse response) throws Exception {
+            AmazonWebServiceResponse<String> awsResponse = new AmazonWebServiceResponse<String>();
+            awsResponse.setResult(IOUtils.toString(response.getContent()));
+            return awsResponse;
+        }
+
+        @Override
+        public boolean needsConnectionLeftOpen() {
+            return false;
+        }
+    }
+
+    private static class RecordingAsyncHandler implements AsyncHandler<AmazonWebServiceRequest, String> {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private final AtomicReference<String> result = new AtomicReference<String>();
+        private final AtomicReference<Exception> error = new AtomicReference<Exception>();
+
+        @Override
+        public void onError(Exception exception) {
+            error.set(exception);
+            latch.countDown();
+        }
+
+        @Override
+        public void onSuccess(AmazonWebServiceRequest request, String result) {
+            this.result.set(result);
+            latch.countDown();
+        }
+    }
+}
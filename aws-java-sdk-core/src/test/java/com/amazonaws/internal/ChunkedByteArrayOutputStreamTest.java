@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.amazonaws.util.IOUtils;
+
+public class ChunkedByteArrayOutputStreamTest {
+
+    private static final int SIZE = ChunkedByteArrayOutputStream.CHUNK_SIZE * 3 + 17;
+
+    @Test
+    public void contentSpanningChunksIsReadBack() throws Exception {
+        byte[] data = randomBytes(SIZE);
+        ChunkedByteArrayOutputStream out = new ChunkedByteArrayOutputStream();
+        out.write(data[0]);
+        out.write(data, 1, 100);
+        out.write(data, 101, data.length - 101);
+        assertEquals(SIZE, out.getLength());
+        assertArrayEquals(data, out.toByteArray());
+
+        ChunkedByteArrayInputStream in = out.toInputStream();
+        assertEquals(SIZE, in.getLength());
+        assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(data),
+                in.getUnreadContentSha256());
+        assertArrayEquals(data, IOUtils.toByteArray(in));
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    public void markAndResetRepeatContent() throws Exception {
+        byte[] data = randomBytes(SIZE);
+        ChunkedByteArrayOutputStream out = new ChunkedByteArrayOutputStream();
+        out.write(data);
+        ChunkedByteArrayInputStream in = out.toInputStream();
+
+        in.mark(-1);
+        assertArrayEquals(data, IOUtils.toByteArray(in));
+        in.reset();
+        assertEquals(ChunkedByteArrayOutputStream.CHUNK_SIZE,
+                in.skip(ChunkedByteArrayOutputStream.CHUNK_SIZE));
+        assertNull(in.getUnreadContentSha256());
+        in.mark(-1);
+        assertEquals(data[ChunkedByteArrayOutputStream.CHUNK_SIZE] & 0xFF, in.read());
+        in.reset();
+        byte[] rest = IOUtils.toByteArray(in);
+        assertEquals(SIZE - ChunkedByteArrayOutputStream.CHUNK_SIZE, rest.length);
+        assertEquals(data[SIZE - 1], rest[rest.length - 1]);
+    }
+
+    @Test
+    public void closedStreamCannotBeRead() throws Exception {
+        ChunkedByteArrayOutputStream out = new ChunkedByteArrayOutputStream();
+        out.write(randomBytes(10));
+        ChunkedByteArrayInputStream in = out.toInputStream();
+        in.close();
+        assertNull(in.getUnreadContentSha256());
+        try {
+            in.read();
+            fail("Expected IOException");
+        } catch (IOException expected) {
+        }
+        try {
+            out.write(1);
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void digestIsReusedOnlyOnceHandedOver() throws Exception {
+        byte[] first = randomBytes(100);
+        byte[] second = randomBytes(200);
+        byte[] third = randomBytes(300);
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+
+        // Written on the same thread at the same time, so they can't share a digest
+        ChunkedByteArrayOutputStream out1 = new ChunkedByteArrayOutputStream();
+        ChunkedByteArrayOutputStream out2 = new ChunkedByteArrayOutputStream();
+        out1.write(first);
+        out2.write(second);
+        assertArrayEquals(sha256.digest(first), out1.toInputStream().getUnreadContentSha256());
+        assertArrayEquals(sha256.digest(second), out2.toInputStream().getUnreadContentSha256());
+
+        // Started after the content of another stream was handed over
+        ChunkedByteArrayOutputStream out3 = new ChunkedByteArrayOutputStream();
+        out3.write(third);
+        assertArrayEquals(sha256.digest(third), out3.toInputStream().getUnreadContentSha256());
+        try {
+            out1.write(first, 0, 10);
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void emptyContent() throws Exception {
+        ChunkedByteArrayInputStream in = new ChunkedByteArrayOutputStream().toInputStream();
+        assertEquals(0, in.getLength());
+        assertEquals(-1, in.read());
+        assertArrayEquals(MessageDigest.getInstance("SHA-256").digest(new byte[0]),
+                in.getUnreadContentSha256());
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+}
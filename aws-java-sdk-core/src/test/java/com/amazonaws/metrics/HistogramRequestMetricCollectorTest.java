@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Response;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.AWSRequestMetricsFullSupport;
+import com.amazonaws.util.TimingInfo;
+
+public class HistogramRequestMetricCollectorTest {
+
+    private static final String SERVICE = "AmazonTest";
+
+    @After
+    public void disableMetrics() {
+        AwsSdkMetrics.disableMetrics();
+    }
+
+    @Test
+    public void recordsLatencyDistributionsPerOperation() {
+        HistogramRequestMetricCollector collector = new HistogramRequestMetricCollector(
+                HistogramRequestMetricCollector.LATENCY_BREAKDOWN_FIELDS);
+        assertTrue(collector.isFullSupportRequired());
+        for (int i = 1; i <= 100; i++) {
+            collector.collectMetrics(request(new FooRequest(), i * 10, i), response());
+        }
+        collector.collectMetrics(request(new BarRequest(), 5, 1), null);
+
+        List<LatencySnapshot> snapshots = collector.getSnapshots();
+        assertEquals(4, snapshots.size());
+
+        LatencySnapshot execute = find(snapshots, "FooRequest", Field.ClientExecuteTime);
+        assertEquals(SERVICE, execute.getServiceName());
+        assertEquals(100, execute.getCount());
+        assertEquals(505, execute.getMeanMillis(), 0.001);
+        assertEquals(1000, execute.getMaxMillis(), 0.001);
+        assertEquals(500, execute.getPercentileMillis(50), 500 / 16.0);
+        assertEquals(990, execute.getPercentileMillis(99), 990 / 16.0);
+
+        LatencySnapshot http = find(snapshots, "FooRequest", Field.HttpRequestTime);
+        assertEquals(100, http.getCount());
+        assertEquals(50.5, http.getMeanMillis(), 0.001);
+
+        assertEquals(1, find(snapshots, "BarRequest", Field.ClientExecuteTime).getCount());
+        assertEquals(0, collector.getFailureCount(SERVICE, "FooRequest"));
+        assertEquals(1, collector.getFailureCount(SERVICE, "BarRequest"));
+
+        collector.reset();
+        assertTrue(collector.getSnapshots().isEmpty());
+    }
+
+    @Test
+    public void recordsClientExecuteTimeWithoutFullSupport() {
+        HistogramRequestMetricCollector collector = new HistogramRequestMetricCollector();
+        assertFalse(collector.isFullSupportRequired());
+
+        DefaultRequest<?> request = new DefaultRequest<Object>(new FooRequest(), SERVICE);
+        AWSRequestMetrics metrics = new AWSRequestMetrics();
+        TimingInfo root = metrics.getTimingInfo();
+        root.setEndTimeNano(root.getStartTimeNano() + 30 * 1000000);
+        request.setAWSRequestMetrics(metrics);
+        collector.collectMetrics(request, response());
+        collector.collectMetrics(request, null);
+
+        List<LatencySnapshot> snapshots = collector.getSnapshots();
+        assertEquals(1, snapshots.size());
+        LatencySnapshot execute = find(snapshots, "FooRequest", Field.ClientExecuteTime);
+        assertEquals(2, execute.getCount());
+        assertEquals(30, execute.getMeanMillis(), 30 / 16.0);
+        assertEquals(1, collector.getFailureCount(SERVICE, "FooRequest"));
+    }
+
+    @Test
+    public void snapshotsExposedThroughMetricAdmin() {
+        MetricAdmin admin = new MetricAdmin();
+        assertEquals(0, admin.getRequestLatencySnapshots().length);
+
+        HistogramRequestMetricCollector collector = new HistogramRequestMetricCollector(Field.HttpRequestTime);
+        AwsSdkMetrics.setMetricCollector(collector.toMetricCollector());
+        assertTrue(AwsSdkMetrics.isMetricsEnabled());
+        collector.collectMetrics(request(new FooRequest(), 20, 10), response());
+
+        String[] summaries = admin.getRequestLatencySnapshots();
+        assertEquals(2, summaries.length);
+        assertTrue(summaries[0].startsWith(SERVICE + " FooRequest "));
+    }
+
+    private static LatencySnapshot find(List<LatencySnapshot> snapshots, String operation, Field field) {
+        for (LatencySnapshot snapshot : snapshots) {
+            if (snapshot.getOperationName().equals(operation)
+                    && snapshot.getMetricName().equals(field.name())) {
+                return snapshot;
+            }
+        }
+        throw new AssertionError("No snapshot of " + operation + " " + field);
+    }
+
+    private static DefaultRequest<?> request(AmazonWebServiceRequest original, long executeMillis,
+            long httpMillis) {
+        DefaultRequest<?> request = new DefaultRequest<Object>(original, SERVICE);
+        AWSRequestMetricsFullSupport metrics = new AWSRequestMetricsFullSupport();
+        TimingInfo root = metrics.getTimingInfo();
+        long start = root.getStartTimeNano();
+        root.addSubMeasurement(Field.HttpRequestTime.name(),
+                TimingInfo.newTimingInfoFullSupport(start, start + httpMillis * 1000000));
+        root.setEndTimeNano(start + executeMillis * 1000000);
+        request.setAWSRequestMetrics(metrics);
+        return request;
+    }
+
+    private static Response<Object> response() {
+        return new Response<Object>(new Object(), null);
+    }
+
+    private static class FooRequest extends AmazonWebServiceRequest {
+    }
+
+    private static class BarRequest extends AmazonWebServiceRequest {
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.metrics.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class ConcurrentHistogramTest {
+
+    @Test
+    public void bucketsCoverValuesContiguously() {
+        assertEquals(0, ConcurrentHistogram.lowestValueOf(0));
+        for (int i = 1; i < ConcurrentHistogram.BUCKET_COUNT; i++) {
+            assertEquals(ConcurrentHistogram.highestValueOf(i - 1) + 1,
+                    ConcurrentHistogram.lowestValueOf(i));
+            assertEquals(i, ConcurrentHistogram.bucketOf(ConcurrentHistogram.lowestValueOf(i)));
+            assertEquals(i, ConcurrentHistogram.bucketOf(ConcurrentHistogram.highestValueOf(i)));
+        }
+        assertEquals(ConcurrentHistogram.BUCKET_COUNT - 1, ConcurrentHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void bucketWidthIsBoundedRelativeToValue() {
+        for (int i = 32; i < ConcurrentHistogram.BUCKET_COUNT; i++) {
+            long low = ConcurrentHistogram.lowestValueOf(i);
+            long width = ConcurrentHistogram.highestValueOf(i) - low + 1;
+            assertTrue(width * 16 <= low);
+        }
+    }
+
+    @Test
+    public void snapshotAddsUpConcurrentRecords() throws InterruptedException {
+        final ConcurrentHistogram histogram = new ConcurrentHistogram();
+        final int threadCount = 4;
+        final int recordsPerThread = 10000;
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        for (int t = 0; t < threadCount; t++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 1; i <= recordsPerThread; i++) {
+                        histogram.record(i);
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+
+        long[] counts = new long[ConcurrentHistogram.BUCKET_COUNT];
+        long[] totals = histogram.snapshot(counts);
+        assertEquals(threadCount * recordsPerThread, totals[0]);
+        assertEquals(threadCount * (long) recordsPerThread * (recordsPerThread + 1) / 2, totals[1]);
+        assertEquals(recordsPerThread, totals[2]);
+        assertEquals(threadCount, counts[1]);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.retry;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the behavior of the {@link AdaptiveRateLimiter}
+ */
+public class AdaptiveRateLimiterTest {
+
+    private static final String OPERATION = "PutItemRequest";
+    private static final double DELTA = 0.001;
+
+    private ManualClockRateLimiter limiter;
+
+    @Before
+    public void setup() {
+        limiter = new ManualClockRateLimiter();
+    }
+
+    /**
+     * Tests that requests are not limited until one is throttled.
+     */
+    @Test
+    public void notLimitedUntilThrottled() {
+        sendAtRate(OPERATION, 100);
+        Assert.assertEquals(-1, limiter.getRate(OPERATION), DELTA);
+        limiter.onSuccess(OPERATION);
+        Assert.assertEquals(0, limiter.reserve(OPERATION, 0));
+    }
+
+    /**
+     * Tests that a throttled request limits the operation to a fraction of
+     * the rate requests were sent at, and that waiting requests queue up.
+     */
+    @Test
+    public void throttleLimitsRate() {
+        sendAtRate(OPERATION, 100);
+        limiter.onThrottle(OPERATION);
+        Assert.assertEquals(70, limiter.getRate(OPERATION), DELTA);
+
+        final long interval = TimeUnit.SECONDS.toNanos(1) / 70;
+        Assert.assertEquals(interval, limiter.reserve(OPERATION, -1), 1);
+        Assert.assertEquals(2 * interval, limiter.reserve(OPERATION, -1), 1);
+
+        limiter.advance(3 * interval + 10);
+        Assert.assertEquals(0, limiter.reserve(OPERATION, -1), 1);
+    }
+
+    /**
+     * Tests that a permit which is not available within the maximum wait is
+     * not reserved.
+     */
+    @Test
+    public void failsFastBeyondMaxWait() {
+        sendAtRate(OPERATION, 100);
+        limiter.onThrottle(OPERATION);
+
+        final long interval = TimeUnit.SECONDS.toNanos(1) / 70;
+        Assert.assertEquals(-1, limiter.reserve(OPERATION, 0));
+        Assert.assertEquals(-1, limiter.reserve(OPERATION, interval / 2));
+        Assert.assertEquals(interval, limiter.reserve(OPERATION, interval + 1), 1);
+    }
+
+    /**
+     * Tests that throttling responses to requests sent before a decrease do
+     * not decrease the rate again.
+     */
+    @Test
+    public void decreasesOncePerInterval() {
+        sendAtRate(OPERATION, 100);
+        limiter.onThrottle(OPERATION);
+        limiter.onThrottle(OPERATION);
+        Assert.assertEquals(70, limiter.getRate(OPERATION), DELTA);
+
+        limiter.advance(AdaptiveRateLimiter.DECREASE_INTERVAL_NANOS);
+        limiter.onThrottle(OPERATION);
+        Assert.assertTrue(limiter.getRate(OPERATION) <= 70 * AdaptiveRateLimiter.DECREASE_FACTOR);
+    }
+
+    /**
+     * Tests that successful requests increase the rate additively, until the
+     * operation is no longer limited.
+     */
+    @Test
+    public void successIncreasesRateUntilReleased() {
+        sendAtRate(OPERATION, 100);
+        limiter.onThrottle(OPERATION);
+
+        limiter.onSuccess(OPERATION);
+        Assert.assertEquals(70 + 5.0 / 70, limiter.getRate(OPERATION), DELTA);
+
+        int successes = 1;
+        while (limiter.getRate(OPERATION) >= 0 && successes < 100000) {
+            limiter.onSuccess(OPERATION);
+            successes++;
+        }
+        Assert.assertEquals(-1, limiter.getRate(OPERATION), DELTA);
+        Assert.assertEquals(0, limiter.reserve(OPERATION, 0));
+    }
+
+    /**
+     * Tests that the rate never drops below the minimum.
+     */
+    @Test
+    public void rateIsBounded() {
+        for (int i = 0; i < 20; i++) {
+            limiter.onThrottle(OPERATION);
+            limiter.advance(AdaptiveRateLimiter.DECREASE_INTERVAL_NANOS);
+        }
+        Assert.assertEquals(AdaptiveRateLimiter.MIN_RATE, limiter.getRate(OPERATION), DELTA);
+    }
+
+    /**
+     * Tests that each operation is limited independently.
+     */
+    @Test
+    public void operationsAreIndependent() {
+        sendAtRate(OPERATION, 100);
+        limiter.onThrottle(OPERATION);
+        Assert.assertEquals(-1, limiter.getRate("GetItemRequest"), DELTA);
+        Assert.assertEquals(0, limiter.reserve("GetItemRequest", 0));
+    }
+
+    /**
+     * Sends requests of the given operation at the given rate for one second.
+     */
+    private void sendAtRate(String operation, int rate) {
+        final long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        for (int i = 0; i < rate; i++) {
+            Assert.assertEquals(0, limiter.reserve(operation, -1));
+            limiter.advance(interval);
+        }
+    }
+
+    private static class ManualClockRateLimiter extends AdaptiveRateLimiter {
+        private long now = 1000;
+
+        @Override
+        long nanoTime() {
+            return now;
+        }
+
+        void advance(long nanos) {
+            now += nanos;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2016. Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the throughput of a {@link CapacityManager} shared by 1 to 64
+ * threads, each acquiring and releasing capacity as requests that are
+ * retried and succeed do, against the previous monitor based implementation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CapacityManagerBenchmark {
+
+    @Param({"LOCK_FREE", "SYNCHRONIZED"})
+    public String implementation;
+
+    private CapacityManager manager;
+
+    @Setup
+    public void setup() {
+        // Large enough that acquires never fail, partially consumed so that
+        // releases are not short circuited
+        manager = "LOCK_FREE".equals(implementation)
+                ? new CapacityManager(1000000)
+                : new SynchronizedCapacityManager(1000000);
+        manager.acquire(500000);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean threads1() {
+        return acquireRelease();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean threads4() {
+        return acquireRelease();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean threads16() {
+        return acquireRelease();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean threads64() {
+        return acquireRelease();
+    }
+
+    private boolean acquireRelease() {
+        final boolean acquired = manager.acquire();
+        manager.release();
+        return acquired;
+    }
+
+    /**
+     * The previous implementation, guarding updates with a monitor.
+     */
+    static class SynchronizedCapacityManager extends CapacityManager {
+        private volatile int availableCapacity;
+        private final int maxCapacity;
+        private final Object lock = new Object();
+
+        SynchronizedCapacityManager(int maxCapacity) {
+            super(maxCapacity);
+            this.maxCapacity = maxCapacity;
+            this.availableCapacity = maxCapacity;
+        }
+
+        @Override
+        public boolean acquire(int capacity) {
+            if (availableCapacity < 0) {
+                return true;
+            }
+            synchronized (lock) {
+                if (availableCapacity - capacity >= 0) {
+                    availableCapacity -= capacity;
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+        }
+
+        @Override
+        public void release(int capacity) {
+            if (availableCapacity >= 0 && availableCapacity != maxCapacity) {
+                synchronized (lock) {
+                    availableCapacity = Math.min((availableCapacity + capacity), maxCapacity);
+                }
+            }
+        }
+    }
+}
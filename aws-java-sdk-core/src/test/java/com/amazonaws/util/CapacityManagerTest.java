@@ -15,6 +15,14 @@
 
 package com.amazonaws.util;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -69,4 +77,48 @@ public class CapacityManagerTest {
         Assert.assertEquals(mgr.consumedCapacity(), 0);
     }
 
+    /**
+     * Tests that concurrent acquires never consume more than the available
+     * capacity, and that releasing everything acquired restores the full
+     * capacity.
+     */
+    @Test
+    public void concurrentAcquireRelease() throws Exception {
+        final int threads = 8;
+        final int iterations = 100000;
+        final CapacityManager mgr = new CapacityManager(10);
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < threads; i++) {
+                final int capacity = i % 3 + 1;
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        start.await();
+                        for (int j = 0; j < iterations; j++) {
+                            if (mgr.acquire(capacity)) {
+                                int available = mgr.availableCapacity();
+                                if (available < 0 || available > 10) {
+                                    return false;
+                                }
+                                mgr.release(capacity);
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> result : results) {
+                Assert.assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(10, mgr.availableCapacity());
+        Assert.assertEquals(0, mgr.consumedCapacity());
+    }
+
 }
@@ -20,8 +20,11 @@ package com.amazonaws.util;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Random;
 
 import org.junit.Test;
@@ -78,6 +81,79 @@ public class ResponseMetadataCacheTest {
         assertNull(cache.get(key));
     }
 
+    /** Tests that adding an entry again for the same key replaces it.  */
+    @Test
+    public void testLatestEntryWins() {
+        ResponseMetadataCache cache = new ResponseMetadataCache(3);
+
+        AmazonWebServiceRequest key = new TestRequest();
+        ResponseMetadata metadata1 = newResponseMetadata();
+        ResponseMetadata metadata2 = newResponseMetadata();
+        cache.add(key, metadata1);
+        cache.add(key, metadata2);
+        assertEquals(metadata2, cache.get(key));
+    }
+
+    /** Tests that concurrent adds keep the most recent entries.  */
+    @Test
+    public void testConcurrentAdds() throws Exception {
+        final ResponseMetadataCache cache = new ResponseMetadataCache(50);
+        final ResponseMetadata metadata = newResponseMetadata();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        cache.add(new TestRequest(), metadata);
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        AmazonWebServiceRequest key = new TestRequest();
+        ResponseMetadata last = newResponseMetadata();
+        cache.add(key, last);
+        assertSame(last, cache.get(key));
+    }
+
+    /** Tests that the sampled cache records the entries of sampled keys only.  */
+    @Test
+    public void testSampling() {
+        final int sampleInterval = 4;
+        ResponseMetadataCache cache = new ResponseMetadataCache(1000);
+        SampledResponseMetadataCache sampled = new SampledResponseMetadataCache(cache, sampleInterval);
+
+        List<AmazonWebServiceRequest> keys = new ArrayList<AmazonWebServiceRequest>();
+        ResponseMetadata metadata = newResponseMetadata();
+        for (int i = 0; i < 1000; i++) {
+            AmazonWebServiceRequest key = new TestRequest();
+            keys.add(key);
+            sampled.add(key, metadata);
+        }
+        int recorded = 0;
+        for (AmazonWebServiceRequest key : keys) {
+            boolean isSampled = (System.identityHashCode(key) & Integer.MAX_VALUE) % sampleInterval == 0;
+            assertEquals(isSampled ? metadata : null, sampled.get(key));
+            if (isSampled) {
+                recorded++;
+            }
+        }
+        // Identity hash codes are well distributed
+        assertEquals(1000 / sampleInterval, recorded, 100);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSamplingRequiresPositiveInterval() {
+        new SampledResponseMetadataCache(new ResponseMetadataCache(1), 0);
+    }
+
     private class TestRequest extends AmazonWebServiceRequest {}
 
     private ResponseMetadata newResponseMetadata() {
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.waiters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ScheduledWaiterExecutionTest {
+
+    private static final int POOL_SIZE = 4;
+    private static final long DELAY_MILLIS = 50;
+
+    private ScheduledThreadPoolExecutor executorService;
+    private final AtomicInteger successes = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+
+    @Before
+    public void setup() {
+        executorService = new ScheduledThreadPoolExecutor(POOL_SIZE);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void tenThousandConcurrentWaitersOnSmallPool() throws Exception {
+        final int waiters = 10000;
+        Waiter<PollRequest> waiter = newWaiter(3, 10);
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        List<PollRequest> requests = new ArrayList<PollRequest>();
+        for (int i = 0; i < waiters; i++) {
+            PollRequest request = new PollRequest();
+            requests.add(request);
+            futures.add(waiter.runAsync(new WaiterParameters<PollRequest>(request), new CountingHandler()));
+        }
+        // Sleeping between polls would take 10000 * 2 * 50ms / 4 threads = 250s
+        for (Future<Void> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        assertEquals(waiters, successes.get());
+        assertEquals(0, failures.get());
+        for (PollRequest request : requests) {
+            assertEquals(3, request.polls.get());
+        }
+        assertTrue(executorService.getLargestPoolSize() <= POOL_SIZE);
+    }
+
+    @Test
+    public void timedOutWaiterFailsFuture() throws Exception {
+        PollRequest request = new PollRequest();
+        Future<Void> future = newWaiter(Integer.MAX_VALUE, 2)
+                .runAsync(new WaiterParameters<PollRequest>(request), new CountingHandler());
+        try {
+            future.get(10, TimeUnit.SECONDS);
+            fail("Expected WaiterTimedOutException");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof WaiterTimedOutException);
+        }
+        assertEquals(3, request.polls.get());
+        assertEquals(0, successes.get());
+        assertEquals(1, failures.get());
+    }
+
+    @Test
+    public void cancelledWaiterStopsPolling() throws Exception {
+        PollRequest request = new PollRequest();
+        Future<Void> future = newWaiter(Integer.MAX_VALUE, Integer.MAX_VALUE)
+                .runAsync(new WaiterParameters<PollRequest>(request), new CountingHandler());
+        while (request.polls.get() < 2) {
+            Thread.sleep(10);
+        }
+        assertTrue(future.cancel(false));
+        Thread.sleep(DELAY_MILLIS * 4);
+        int polls = request.polls.get();
+        Thread.sleep(DELAY_MILLIS * 4);
+        assertEquals(polls, request.polls.get());
+        assertEquals(0, executorService.getQueue().size());
+    }
+
+    @Test
+    public void blockingDelayStrategyIsStillSupported() throws Exception {
+        PollRequest request = new PollRequest();
+        PollingStrategy pollingStrategy = new PollingStrategy(new MaxAttemptsRetryStrategy(10),
+                new PollingStrategy.DelayStrategy() {
+                    @Override
+                    public void delayBeforeNextRetry(PollingStrategyContext pollingStrategyContext)
+                            throws InterruptedException {
+                        Thread.sleep(DELAY_MILLIS);
+                    }
+                });
+        newWaiter(3, 10)
+                .runAsync(new WaiterParameters<PollRequest>(request).withPollingStrategy(pollingStrategy),
+                          new CountingHandler())
+                .get(10, TimeUnit.SECONDS);
+        assertEquals(3, request.polls.get());
+        assertEquals(1, successes.get());
+    }
+
+    @Test
+    public void overriddenFixedDelayIsCalledBeforeEachRetry() throws Exception {
+        final AtomicInteger delays = new AtomicInteger();
+        PollRequest request = new PollRequest();
+        PollingStrategy pollingStrategy = new PollingStrategy(new MaxAttemptsRetryStrategy(10),
+                new FixedDelayStrategy(Integer.MAX_VALUE) {
+                    @Override
+                    public void delayBeforeNextRetry(PollingStrategyContext pollingStrategyContext) {
+                        delays.incrementAndGet();
+                    }
+                });
+        newWaiter(3, 10)
+                .runAsync(new WaiterParameters<PollRequest>(request).withPollingStrategy(pollingStrategy),
+                          new CountingHandler())
+                .get(10, TimeUnit.SECONDS);
+        assertEquals(3, request.polls.get());
+        assertEquals(2, delays.get());
+        assertEquals(1, successes.get());
+    }
+
+    @Test
+    public void onlyDelaysThatAreNotOverriddenAreScheduled() {
+        assertTrue(ScheduledWaiterExecution.computesDelay(new FixedDelayStrategy(1)));
+        assertTrue(ScheduledWaiterExecution.computesDelay(new FixedDelayStrategy(1) {
+            @Override
+            public long computeDelayBeforeNextRetry(PollingStrategyContext pollingStrategyContext) {
+                return 2;
+            }
+        }));
+        assertFalse(ScheduledWaiterExecution.computesDelay(new FixedDelayStrategy(1) {
+            @Override
+            public void delayBeforeNextRetry(PollingStrategyContext pollingStrategyContext) {
+            }
+        }));
+        assertFalse(ScheduledWaiterExecution.computesDelay(new PollingStrategy.DelayStrategy() {
+            @Override
+            public void delayBeforeNextRetry(PollingStrategyContext pollingStrategyContext) {
+            }
+        }));
+    }
+
+    /**
+     * Returns a waiter that succeeds on the given poll of a request.
+     */
+    private Waiter<PollRequest> newWaiter(final int successfulPoll, int maxAttempts) {
+        return new WaiterBuilder<PollRequest, Integer>()
+                .withSdkFunction(new SdkFunction<PollRequest, Integer>() {
+                    @Override
+                    public Integer apply(PollRequest request) {
+                        return request.polls.incrementAndGet();
+                    }
+                })
+                .withAcceptors(new WaiterAcceptor<Integer>() {
+                    @Override
+                    public boolean matches(Integer polls) {
+                        return polls >= successfulPoll;
+                    }
+
+                    @Override
+                    public WaiterState getState() {
+                        return WaiterState.SUCCESS;
+                    }
+                })
+                .withDefaultPollingStrategy(new PollingStrategy(new MaxAttemptsRetryStrategy(maxAttempts),
+                        new PollingStrategy.ComputedDelayStrategy() {
+                            @Override
+                            public long computeDelayBeforeNextRetry(PollingStrategyContext pollingStrategyContext) {
+                                return DELAY_MILLIS;
+                            }
+
+                            @Override
+                            public void delayBeforeNextRetry(PollingStrategyContext pollingStrategyContext)
+                                    throws InterruptedException {
+                                fail("Waiter should not sleep between polls");
+                            }
+                        }))
+                .withExecutorService(executorService)
+                .build();
+    }
+
+    /**
+     * Counts the number of polls made with this request and its clones.
+     */
+    private static class PollRequest extends AmazonWebServiceRequest {
+        private final AtomicInteger polls = new AtomicInteger();
+    }
+
+    private class CountingHandler extends WaiterHandler<PollRequest> {
+        @Override
+        public void onWaitSuccess(PollRequest request) {
+            successes.incrementAndGet();
+        }
+
+        @Override
+        public void onWaitFailure(Exception e) {
+            failures.incrementAndGet();
+        }
+    }
+}
@@ -13,8 +13,14 @@
 package com.amazonaws.services.dynamodbv2;
 
 import com.amazonaws.services.dynamodbv2.model.*;
+import com.amazonaws.services.dynamodbv2.model.transform.*;
+import com.amazonaws.*;
 import com.amazonaws.client.AwsAsyncClientParams;
 import com.amazonaws.annotation.ThreadSafe;
+import com.amazonaws.http.*;
+import com.amazonaws.protocol.json.*;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
 
 /**
  * Interface for accessing DynamoDB asynchronously. Each asynchronous method will return a Java Future object
@@ -381,26 +387,28 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public java.util.concurrent.Future<BatchGetItemResult> batchGetItemAsync(final BatchGetItemRequest request,
             final com.amazonaws.handlers.AsyncHandler<BatchGetItemRequest, BatchGetItemResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<BatchGetItemResult>() {
-            @Override
-            public BatchGetItemResult call() throws Exception {
-                BatchGetItemResult result;
-
-                try {
-                    result = batchGetItem(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<BatchGetItemRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new BatchGetItemRequestMarshaller(protocolFactory).marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            HttpResponseHandler<AmazonWebServiceResponse<BatchGetItemResult>> responseHandler = protocolFactory.createResponseHandler(
+                    new JsonOperationMetadata().withPayloadJson(true).withHasStreamingSuccessResponse(false), new BatchGetItemResultJsonUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -458,26 +466,28 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public java.util.concurrent.Future<BatchWriteItemResult> batchWriteItemAsync(final BatchWriteItemRequest request,
             final com.amazonaws.handlers.AsyncHandler<BatchWriteItemRequest, BatchWriteItemResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<BatchWriteItemResult>() {
-            @Override
-            public BatchWriteItemResult call() throws Exception {
-                BatchWriteItemResult result;
-
-                try {
-                    result = batchWriteItem(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<BatchWriteItemRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new BatchWriteItemRequestMarshaller(protocolFactory).marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            HttpResponseHandler<AmazonWebServiceResponse<BatchWriteItemResult>> responseHandler = protocolFactory.createResponseHandler(
+                    new JsonOperationMetadata().withPayloadJson(true).withHasStreamingSuccessResponse(false), new BatchWriteItemResultJsonUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -512,26 +522,28 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public java.util.concurrent.Future<CreateTableResult> createTableAsync(final CreateTableRequest request,
             final com.amazonaws.handlers.AsyncHandler<CreateTableRequest, CreateTableResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<CreateTableResult>() {
-            @Override
-            public CreateTableResult call() throws Exception {
-                CreateTableResult result;
-
-                try {
-                    result = createTable(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<CreateTableRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new CreateTableRequestMarshaller(protocolFactory).marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            HttpResponseHandler<AmazonWebServiceResponse<CreateTableResult>> responseHandler = protocolFactory.createResponseHandler(
+                    new JsonOperationMetadata().withPayloadJson(true).withHasStreamingSuccessResponse(false), new CreateTableResultJsonUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -570,26 +582,28 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public java.util.concurrent.Future<DeleteItemResult> deleteItemAsync(final DeleteItemRequest request,
             final com.amazonaws.handlers.AsyncHandler<DeleteItemRequest, DeleteItemResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<DeleteItemResult>() {
-            @Override
-            public DeleteItemResult call() throws Exception {
-                DeleteItemResult result;
-
-                try {
-                    result = deleteItem(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<DeleteItemRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new DeleteItemRequestMarshaller(protocolFactory).marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            HttpResponseHandler<AmazonWebServiceResponse<DeleteItemResult>> responseHandler = protocolFactory.createResponseHandler(new JsonOperationMetadata()
+                    .withPayloadJson(true).withHasStreamingSuccessResponse(false), new DeleteItemResultJsonUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -646,26 +660,28 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public java.util.concurrent.Future<DeleteTableResult> deleteTableAsync(final DeleteTableRequest request,
             final com.amazonaws.handlers.AsyncHandler<DeleteTableRequest, DeleteTableResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<DeleteTableResult>() {
-            @Override
-            public DeleteTableResult call() throws Exception {
-                DeleteTableResult result;
-
-                try {
-                    result = deleteTable(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<DeleteTableRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new DeleteTableRequestMarshaller(protocolFactory).marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            HttpResponseHandler<AmazonWebServiceResponse<DeleteTableResult>> responseHandler = protocolFactory.createResponseHandler(
+                    new JsonOperationMetadata().withPayloadJson(true).withHasStreamingSuccessResponse(false), new DeleteTableResultJsonUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -700,26 +716,28 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public java.util.concurrent.Future<DescribeLimitsResult> describeLimitsAsync(final DescribeLimitsRequest request,
             final com.amazonaws.handlers.AsyncHandler<DescribeLimitsRequest, DescribeLimitsResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<DescribeLimitsResult>() {
-            @Override
-            public DescribeLimitsResult call() throws Exception {
-                DescribeLimitsResult result;
-
-                try {
-                    result = describeLimits(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<DescribeLimitsRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new DescribeLimitsRequestMarshaller(protocolFactory).marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            HttpResponseHandler<AmazonWebServiceResponse<DescribeLimitsResult>> responseHandler = protocolFactory.createResponseHandler(
+                    new JsonOperationMetadata().withPayloadJson(true).withHasStreamingSuccessResponse(false), new DescribeLimitsResultJsonUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     @Override
@@ -732,26 +750,28 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public java.util.concurrent.Future<DescribeTableResult> describeTableAsync(final DescribeTableRequest request,
             final com.amazonaws.handlers.AsyncHandler<DescribeTableRequest, DescribeTableResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<DescribeTableResult>() {
-            @Override
-            public DescribeTableResult call() throws Exception {
-                DescribeTableResult result;
-
-                try {
-                    result = describeTable(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<DescribeTableRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new DescribeTableRequestMarshaller(protocolFactory).marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            HttpResponseHandler<AmazonWebServiceResponse<DescribeTableResult>> responseHandler = protocolFactory.createResponseHandler(
+                    new JsonOperationMetadata().withPayloadJson(true).withHasStreamingSuccessResponse(false), new DescribeTableResultJsonUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -786,26 +806,28 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public java.util.concurrent.Future<GetItemResult> getItemAsync(final GetItemRequest request,
             final com.amazonaws.handlers.AsyncHandler<GetItemRequest, GetItemResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<GetItemResult>() {
-            @Override
-            public GetItemResult call() throws Exception {
-                GetItemResult result;
-
-                try {
-                    result = getItem(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<GetItemRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new GetItemRequestMarshaller(protocolFactory).marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            HttpResponseHandler<AmazonWebServiceResponse<GetItemResult>> responseHandler = protocolFactory.createResponseHandler(new JsonOperationMetadata()
+                    .withPayloadJson(true).withHasStreamingSuccessResponse(false), new GetItemResultJsonUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -862,26 +884,28 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public java.util.concurrent.Future<ListTablesResult> listTablesAsync(final ListTablesRequest request,
             final com.amazonaws.handlers.AsyncHandler<ListTablesRequest, ListTablesResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<ListTablesResult>() {
-            @Override
-            public ListTablesResult call() throws Exception {
-                ListTablesResult result;
-
-                try {
-                    result = listTables(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<ListTablesRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new ListTablesRequestMarshaller(protocolFactory).marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            HttpResponseHandler<AmazonWebServiceResponse<ListTablesResult>> responseHandler = protocolFactory.createResponseHandler(new JsonOperationMetadata()
+                    .withPayloadJson(true).withHasStreamingSuccessResponse(false), new ListTablesResultJsonUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -981,26 +1005,28 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public java.util.concurrent.Future<PutItemResult> putItemAsync(final PutItemRequest request,
             final com.amazonaws.handlers.AsyncHandler<PutItemRequest, PutItemResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<PutItemResult>() {
-            @Override
-            public PutItemResult call() throws Exception {
-                PutItemResult result;
-
-                try {
-                    result = putItem(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<PutItemRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new PutItemRequestMarshaller(protocolFactory).marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            HttpResponseHandler<AmazonWebServiceResponse<PutItemResult>> responseHandler = protocolFactory.createResponseHandler(new JsonOperationMetadata()
+                    .withPayloadJson(true).withHasStreamingSuccessResponse(false), new PutItemResultJsonUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -1057,26 +1083,28 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public java.util.concurrent.Future<QueryResult> queryAsync(final QueryRequest request,
             final com.amazonaws.handlers.AsyncHandler<QueryRequest, QueryResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<QueryResult>() {
-            @Override
-            public QueryResult call() throws Exception {
-                QueryResult result;
-
-                try {
-                    result = query(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<QueryRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new QueryRequestMarshaller(protocolFactory).marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            HttpResponseHandler<AmazonWebServiceResponse<QueryResult>> responseHandler = protocolFactory.createResponseHandler(new JsonOperationMetadata()
+                    .withPayloadJson(true).withHasStreamingSuccessResponse(false), new QueryResultJsonUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     @Override
@@ -1089,26 +1117,28 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public java.util.concurrent.Future<ScanResult> scanAsync(final ScanRequest request,
             final com.amazonaws.handlers.AsyncHandler<ScanRequest, ScanResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<ScanResult>() {
-            @Override
-            public ScanResult call() throws Exception {
-                ScanResult result;
-
-                try {
-                    result = scan(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<ScanRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new ScanRequestMarshaller(protocolFactory).marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            HttpResponseHandler<AmazonWebServiceResponse<ScanResult>> responseHandler = protocolFactory.createResponseHandler(new JsonOperationMetadata()
+                    .withPayloadJson(true).withHasStreamingSuccessResponse(false), new ScanResultJsonUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -1188,26 +1218,28 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public java.util.concurrent.Future<UpdateItemResult> updateItemAsync(final UpdateItemRequest request,
             final com.amazonaws.handlers.AsyncHandler<UpdateItemRequest, UpdateItemResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<UpdateItemResult>() {
-            @Override
-            public UpdateItemResult call() throws Exception {
-                UpdateItemResult result;
-
-                try {
-                    result = updateItem(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<UpdateItemRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new UpdateItemRequestMarshaller(protocolFactory).marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            HttpResponseHandler<AmazonWebServiceResponse<UpdateItemResult>> responseHandler = protocolFactory.createResponseHandler(new JsonOperationMetadata()
+                    .withPayloadJson(true).withHasStreamingSuccessResponse(false), new UpdateItemResultJsonUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -1270,26 +1302,28 @@ public class AmazonDynamoDBAsyncClient extends AmazonDynamoDBClient implements A
     public java.util.concurrent.Future<UpdateTableResult> updateTableAsync(final UpdateTableRequest request,
             final com.amazonaws.handlers.AsyncHandler<UpdateTableRequest, UpdateTableResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<UpdateTableResult>() {
-            @Override
-            public UpdateTableResult call() throws Exception {
-                UpdateTableResult result;
-
-                try {
-                    result = updateTable(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<UpdateTableRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new UpdateTableRequestMarshaller(protocolFactory).marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            HttpResponseHandler<AmazonWebServiceResponse<UpdateTableResult>> responseHandler = protocolFactory.createResponseHandler(
+                    new JsonOperationMetadata().withPayloadJson(true).withHasStreamingSuccessResponse(false), new UpdateTableResultJsonUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -228,7 +228,7 @@ public class AmazonDynamoDBClient extends AmazonWebServiceClient implements Amaz
     /** Client configuration factory providing ClientConfigurations tailored to this client */
     protected static final com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientConfigurationFactory configFactory = new com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientConfigurationFactory();
 
-    private final SdkJsonProtocolFactory protocolFactory = new SdkJsonProtocolFactory(new JsonClientMetadata()
+    final SdkJsonProtocolFactory protocolFactory = new SdkJsonProtocolFactory(new JsonClientMetadata()
             .withProtocolVersion("1.0")
             .withSupportsCbor(false)
             .withSupportsIon(false)
@@ -1722,6 +1722,40 @@ public class AmazonDynamoDBClient extends AmazonWebServiceClient implements Amaz
         return client.execute(request, responseHandler, errorResponseHandler, executionContext);
     }
 
+    /**
+     * Asynchronous counterpart of {@link #invoke}, used by AmazonDynamoDBAsyncClient.
+     **/
+    <X, Y extends AmazonWebServiceRequest> java.util.concurrent.Future<X> invokeAsync(Y originalRequest, Request<Y> request,
+            HttpResponseHandler<AmazonWebServiceResponse<X>> responseHandler, ExecutionContext executionContext, AsyncHandler<Y, X> asyncHandler) {
+
+        executionContext.setCredentialsProvider(CredentialUtils.getCredentialsProvider(request.getOriginalRequest(), awsCredentialsProvider));
+
+        return doInvokeAsync(originalRequest, request, responseHandler, executionContext, asyncHandler);
+    }
+
+    /**
+     * Asynchronous counterpart of {@link #anonymousInvoke}, used by AmazonDynamoDBAsyncClient.
+     **/
+    <X, Y extends AmazonWebServiceRequest> java.util.concurrent.Future<X> anonymousInvokeAsync(Y originalRequest, Request<Y> request,
+            HttpResponseHandler<AmazonWebServiceResponse<X>> responseHandler, ExecutionContext executionContext, AsyncHandler<Y, X> asyncHandler) {
+
+        return doInvokeAsync(originalRequest, request, responseHandler, executionContext, asyncHandler);
+    }
+
+    /**
+     * Sends the request on the non-blocking transport of the http client, so no thread waits on it while it is in
+     * flight.
+     **/
+    private <X, Y extends AmazonWebServiceRequest> java.util.concurrent.Future<X> doInvokeAsync(Y originalRequest, Request<Y> request,
+            HttpResponseHandler<AmazonWebServiceResponse<X>> responseHandler, ExecutionContext executionContext, AsyncHandler<Y, X> asyncHandler) {
+        request.setEndpoint(endpoint);
+        request.setTimeOffset(timeOffset);
+
+        HttpResponseHandler<AmazonServiceException> errorResponseHandler = protocolFactory.createErrorResponseHandler(new JsonErrorResponseMetadata());
+
+        return executeAsync(originalRequest, request, responseHandler, errorResponseHandler, executionContext, asyncHandler);
+    }
+
     public AmazonDynamoDBWaiters waiters() {
         if (waiters == null) {
             synchronized (this) {
@@ -0,0 +1,654 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.datamodeling;
+
+import static com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper.MAX_BACKOFF_IN_MILLISECONDS;
+import static com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper.MAX_ITEMS_PER_BATCH;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper.FailedBatch;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.BatchWriteRetryStrategy;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+/**
+ * A long-lived writer which accepts objects to save or delete continuously
+ * and writes them with <code>BatchWriteItem</code> requests, keeping several
+ * requests in flight at the same time.
+ *
+ * <pre class="brush: java">
+ * DynamoDBBatchWriter writer = dbMapper.newBatchWriter(8);
+ * try {
+ *     for (TestClass object : objects) {
+ *         writer.save(object);
+ *     }
+ * } finally {
+ *     List&lt;FailedBatch&gt; failedBatches = writer.close();
+ * }
+ * </pre>
+ *
+ * <p>Objects are converted on the calling thread and packed into requests of
+ * up to 25 items, which may span several tables. A request is sent as soon as
+ * it is full, and a partial request once its oldest item has waited for the
+ * maximum linger time, or on {@link #flush()}. Since the
+ * 25 items of a request are each limited to 400 KB, a full request always
+ * fits in the 16 MB request size limit; a request which is nonetheless
+ * rejected as too large is split in halves.</p>
+ *
+ * <p>Writes are ordered per item, that is per table and primary key: an
+ * item is never written by two requests in flight at the same time, nor
+ * twice in the same request. An item submitted again while a write of it is
+ * waiting to be sent replaces that write, and one submitted while a write of
+ * it is in flight waits for that request to complete.</p>
+ *
+ * <p>Unprocessed items returned by DynamoDB are queued again and packed into
+ * later requests, together with newly submitted items, unless the item has
+ * been submitted again in the meantime. Requests are delayed
+ * by a backoff which doubles each time a request is throttled or returns
+ * unprocessed items, and halves each time a request is fully processed. Items
+ * which are still unprocessed after the number of retries allowed by the
+ * configured {@link BatchWriteRetryStrategy}, or whose request failed with an
+ * exception, are reported as {@link FailedBatch}es by {@link #flush()} and
+ * {@link #close()}.</p>
+ *
+ * <p>{@link #save(Object)} and {@link #delete(Object)} block while the items
+ * waiting to be sent would fill all the requests allowed in flight twice over,
+ * so that a fast producer can't outrun DynamoDB indefinitely.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ *
+ * @see DynamoDBMapper#newBatchWriter(int)
+ */
+public class DynamoDBBatchWriter {
+
+    private static final Log LOG = LogFactory.getLog(DynamoDBBatchWriter.class);
+
+    /** The first backoff applied once requests start being throttled. */
+    private static final long MIN_BACKOFF_IN_MILLISECONDS = 50;
+
+    /** The default time a partial request waits for more items before it is sent. */
+    static final long DEFAULT_MAX_LINGER_MILLIS = 200;
+
+    private final AmazonDynamoDB db;
+    private final DynamoDBMapper mapper;
+    private final DynamoDBMapperConfig config;
+    private final int maxBatchesInFlight;
+    private final int maxPendingItems;
+    private final long maxLingerNanos;
+    private final ScheduledThreadPoolExecutor executor;
+
+    /** Guards the fields below, and is signalled whenever they change. */
+    private final Object lock = new Object();
+    /** The items waiting to be sent, at most one per item key, in the order they were submitted. */
+    private LinkedHashMap<ItemKey, PendingItem> pendingItems = new LinkedHashMap<ItemKey, PendingItem>();
+    /** The keys of the items in the requests in flight. */
+    private final Set<ItemKey> keysInFlight = new HashSet<ItemKey>();
+    private final List<FailedBatch> failedBatches = new ArrayList<FailedBatch>();
+    private int batchesInFlight;
+    private int flushesInProgress;
+    private boolean lingerCheckScheduled;
+    private boolean closed;
+
+    private final AtomicLong backoffMillis = new AtomicLong();
+    private final ConcurrentMap<String, TableMetrics> tableMetrics = new ConcurrentHashMap<String, TableMetrics>();
+
+    DynamoDBBatchWriter(AmazonDynamoDB db, DynamoDBMapper mapper, DynamoDBMapperConfig config,
+            int maxBatchesInFlight, long maxLingerMillis) {
+        if (maxBatchesInFlight < 1) {
+            throw new IllegalArgumentException("maxBatchesInFlight must be at least 1");
+        }
+        if (maxLingerMillis < 0) {
+            throw new IllegalArgumentException("maxLingerMillis must not be negative");
+        }
+        this.db = db;
+        this.mapper = mapper;
+        this.config = config;
+        this.maxBatchesInFlight = maxBatchesInFlight;
+        this.maxPendingItems = 2 * maxBatchesInFlight * MAX_ITEMS_PER_BATCH;
+        this.maxLingerNanos = TimeUnit.MILLISECONDS.toNanos(maxLingerMillis);
+        this.executor = new ScheduledThreadPoolExecutor(maxBatchesInFlight, new DaemonThreadFactory());
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Submits the object to be saved. Values generated for the object, such
+     * as auto-generated keys, are set on the object before this method
+     * returns.
+     */
+    public void save(Object object) {
+        String tableName = mapper.getTableName(object.getClass(), object, config);
+        WriteRequest writeRequest = mapper.toPutWriteRequest(object, tableName, config);
+        // Taken once generated values are set on the object
+        ItemKey key = new ItemKey(tableName, mapper.toKey(object, config));
+        submit(new PendingItem(key, writeRequest, 0, System.nanoTime()));
+    }
+
+    /**
+     * Submits the object to be deleted.
+     */
+    public void delete(Object object) {
+        String tableName = mapper.getTableName(object.getClass(), object, config);
+        WriteRequest writeRequest = mapper.toDeleteWriteRequest(object, config);
+        ItemKey key = new ItemKey(tableName, writeRequest.getDeleteRequest().getKey());
+        submit(new PendingItem(key, writeRequest, 0, System.nanoTime()));
+    }
+
+    /**
+     * Sends all the submitted objects, including any partial request, and
+     * waits until every request has completed.
+     *
+     * @return The items which could not be written since the last call to
+     *         flush; an empty list if all the items were written.
+     */
+    public List<FailedBatch> flush() {
+        synchronized (lock) {
+            flushesInProgress++;
+            try {
+                dispatch();
+                while (!pendingItems.isEmpty() || batchesInFlight > 0) {
+                    awaitChange();
+                    dispatch();
+                }
+                List<FailedBatch> failed = new ArrayList<FailedBatch>(failedBatches);
+                failedBatches.clear();
+                return failed;
+            } finally {
+                flushesInProgress--;
+            }
+        }
+    }
+
+    /**
+     * Flushes the writer and releases its threads. No more objects may be
+     * submitted afterwards.
+     *
+     * @return The items which could not be written since the last call to
+     *         flush.
+     */
+    public List<FailedBatch> close() {
+        try {
+            return flush();
+        } finally {
+            synchronized (lock) {
+                closed = true;
+            }
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Returns the write metrics of each table written by this writer so far.
+     */
+    public Map<String, TableMetrics> getTableMetrics() {
+        return Collections.unmodifiableMap(new HashMap<String, TableMetrics>(tableMetrics));
+    }
+
+    /**
+     * Returns the delay currently applied before each request.
+     */
+    public long getCurrentBackoffMillis() {
+        return backoffMillis.get();
+    }
+
+    private void submit(PendingItem item) {
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("The batch writer has been closed");
+            }
+            while (pendingItems.size() >= maxPendingItems && !pendingItems.containsKey(item.key)) {
+                dispatch();
+                if (pendingItems.size() >= maxPendingItems) {
+                    awaitChange();
+                }
+            }
+            PendingItem superseded = pendingItems.get(item.key);
+            if (superseded != null) {
+                // The item takes the place of the write it supersedes, which
+                // is then no longer sent
+                item = new PendingItem(item.key, item.writeRequest, 0, superseded.submittedNanos);
+            }
+            pendingItems.put(item.key, item);
+            dispatch();
+            scheduleLingerCheck();
+        }
+    }
+
+    /**
+     * Sends as many requests as allowed in flight. Must be called with the
+     * lock held.
+     */
+    private void dispatch() {
+        while (batchesInFlight < maxBatchesInFlight) {
+            List<PendingItem> batch = takeBatch();
+            if (batch == null) {
+                return;
+            }
+            for (PendingItem item : batch) {
+                keysInFlight.add(item.key);
+            }
+            batchesInFlight++;
+            executor.execute(new BatchTask(batch));
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Removes the next request to send from the pending items, in the order
+     * they were submitted and skipping the items with a write in flight.
+     * Returns null unless the request is full, its oldest item has lingered
+     * long enough, or a flush is in progress. Must be called with the lock
+     * held.
+     */
+    private List<PendingItem> takeBatch() {
+        List<PendingItem> batch = null;
+        long oldestNanos = 0;
+        for (PendingItem item : pendingItems.values()) {
+            if (keysInFlight.contains(item.key)) {
+                continue;
+            }
+            if (batch == null) {
+                batch = new ArrayList<PendingItem>(MAX_ITEMS_PER_BATCH);
+                oldestNanos = item.submittedNanos;
+            }
+            batch.add(item);
+            if (batch.size() == MAX_ITEMS_PER_BATCH) {
+                break;
+            }
+        }
+        if (batch == null || (batch.size() < MAX_ITEMS_PER_BATCH && flushesInProgress == 0
+                && System.nanoTime() - oldestNanos < maxLingerNanos)) {
+            return null;
+        }
+        for (PendingItem item : batch) {
+            pendingItems.remove(item.key);
+        }
+        return batch;
+    }
+
+    /**
+     * Schedules a check for partial requests which have lingered long
+     * enough, unless one is already scheduled or nothing is pending. Must be
+     * called with the lock held.
+     */
+    private void scheduleLingerCheck() {
+        // Without linger time, partial requests are sent straight away
+        if (lingerCheckScheduled || closed || maxLingerNanos == 0 || pendingItems.isEmpty()) {
+            return;
+        }
+        lingerCheckScheduled = true;
+        executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (lock) {
+                    lingerCheckScheduled = false;
+                    dispatch();
+                    scheduleLingerCheck();
+                }
+            }
+        }, maxLingerNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void awaitChange() {
+        try {
+            lock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException(e.getMessage(), e);
+        }
+    }
+
+    private final class BatchTask implements Runnable {
+        private final List<PendingItem> batch;
+
+        private BatchTask(List<PendingItem> batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public void run() {
+            List<PendingItem> unprocessed = Collections.emptyList();
+            try {
+                unprocessed = write(batch);
+            } catch (RuntimeException e) {
+                // Should not happen, but never lose track of the items
+                LOG.warn("Unexpected failure writing a batch", e);
+                addFailedBatch(batch, e);
+            } finally {
+                synchronized (lock) {
+                    batchesInFlight--;
+                    for (PendingItem item : batch) {
+                        keysInFlight.remove(item.key);
+                    }
+                    requeue(unprocessed);
+                    dispatch();
+                    scheduleLingerCheck();
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts the unprocessed items back in front of the pending items, so that
+     * they are packed into the very next request, except those which have
+     * been submitted again meanwhile. Must be called with the lock held.
+     */
+    private void requeue(List<PendingItem> unprocessed) {
+        if (unprocessed.isEmpty()) {
+            return;
+        }
+        LinkedHashMap<ItemKey, PendingItem> requeued = new LinkedHashMap<ItemKey, PendingItem>();
+        for (PendingItem item : unprocessed) {
+            if (!pendingItems.containsKey(item.key)) {
+                requeued.put(item.key, item);
+            }
+        }
+        requeued.putAll(pendingItems);
+        pendingItems = requeued;
+    }
+
+    /**
+     * Writes the batch and returns the items to retry.
+     */
+    private List<PendingItem> write(List<PendingItem> batch) {
+        final Map<String, List<WriteRequest>> requestItems = toRequestItems(batch);
+        final int attempts = maxAttempts(batch);
+
+        pause(backoffMillis.get());
+
+        BatchWriteItemResult result;
+        try {
+            result = db.batchWriteItem(DynamoDBMapper.applyBatchOperationUserAgent(
+                    new BatchWriteItemRequest().withRequestItems(requestItems)));
+        } catch (AmazonServiceException e) {
+            if (RetryUtils.isRequestEntityTooLargeException(e) && batch.size() > 1) {
+                List<PendingItem> unprocessed = new ArrayList<PendingItem>();
+                unprocessed.addAll(write(batch.subList(0, batch.size() / 2)));
+                unprocessed.addAll(write(batch.subList(batch.size() / 2, batch.size())));
+                return unprocessed;
+            }
+            if (RetryUtils.isThrottlingException(e)) {
+                increaseBackoff();
+                for (PendingItem item : batch) {
+                    metricsFor(item.key.tableName).throttledItems.incrementAndGet();
+                }
+                return retry(batch, requestItems, attempts);
+            }
+            addFailedBatch(batch, e);
+            return Collections.emptyList();
+        } catch (RuntimeException e) {
+            addFailedBatch(batch, e);
+            return Collections.emptyList();
+        }
+
+        final Map<String, List<WriteRequest>> unprocessedItems = result.getUnprocessedItems();
+        int unprocessedCount = 0;
+        for (Map.Entry<String, List<WriteRequest>> entry : requestItems.entrySet()) {
+            List<WriteRequest> unprocessedForTable = unprocessedItems == null
+                    ? null : unprocessedItems.get(entry.getKey());
+            int unprocessedForTableCount = unprocessedForTable == null ? 0 : unprocessedForTable.size();
+            unprocessedCount += unprocessedForTableCount;
+            TableMetrics metrics = metricsFor(entry.getKey());
+            metrics.itemsWritten.addAndGet(entry.getValue().size() - unprocessedForTableCount);
+            metrics.itemsUnprocessed.addAndGet(unprocessedForTableCount);
+            metrics.requests.incrementAndGet();
+        }
+
+        if (unprocessedCount == 0) {
+            decreaseBackoff();
+            return Collections.emptyList();
+        }
+        increaseBackoff();
+        Map<ItemKey, PendingItem> sent = new HashMap<ItemKey, PendingItem>();
+        for (PendingItem item : batch) {
+            sent.put(new ItemKey(item.key.tableName, item.writeRequest), item);
+        }
+        List<PendingItem> unprocessed = new ArrayList<PendingItem>(unprocessedCount);
+        for (Map.Entry<String, List<WriteRequest>> entry : unprocessedItems.entrySet()) {
+            for (WriteRequest writeRequest : entry.getValue()) {
+                PendingItem item = sent.get(new ItemKey(entry.getKey(), writeRequest));
+                unprocessed.add(item != null ? item : new PendingItem(
+                        new ItemKey(entry.getKey(), writeRequest), writeRequest, attempts, System.nanoTime()));
+            }
+        }
+        return retry(unprocessed, toRequestItems(unprocessed), attempts);
+    }
+
+    /**
+     * Returns the items to queue again, or reports them as failed if they
+     * have been retried too many times already.
+     */
+    private List<PendingItem> retry(List<PendingItem> items, Map<String, List<WriteRequest>> requestItems,
+            int attempts) {
+        int maxRetries = config.getBatchWriteRetryStrategy()
+                .getMaxRetryOnUnprocessedItems(Collections.unmodifiableMap(requestItems));
+        if (maxRetries >= 0 && attempts >= maxRetries) {
+            addFailedBatch(items, null);
+            return Collections.emptyList();
+        }
+        List<PendingItem> retries = new ArrayList<PendingItem>(items.size());
+        for (PendingItem item : items) {
+            retries.add(new PendingItem(item.key, item.writeRequest, attempts + 1, item.submittedNanos));
+        }
+        return retries;
+    }
+
+    private void addFailedBatch(List<PendingItem> items, Exception exception) {
+        FailedBatch failedBatch = new FailedBatch();
+        failedBatch.setUnprocessedItems(toRequestItems(items));
+        failedBatch.setException(exception);
+        for (PendingItem item : items) {
+            metricsFor(item.key.tableName).itemsFailed.incrementAndGet();
+        }
+        synchronized (lock) {
+            failedBatches.add(failedBatch);
+        }
+    }
+
+    private void increaseBackoff() {
+        long current;
+        long next;
+        do {
+            current = backoffMillis.get();
+            next = Math.min(Math.max(current * 2, MIN_BACKOFF_IN_MILLISECONDS), MAX_BACKOFF_IN_MILLISECONDS);
+        } while (!backoffMillis.compareAndSet(current, next));
+    }
+
+    private void decreaseBackoff() {
+        long current;
+        long next;
+        do {
+            current = backoffMillis.get();
+            next = current / 2 < MIN_BACKOFF_IN_MILLISECONDS ? 0 : current / 2;
+        } while (current != 0 && !backoffMillis.compareAndSet(current, next));
+    }
+
+    private TableMetrics metricsFor(String tableName) {
+        TableMetrics metrics = tableMetrics.get(tableName);
+        if (metrics == null) {
+            TableMetrics newMetrics = new TableMetrics();
+            metrics = tableMetrics.putIfAbsent(tableName, newMetrics);
+            if (metrics == null) {
+                metrics = newMetrics;
+            }
+        }
+        return metrics;
+    }
+
+    private static Map<String, List<WriteRequest>> toRequestItems(List<PendingItem> items) {
+        DynamoDBMapper.StringListMap<WriteRequest> requestItems = new DynamoDBMapper.StringListMap<WriteRequest>();
+        for (PendingItem item : items) {
+            requestItems.add(item.key.tableName, item.writeRequest);
+        }
+        return requestItems;
+    }
+
+    private static int maxAttempts(List<PendingItem> items) {
+        int attempts = 0;
+        for (PendingItem item : items) {
+            attempts = Math.max(attempts, item.attempts);
+        }
+        return attempts;
+    }
+
+    private static void pause(long delay) {
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException(e.getMessage(), e);
+        }
+    }
+
+    private static final class PendingItem {
+        private final ItemKey key;
+        private final WriteRequest writeRequest;
+        /** How many times the item has been retried. */
+        private final int attempts;
+        /** When the item was first submitted, as given by System.nanoTime(). */
+        private final long submittedNanos;
+
+        private PendingItem(ItemKey key, WriteRequest writeRequest, int attempts, long submittedNanos) {
+            this.key = key;
+            this.writeRequest = writeRequest;
+            this.attempts = attempts;
+            this.submittedNanos = submittedNanos;
+        }
+    }
+
+    /**
+     * Identifies an item by its table and primary key, or by the write
+     * request itself when matching unprocessed items.
+     */
+    private static final class ItemKey {
+        private final String tableName;
+        private final Object key;
+
+        private ItemKey(String tableName, Object key) {
+            this.tableName = tableName;
+            this.key = key;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ItemKey)) {
+                return false;
+            }
+            ItemKey other = (ItemKey) obj;
+            return tableName.equals(other.tableName) && key.equals(other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * tableName.hashCode() + key.hashCode();
+        }
+    }
+
+    /**
+     * Write metrics of a table, updated as requests complete.
+     */
+    public static final class TableMetrics {
+        private final long startTimeNanos = System.nanoTime();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong itemsWritten = new AtomicLong();
+        private final AtomicLong itemsUnprocessed = new AtomicLong();
+        private final AtomicLong itemsFailed = new AtomicLong();
+        private final AtomicLong throttledItems = new AtomicLong();
+
+        private TableMetrics() {
+        }
+
+        /**
+         * Returns the number of batch write requests which completed, each
+         * request being counted once per table it wrote to.
+         */
+        public long getRequests() {
+            return requests.get();
+        }
+
+        /** Returns the number of items written. */
+        public long getItemsWritten() {
+            return itemsWritten.get();
+        }
+
+        /** Returns the number of times items were returned as unprocessed. */
+        public long getItemsUnprocessed() {
+            return itemsUnprocessed.get();
+        }
+
+        /** Returns the number of items which could not be written. */
+        public long getItemsFailed() {
+            return itemsFailed.get();
+        }
+
+        /**
+         * Returns the number of items whose request was rejected with a
+         * throttling exception.
+         */
+        public long getThrottledItems() {
+            return throttledItems.get();
+        }
+
+        /**
+         * Returns the average number of items written per second since the
+         * table was first written to.
+         */
+        public double getItemsWrittenPerSecond() {
+            long elapsedNanos = System.nanoTime() - startTimeNanos;
+            return elapsedNanos <= 0 ? 0 : itemsWritten.get() * 1e9 / elapsedNanos;
+        }
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadCount = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r);
+            thread.setName("dynamodb-batch-writer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -1090,45 +1090,13 @@ public class DynamoDBMapper extends AbstractDynamoDBMapper {
 
         List<ValueUpdate> inMemoryUpdates = new LinkedList<ValueUpdate>();
         for ( Object toWrite : objectsToWrite ) {
-            Class<Object> clazz = (Class<Object>)toWrite.getClass();
-            String tableName = getTableName(clazz, toWrite, config);
-
-            Map<String, AttributeValue> attributeValues = new HashMap<String, AttributeValue>();
-
-            // Look at every getter and construct a value object for it
-            final DynamoDBMapperTableModel<Object> model = getTableModel(clazz, config);
-            for ( final DynamoDBMapperFieldModel<Object,Object> field : model.fields() ) {
-                AttributeValue currentValue = null;
-                if ( canGenerate(model, toWrite, config.getSaveBehavior(), field) && !field.versioned() ) {
-                    currentValue = field.convert(field.generate(field.get(toWrite)));
-                    inMemoryUpdates.add(new ValueUpdate(field, currentValue, toWrite));
-                } else {
-                    currentValue = field.convert(field.get(toWrite));
-                }
-                if ( currentValue != null ) {
-                    attributeValues.put(field.name(), currentValue);
-                }
-            }
-
-            if ( !requestItems.containsKey(tableName) ) {
-                requestItems.put(tableName, new LinkedList<WriteRequest>());
-            }
-
-            AttributeTransformer.Parameters<?> parameters =
-                toParameters(attributeValues, clazz, tableName, config);
-
-            requestItems.add(tableName, new WriteRequest(new PutRequest(transformAttributes(parameters))));
+            String tableName = getTableName(toWrite.getClass(), toWrite, config);
+            requestItems.add(tableName, toPutWriteRequest(toWrite, tableName, config, inMemoryUpdates));
         }
 
         for ( Object toDelete : objectsToDelete ) {
-            Class<Object> clazz = (Class<Object>)toDelete.getClass();
-
-            String tableName = getTableName(clazz, toDelete, config);
-            final DynamoDBMapperTableModel<Object> model = getTableModel(clazz, config);
-
-            Map<String, AttributeValue> key = model.convertKey(toDelete);
-
-            requestItems.add(tableName, new WriteRequest(new DeleteRequest(key)));
+            String tableName = getTableName(toDelete.getClass(), toDelete, config);
+            requestItems.add(tableName, toDeleteWriteRequest(toDelete, config));
         }
 
         // Break into chunks of 25 items and make service requests to DynamoDB
@@ -1153,6 +1121,68 @@ public class DynamoDBMapper extends AbstractDynamoDBMapper {
         return totalFailedBatches;
     }
 
+    /**
+     * Converts the object into a put request for the given table. Values
+     * generated for the object are added to inMemoryUpdates rather than
+     * being set on the object.
+     */
+    private WriteRequest toPutWriteRequest(Object toWrite, String tableName,
+            DynamoDBMapperConfig config, List<ValueUpdate> inMemoryUpdates) {
+        Class<Object> clazz = (Class<Object>)toWrite.getClass();
+
+        Map<String, AttributeValue> attributeValues = new HashMap<String, AttributeValue>();
+
+        // Look at every getter and construct a value object for it
+        final DynamoDBMapperTableModel<Object> model = getTableModel(clazz, config);
+        for ( final DynamoDBMapperFieldModel<Object,Object> field : model.fields() ) {
+            AttributeValue currentValue = null;
+            if ( canGenerate(model, toWrite, config.getSaveBehavior(), field) && !field.versioned() ) {
+                currentValue = field.convert(field.generate(field.get(toWrite)));
+                inMemoryUpdates.add(new ValueUpdate(field, currentValue, toWrite));
+            } else {
+                currentValue = field.convert(field.get(toWrite));
+            }
+            if ( currentValue != null ) {
+                attributeValues.put(field.name(), currentValue);
+            }
+        }
+
+        AttributeTransformer.Parameters<?> parameters =
+            toParameters(attributeValues, clazz, tableName, config);
+
+        return new WriteRequest(new PutRequest(transformAttributes(parameters)));
+    }
+
+    /**
+     * Converts the object into a put request for the given table. Values
+     * generated for the object are set on the object straight away.
+     */
+    WriteRequest toPutWriteRequest(Object toWrite, String tableName, DynamoDBMapperConfig config) {
+        List<ValueUpdate> inMemoryUpdates = new LinkedList<ValueUpdate>();
+        WriteRequest writeRequest = toPutWriteRequest(toWrite, tableName, config, inMemoryUpdates);
+        for ( ValueUpdate update : inMemoryUpdates ) {
+            update.apply();
+        }
+        return writeRequest;
+    }
+
+    /**
+     * Converts the object into a delete request for its key.
+     */
+    WriteRequest toDeleteWriteRequest(Object toDelete, DynamoDBMapperConfig config) {
+        Class<Object> clazz = (Class<Object>)toDelete.getClass();
+        final DynamoDBMapperTableModel<Object> model = getTableModel(clazz, config);
+        return new WriteRequest(new DeleteRequest(model.convertKey(toDelete)));
+    }
+
+    /**
+     * Converts the primary key of the object.
+     */
+    Map<String, AttributeValue> toKey(Object object, DynamoDBMapperConfig config) {
+        Class<Object> clazz = (Class<Object>)object.getClass();
+        return getTableModel(clazz, config).convertKey(object);
+    }
+
     /**
      * Process one batch of requests(max 25). It will divide the batch if
      * receives request too large exception(the total size of the request is beyond 1M).
@@ -2165,6 +2195,54 @@ public class DynamoDBMapper extends AbstractDynamoDBMapper {
         return deleteTableRequest;
     }
 
+    /**
+     * Creates a new batch writer using this mapper to convert the objects to
+     * write, with the mapper's configuration.
+     * @param maxBatchesInFlight The maximum number of batch write requests
+     *        sent concurrently.
+     * @return The batch writer; it must be closed once all the objects have
+     *         been submitted.
+     * @see DynamoDBBatchWriter
+     */
+    public DynamoDBBatchWriter newBatchWriter(int maxBatchesInFlight) {
+        return newBatchWriter(maxBatchesInFlight, DynamoDBBatchWriter.DEFAULT_MAX_LINGER_MILLIS);
+    }
+
+    /**
+     * Creates a new batch writer using this mapper to convert the objects to
+     * write, with the mapper's configuration.
+     * @param maxBatchesInFlight The maximum number of batch write requests
+     *        sent concurrently.
+     * @param maxLingerMillis The maximum time an item waits for a request to
+     *        be filled before it is sent in a partial request; 0 to send
+     *        partial requests straight away.
+     * @return The batch writer; it must be closed once all the objects have
+     *         been submitted.
+     * @see DynamoDBBatchWriter
+     */
+    public DynamoDBBatchWriter newBatchWriter(int maxBatchesInFlight, long maxLingerMillis) {
+        return new DynamoDBBatchWriter(this.db, this, mergeConfig(null), maxBatchesInFlight, maxLingerMillis);
+    }
+
+    /**
+     * Creates a new parallel scanner using this mapper to convert the scanned
+     * items, with the mapper's configuration.
+     * @param <T> The object type to scan.
+     * @param clazz The object class.
+     * @param scanExpression The scan expression; its segment, total segments
+     *        and exclusive start key are ignored.
+     * @param totalSegments The number of segments to divide the table into.
+     * @return The parallel scanner; it must be closed unless all the objects
+     *         have been consumed.
+     * @see DynamoDBParallelScanner
+     */
+    public <T> DynamoDBParallelScanner<T> newParallelScanner(Class<T> clazz,
+            DynamoDBScanExpression scanExpression, int totalSegments) {
+        DynamoDBMapperConfig config = mergeConfig(null);
+        return new DynamoDBParallelScanner<T>(this.db, this, clazz, config,
+                createParallelScanRequestsFromExpression(clazz, scanExpression, totalSegments, config));
+    }
+
     /**
      * Creates a new table mapper using this mapper to perform operations.
      * @param <T> The object type which this mapper operates.
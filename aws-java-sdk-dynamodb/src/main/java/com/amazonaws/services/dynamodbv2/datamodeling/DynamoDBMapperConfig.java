@@ -55,6 +55,7 @@ public class DynamoDBMapperConfig {
      * @see DefaultBatchLoadRetryStrategy#INSTANCE
      * @see DynamoDBTypeConverterFactory#standard
      * @see ConversionSchemas#DEFAULT
+     * @see AccessorStrategy#REFLECTION
      */
     public static final DynamoDBMapperConfig DEFAULT = builder()
         .withSaveBehavior(SaveBehavior.UPDATE)
@@ -65,6 +66,7 @@ public class DynamoDBMapperConfig {
         .withBatchLoadRetryStrategy(DefaultBatchLoadRetryStrategy.INSTANCE)
         .withTypeConverterFactory(DynamoDBTypeConverterFactory.standard())
         .withConversionSchema(ConversionSchemas.DEFAULT)
+        .withAccessorStrategy(AccessorStrategy.REFLECTION)
         .build();
 
     /**
@@ -90,6 +92,7 @@ public class DynamoDBMapperConfig {
         private BatchWriteRetryStrategy batchWriteRetryStrategy;
         private BatchLoadRetryStrategy batchLoadRetryStrategy;
         private DynamoDBTypeConverterFactory typeConverterFactory;
+        private AccessorStrategy accessorStrategy;
 
         /**
          * Creates a new builder initialized with the {@link #DEFAULT} values.
@@ -109,6 +112,7 @@ public class DynamoDBMapperConfig {
                 conversionSchema = DEFAULT.getConversionSchema();
                 batchWriteRetryStrategy = DEFAULT.getBatchWriteRetryStrategy();
                 batchLoadRetryStrategy = DEFAULT.getBatchLoadRetryStrategy();
+                accessorStrategy = DEFAULT.getAccessorStrategy();
             }
         }
 
@@ -128,6 +132,7 @@ public class DynamoDBMapperConfig {
             if (o.batchWriteRetryStrategy != null) batchWriteRetryStrategy = o.batchWriteRetryStrategy;
             if (o.batchLoadRetryStrategy != null) batchLoadRetryStrategy = o.batchLoadRetryStrategy;
             if (o.typeConverterFactory != null) typeConverterFactory = o.typeConverterFactory;
+            if (o.accessorStrategy != null) accessorStrategy = o.accessorStrategy;
             return this;
         }
 
@@ -413,6 +418,30 @@ public class DynamoDBMapperConfig {
             return this;
         }
 
+        /**
+         * @return the current accessor strategy
+         */
+        public final AccessorStrategy getAccessorStrategy() {
+            return accessorStrategy;
+        }
+
+        /**
+         * @param value the new accessor strategy
+         */
+        public final void setAccessorStrategy(AccessorStrategy value) {
+            this.accessorStrategy = value;
+        }
+
+        /**
+         * @param value the new accessor strategy
+         * @return this builder
+         * @see AccessorStrategy
+         */
+        public final Builder withAccessorStrategy(AccessorStrategy value) {
+            setAccessorStrategy(value);
+            return this;
+        }
+
         /**
          * Builds a new {@code DynamoDBMapperConfig} object.
          *
@@ -491,6 +520,34 @@ public class DynamoDBMapperConfig {
         }
     };
 
+    /**
+     * Enumeration of the ways the mapper reads and writes the properties of
+     * mapped objects.
+     * <p>
+     * By default, the mapper uses REFLECTION.
+     */
+    public static enum AccessorStrategy {
+        /**
+         * Properties are read and written by invoking their getter and
+         * setter through reflection.
+         */
+        REFLECTION,
+
+        /**
+         * A small accessor class is generated once for each property, which
+         * calls its getter and setter directly; this avoids the cost of
+         * reflective invocation when loading and saving many items. Properties
+         * whose getter, setter or declaring class is not public fall back to
+         * reflection.
+         */
+        GENERATED;
+
+        private final DynamoDBMapperConfig config = builder().withAccessorStrategy(this).build();
+        public final DynamoDBMapperConfig config() {
+            return this.config;
+        }
+    }
+
     /**
      * Enumeration of pagination loading strategy.
      */
@@ -885,6 +942,7 @@ public class DynamoDBMapperConfig {
     private final BatchWriteRetryStrategy batchWriteRetryStrategy;
     private final BatchLoadRetryStrategy batchLoadRetryStrategy;
     private final DynamoDBTypeConverterFactory typeConverterFactory;
+    private final AccessorStrategy accessorStrategy;
 
     /**
      * Internal constructor; builds from the builder.
@@ -901,6 +959,7 @@ public class DynamoDBMapperConfig {
         this.batchWriteRetryStrategy = builder.batchWriteRetryStrategy;
         this.batchLoadRetryStrategy = builder.batchLoadRetryStrategy;
         this.typeConverterFactory = builder.typeConverterFactory;
+        this.accessorStrategy = builder.accessorStrategy;
     }
 
     /**
@@ -1012,6 +1071,7 @@ public class DynamoDBMapperConfig {
         this.batchWriteRetryStrategy = batchWriteRetryStrategy;
         this.batchLoadRetryStrategy = batchLoadRetryStrategy;
         this.typeConverterFactory = null;
+        this.accessorStrategy = null;
     }
 
     /**
@@ -1210,4 +1270,11 @@ public class DynamoDBMapperConfig {
         return typeConverterFactory;
     }
 
+    /**
+     * @return the accessor strategy for this config object
+     */
+    public final AccessorStrategy getAccessorStrategy() {
+        return accessorStrategy;
+    }
+
 }
@@ -0,0 +1,380 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.datamodeling;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+
+/**
+ * A parallel scan which streams the scanned objects as they arrive, with each
+ * segment paging through the table independently of the others.
+ *
+ * <pre class="brush: java">
+ * DynamoDBParallelScanner&lt;TestClass&gt; scanner = dbMapper
+ *     .newParallelScanner(TestClass.class, new DynamoDBScanExpression(), 8)
+ *     .withReadCapacityUnitsPerSecond(100);
+ * try {
+ *     while (scanner.hasNext()) {
+ *         export(scanner.next());
+ *     }
+ * } finally {
+ *     scanner.close();
+ * }
+ * </pre>
+ *
+ * <p>Unlike {@link PaginatedParallelScanList}, which waits for a page of every
+ * segment before requesting the next ones, a segment requests its next page as
+ * soon as the previous one has been converted and queued, so a slow segment
+ * never holds back the others. Pages are requested by a fixed number of
+ * threads, and queued in a bounded queue; once the queue is full, the threads
+ * wait for the consumer to catch up.</p>
+ *
+ * <p>The scan can be limited to a number of read capacity units consumed per
+ * second across all segments, so that scanning a whole table doesn't starve
+ * other traffic. The capacity consumed by each page is read from the
+ * <code>ConsumedCapacity</code> returned by DynamoDB, which is requested
+ * automatically, and the next page of any segment is delayed until the
+ * capacity consumed so far fits in the limit.</p>
+ *
+ * <p>The scan starts on the first call to {@link #hasNext()} or
+ * {@link #next()}, and its threads are released once all the objects have
+ * been consumed, the scan has failed, or it is closed. If a segment fails,
+ * the exception is thrown to the consumer and the scan is stopped.</p>
+ *
+ * <p>Only one thread may consume the objects.</p>
+ *
+ * @see DynamoDBMapper#newParallelScanner(Class, DynamoDBScanExpression, int)
+ */
+public class DynamoDBParallelScanner<T> implements Iterator<T>, Closeable {
+
+    private final AmazonDynamoDB db;
+    private final DynamoDBMapper mapper;
+    private final Class<T> clazz;
+    private final DynamoDBMapperConfig config;
+    private final List<ScanRequest> segmentScanRequests;
+
+    private int maxConcurrency;
+    private int maxBufferedPages;
+    private double readCapacityUnitsPerSecond;
+
+    private ExecutorService executor;
+    private BlockingQueue<Page<T>> pages;
+    private CapacityRateLimiter rateLimiter;
+    private final AtomicInteger segmentsRemaining = new AtomicInteger();
+    private volatile boolean closed;
+
+    /** The objects of the page being consumed. */
+    private Iterator<T> current = Collections.<T>emptyList().iterator();
+    private boolean finished;
+
+    DynamoDBParallelScanner(AmazonDynamoDB db, DynamoDBMapper mapper, Class<T> clazz,
+            DynamoDBMapperConfig config, List<ScanRequest> segmentScanRequests) {
+        this.db = db;
+        this.mapper = mapper;
+        this.clazz = clazz;
+        this.config = config;
+        this.segmentScanRequests = segmentScanRequests;
+        this.maxConcurrency = segmentScanRequests.size();
+    }
+
+    /**
+     * Sets the maximum number of pages requested concurrently, which is also
+     * the number of threads of the scan. Defaults to the number of segments.
+     * @return This scanner.
+     */
+    public DynamoDBParallelScanner<T> withMaxConcurrency(int maxConcurrency) {
+        checkNotStarted();
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of converted pages waiting to be consumed.
+     * Defaults to twice the maximum concurrency.
+     * @return This scanner.
+     */
+    public DynamoDBParallelScanner<T> withMaxBufferedPages(int maxBufferedPages) {
+        checkNotStarted();
+        if (maxBufferedPages < 1) {
+            throw new IllegalArgumentException("maxBufferedPages must be at least 1");
+        }
+        this.maxBufferedPages = maxBufferedPages;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of read capacity units consumed per second by
+     * the scan, across all segments; zero, the default, for no limit.
+     * @return This scanner.
+     */
+    public DynamoDBParallelScanner<T> withReadCapacityUnitsPerSecond(
+            double readCapacityUnitsPerSecond) {
+        checkNotStarted();
+        if (readCapacityUnitsPerSecond < 0) {
+            throw new IllegalArgumentException("readCapacityUnitsPerSecond must not be negative");
+        }
+        this.readCapacityUnitsPerSecond = readCapacityUnitsPerSecond;
+        return this;
+    }
+
+    /**
+     * Returns whether more objects are to be scanned, waiting for the next
+     * page if necessary.
+     * @throws AmazonClientException If the scan of a segment failed.
+     */
+    @Override
+    public boolean hasNext() {
+        start();
+        while (!current.hasNext()) {
+            if (finished) {
+                return false;
+            }
+            Page<T> page = takePage();
+            if (page.failure != null) {
+                finished = true;
+                close();
+                throw page.failure;
+            }
+            if (page == Page.END) {
+                finished = true;
+                executor.shutdown();
+                return false;
+            }
+            current = page.items.iterator();
+        }
+        return true;
+    }
+
+    /**
+     * Returns the next scanned object, waiting for the next page if
+     * necessary.
+     * @throws AmazonClientException If the scan of a segment failed.
+     */
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("Scanned objects can't be removed");
+    }
+
+    /**
+     * Stops the scan and releases its threads. Objects already returned by
+     * {@link #next()} are unaffected.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        finished = true;
+        if (executor != null) {
+            executor.shutdownNow();
+            // Unblock any thread waiting to queue a page
+            pages.clear();
+        }
+    }
+
+    /**
+     * Returns the read capacity units consumed by the scan so far, as reported
+     * by DynamoDB.
+     */
+    public double getConsumedCapacityUnits() {
+        return rateLimiter == null ? 0 : rateLimiter.getConsumedUnits();
+    }
+
+    private void checkNotStarted() {
+        if (executor != null) {
+            throw new IllegalStateException("The scan has already started");
+        }
+    }
+
+    private void start() {
+        if (executor != null || closed) {
+            return;
+        }
+        int threads = Math.min(maxConcurrency, segmentScanRequests.size());
+        pages = new ArrayBlockingQueue<Page<T>>(
+                maxBufferedPages > 0 ? maxBufferedPages : 2 * threads);
+        rateLimiter = new CapacityRateLimiter(readCapacityUnitsPerSecond);
+        segmentsRemaining.set(segmentScanRequests.size());
+        executor = Executors.newFixedThreadPool(threads, new DaemonThreadFactory());
+        for (ScanRequest segmentScanRequest : segmentScanRequests) {
+            // Each segment pages through its own copy, leaving the given requests unchanged
+            ScanRequest request = segmentScanRequest.clone();
+            if (request.getReturnConsumedCapacity() == null
+                    || ReturnConsumedCapacity.NONE.toString().equals(request.getReturnConsumedCapacity())) {
+                request.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+            }
+            executor.execute(new SegmentScanTask(request));
+        }
+    }
+
+    private Page<T> takePage() {
+        try {
+            return pages.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new AmazonClientException("Parallel scan interrupted by other thread.", e);
+        }
+    }
+
+    /**
+     * Scans the next page of a segment, and submits itself again for the
+     * following page.
+     */
+    private final class SegmentScanTask implements Runnable {
+        private final ScanRequest request;
+
+        private SegmentScanTask(ScanRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public void run() {
+            if (closed) {
+                return;
+            }
+            try {
+                rateLimiter.acquire();
+                ScanResult result = db.scan(DynamoDBMapper.applyUserAgent(request));
+                rateLimiter.consume(result.getConsumedCapacity());
+                if (!result.getItems().isEmpty()) {
+                    List<T> items = mapper.marshallIntoObjects(mapper.toParameters(
+                            result.getItems(), clazz, request.getTableName(), config));
+                    pages.put(new Page<T>(items, null));
+                }
+                if (result.getLastEvaluatedKey() == null) {
+                    if (segmentsRemaining.decrementAndGet() == 0) {
+                        @SuppressWarnings("unchecked")
+                        Page<T> end = (Page<T>) Page.END;
+                        pages.put(end);
+                    }
+                } else {
+                    request.setExclusiveStartKey(result.getLastEvaluatedKey());
+                    executor.execute(this);
+                }
+            } catch (InterruptedException e) {
+                // The scan was closed
+            } catch (RejectedExecutionException e) {
+                // The scan was closed
+            } catch (Throwable t) {
+                // Never leave the consumer waiting for a page that won't come
+                AmazonClientException failure = t instanceof AmazonClientException
+                        ? (AmazonClientException) t
+                        : new AmazonClientException("Internal error during the scan on segment #"
+                                + request.getSegment() + ".", t);
+                try {
+                    pages.put(new Page<T>(null, failure));
+                } catch (InterruptedException ie) {
+                    // The scan was closed
+                }
+            }
+        }
+    }
+
+    /**
+     * The converted objects of a page, or the failure of a segment.
+     */
+    private static final class Page<T> {
+        private static final Page<Object> END = new Page<Object>(null, null);
+
+        private final List<T> items;
+        private final AmazonClientException failure;
+
+        private Page(List<T> items, AmazonClientException failure) {
+            this.items = items;
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * Limits the read capacity consumed per second. As the capacity consumed
+     * by a page is only known once scanned, each page is charged after the
+     * fact, and pages are requested only once the capacity charged so far
+     * has been paid off.
+     */
+    private static final class CapacityRateLimiter {
+        private final double nanosPerUnit;
+        /** When the capacity charged so far is paid off. Guarded by this. */
+        private long paidOffNanos = System.nanoTime();
+        /** Guarded by this. */
+        private double consumedUnits;
+
+        private CapacityRateLimiter(double unitsPerSecond) {
+            this.nanosPerUnit = unitsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / unitsPerSecond : 0;
+        }
+
+        private void acquire() throws InterruptedException {
+            long waitNanos;
+            synchronized (this) {
+                waitNanos = paidOffNanos - System.nanoTime();
+            }
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+
+        private synchronized void consume(ConsumedCapacity consumed) {
+            if (consumed == null || consumed.getCapacityUnits() == null) {
+                return;
+            }
+            double units = consumed.getCapacityUnits();
+            consumedUnits += units;
+            paidOffNanos = Math.max(paidOffNanos, System.nanoTime()) + (long) (units * nanosPerUnit);
+        }
+
+        private synchronized double getConsumedUnits() {
+            return consumedUnits;
+        }
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadCount = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r);
+            thread.setName("dynamodb-parallel-scan-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,409 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.datamodeling;
+
+import com.amazonaws.annotation.SdkInternalApi;
+import com.amazonaws.services.dynamodbv2.datamodeling.internal.BeanPropertyAccessor;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates {@link BeanPropertyAccessor} classes which call the getter and
+ * setter of a property directly, instead of through reflection.
+ * <p>
+ * The class files are written by hand; they only contain straight-line code,
+ * so no stack map frames are needed. Each class is defined by its own class
+ * loader, a child of the class loader of the bean, so it can be unloaded along
+ * with the bean class.
+ */
+@SdkInternalApi
+final class StandardBeanAccessors {
+
+    private static final Log LOG = LogFactory.getLog(StandardBeanAccessors.class);
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final String ACCESSOR = BeanPropertyAccessor.class.getName().replace('.', '/');
+    private static final String GENERATED_PREFIX = BeanPropertyAccessor.class.getName() + "$Generated";
+
+    private StandardBeanAccessors() {
+    }
+
+    /**
+     * Returns a new accessor calling the getter and setter directly, or null
+     * if they can't be called from a generated class, for instance because
+     * they are declared by a class which is not public.
+     */
+    static BeanPropertyAccessor generate(Method getter, Method setter) {
+        if (!canCall(getter) || !canCall(setter) || !isAccessible(setter.getParameterTypes()[0])) {
+            return null;
+        }
+        final String name = GENERATED_PREFIX + COUNTER.incrementAndGet();
+        try {
+            final byte[] bytes = new AccessorWriter(name.replace('.', '/'), getter, setter).toByteArray();
+            final ClassLoader parent = getter.getDeclaringClass().getClassLoader();
+            final Class<?> clazz = new AccessorClassLoader(parent).define(name, bytes);
+            return (BeanPropertyAccessor)clazz.newInstance();
+        } catch (final Exception e) {
+            LOG.debug("Unable to generate an accessor for " + getter + ", falling back to reflection", e);
+        } catch (final LinkageError e) {
+            LOG.debug("Unable to generate an accessor for " + getter + ", falling back to reflection", e);
+        }
+        return null;
+    }
+
+    private static boolean canCall(Method method) {
+        return method != null
+            && Modifier.isPublic(method.getModifiers())
+            && !Modifier.isStatic(method.getModifiers())
+            && isAccessible(method.getDeclaringClass());
+    }
+
+    /**
+     * Returns true if the class can be referenced from any other package.
+     */
+    private static boolean isAccessible(Class<?> clazz) {
+        while (clazz.isArray()) {
+            clazz = clazz.getComponentType();
+        }
+        if (clazz.isPrimitive()) {
+            return true;
+        }
+        for (Class<?> c = clazz; c != null; c = c.getEnclosingClass()) {
+            if (!Modifier.isPublic(c.getModifiers())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Class loader defining a single generated accessor; it resolves
+     * {@link BeanPropertyAccessor} to the class loaded by the SDK and every
+     * other class through the class loader of the bean.
+     */
+    private static final class AccessorClassLoader extends ClassLoader {
+        private AccessorClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (BeanPropertyAccessor.class.getName().equals(name)) {
+                return BeanPropertyAccessor.class;
+            }
+            return super.loadClass(name, resolve);
+        }
+
+        private Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    /**
+     * Writes the class file of an accessor, equivalent to,
+     * <pre class="brush: java">
+     * public final class Generated extends BeanPropertyAccessor {
+     *     public Object get(Object object) {
+     *         return Integer.valueOf(((Bean)object).getValue());
+     *     }
+     *     public void set(Object object, Object value) {
+     *         ((Bean)object).setValue(((Integer)value).intValue());
+     *     }
+     * }
+     * </pre>
+     */
+    private static final class AccessorWriter {
+        private static final int ACC_PUBLIC = 0x0001;
+        private static final int ACC_FINAL = 0x0010;
+        private static final int ACC_SUPER = 0x0020;
+
+        private static final int ALOAD_0 = 0x2a;
+        private static final int ALOAD_1 = 0x2b;
+        private static final int ALOAD_2 = 0x2c;
+        private static final int ARETURN = 0xb0;
+        private static final int RETURN = 0xb1;
+        private static final int INVOKEVIRTUAL = 0xb6;
+        private static final int INVOKESPECIAL = 0xb7;
+        private static final int INVOKESTATIC = 0xb8;
+        private static final int INVOKEINTERFACE = 0xb9;
+        private static final int CHECKCAST = 0xc0;
+
+        private final ConstantPool pool = new ConstantPool();
+        private final String name;
+        private final Method getter;
+        private final Method setter;
+
+        private AccessorWriter(String name, Method getter, Method setter) {
+            this.name = name;
+            this.getter = getter;
+            this.setter = setter;
+        }
+
+        private byte[] toByteArray() throws IOException {
+            // The code is written first so that the constant pool is complete
+            final int thisClass = pool.classRef(name);
+            final int superClass = pool.classRef(ACCESSOR);
+            final byte[] init = constructor();
+            final byte[] get = getMethod();
+            final byte[] set = setMethod();
+
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+            final DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);  // minor version
+            out.writeShort(50); // Java 6
+            pool.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); // interfaces
+            out.writeShort(0); // fields
+            out.writeShort(3); // methods
+            out.write(init);
+            out.write(get);
+            out.write(set);
+            out.writeShort(0); // attributes
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        private byte[] constructor() throws IOException {
+            final Code code = new Code();
+            code.op(ALOAD_0);
+            code.op(INVOKESPECIAL).u2(pool.methodRef(ACCESSOR, "<init>", "()V", false));
+            code.op(RETURN);
+            return method("<init>", "()V", code, 1, 1);
+        }
+
+        private byte[] getMethod() throws IOException {
+            final Class<?> owner = getter.getDeclaringClass();
+            final Class<?> type = getter.getReturnType();
+            final Code code = new Code();
+            code.op(ALOAD_1);
+            code.op(CHECKCAST).u2(pool.classRef(internalNameOf(owner)));
+            invoke(code, getter);
+            if (type.isPrimitive()) {
+                final String wrapper = internalNameOf(wrapperOf(type));
+                code.op(INVOKESTATIC).u2(pool.methodRef(wrapper, "valueOf",
+                    "(" + descriptorOf(type) + ")L" + wrapper + ";", false));
+            }
+            code.op(ARETURN);
+            return method("get", "(L" + OBJECT + ";)L" + OBJECT + ";", code, 2, 2);
+        }
+
+        private byte[] setMethod() throws IOException {
+            final Class<?> owner = setter.getDeclaringClass();
+            final Class<?> type = setter.getParameterTypes()[0];
+            final Code code = new Code();
+            code.op(ALOAD_1);
+            code.op(CHECKCAST).u2(pool.classRef(internalNameOf(owner)));
+            code.op(ALOAD_2);
+            if (type.isPrimitive()) {
+                final String wrapper = internalNameOf(wrapperOf(type));
+                code.op(CHECKCAST).u2(pool.classRef(wrapper));
+                code.op(INVOKEVIRTUAL).u2(pool.methodRef(wrapper, type.getName() + "Value",
+                    "()" + descriptorOf(type), false));
+            } else if (type != Object.class) {
+                code.op(CHECKCAST).u2(pool.classRef(internalNameOf(type)));
+            }
+            invoke(code, setter);
+            code.op(RETURN);
+            return method("set", "(L" + OBJECT + ";L" + OBJECT + ";)V", code, 3, 3);
+        }
+
+        private void invoke(Code code, Method method) {
+            final Class<?> owner = method.getDeclaringClass();
+            final String descriptor = descriptorOf(method);
+            if (owner.isInterface()) {
+                int slots = 1;
+                for (final Class<?> param : method.getParameterTypes()) {
+                    slots += (param == long.class || param == double.class) ? 2 : 1;
+                }
+                code.op(INVOKEINTERFACE).u2(pool.methodRef(internalNameOf(owner), method.getName(), descriptor, true));
+                code.op(slots).op(0);
+            } else {
+                code.op(INVOKEVIRTUAL).u2(pool.methodRef(internalNameOf(owner), method.getName(), descriptor, false));
+            }
+        }
+
+        private byte[] method(String methodName, String descriptor, Code code, int maxStack, int maxLocals)
+                throws IOException {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream out = new DataOutputStream(bytes);
+            out.writeShort(ACC_PUBLIC);
+            out.writeShort(pool.utf8(methodName));
+            out.writeShort(pool.utf8(descriptor));
+            out.writeShort(1); // attributes
+            out.writeShort(pool.utf8("Code"));
+            out.writeInt(2 + 2 + 4 + code.size() + 2 + 2);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(code.size());
+            code.writeTo(out);
+            out.writeShort(0); // exception table
+            out.writeShort(0); // attributes
+            out.flush();
+            return bytes.toByteArray();
+        }
+    }
+
+    /**
+     * The bytecode of a method.
+     */
+    private static final class Code extends ByteArrayOutputStream {
+        private Code op(int opcode) {
+            write(opcode);
+            return this;
+        }
+
+        private Code u2(int value) {
+            write(value >>> 8);
+            write(value);
+            return this;
+        }
+    }
+
+    /**
+     * The constant pool of a class file; each constant is added once.
+     */
+    private static final class ConstantPool {
+        private static final int UTF8 = 1;
+        private static final int CLASS = 7;
+        private static final int METHOD_REF = 10;
+        private static final int INTERFACE_METHOD_REF = 11;
+        private static final int NAME_AND_TYPE = 12;
+
+        private final Map<String,Integer> indexes = new HashMap<String,Integer>();
+        private final List<byte[]> entries = new ArrayList<byte[]>();
+
+        private int utf8(String value) throws IOException {
+            final String key = UTF8 + ":" + value;
+            Integer index = indexes.get(key);
+            if (index == null) {
+                final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                final DataOutputStream out = new DataOutputStream(bytes);
+                out.writeByte(UTF8);
+                out.writeUTF(value);
+                index = add(key, bytes.toByteArray());
+            }
+            return index;
+        }
+
+        private int classRef(String internalName) {
+            final String key = CLASS + ":" + internalName;
+            Integer index = indexes.get(key);
+            if (index == null) {
+                index = add(key, entry(CLASS, utf8Unchecked(internalName), -1));
+            }
+            return index;
+        }
+
+        private int methodRef(String owner, String methodName, String descriptor, boolean isInterface) {
+            final int tag = isInterface ? INTERFACE_METHOD_REF : METHOD_REF;
+            final String key = tag + ":" + owner + "." + methodName + descriptor;
+            Integer index = indexes.get(key);
+            if (index == null) {
+                final String natKey = NAME_AND_TYPE + ":" + methodName + descriptor;
+                Integer nat = indexes.get(natKey);
+                if (nat == null) {
+                    nat = add(natKey, entry(NAME_AND_TYPE, utf8Unchecked(methodName), utf8Unchecked(descriptor)));
+                }
+                index = add(key, entry(tag, classRef(owner), nat));
+            }
+            return index;
+        }
+
+        private int utf8Unchecked(String value) {
+            try {
+                return utf8(value);
+            } catch (final IOException e) { // should never occur
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static byte[] entry(int tag, int first, int second) {
+            if (second < 0) {
+                return new byte[] {(byte)tag, (byte)(first >>> 8), (byte)first};
+            }
+            return new byte[] {(byte)tag, (byte)(first >>> 8), (byte)first, (byte)(second >>> 8), (byte)second};
+        }
+
+        private int add(String key, byte[] entry) {
+            entries.add(entry);
+            final int index = entries.size(); // indexes start at 1
+            indexes.put(key, index);
+            return index;
+        }
+
+        private void writeTo(DataOutputStream out) throws IOException {
+            out.writeShort(entries.size() + 1);
+            for (final byte[] entry : entries) {
+                out.write(entry);
+            }
+        }
+    }
+
+    private static String internalNameOf(Class<?> clazz) {
+        return clazz.getName().replace('.', '/');
+    }
+
+    private static String descriptorOf(Method method) {
+        final StringBuilder descriptor = new StringBuilder("(");
+        for (final Class<?> param : method.getParameterTypes()) {
+            descriptor.append(descriptorOf(param));
+        }
+        return descriptor.append(')').append(descriptorOf(method.getReturnType())).toString();
+    }
+
+    private static String descriptorOf(Class<?> clazz) {
+        if (clazz == void.class) return "V";
+        if (clazz == boolean.class) return "Z";
+        if (clazz == byte.class) return "B";
+        if (clazz == char.class) return "C";
+        if (clazz == short.class) return "S";
+        if (clazz == int.class) return "I";
+        if (clazz == long.class) return "J";
+        if (clazz == float.class) return "F";
+        if (clazz == double.class) return "D";
+        if (clazz.isArray()) return internalNameOf(clazz);
+        return "L" + internalNameOf(clazz) + ";";
+    }
+
+    private static Class<?> wrapperOf(Class<?> primitive) {
+        if (primitive == boolean.class) return Boolean.class;
+        if (primitive == byte.class) return Byte.class;
+        if (primitive == char.class) return Character.class;
+        if (primitive == short.class) return Short.class;
+        if (primitive == int.class) return Integer.class;
+        if (primitive == long.class) return Long.class;
+        if (primitive == float.class) return Float.class;
+        return Double.class;
+    }
+
+}
@@ -15,10 +15,12 @@
 package com.amazonaws.services.dynamodbv2.datamodeling;
 
 import com.amazonaws.annotation.SdkInternalApi;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.AccessorStrategy;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperFieldModel.DynamoDBAttributeType;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperFieldModel.Reflect;
 import com.amazonaws.services.dynamodbv2.datamodeling.StandardAnnotationMaps.FieldMap;
 import com.amazonaws.services.dynamodbv2.datamodeling.StandardAnnotationMaps.TableMap;
+import com.amazonaws.services.dynamodbv2.datamodeling.internal.BeanPropertyAccessor;
 import com.amazonaws.util.StringUtils;
 
 import java.lang.reflect.Method;
@@ -87,6 +89,7 @@ final class StandardBeanProperties {
         private final DynamoDBMapperFieldModel.Properties<V> properties;
         private final ConvertibleType<V> type;
         private final Reflect<T,V> reflect;
+        private volatile Reflect<T,V> generated;
 
         private Bean(FieldMap<V> annotations, Reflect<T,V> reflect, Method getter) {
             this.properties = new DynamoDBMapperFieldModel.Properties.Immutable<V>(annotations);
@@ -105,6 +108,37 @@ final class StandardBeanProperties {
         final Reflect<T,V> reflect() {
             return this.reflect;
         }
+
+        /**
+         * Returns the get/set operations for the given strategy; generated
+         * accessors are only generated once per property.
+         */
+        final Reflect<T,V> reflect(AccessorStrategy strategy) {
+            if (strategy != AccessorStrategy.GENERATED) {
+                return this.reflect;
+            }
+            if (this.generated == null) {
+                this.generated = generatedOf(this.reflect);
+            }
+            return this.generated;
+        }
+    }
+
+    /**
+     * Returns equivalent get/set operations using generated accessors where
+     * possible, and reflection otherwise.
+     */
+    private static <T,V> Reflect<T,V> generatedOf(Reflect<T,V> reflect) {
+        if (reflect instanceof MethodReflect) {
+            final MethodReflect<T,V> method = (MethodReflect<T,V>)reflect;
+            final BeanPropertyAccessor accessor = StandardBeanAccessors.generate(method.getter, method.setter);
+            return accessor == null ? reflect : new GeneratedReflect<T,V>(method.getter, method.setter, accessor);
+        } else if (reflect instanceof DeclaringReflect) {
+            final DeclaringReflect<T,V> declaring = (DeclaringReflect<T,V>)reflect;
+            return new DeclaringReflect<T,V>(generatedOf(declaring.reflect),
+                generatedOf(declaring.declaring), declaring.targetType);
+        }
+        return reflect;
     }
 
     /**
@@ -146,6 +180,39 @@ final class StandardBeanProperties {
         }
     }
 
+    /**
+     * Get/set operations through a generated accessor.
+     */
+    static final class GeneratedReflect<T,V> implements Reflect<T,V> {
+        private final Method getter, setter;
+        private final BeanPropertyAccessor accessor;
+
+        private GeneratedReflect(Method getter, Method setter, BeanPropertyAccessor accessor) {
+            this.getter = getter;
+            this.setter = setter;
+            this.accessor = accessor;
+        }
+
+        @Override
+        public V get(T object) {
+            try {
+                return (V)accessor.get(object);
+            } catch (final Exception e) {
+                throw new DynamoDBMappingException("could not invoke " + getter + " on " + object.getClass(), e);
+            }
+        }
+
+        @Override
+        public void set(T object, V value) {
+            try {
+                accessor.set(object, value);
+            } catch (final Exception e) {
+                throw new DynamoDBMappingException("could not invoke " + setter + " on " + object.getClass() +
+                    " with value " + value + " of type " + (value == null ? null : value.getClass()), e);
+            }
+        }
+    }
+
     /**
      * Get/set reflection operations with a declaring property.
      */
@@ -155,7 +222,11 @@ final class StandardBeanProperties {
         private final Class<T> targetType;
 
         private DeclaringReflect(Method getter, Reflect<T,T> declaring, Class<T> targetType) {
-            this.reflect = new MethodReflect<T,V>(getter);
+            this(new MethodReflect<T,V>(getter), declaring, targetType);
+        }
+
+        private DeclaringReflect(Reflect<T,V> reflect, Reflect<T,T> declaring, Class<T> targetType) {
+            this.reflect = reflect;
             this.declaring = declaring;
             this.targetType = targetType;
         }
@@ -26,6 +26,7 @@ import static com.amazonaws.services.dynamodbv2.model.ScalarAttributeType.N;
 import static com.amazonaws.services.dynamodbv2.model.ScalarAttributeType.S;
 
 import com.amazonaws.annotation.SdkInternalApi;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.AccessorStrategy;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperFieldModel.DynamoDBAttributeType;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperFieldModel.Reflect;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperModelFactory.TableFactory;
@@ -65,24 +66,31 @@ final class StandardModelFactories {
     }
 
     /**
-     * {@link TableFactory} mapped by {@link ConversionSchema}.
+     * {@link TableFactory} mapped by {@link ConversionSchema}, for each
+     * {@link AccessorStrategy}.
      */
     private static final class StandardModelFactory implements DynamoDBMapperModelFactory {
         private final ConcurrentMap<ConversionSchema,TableFactory> cache;
+        private final ConcurrentMap<ConversionSchema,TableFactory> generatedCache;
         private final S3Link.Factory s3Links;
 
         private StandardModelFactory(S3Link.Factory s3Links) {
             this.cache = new ConcurrentHashMap<ConversionSchema,TableFactory>();
+            this.generatedCache = new ConcurrentHashMap<ConversionSchema,TableFactory>();
             this.s3Links = s3Links;
         }
 
         @Override
         public TableFactory getTableFactory(DynamoDBMapperConfig config) {
             final ConversionSchema schema = config.getConversionSchema();
+            final AccessorStrategy strategy = config.getAccessorStrategy() == AccessorStrategy.GENERATED
+                ? AccessorStrategy.GENERATED : AccessorStrategy.REFLECTION;
+            final ConcurrentMap<ConversionSchema,TableFactory> cache =
+                strategy == AccessorStrategy.GENERATED ? this.generatedCache : this.cache;
             if (!cache.containsKey(schema)) {
                 RuleFactory<Object> rules = rulesOf(config, s3Links, this);
                 rules = new ConversionSchemas.ItemConverterRuleFactory<Object>(config, s3Links, rules);
-                cache.putIfAbsent(schema, new StandardTableFactory(rules));
+                cache.putIfAbsent(schema, new StandardTableFactory(rules, strategy));
             }
             return cache.get(schema);
         }
@@ -94,17 +102,19 @@ final class StandardModelFactories {
     private static final class StandardTableFactory implements TableFactory {
         private final ConcurrentMap<Class<?>,DynamoDBMapperTableModel<?>> cache;
         private final RuleFactory<Object> rules;
+        private final AccessorStrategy strategy;
 
-        private StandardTableFactory(RuleFactory<Object> rules) {
+        private StandardTableFactory(RuleFactory<Object> rules, AccessorStrategy strategy) {
             this.cache = new ConcurrentHashMap<Class<?>,DynamoDBMapperTableModel<?>>();
             this.rules = rules;
+            this.strategy = strategy;
         }
 
         @Override
         @SuppressWarnings("unchecked")
         public <T> DynamoDBMapperTableModel<T> getTable(Class<T> clazz) {
             if (!this.cache.containsKey(clazz)) {
-                this.cache.putIfAbsent(clazz, new TableBuilder<T>(clazz, rules).build());
+                this.cache.putIfAbsent(clazz, new TableBuilder<T>(clazz, rules, strategy).build());
             }
             return (DynamoDBMapperTableModel<T>)this.cache.get(clazz);
         }
@@ -114,11 +124,11 @@ final class StandardModelFactories {
      * {@link DynamoDBMapperTableModel} builder.
      */
     private static final class TableBuilder<T> extends DynamoDBMapperTableModel.Builder<T> {
-        private TableBuilder(Class<T> clazz, Beans<T> beans, RuleFactory<Object> rules) {
+        private TableBuilder(Class<T> clazz, Beans<T> beans, RuleFactory<Object> rules, AccessorStrategy strategy) {
             super(clazz, beans.properties());
             for (final Bean<T,Object> bean : beans.map().values()) {
                 try {
-                    with(new FieldBuilder<T,Object>(clazz, bean, rules.getRule(bean.type())).build());
+                    with(new FieldBuilder<T,Object>(clazz, bean, rules.getRule(bean.type()), strategy).build());
                 } catch (final RuntimeException e) {
                     throw new DynamoDBMappingException(String.format(
                         "%s[%s] could not be mapped for type %s",
@@ -128,8 +138,8 @@ final class StandardModelFactories {
             }
         }
 
-        private TableBuilder(Class<T> clazz, RuleFactory<Object> rules) {
-            this(clazz, StandardBeanProperties.<T>of(clazz), rules);
+        private TableBuilder(Class<T> clazz, RuleFactory<Object> rules, AccessorStrategy strategy) {
+            this(clazz, StandardBeanProperties.<T>of(clazz), rules, strategy);
         }
     }
 
@@ -137,7 +147,7 @@ final class StandardModelFactories {
      * {@link DynamoDBMapperFieldModel} builder.
      */
     private static final class FieldBuilder<T,V> extends DynamoDBMapperFieldModel.Builder<T,V> {
-        private FieldBuilder(Class<T> clazz, Bean<T,V> bean, Rule<V> rule) {
+        private FieldBuilder(Class<T> clazz, Bean<T,V> bean, Rule<V> rule, AccessorStrategy strategy) {
             super(clazz, bean.properties());
             if (bean.type().attributeType() != null) {
                 with(bean.type().attributeType());
@@ -145,7 +155,7 @@ final class StandardModelFactories {
                 with(rule.getAttributeType());
             }
             with(rule.newConverter(bean.type()));
-            with(bean.reflect());
+            with(bean.reflect(strategy));
         }
     }
 
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.datamodeling.internal;
+
+import com.amazonaws.annotation.SdkInternalApi;
+
+/**
+ * Base class of the property accessors generated by the
+ * {@link com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper} when
+ * configured with the {@code GENERATED} accessor strategy.
+ * <p>
+ * It is public only because the generated classes, which are defined by
+ * their own class loader, must be able to extend it.
+ */
+@SdkInternalApi
+public abstract class BeanPropertyAccessor {
+
+    protected BeanPropertyAccessor() {
+    }
+
+    /**
+     * Returns the value of the property of the given object, boxed if the
+     * property is of a primitive type.
+     */
+    public abstract Object get(Object object);
+
+    /**
+     * Sets the property of the given object to the given value, unboxed if
+     * the property is of a primitive type.
+     */
+    public abstract void set(Object object, Object value);
+
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.datamodeling;
+
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.easymock.Capture;
+import org.easymock.CaptureType;
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper.FailedBatch;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.BatchWriteRetryStrategy;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+public class DynamoDBBatchWriterTest {
+
+    private static final int MAX_RETRY = 2;
+    private static final String TABLE_NAME = "tableName";
+    private static final String HASH_ATTR = "hash";
+
+    private AmazonDynamoDB ddbMock;
+    private DynamoDBMapper mapper;
+
+    @Before
+    public void setup() {
+        ddbMock = createMock(AmazonDynamoDB.class);
+        mapper = new DynamoDBMapper(ddbMock, new DynamoDBMapperConfig.Builder()
+                .withBatchWriteRetryStrategy(new FixedRetryStrategy(MAX_RETRY))
+                .build());
+    }
+
+    @Test
+    public void testItemsArePackedIntoFullBatches() {
+        Capture<BatchWriteItemRequest> requests = new Capture<BatchWriteItemRequest>(CaptureType.ALL);
+        expect(ddbMock.batchWriteItem(capture(requests)))
+                .andReturn(successResult()).times(3);
+
+        replay(ddbMock);
+        DynamoDBBatchWriter writer = mapper.newBatchWriter(2);
+        for (int i = 0; i < 60; i++) {
+            writer.save(new Item("item" + i));
+        }
+        List<FailedBatch> failedBatches = writer.close();
+        verify(ddbMock);
+
+        Assert.assertEquals(0, failedBatches.size());
+        int total = 0;
+        int fullBatches = 0;
+        for (BatchWriteItemRequest request : requests.getValues()) {
+            int size = request.getRequestItems().get(TABLE_NAME).size();
+            total += size;
+            if (size == DynamoDBMapper.MAX_ITEMS_PER_BATCH) {
+                fullBatches++;
+            }
+        }
+        Assert.assertEquals(60, total);
+        Assert.assertEquals(2, fullBatches);
+
+        DynamoDBBatchWriter.TableMetrics metrics = writer.getTableMetrics().get(TABLE_NAME);
+        Assert.assertEquals(60, metrics.getItemsWritten());
+        Assert.assertEquals(3, metrics.getRequests());
+    }
+
+    @Test
+    public void testUnprocessedItemsAreWrittenAgain() {
+        Item item = new Item("foo");
+        Map<String, List<WriteRequest>> unprocessedItems =
+                Collections.singletonMap(TABLE_NAME, Arrays.asList(item.toPutSaveRequest()));
+
+        Capture<BatchWriteItemRequest> requests = new Capture<BatchWriteItemRequest>(CaptureType.ALL);
+        expect(ddbMock.batchWriteItem(capture(requests)))
+                .andReturn(new BatchWriteItemResult().withUnprocessedItems(unprocessedItems))
+                .andReturn(successResult());
+
+        replay(ddbMock);
+        DynamoDBBatchWriter writer = mapper.newBatchWriter(1);
+        writer.save(item);
+        List<FailedBatch> failedBatches = writer.close();
+        verify(ddbMock);
+
+        Assert.assertEquals(0, failedBatches.size());
+        Assert.assertEquals(unprocessedItems, requests.getValues().get(1).getRequestItems());
+
+        DynamoDBBatchWriter.TableMetrics metrics = writer.getTableMetrics().get(TABLE_NAME);
+        Assert.assertEquals(1, metrics.getItemsWritten());
+        Assert.assertEquals(1, metrics.getItemsUnprocessed());
+    }
+
+    @Test
+    public void testUnprocessedItemsFailAfterMaxRetry() {
+        Item item = new Item("foo");
+        Map<String, List<WriteRequest>> unprocessedItems =
+                Collections.singletonMap(TABLE_NAME, Arrays.asList(item.toPutSaveRequest()));
+
+        expect(ddbMock.batchWriteItem(isA(BatchWriteItemRequest.class)))
+                .andReturn(new BatchWriteItemResult().withUnprocessedItems(unprocessedItems))
+                .times(MAX_RETRY + 1);
+
+        replay(ddbMock);
+        DynamoDBBatchWriter writer = mapper.newBatchWriter(1);
+        writer.save(item);
+        List<FailedBatch> failedBatches = writer.close();
+        verify(ddbMock);
+
+        Assert.assertEquals(1, failedBatches.size());
+        Assert.assertEquals(unprocessedItems, failedBatches.get(0).getUnprocessedItems());
+        Assert.assertNull(failedBatches.get(0).getException());
+    }
+
+    @Test
+    public void testThrottledBatchIsRetried() {
+        AmazonServiceException throttled = new AmazonServiceException("Slow down");
+        throttled.setErrorCode("ProvisionedThroughputExceededException");
+        throttled.setStatusCode(400);
+
+        expect(ddbMock.batchWriteItem(isA(BatchWriteItemRequest.class)))
+                .andThrow(throttled)
+                .andReturn(successResult());
+
+        replay(ddbMock);
+        DynamoDBBatchWriter writer = mapper.newBatchWriter(1);
+        writer.save(new Item("foo"));
+        List<FailedBatch> failedBatches = writer.close();
+        verify(ddbMock);
+
+        Assert.assertEquals(0, failedBatches.size());
+        DynamoDBBatchWriter.TableMetrics metrics = writer.getTableMetrics().get(TABLE_NAME);
+        Assert.assertEquals(1, metrics.getThrottledItems());
+        Assert.assertEquals(1, metrics.getItemsWritten());
+    }
+
+    @Test
+    public void testExceptionThrown_NoRetry() {
+        RuntimeException exception = new RuntimeException("BOOM");
+        expect(ddbMock.batchWriteItem(isA(BatchWriteItemRequest.class)))
+                .andThrow(exception);
+
+        replay(ddbMock);
+        Item item = new Item("foo");
+        DynamoDBBatchWriter writer = mapper.newBatchWriter(1);
+        writer.save(item);
+        List<FailedBatch> failedBatches = writer.close();
+        verify(ddbMock);
+
+        Assert.assertEquals(1, failedBatches.size());
+        Assert.assertEquals(
+                Collections.singletonMap(TABLE_NAME, Arrays.asList(item.toPutSaveRequest())),
+                failedBatches.get(0).getUnprocessedItems());
+        Assert.assertSame(exception, failedBatches.get(0).getException());
+    }
+
+    @Test
+    public void testWritesOfTheSameItemAreCollapsed() {
+        Capture<BatchWriteItemRequest> requests = new Capture<BatchWriteItemRequest>(CaptureType.ALL);
+        expect(ddbMock.batchWriteItem(capture(requests)))
+                .andReturn(successResult());
+
+        replay(ddbMock);
+        DynamoDBBatchWriter writer = mapper.newBatchWriter(1);
+        writer.save(new Item("foo"));
+        writer.delete(new Item("foo"));
+        writer.save(new Item("bar"));
+        writer.save(new Item("foo"));
+        List<FailedBatch> failedBatches = writer.close();
+        verify(ddbMock);
+
+        Assert.assertEquals(0, failedBatches.size());
+        Assert.assertEquals(
+                Collections.singletonMap(TABLE_NAME, Arrays.asList(
+                        new Item("foo").toPutSaveRequest(), new Item("bar").toPutSaveRequest())),
+                requests.getValue().getRequestItems());
+    }
+
+    @Test
+    public void testItemIsNotWrittenByTwoRequestsInFlight() throws Exception {
+        final Set<String> hashesInFlight = Collections.synchronizedSet(new HashSet<String>());
+        final AtomicBoolean overlap = new AtomicBoolean();
+        final CountDownLatch secondRequest = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        expect(ddbMock.batchWriteItem(isA(BatchWriteItemRequest.class))).andAnswer(
+                new IAnswer<BatchWriteItemResult>() {
+                    @Override
+                    public BatchWriteItemResult answer() throws Throwable {
+                        BatchWriteItemRequest request = (BatchWriteItemRequest) EasyMock.getCurrentArguments()[0];
+                        List<String> hashes = new ArrayList<String>();
+                        for (WriteRequest writeRequest : request.getRequestItems().get(TABLE_NAME)) {
+                            hashes.add(writeRequest.getPutRequest().getItem().get(HASH_ATTR).getS());
+                        }
+                        for (String hash : hashes) {
+                            if (!hashesInFlight.add(hash)) {
+                                overlap.set(true);
+                            }
+                        }
+                        if (calls.incrementAndGet() == 1) {
+                            // Give the second request a chance to overlap
+                            secondRequest.await(1, TimeUnit.SECONDS);
+                        } else {
+                            secondRequest.countDown();
+                        }
+                        hashesInFlight.removeAll(hashes);
+                        return successResult();
+                    }
+                }).times(3);
+
+        replay(ddbMock);
+        DynamoDBBatchWriter writer = mapper.newBatchWriter(2, 0);
+        writer.save(new Item("foo"));
+        writer.save(new Item("foo"));
+        writer.save(new Item("bar"));
+        List<FailedBatch> failedBatches = writer.close();
+        verify(ddbMock);
+
+        Assert.assertEquals(0, failedBatches.size());
+        Assert.assertFalse("an item was written by two requests in flight", overlap.get());
+        Assert.assertEquals(3, writer.getTableMetrics().get(TABLE_NAME).getItemsWritten());
+    }
+
+    @Test
+    public void testPartialBatchIsSentAfterMaxLinger() throws Exception {
+        final CountDownLatch written = new CountDownLatch(1);
+        expect(ddbMock.batchWriteItem(isA(BatchWriteItemRequest.class))).andAnswer(
+                new IAnswer<BatchWriteItemResult>() {
+                    @Override
+                    public BatchWriteItemResult answer() {
+                        written.countDown();
+                        return successResult();
+                    }
+                });
+
+        replay(ddbMock);
+        DynamoDBBatchWriter writer = mapper.newBatchWriter(1, 50);
+        writer.save(new Item("foo"));
+        Assert.assertTrue("partial batch was not sent", written.await(5, TimeUnit.SECONDS));
+        writer.close();
+        verify(ddbMock);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSaveAfterClose() {
+        replay(ddbMock);
+        DynamoDBBatchWriter writer = mapper.newBatchWriter(1);
+        writer.close();
+        writer.save(new Item("foo"));
+    }
+
+    private static BatchWriteItemResult successResult() {
+        return new BatchWriteItemResult()
+                .withUnprocessedItems(Collections.<String, List<WriteRequest>>emptyMap());
+    }
+
+    private static class FixedRetryStrategy implements BatchWriteRetryStrategy {
+
+        private final int maxRetry;
+
+        public FixedRetryStrategy(int maxRetry) {
+            this.maxRetry = maxRetry;
+        }
+
+        @Override
+        public int getMaxRetryOnUnprocessedItems(
+                Map<String, List<WriteRequest>> batchWriteItemInput) {
+            return maxRetry;
+        }
+
+        @Override
+        public long getDelayBeforeRetryUnprocessedItems(
+                Map<String, List<WriteRequest>> unprocessedItems,
+                int retriesAttempted) {
+            return 0;
+        }
+    }
+
+    @DynamoDBTable(tableName = TABLE_NAME)
+    public static class Item {
+
+        private String hash;
+
+        public Item(String hash) {
+            this.hash = hash;
+        }
+
+        @DynamoDBHashKey
+        @DynamoDBAttribute(attributeName = HASH_ATTR)
+        public String getHash() {
+            return hash;
+        }
+        public void setHash(String hash) {
+            this.hash = hash;
+        }
+
+        public WriteRequest toPutSaveRequest() {
+            return new WriteRequest()
+                    .withPutRequest(new PutRequest(
+                            Collections.singletonMap(HASH_ATTR, new AttributeValue(hash))));
+        }
+    }
+}
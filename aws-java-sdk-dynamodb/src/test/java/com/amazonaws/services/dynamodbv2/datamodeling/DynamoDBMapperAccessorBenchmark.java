@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.datamodeling;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.AccessorStrategy;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+/**
+ * Compares the cost per item of converting objects to and from items with
+ * each {@link AccessorStrategy}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DynamoDBMapperAccessorBenchmark {
+
+    @Param({"REFLECTION", "GENERATED"})
+    public AccessorStrategy strategy;
+
+    private DynamoDBMapperTableModel<Item> model;
+    private Item object;
+    private Map<String,AttributeValue> item;
+
+    @Setup
+    public void setup() {
+        final DynamoDBMapperConfig config = DynamoDBMapperConfig.DEFAULT.merge(strategy.config());
+        model = StandardModelFactories.of(S3Link.Factory.of(null)).getTableFactory(config).getTable(Item.class);
+
+        object = new Item();
+        object.setHash("hash");
+        object.setRange(42L);
+        object.setName("name");
+        object.setDescription("description");
+        object.setCount(7);
+        object.setPrice(19.99d);
+        object.setEnabled(true);
+        object.setCreated(1234567890L);
+        object.setTags(Arrays.asList("a", "b", "c"));
+        object.setVersion(3L);
+        item = model.convert(object);
+    }
+
+    @Benchmark
+    public Map<String,AttributeValue> save() {
+        return model.convert(object);
+    }
+
+    @Benchmark
+    public Item load() {
+        return model.unconvert(item);
+    }
+
+    @DynamoDBTable(tableName = "benchmark")
+    public static class Item {
+        private String hash;
+        private Long range;
+        private String name;
+        private String description;
+        private int count;
+        private double price;
+        private boolean enabled;
+        private long created;
+        private List<String> tags;
+        private Long version;
+
+        @DynamoDBHashKey
+        public String getHash() { return hash; }
+        public void setHash(String hash) { this.hash = hash; }
+        @DynamoDBRangeKey
+        public Long getRange() { return range; }
+        public void setRange(Long range) { this.range = range; }
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        public String getDescription() { return description; }
+        public void setDescription(String description) { this.description = description; }
+        public int getCount() { return count; }
+        public void setCount(int count) { this.count = count; }
+        public double getPrice() { return price; }
+        public void setPrice(double price) { this.price = price; }
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public long getCreated() { return created; }
+        public void setCreated(long created) { this.created = created; }
+        public List<String> getTags() { return tags; }
+        public void setTags(List<String> tags) { this.tags = tags; }
+        public Long getVersion() { return version; }
+        public void setVersion(Long version) { this.version = version; }
+    }
+}
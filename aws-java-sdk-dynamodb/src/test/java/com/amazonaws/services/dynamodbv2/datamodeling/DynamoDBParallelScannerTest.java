@@ -0,0 +1,222 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.datamodeling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DynamoDBParallelScannerTest {
+
+    private static final String TABLE_NAME = "FooTable";
+    private static final String HASH_ATTR = "hash";
+    private static final int PAGES_PER_SEGMENT = 3;
+    private static final int ITEMS_PER_PAGE = 4;
+
+    @Mock
+    private AmazonDynamoDB dynamoDB;
+
+    private DynamoDBMapper mapper;
+
+    @Before
+    public void setup() {
+        mapper = new DynamoDBMapper(dynamoDB);
+    }
+
+    @Test
+    public void allSegmentsAreScannedWithoutWaitingForSlowSegment() {
+        final CountDownLatch slowSegment = new CountDownLatch(1);
+        when(dynamoDB.scan(any(ScanRequest.class))).thenAnswer(new Answer<ScanResult>() {
+            @Override
+            public ScanResult answer(InvocationOnMock invocation) throws Throwable {
+                ScanRequest request = (ScanRequest) invocation.getArguments()[0];
+                if (request.getSegment() == 0) {
+                    assertTrue(slowSegment.await(10, TimeUnit.SECONDS));
+                }
+                return page(request, 1);
+            }
+        });
+
+        DynamoDBParallelScanner<Item> scanner = mapper.newParallelScanner(
+                Item.class, new DynamoDBScanExpression(), 4);
+        Set<String> hashes = new HashSet<String>();
+        // All the pages of the other segments arrive while segment 0 is stuck
+        for (int i = 0; i < 3 * PAGES_PER_SEGMENT * ITEMS_PER_PAGE; i++) {
+            assertTrue(scanner.hasNext());
+            Item item = scanner.next();
+            assertFalse(item.getHash().startsWith("0-"));
+            hashes.add(item.getHash());
+        }
+        slowSegment.countDown();
+        while (scanner.hasNext()) {
+            hashes.add(scanner.next().getHash());
+        }
+        assertEquals(4 * PAGES_PER_SEGMENT * ITEMS_PER_PAGE, hashes.size());
+    }
+
+    @Test
+    public void failedSegmentIsRethrown() {
+        when(dynamoDB.scan(any(ScanRequest.class))).thenAnswer(new Answer<ScanResult>() {
+            @Override
+            public ScanResult answer(InvocationOnMock invocation) throws Throwable {
+                ScanRequest request = (ScanRequest) invocation.getArguments()[0];
+                if (request.getSegment() == 1 && request.getExclusiveStartKey() != null) {
+                    throw new ProvisionedThroughputExceededException("Slow Down!");
+                }
+                return page(request, 1);
+            }
+        });
+
+        DynamoDBParallelScanner<Item> scanner = mapper.newParallelScanner(
+                Item.class, new DynamoDBScanExpression(), 2);
+        try {
+            while (scanner.hasNext()) {
+                scanner.next();
+            }
+            fail("Expected ProvisionedThroughputExceededException");
+        } catch (ProvisionedThroughputExceededException expected) {
+        }
+        assertFalse(scanner.hasNext());
+    }
+
+    @Test
+    public void consumedCapacityIsRateLimited() {
+        final List<String> returnConsumedCapacity =
+                Collections.synchronizedList(new ArrayList<String>());
+        when(dynamoDB.scan(any(ScanRequest.class))).thenAnswer(new Answer<ScanResult>() {
+            @Override
+            public ScanResult answer(InvocationOnMock invocation) throws Throwable {
+                ScanRequest request = (ScanRequest) invocation.getArguments()[0];
+                returnConsumedCapacity.add(request.getReturnConsumedCapacity());
+                return page(request, 10);
+            }
+        });
+
+        DynamoDBParallelScanner<Item> scanner = mapper
+                .newParallelScanner(Item.class, new DynamoDBScanExpression(), 2)
+                .withReadCapacityUnitsPerSecond(200);
+        long start = System.nanoTime();
+        int count = 0;
+        while (scanner.hasNext()) {
+            scanner.next();
+            count++;
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(2 * PAGES_PER_SEGMENT * ITEMS_PER_PAGE, count);
+        assertEquals(60, scanner.getConsumedCapacityUnits(), 0.001);
+        // 60 units at 200 per second, less the last page charged after the fact
+        assertTrue("Scan took only " + elapsedMillis + "ms", elapsedMillis >= 200);
+        for (String value : returnConsumedCapacity) {
+            assertEquals(ReturnConsumedCapacity.TOTAL.toString(), value);
+        }
+    }
+
+    @Test
+    public void segmentScanRequestsAreLeftUnchanged() {
+        when(dynamoDB.scan(any(ScanRequest.class))).thenAnswer(new Answer<ScanResult>() {
+            @Override
+            public ScanResult answer(InvocationOnMock invocation) throws Throwable {
+                return page((ScanRequest) invocation.getArguments()[0], 1);
+            }
+        });
+        List<ScanRequest> requests = new ArrayList<ScanRequest>();
+        for (int segment = 0; segment < 2; segment++) {
+            requests.add(new ScanRequest(TABLE_NAME).withSegment(segment).withTotalSegments(2));
+        }
+
+        DynamoDBParallelScanner<Item> scanner = new DynamoDBParallelScanner<Item>(dynamoDB, mapper,
+                Item.class, DynamoDBMapperConfig.DEFAULT, requests);
+        int count = 0;
+        while (scanner.hasNext()) {
+            scanner.next();
+            count++;
+        }
+
+        assertEquals(2 * PAGES_PER_SEGMENT * ITEMS_PER_PAGE, count);
+        for (ScanRequest request : requests) {
+            assertNull(request.getExclusiveStartKey());
+            assertNull(request.getReturnConsumedCapacity());
+        }
+    }
+
+    /**
+     * Returns the page following the exclusive start key of the request,
+     * whose items are named after the segment and page number.
+     */
+    private static ScanResult page(ScanRequest request, double capacityUnits) {
+        int pageNumber = request.getExclusiveStartKey() == null ? 0
+                : Integer.parseInt(request.getExclusiveStartKey().get(HASH_ATTR).getS()) + 1;
+        List<Map<String, AttributeValue>> items = new ArrayList<Map<String, AttributeValue>>();
+        for (int i = 0; i < ITEMS_PER_PAGE; i++) {
+            items.add(Collections.singletonMap(HASH_ATTR,
+                    new AttributeValue(request.getSegment() + "-" + pageNumber + "-" + i)));
+        }
+        ScanResult result = new ScanResult()
+                .withItems(items)
+                .withConsumedCapacity(new ConsumedCapacity()
+                        .withTableName(TABLE_NAME).withCapacityUnits(capacityUnits));
+        if (pageNumber < PAGES_PER_SEGMENT - 1) {
+            result.setLastEvaluatedKey(Collections.singletonMap(HASH_ATTR,
+                    new AttributeValue(String.valueOf(pageNumber))));
+        }
+        return result;
+    }
+
+    @DynamoDBTable(tableName = TABLE_NAME)
+    public static class Item {
+
+        private String hash;
+
+        @DynamoDBHashKey
+        @DynamoDBAttribute(attributeName = HASH_ATTR)
+        public String getHash() {
+            return hash;
+        }
+        public void setHash(String hash) {
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.datamodeling;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.AccessorStrategy;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperFieldModel.Reflect;
+import com.amazonaws.services.dynamodbv2.datamodeling.internal.BeanPropertyAccessor;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+public class StandardBeanAccessorsTest {
+
+    private static final DynamoDBMapperModelFactory factory = StandardModelFactories.of(S3Link.Factory.of(null));
+
+    @Test
+    public void testPrimitiveProperties() throws Exception {
+        final AllTypes object = new AllTypes();
+        assertRoundTrip(object, "Boolean", true);
+        assertRoundTrip(object, "Byte", (byte)1);
+        assertRoundTrip(object, "Char", 'c');
+        assertRoundTrip(object, "Short", (short)2);
+        assertRoundTrip(object, "Int", 3);
+        assertRoundTrip(object, "Long", 4L);
+        assertRoundTrip(object, "Float", 5.5f);
+        assertRoundTrip(object, "Double", 6.5d);
+    }
+
+    @Test
+    public void testReferenceProperties() throws Exception {
+        final AllTypes object = new AllTypes();
+        assertRoundTrip(object, "Id", "abc");
+        assertRoundTrip(object, "Id", null);
+        assertRoundTrip(object, "List", Arrays.asList("a", "b"));
+
+        final BeanPropertyAccessor accessor = accessorOf(AllTypes.class, "Bytes", byte[].class);
+        accessor.set(object, new byte[] {1, 2});
+        assertArrayEquals(new byte[] {1, 2}, (byte[])accessor.get(object));
+    }
+
+    @Test
+    public void testInterfaceDeclaredProperty() throws Exception {
+        final AllTypes object = new AllTypes();
+        final BeanPropertyAccessor accessor = StandardBeanAccessors.generate(
+            Named.class.getMethod("getName"), Named.class.getMethod("setName", String.class));
+        assertNotNull(accessor);
+        accessor.set(object, "name");
+        assertEquals("name", accessor.get(object));
+    }
+
+    @Test
+    public void testNonPublicClassIsNotGenerated() throws Exception {
+        assertNull(StandardBeanAccessors.generate(
+            Hidden.class.getMethod("getId"), Hidden.class.getMethod("setId", String.class)));
+    }
+
+    @Test
+    public void testMissingSetterIsNotGenerated() throws Exception {
+        assertNull(StandardBeanAccessors.generate(AllTypes.class.getMethod("getId"), null));
+    }
+
+    @Test(expected = DynamoDBMappingException.class)
+    public void testNullPrimitiveIsMappingException() {
+        final Reflect<AllTypes,Object> reflect = StandardBeanProperties.of(AllTypes.class)
+            .map().get("int").reflect(AccessorStrategy.GENERATED);
+        reflect.set(new AllTypes(), null);
+    }
+
+    @Test
+    public void testGeneratedModelMatchesReflection() {
+        final AllTypes object = new AllTypes();
+        object.setId("id");
+        object.setBoolean(true);
+        object.setInt(42);
+        object.setLong(Long.MAX_VALUE);
+        object.setDouble(1.5d);
+        object.setList(Arrays.asList("a", "b"));
+        object.setName("name");
+        object.setBytes(new byte[] {1, 2, 3});
+
+        final DynamoDBMapperTableModel<AllTypes> reflection = tableOf(AccessorStrategy.REFLECTION);
+        final DynamoDBMapperTableModel<AllTypes> generated = tableOf(AccessorStrategy.GENERATED);
+        assertTrue(reflection != generated);
+
+        final Map<String,AttributeValue> item = reflection.convert(object);
+        assertEquals(item, generated.convert(object));
+        assertEquals(item, reflection.convert(generated.unconvert(item)));
+    }
+
+    private static DynamoDBMapperTableModel<AllTypes> tableOf(AccessorStrategy strategy) {
+        return factory.getTableFactory(DynamoDBMapperConfig.DEFAULT.merge(strategy.config()))
+            .getTable(AllTypes.class);
+    }
+
+    private static void assertRoundTrip(Object object, String property, Object value) throws Exception {
+        final Class<?> type = object.getClass().getMethod((value instanceof Boolean ? "is" : "get") + property)
+            .getReturnType();
+        final BeanPropertyAccessor accessor = accessorOf(object.getClass(), property, type);
+        accessor.set(object, value);
+        assertEquals(value, accessor.get(object));
+    }
+
+    private static BeanPropertyAccessor accessorOf(Class<?> clazz, String property, Class<?> type)
+            throws Exception {
+        final String getterName = (type == boolean.class ? "is" : "get") + property;
+        final BeanPropertyAccessor accessor = StandardBeanAccessors.generate(
+            clazz.getMethod(getterName), clazz.getMethod("set" + property, type));
+        assertNotNull(accessor);
+        return accessor;
+    }
+
+    public static interface Named {
+        String getName();
+        void setName(String name);
+    }
+
+    @DynamoDBTable(tableName = "table")
+    public static class AllTypes implements Named {
+        private String id;
+        private String name;
+        private boolean booleanValue;
+        private byte byteValue;
+        private char charValue;
+        private short shortValue;
+        private int intValue;
+        private long longValue;
+        private float floatValue;
+        private double doubleValue;
+        private byte[] bytes;
+        private List<String> list;
+
+        @DynamoDBHashKey
+        public String getId() { return id; }
+        public void setId(String id) { this.id = id; }
+        @Override
+        public String getName() { return name; }
+        @Override
+        public void setName(String name) { this.name = name; }
+        public boolean isBoolean() { return booleanValue; }
+        public void setBoolean(boolean value) { this.booleanValue = value; }
+        public byte getByte() { return byteValue; }
+        public void setByte(byte value) { this.byteValue = value; }
+        @DynamoDBIgnore
+        public char getChar() { return charValue; }
+        public void setChar(char value) { this.charValue = value; }
+        public short getShort() { return shortValue; }
+        public void setShort(short value) { this.shortValue = value; }
+        public int getInt() { return intValue; }
+        public void setInt(int value) { this.intValue = value; }
+        public long getLong() { return longValue; }
+        public void setLong(long value) { this.longValue = value; }
+        public float getFloat() { return floatValue; }
+        public void setFloat(float value) { this.floatValue = value; }
+        public double getDouble() { return doubleValue; }
+        public void setDouble(double value) { this.doubleValue = value; }
+        public byte[] getBytes() { return bytes; }
+        public void setBytes(byte[] bytes) { this.bytes = bytes; }
+        public List<String> getList() { return list; }
+        public void setList(List<String> list) { this.list = list; }
+    }
+
+    static class Hidden {
+        public String getId() { return null; }
+        public void setId(String id) { }
+    }
+}
@@ -42,6 +42,8 @@ class BundleTaskComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("BundleTasks")), new JmesPathField("State"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -52,8 +54,7 @@ class BundleTaskComplete {
          */
         @Override
         public boolean matches(DescribeBundleTasksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAll(expectedResult, finalResult);
         }
 
@@ -81,6 +82,8 @@ class BundleTaskComplete {
 
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("BundleTasks")), new JmesPathField("State"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -91,8 +94,7 @@ class BundleTaskComplete {
          */
         @Override
         public boolean matches(DescribeBundleTasksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
@@ -43,6 +43,8 @@ class ConversionTaskCancelled {
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathField("ConversionTasks")), new JmesPathField(
                 "State"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -53,8 +55,7 @@ class ConversionTaskCancelled {
          */
         @Override
         public boolean matches(DescribeConversionTasksResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAll(expectedResult, finalResult);
         }
 
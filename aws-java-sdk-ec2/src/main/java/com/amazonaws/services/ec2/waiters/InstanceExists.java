@@ -43,6 +43,8 @@ class InstanceExists {
         private static final JmesPathExpression ast = new OpGreaterThan(new JmesPathLengthFunction(new JmesPathProjection(new JmesPathFlatten(
                 new JmesPathField("Reservations")), new JmesPathIdentity())), new JmesPathLiteral("0"));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -53,8 +55,7 @@ class InstanceExists {
          */
         @Override
         public boolean matches(DescribeInstancesResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.path(expectedResult, finalResult);
         }
 
@@ -43,6 +43,8 @@ class InstanceRunning {
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathProjection(new JmesPathFlatten(new JmesPathField(
                 "Reservations")), new JmesPathField("Instances"))), new JmesPathSubExpression(new JmesPathField("State"), new JmesPathField("Name")));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -53,8 +55,7 @@ class InstanceRunning {
          */
         @Override
         public boolean matches(DescribeInstancesResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAll(expectedResult, finalResult);
         }
 
@@ -83,6 +84,8 @@ class InstanceRunning {
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathProjection(new JmesPathFlatten(new JmesPathField(
                 "Reservations")), new JmesPathField("Instances"))), new JmesPathSubExpression(new JmesPathField("State"), new JmesPathField("Name")));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -93,8 +96,7 @@ class InstanceRunning {
          */
         @Override
         public boolean matches(DescribeInstancesResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
@@ -123,6 +125,8 @@ class InstanceRunning {
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathProjection(new JmesPathFlatten(new JmesPathField(
                 "Reservations")), new JmesPathField("Instances"))), new JmesPathSubExpression(new JmesPathField("State"), new JmesPathField("Name")));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -133,8 +137,7 @@ class InstanceRunning {
          */
         @Override
         public boolean matches(DescribeInstancesResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
@@ -163,6 +166,8 @@ class InstanceRunning {
         private static final JmesPathExpression ast = new JmesPathProjection(new JmesPathFlatten(new JmesPathProjection(new JmesPathFlatten(new JmesPathField(
                 "Reservations")), new JmesPathField("Instances"))), new JmesPathSubExpression(new JmesPathField("State"), new JmesPathField("Name")));
 
+        private static final CompiledJmesPathExpression compiledAst = CompiledJmesPathExpression.compile(ast);
+
         /**
          * Takes the result and determines whether the state of the resource matches the expected state. To determine
          * the current state of the resource, JmesPath expression is evaluated and compared against the expected result.
@@ -173,8 +178,7 @@ class InstanceRunning {
          */
         @Override
         public boolean matches(DescribeInstancesResult result) {
-            JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(result);
-            JsonNode finalResult = ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+            JsonNode finalResult = compiledAst.evaluate(result);
             return AcceptorPathMatcher.pathAny(expectedResult, finalResult);
         }
 
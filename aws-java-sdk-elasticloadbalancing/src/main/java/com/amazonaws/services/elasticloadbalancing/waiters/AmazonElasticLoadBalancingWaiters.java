@@ -17,7 +17,7 @@ import com.amazonaws.services.elasticloadbalancing.AmazonElasticLoadBalancing;
 import com.amazonaws.services.elasticloadbalancing.model.*;
 import com.amazonaws.waiters.*;
 
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Executors;
 
 public class AmazonElasticLoadBalancingWaiters {
@@ -27,7 +27,7 @@ public class AmazonElasticLoadBalancingWaiters {
      */
     private final AmazonElasticLoadBalancing client;
 
-    private final ExecutorService executorService = Executors.newFixedThreadPool(50);
+    private final ScheduledExecutorService executorService = Executors.newScheduledThreadPool(50);
 
     /**
      * Constructs a new AmazonElasticLoadBalancingWaiters with the given client
@@ -14,18 +14,16 @@
  */
 package com.amazonaws.services.glacier;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.internal.ResettableInputStream;
+import com.amazonaws.services.glacier.internal.ParallelTreeHasher;
 import com.amazonaws.services.glacier.internal.TreeHashInputStream;
 import com.amazonaws.util.BinaryUtils;
 
@@ -66,6 +64,28 @@ public class TreeHashGenerator {
         }
     }
 
+    /**
+     * Calculates a hex encoded binary hash using a tree hashing algorithm for
+     * the data in the specified file, hashing the 1MB portions of the file
+     * concurrently on the specified executor.
+     *
+     * @param file
+     *            The file containing the data to hash.
+     * @param executorService
+     *            The executor used to hash portions of the file.
+     *
+     * @return The hex encoded binary tree hash for the data in the specified
+     *         file.
+     *
+     * @throws AmazonClientException
+     *             If any problems were encountered reading the data or
+     *             computing the hash.
+     */
+    public static String calculateTreeHash(File file, ExecutorService executorService)
+            throws AmazonClientException {
+        return calculateTreeHash(ParallelTreeHasher.hashLeaves(file, executorService));
+    }
+
 	/**
 	 * Calculates a hex encoded binary hash using a tree hashing algorithm for
 	 * the data in the specified input stream. The method will consume all the
@@ -86,7 +106,7 @@ public class TreeHashGenerator {
         try {
             TreeHashInputStream treeHashInputStream =
                 new TreeHashInputStream(input);
-            byte[] buffer = new byte[1024];
+            byte[] buffer = new byte[1024 * 64];
             while (treeHashInputStream.read(buffer, 0, buffer.length) != -1);
             // closing is currently required to compute the checksum 
             treeHashInputStream.close();
@@ -111,51 +131,35 @@ public class TreeHashGenerator {
 	 */
     public static String calculateTreeHash(List<byte[]> checksums) throws AmazonClientException {
 
+        if (checksums.isEmpty()) {
+            throw new AmazonClientException("Unable to compute hash of empty data");
+        }
+
         /*
          * The tree hash algorithm involves concatenating adjacent pairs of
          * individual checksums, then taking the checksum of the resulting bytes
          * and storing it, then recursing on this new list until there is only
          * one element. Any final odd-numbered parts at each step are carried
-         * over to the next iteration as-is.
+         * over to the next iteration as-is. Each level is computed in place,
+         * feeding both checksums of a pair to the digest in turn rather than
+         * concatenating them.
          */
-        List<byte[]> hashes = new ArrayList<byte[]>();
-        hashes.addAll(checksums);
-        while ( hashes.size() > 1 ) {
-            List<byte[]> treeHashes = new ArrayList<byte[]>();
-            for ( int i = 0; i < hashes.size() / 2; i++ ) {
-                byte[] firstPart = hashes.get(2 * i);
-                byte[] secondPart = hashes.get(2 * i + 1);
-                byte[] concatenation = new byte[firstPart.length + secondPart.length];
-                System.arraycopy(firstPart, 0, concatenation, 0, firstPart.length);
-                System.arraycopy(secondPart, 0, concatenation, firstPart.length, secondPart.length);
-                try {
-					treeHashes.add(computeSHA256Hash(concatenation));
-				} catch (Exception e) {
-					throw new AmazonClientException("Unable to compute hash", e);
-				}
+        MessageDigest messageDigest = ParallelTreeHasher.getSha256Digest();
+        byte[][] hashes = checksums.toArray(new byte[checksums.size()][]);
+        int count = hashes.length;
+        while ( count > 1 ) {
+            int next = 0;
+            for ( int i = 0; i + 1 < count; i += 2 ) {
+                messageDigest.update(hashes[i]);
+                messageDigest.update(hashes[i + 1]);
+                hashes[next++] = messageDigest.digest();
             }
-            if ( hashes.size() % 2 == 1 ) {
-                treeHashes.add(hashes.get(hashes.size() - 1));
+            if ( count % 2 == 1 ) {
+                hashes[next++] = hashes[count - 1];
             }
-            hashes = treeHashes;
+            count = next;
         }
 
-        return BinaryUtils.toHex(hashes.get(0));
-    }
-    
-
-    private static byte[] computeSHA256Hash(byte[] data) throws NoSuchAlgorithmException, IOException {
-        BufferedInputStream bis = new BufferedInputStream(new ByteArrayInputStream(data));
-        try {
-            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
-            byte[] buffer = new byte[16384];
-            int bytesRead = -1;
-            while ( (bytesRead = bis.read(buffer, 0, buffer.length)) != -1 ) {
-                messageDigest.update(buffer, 0, bytesRead);
-            }
-            return messageDigest.digest();
-        } finally {
-            try { bis.close(); } catch ( Exception e ) {}
-        }
+        return BinaryUtils.toHex(hashes[0]);
     }
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.glacier.internal;
+
+import static com.amazonaws.util.Throwables.failure;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.AbortedException;
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.annotation.SdkInternalApi;
+
+/**
+ * Computes the SHA-256 hashes of the 1MB leaves of a tree hash for a file,
+ * hashing regions of the file concurrently.
+ * <p>
+ * Each worker reads its leaves with positional reads on the shared file
+ * channel into one leaf-sized buffer that it reuses for every leaf. The file
+ * is not mapped into memory: a mapping is only released when its buffer is
+ * garbage collected, so a large archive could pin gigabytes of address space
+ * and keep the file locked on some platforms until then.
+ * <p>
+ * Since Glacier parts are aligned on 2^n MB boundaries, the tree hash of each
+ * part and of the whole archive can all be computed from the same leaves.
+ */
+@SdkInternalApi
+public class ParallelTreeHasher {
+
+    private static final int MB = 1024 * 1024;
+
+    /** Number of consecutive leaves hashed by each task. */
+    private static final int LEAVES_PER_TASK = 16;
+
+    private static final ThreadLocal<MessageDigest> SHA256 = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new AmazonClientException("Unable to get SHA256 Function" + e.getMessage(), e);
+            }
+        }
+    };
+
+    private static final Log log = LogFactory.getLog(ParallelTreeHasher.class);
+
+    /**
+     * Returns a SHA-256 digest for the current thread, which is reset before
+     * being returned and must not be shared with other threads.
+     */
+    public static MessageDigest getSha256Digest() {
+        MessageDigest digest = SHA256.get();
+        digest.reset();
+        return digest;
+    }
+
+    /**
+     * Returns the SHA-256 hashes of the consecutive 1MB leaves of the
+     * specified file, the last of which may be less than a full MB, hashing
+     * them on as many tasks of the given executor as there are processors.
+     *
+     * @throws AmazonClientException
+     *             If any problems were encountered reading the file or
+     *             computing the hashes.
+     */
+    public static List<byte[]> hashLeaves(File file, ExecutorService executorService) {
+        RandomAccessFile input = null;
+        try {
+            input = new RandomAccessFile(file, "r");
+            final FileChannel channel = input.getChannel();
+            final long length = channel.size();
+            final byte[][] leaves = new byte[(int) ((length + MB - 1) / MB)][];
+            final int tasks = (leaves.length + LEAVES_PER_TASK - 1) / LEAVES_PER_TASK;
+            final AtomicInteger nextTask = new AtomicInteger();
+
+            int workers = Math.min(tasks, Runtime.getRuntime().availableProcessors());
+            List<Future<Void>> futures = new ArrayList<Future<Void>>(workers);
+            try {
+                for (int i = 0; i < workers; i++) {
+                    futures.add(executorService.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() throws IOException {
+                            final ByteBuffer buffer = ByteBuffer.allocate(MB);
+                            int task;
+                            while ((task = nextTask.getAndIncrement()) < tasks) {
+                                hashLeaves(channel, length, leaves, task * LEAVES_PER_TASK, buffer);
+                            }
+                            return null;
+                        }
+                    }));
+                }
+                for (Future<Void> future : futures) {
+                    future.get();
+                }
+            } finally {
+                // Stops the remaining workers from picking up more tasks if one failed
+                nextTask.set(tasks);
+                for (Future<Void> future : futures) {
+                    future.cancel(true);
+                }
+            }
+            return Arrays.asList(leaves);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AbortedException("Thread interrupted while computing hash", e);
+        } catch (ExecutionException e) {
+            throw failure(e.getCause(), "Unable to compute hash for file: " + file.getAbsolutePath());
+        } catch (IOException e) {
+            throw new AmazonClientException("Unable to compute hash for file: "
+                    + file.getAbsolutePath(), e);
+        } finally {
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException e) {
+                    log.debug("Unable to close file " + file.getAbsolutePath(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Hashes the leaves of one task, starting at the given leaf, reading each
+     * of them into the worker's buffer.
+     */
+    private static void hashLeaves(FileChannel channel, long length, byte[][] leaves, int firstLeaf,
+            ByteBuffer buffer) throws IOException {
+        final MessageDigest digest = getSha256Digest();
+        final int lastLeaf = Math.min(firstLeaf + LEAVES_PER_TASK, leaves.length);
+        for (int leaf = firstLeaf; leaf < lastLeaf; leaf++) {
+            final long start = (long) leaf * MB;
+            buffer.clear();
+            buffer.limit((int) Math.min(MB, length - start));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) == -1) {
+                    throw new IOException("Unexpected end of file at position " + (start + buffer.position()));
+                }
+            }
+            digest.update(buffer.array(), 0, buffer.position());
+            leaves[leaf] = digest.digest();
+        }
+    }
+}
@@ -27,13 +27,27 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.security.NoSuchAlgorithmException;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.amazonaws.AbortedException;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.ClientConfiguration;
@@ -46,6 +60,7 @@ import com.amazonaws.internal.StaticCredentialsProvider;
 import com.amazonaws.services.glacier.AmazonGlacier;
 import com.amazonaws.services.glacier.AmazonGlacierClient;
 import com.amazonaws.services.glacier.TreeHashGenerator;
+import com.amazonaws.services.glacier.internal.ParallelTreeHasher;
 import com.amazonaws.services.glacier.internal.TreeHashInputStream;
 import com.amazonaws.services.glacier.model.AbortMultipartUploadRequest;
 import com.amazonaws.services.glacier.model.CompleteMultipartUploadRequest;
@@ -65,7 +80,6 @@ import com.amazonaws.services.glacier.model.UploadMultipartPartRequest;
 import com.amazonaws.services.s3.internal.InputSubstream;
 import com.amazonaws.services.sns.AmazonSNSClient;
 import com.amazonaws.services.sqs.AmazonSQSClient;
-import com.amazonaws.util.BinaryUtils;
 
 /**
  * Utilities for uploading and downloading data to and from AWS Glacier.
@@ -87,6 +101,15 @@ public class ArchiveTransferManager {
     /** Default retry time when downloading in multiple chunks using range retrieval */
     private static final int DEFAULT_MAX_RETRIES = 3;
 
+    /** Default maximum number of parts or chunks transferred concurrently. */
+    private static final int DEFAULT_MAX_CONCURRENT_PARTS = 10;
+
+    /** Size, in bytes, of the portions of data hashed as the leaves of a tree hash. */
+    private static final long TREE_HASH_LEAF_SIZE = 1024L * 1024;
+
+    /** Size, in bytes, of the buffer used to hash and write the data of a part or chunk. */
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
     /** Glacier client used for making all requests. */
     private final AmazonGlacier glacier;
 
@@ -98,6 +121,12 @@ public class ArchiveTransferManager {
 
     private final AmazonSNSClient sns;
 
+    /** Executor used to transfer the parts of an upload or the chunks of a download. */
+    private final ExecutorService executorService;
+
+    /** Maximum number of parts or chunks of a single transfer in flight at once. */
+    private final int maxConcurrentParts;
+
     private static final Log log = LogFactory.getLog(ArchiveTransferManager.class);
 
     /**
@@ -168,6 +197,8 @@ public class ArchiveTransferManager {
         this.glacier = glacier;
         this.sns = null;
         this.sqs = null;
+        this.executorService = createDefaultExecutorService(DEFAULT_MAX_CONCURRENT_PARTS);
+        this.maxConcurrentParts = DEFAULT_MAX_CONCURRENT_PARTS;
     }
 
     /**
@@ -190,11 +221,72 @@ public class ArchiveTransferManager {
      *            retrieval job status.
      */
     public ArchiveTransferManager(AmazonGlacierClient glacier, AmazonSQSClient sqs, AmazonSNSClient sns) {
+        this(glacier, sqs, sns, createDefaultExecutorService(DEFAULT_MAX_CONCURRENT_PARTS),
+                DEFAULT_MAX_CONCURRENT_PARTS);
+    }
+
+    /**
+     * Constructs a new ArchiveTransferManager, using the specified Amazon
+     * Glacier client, the specified Amazon SQS and Amazon SNS clients for
+     * polling download job status, and the specified executor for
+     * transferring the parts of multipart uploads and the chunks of downloads
+     * concurrently.
+     * <p>
+     * The executor is not shut down by this ArchiveTransferManager, and should
+     * not run the calling thread's own tasks, since uploads and downloads
+     * block until all their parts have been transferred.
+     *
+     * @param glacier
+     *            The client for working with Amazon Glacier.
+     * @param sqs
+     *            The client for working with Amazon SQS when polling archive
+     *            retrieval job status.
+     * @param sns
+     *            The client for working with Amazon SNS when polling archive
+     *            retrieval job status.
+     * @param executorService
+     *            The executor used to transfer parts and chunks.
+     * @param maxConcurrentParts
+     *            The maximum number of parts of an upload, or chunks of a
+     *            download, that are transferred at once.
+     */
+    public ArchiveTransferManager(AmazonGlacier glacier, AmazonSQSClient sqs, AmazonSNSClient sns,
+            ExecutorService executorService, int maxConcurrentParts) {
+        if (executorService == null) {
+            throw new IllegalArgumentException("Executor service must not be null");
+        }
+        if (maxConcurrentParts < 1) {
+            throw new IllegalArgumentException("Maximum concurrent parts must be at least 1");
+        }
         this.credentialsProvider = null;
         this.clientConfiguration = null;
         this.glacier = glacier;
         this.sqs = sqs;
         this.sns = sns;
+        this.executorService = executorService;
+        this.maxConcurrentParts = maxConcurrentParts;
+    }
+
+    /**
+     * Returns a new thread pool of daemon threads, which time out when idle so
+     * that an ArchiveTransferManager doesn't need to be shut down.
+     */
+    private static ExecutorService createDefaultExecutorService(int threads) {
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r);
+                thread.setName("glacier-transfer-manager-worker-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     /**
@@ -460,8 +552,8 @@ public class ArchiveTransferManager {
      * Downloads the job output for the specified job (which must be ready to
      * download already, and must be a complete archive retrieval, not a partial
      * range retrieval), into the specified file. This method will request
-     * individual chunks of the data, one at a time, in order to handle any
-     * transient errors along the way.
+     * individual chunks of the data concurrently, retrying each of them in
+     * order to handle any transient errors along the way.
      *
      * @param accountId
      *            The account ID containing the job output to download (or null
@@ -482,9 +574,10 @@ public class ArchiveTransferManager {
      * Downloads the job output for the specified job (which must be ready to
      * download already, and must be a complete archive retrieval, not a partial
      * range retrieval), into the specified file. This method will request
-     * individual chunks of the data, one at a time, in order to handle any
-     * transient errors along the way. You can also add an optional progress
-     * listener for receiving updates about the download status.
+     * individual chunks of the data concurrently, retrying each of them in
+     * order to handle any transient errors along the way. You can also add an
+     * optional progress listener for receiving updates about the download
+     * status.
      *
      * @param accountId
      *            The account ID containing the job output to download (or null
@@ -504,8 +597,6 @@ public class ArchiveTransferManager {
             String jobId, File file, ProgressListener progressListener) {
         long archiveSize = 0;
         long chunkSize = DEFAULT_DOWNLOAD_CHUNK_SIZE;
-        long currentPosition = 0;
-        long endPosition = 0;
 
         RandomAccessFile output = null;
         String customizedChunkSize = null;
@@ -526,29 +617,27 @@ public class ArchiveTransferManager {
 
         try {
             output = new RandomAccessFile(file, "rw");
-        } catch (FileNotFoundException e) {
+            output.setLength(archiveSize);
+        } catch (IOException e) {
+            closeQuietly(output, log);
             publishProgress(progressListener, ProgressEventType.TRANSFER_FAILED_EVENT);
             throw new AmazonClientException("Unable to open the output file " + file.getPath(), e);
         }
 
         try {
             publishProgress(progressListener, ProgressEventType.TRANSFER_STARTED_EVENT);
-            while (currentPosition < archiveSize) {
-                if (currentPosition + chunkSize > archiveSize) {
-                    endPosition = archiveSize - 1;
-                } else {
-                    endPosition = currentPosition + chunkSize - 1;
-                }
-    
-                // Download the chunk
-                try {
-                    downloadOneChunk(accountId, vaultName, jobId, output,
-                            currentPosition, endPosition, progressListener);
-                } catch (Throwable t) {
-                    publishProgress(progressListener, ProgressEventType.TRANSFER_FAILED_EVENT);
-                    throw failure(t);
-                }
-                currentPosition += chunkSize;
+            final FileChannel channel = output.getChannel();
+            List<Callable<Void>> chunks = new ArrayList<Callable<Void>>();
+            for (long currentPosition = 0; currentPosition < archiveSize; currentPosition += chunkSize) {
+                final long endPosition = Math.min(currentPosition + chunkSize, archiveSize) - 1;
+                chunks.add(new DownloadChunkCallable(accountId, vaultName, jobId,
+                        channel, currentPosition, endPosition, progressListener));
+            }
+            try {
+                transferConcurrently(chunks);
+            } catch (Throwable t) {
+                publishProgress(progressListener, ProgressEventType.TRANSFER_FAILED_EVENT);
+                throw failure(t);
             }
             publishProgress(progressListener, ProgressEventType.TRANSFER_COMPLETED_EVENT);
         } finally {
@@ -567,12 +656,91 @@ public class ArchiveTransferManager {
         }
     }
 
+    /**
+     * Runs the given part or chunk transfers on the executor, keeping at most
+     * {@link #maxConcurrentParts} of them in flight, and returns their results
+     * in order. The remaining transfers are cancelled as soon as one of them
+     * fails, and its failure is rethrown.
+     */
+    private <T> List<T> transferConcurrently(List<? extends Callable<T>> transfers) throws Throwable {
+        CompletionService<T> completionService = new ExecutorCompletionService<T>(executorService);
+        List<Future<T>> futures = new ArrayList<Future<T>>(transfers.size());
+        try {
+            int completed = 0;
+            for (Callable<T> transfer : transfers) {
+                if (futures.size() - completed >= maxConcurrentParts) {
+                    completionService.take().get();
+                    completed++;
+                }
+                futures.add(completionService.submit(transfer));
+            }
+            for (; completed < futures.size(); completed++) {
+                completionService.take().get();
+            }
+            List<T> results = new ArrayList<T>(futures.size());
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AbortedException("Thread interrupted while waiting for the transfer", e);
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Downloads one chunk from Amazon Glacier into its position in the output
+     * file. It will do the retry if any errors are encountered while
+     * streaming the data from Amazon Glacier.
+     */
+    private class DownloadChunkCallable implements Callable<Void> {
+        private final String accountId;
+        private final String vaultName;
+        private final String jobId;
+        private final FileChannel output;
+        private final long currentPosition;
+        private final long endPosition;
+        private final ProgressListener progressListener;
+
+        DownloadChunkCallable(String accountId, String vaultName, String jobId,
+                FileChannel output, long currentPosition, long endPosition,
+                ProgressListener progressListener) {
+            this.accountId = accountId;
+            this.vaultName = vaultName;
+            this.jobId = jobId;
+            this.output = output;
+            this.currentPosition = currentPosition;
+            this.endPosition = endPosition;
+            this.progressListener = progressListener;
+        }
+
+        @Override
+        public Void call() {
+            publishProgress(progressListener, ProgressEventType.TRANSFER_PART_STARTED_EVENT);
+            try {
+                downloadOneChunk(accountId, vaultName, jobId, output,
+                        currentPosition, endPosition, progressListener);
+            } catch (RuntimeException e) {
+                publishProgress(progressListener, ProgressEventType.TRANSFER_PART_FAILED_EVENT);
+                throw e;
+            }
+            publishProgress(progressListener, ProgressEventType.TRANSFER_PART_COMPLETED_EVENT);
+            return null;
+        }
+    }
+
     /**
      * Download one chunk from Amazon Glacier. It will do the retry if any
      * errors are encountered while streaming the data from Amazon Glacier.
      */
     private void downloadOneChunk(String accountId, String vaultName,
-            String jobId, RandomAccessFile output, long currentPosition,
+            String jobId, FileChannel output, long currentPosition,
             long endPosition, ProgressListener progressListener) {
         final long chunkSize = endPosition - currentPosition + 1;
         TreeHashInputStream input = null;
@@ -589,7 +757,7 @@ public class ArchiveTransferManager {
                 GetJobOutputResult jobOutputResult = glacier.getJobOutput(req);
                 try {
                     input = new TreeHashInputStream(new BufferedInputStream(jobOutputResult.getBody()));
-                    appendToFile(output, input);
+                    writeToFile(output, currentPosition, input);
                 } catch (NoSuchAlgorithmException e) {
                     throw failure(e, "Unable to compute hash for data integrity");
                 } finally {
@@ -624,11 +792,6 @@ public class ArchiveTransferManager {
                                 + currentPosition + " endPosition="
                                 + endPosition);
                     }
-                    try {
-                        output.seek(currentPosition);
-                    } catch (IOException e) {
-                        throw new AmazonClientException("Unable to download the archive: " + ioe.getMessage(), e);
-                    }
                 } else {
                     throw new AmazonClientException("Unable to download the archive: " + ioe.getMessage(), ioe);
                 }
@@ -637,19 +800,20 @@ public class ArchiveTransferManager {
     }
 
     /**
-     * Writes the data from the given input stream to the given output stream.
+     * Writes the data from the given input stream to the given file channel,
+     * starting at the given position, without moving the channel's position
+     * so that chunks can be written concurrently.
      */
-    private void appendToFile(RandomAccessFile output, InputStream input)
+    private void writeToFile(FileChannel output, long position, InputStream input)
             throws IOException {
-        byte[] buffer = new byte[1024 * 1024];
+        byte[] buffer = new byte[BUFFER_SIZE];
         int bytesRead = 0;
-        do {
-            bytesRead = input.read(buffer);
-            if (bytesRead < 0)
-                break;
-            output.write(buffer, 0, bytesRead);
-        } while (bytesRead > 0);
-        return;
+        while ((bytesRead = input.read(buffer)) >= 0) {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, bytesRead);
+            while (bytes.hasRemaining()) {
+                position += output.write(bytes, position);
+            }
+        }
     }
 
     /**
@@ -681,8 +845,12 @@ public class ArchiveTransferManager {
         String partSizeString = Long.toString(partSize);
 
         publishProgress(progressListener, ProgressEventType.TRANSFER_PREPARING_EVENT);
+        // The hashes of all the parts and of the whole archive are computed
+        // from the same 1MB leaf hashes, in a single pass over the file
+        final List<byte[]> leafHashes;
         String uploadId = null;
         try {
+            leafHashes = ParallelTreeHasher.hashLeaves(file, executorService);
             InitiateMultipartUploadResult initiateResult = glacier.initiateMultipartUpload(new InitiateMultipartUploadRequest()
                 .withAccountId(accountId)
                 .withArchiveDescription(archiveDescription)
@@ -694,58 +862,20 @@ public class ArchiveTransferManager {
             throw failure(t);
         }
         publishProgress(progressListener, ProgressEventType.TRANSFER_STARTED_EVENT);
-        final String fileNotFoundMsg = "Unable to find file '"
-                + file.getAbsolutePath() + "'";
         try {
-            List<byte[]> binaryChecksums = new LinkedList<byte[]>();
-
-            long currentPosition = 0;
-            while (currentPosition < file.length()) {
-                long length = partSize;
-                if (currentPosition + partSize > file.length()) {
-                    length = file.length() - currentPosition;
-                }
-
-                Exception failedException = null;
-                boolean completed = false;
-                int tries = 0;
-                    while (!completed && tries < 5){
-                        tries++;
-                        InputSubstream inputSubStream = null;
-                        try {
-                            inputSubStream = new InputSubstream(
-                                    newResettableInputStream(file, fileNotFoundMsg)
-                                        .disableClose(), // requires explicit release
-                                    currentPosition, length, true);
-                            String checksum = TreeHashGenerator.calculateTreeHash(inputSubStream);
-                            byte[] binaryChecksum = BinaryUtils.fromHex(checksum);
-                            inputSubStream.reset();
-                            UploadMultipartPartRequest req = new UploadMultipartPartRequest()
-                                .withAccountId(accountId)
-                                .withChecksum(checksum)
-                                .withBody(inputSubStream)
-                                .withRange("bytes " + currentPosition + "-" + (currentPosition + length - 1) + "/*")
-                                .withUploadId(uploadId)
-                                .withVaultName(vaultName)
-                                .withGeneralProgressListener(progressListener)
-                                ;
-                            
-                            glacier.uploadMultipartPart(req);
-                            completed = true;
-                            binaryChecksums.add(binaryChecksum);
-                        } catch (Exception e){
-                            failedException = e;
-                        } finally {
-                            // We opened the file underneath; so need to release it
-                            release(inputSubStream, log);
-                        }
-                    } // end inner while
-                if (!completed && failedException!=null)
-                    throw failedException;
-                currentPosition += partSize;
-            } // end outer while
+            final int leavesPerPart = (int) (partSize / TREE_HASH_LEAF_SIZE);
+            List<UploadPartCallable> parts = new ArrayList<UploadPartCallable>();
+            for (int firstLeaf = 0; firstLeaf < leafHashes.size(); firstLeaf += leavesPerPart) {
+                long currentPosition = firstLeaf * TREE_HASH_LEAF_SIZE;
+                long length = Math.min(partSize, file.length() - currentPosition);
+                String partChecksum = TreeHashGenerator.calculateTreeHash(leafHashes.subList(
+                        firstLeaf, Math.min(firstLeaf + leavesPerPart, leafHashes.size())));
+                parts.add(new UploadPartCallable(accountId, vaultName, uploadId,
+                        file, currentPosition, length, partChecksum, progressListener));
+            }
+            transferConcurrently(parts);
 
-            String checksum = TreeHashGenerator.calculateTreeHash(binaryChecksums);
+            String checksum = TreeHashGenerator.calculateTreeHash(leafHashes);
 
             String archiveSize = Long.toString(file.length());
             CompleteMultipartUploadResult completeMultipartUploadResult =
@@ -766,10 +896,87 @@ public class ArchiveTransferManager {
         }
     }
 
+    /**
+     * Uploads one part of a multipart upload from its region of the file,
+     * retrying the upload of the part if any errors are encountered.
+     */
+    private class UploadPartCallable implements Callable<Void> {
+        private final String accountId;
+        private final String vaultName;
+        private final String uploadId;
+        private final File file;
+        private final long currentPosition;
+        private final long length;
+        private final String checksum;
+        private final ProgressListener progressListener;
+
+        UploadPartCallable(String accountId, String vaultName, String uploadId,
+                File file, long currentPosition, long length, String checksum,
+                ProgressListener progressListener) {
+            this.accountId = accountId;
+            this.vaultName = vaultName;
+            this.uploadId = uploadId;
+            this.file = file;
+            this.currentPosition = currentPosition;
+            this.length = length;
+            this.checksum = checksum;
+            this.progressListener = progressListener;
+        }
+
+        @Override
+        public Void call() throws Exception {
+            publishProgress(progressListener, ProgressEventType.TRANSFER_PART_STARTED_EVENT);
+            final String fileNotFoundMsg = "Unable to find file '"
+                    + file.getAbsolutePath() + "'";
+            InputSubstream inputSubStream = null;
+            try {
+                inputSubStream = new InputSubstream(
+                        newResettableInputStream(file, fileNotFoundMsg)
+                            .disableClose(), // requires explicit release
+                        currentPosition, length, true);
+
+                Exception failedException = null;
+                int tries = 0;
+                while (tries < 5) {
+                    tries++;
+                    try {
+                        if (tries > 1) {
+                            inputSubStream.reset();
+                        }
+                        UploadMultipartPartRequest req = new UploadMultipartPartRequest()
+                            .withAccountId(accountId)
+                            .withChecksum(checksum)
+                            .withBody(inputSubStream)
+                            .withRange("bytes " + currentPosition + "-" + (currentPosition + length - 1) + "/*")
+                            .withUploadId(uploadId)
+                            .withVaultName(vaultName)
+                            .withGeneralProgressListener(progressListener)
+                            ;
+
+                        glacier.uploadMultipartPart(req);
+                        publishProgress(progressListener, ProgressEventType.TRANSFER_PART_COMPLETED_EVENT);
+                        return null;
+                    } catch (AbortedException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        failedException = e;
+                    }
+                }
+                throw failedException;
+            } catch (Exception e) {
+                publishProgress(progressListener, ProgressEventType.TRANSFER_PART_FAILED_EVENT);
+                throw e;
+            } finally {
+                // We opened the file underneath; so need to release it
+                release(inputSubStream, log);
+            }
+        }
+    }
+
     private UploadResult uploadInSinglePart(final String accountId,
             final String vaultName, final String archiveDescription,
             final File file, ProgressListener progressListener) {
-        String checksum = TreeHashGenerator.calculateTreeHash(file);
+        String checksum = TreeHashGenerator.calculateTreeHash(file, executorService);
         ResettableInputStream is = newResettableInputStream(file);
         try {
             publishProgress(progressListener, ProgressEventType.TRANSFER_STARTED_EVENT);
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.glacier;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the time to tree hash a file by streaming it through
+ * {@link TreeHashGenerator#calculateTreeHash(File)}, or by hashing its
+ * leaves concurrently with
+ * {@link TreeHashGenerator#calculateTreeHash(File, ExecutorService)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TreeHashGeneratorBenchmark {
+
+    @Param({"64", "512"})
+    public int sizeInMB;
+
+    private File file;
+
+    private ExecutorService executorService;
+
+    @Setup
+    public void setup() throws Exception {
+        file = File.createTempFile("tree-hash-benchmark", ".dat");
+        Random random = new Random();
+        byte[] block = new byte[1024 * 1024];
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            for (int i = 0; i < sizeInMB; i++) {
+                random.nextBytes(block);
+                out.write(block);
+            }
+        } finally {
+            out.close();
+        }
+        executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown
+    public void tearDown() {
+        executorService.shutdownNow();
+        file.delete();
+    }
+
+    @Benchmark
+    public String streaming() {
+        return TreeHashGenerator.calculateTreeHash(file);
+    }
+
+    @Benchmark
+    public String parallel() {
+        return TreeHashGenerator.calculateTreeHash(file, executorService);
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.glacier;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.services.glacier.internal.ParallelTreeHasher;
+import com.amazonaws.util.BinaryUtils;
+
+/**
+ * Checks the parallel and in-place tree hashing against the sequential
+ * streaming implementation and a straightforward reference combination, for
+ * random inputs.
+ */
+public class TreeHashGeneratorTest {
+
+    private static final int MB = 1024 * 1024;
+
+    private final Random random = new Random(42);
+
+    private ExecutorService executorService;
+
+    @Before
+    public void setup() {
+        executorService = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void parallelFileHashMatchesStreamingHash() throws Exception {
+        // Sizes around the leaf and per task mapped region boundaries, then random ones
+        List<Integer> sizes = new ArrayList<Integer>();
+        for (int size : new int[] {1, MB - 1, MB, MB + 1, 16 * MB, 16 * MB + 1, 33 * MB + 7}) {
+            sizes.add(size);
+        }
+        for (int i = 0; i < 8; i++) {
+            sizes.add(1 + random.nextInt(40 * MB));
+        }
+        for (int size : sizes) {
+            byte[] data = randomBytes(size);
+            File file = writeFile(data);
+            try {
+                assertEquals("size " + size,
+                        TreeHashGenerator.calculateTreeHash(new ByteArrayInputStream(data)),
+                        TreeHashGenerator.calculateTreeHash(file, executorService));
+            } finally {
+                file.delete();
+            }
+        }
+    }
+
+    @Test
+    public void inPlaceCombinationMatchesReference() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            int count = 1 + random.nextInt(i < 100 ? 20 : 5000);
+            List<byte[]> checksums = new ArrayList<byte[]>();
+            for (int j = 0; j < count; j++) {
+                byte[] checksum = new byte[32];
+                random.nextBytes(checksum);
+                checksums.add(checksum);
+            }
+            assertEquals("count " + count, referenceTreeHash(checksums),
+                    TreeHashGenerator.calculateTreeHash(checksums));
+        }
+    }
+
+    @Test
+    public void partHashesCombineToArchiveHash() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            byte[] data = randomBytes(1 + random.nextInt(24 * MB));
+            File file = writeFile(data);
+            try {
+                List<byte[]> leaves = ParallelTreeHasher.hashLeaves(file, executorService);
+                String archiveHash = TreeHashGenerator.calculateTreeHash(leaves);
+                for (int leavesPerPart = 1; leavesPerPart <= 32; leavesPerPart *= 2) {
+                    List<byte[]> partHashes = new ArrayList<byte[]>();
+                    for (int first = 0; first < leaves.size(); first += leavesPerPart) {
+                        partHashes.add(BinaryUtils.fromHex(TreeHashGenerator.calculateTreeHash(
+                                leaves.subList(first, Math.min(first + leavesPerPart, leaves.size())))));
+                    }
+                    assertEquals(archiveHash, TreeHashGenerator.calculateTreeHash(partHashes));
+                }
+            } finally {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Combines the checksums by concatenating each pair into a new array, as
+     * the tree hash algorithm is usually described.
+     */
+    private static String referenceTreeHash(List<byte[]> checksums) throws Exception {
+        List<byte[]> hashes = new ArrayList<byte[]>(checksums);
+        while (hashes.size() > 1) {
+            List<byte[]> treeHashes = new ArrayList<byte[]>();
+            for (int i = 0; i < hashes.size() / 2; i++) {
+                byte[] firstPart = hashes.get(2 * i);
+                byte[] secondPart = hashes.get(2 * i + 1);
+                byte[] concatenation = new byte[firstPart.length + secondPart.length];
+                System.arraycopy(firstPart, 0, concatenation, 0, firstPart.length);
+                System.arraycopy(secondPart, 0, concatenation, firstPart.length, secondPart.length);
+                treeHashes.add(MessageDigest.getInstance("SHA-256").digest(concatenation));
+            }
+            if (hashes.size() % 2 == 1) {
+                treeHashes.add(hashes.get(hashes.size() - 1));
+            }
+            hashes = treeHashes;
+        }
+        return BinaryUtils.toHex(hashes.get(0));
+    }
+
+    private byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static File writeFile(byte[] data) throws IOException {
+        File file = File.createTempFile("tree-hash", ".dat");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.glacier.transfer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.event.ProgressEvent;
+import com.amazonaws.event.ProgressEventType;
+import com.amazonaws.event.SyncProgressListener;
+import com.amazonaws.services.glacier.TreeHashGenerator;
+import com.amazonaws.util.IOUtils;
+
+public class ArchiveTransferManagerTest {
+
+    private static final int MB = 1024 * 1024;
+
+    /** Just over the multipart threshold, which makes 7 parts of 16MB. */
+    private static final int UPLOAD_SIZE = 101 * MB;
+
+    private static final int UPLOAD_PARTS = 7;
+
+    private static final int MAX_CONCURRENT_PARTS = 4;
+
+    private static final String CHUNK_SIZE_PROPERTY =
+            "com.amazonaws.services.glacier.transfer.downloadChunkSizeInMB";
+
+    private static File uploadFile;
+
+    private static String uploadTreeHash;
+
+    private ExecutorService executorService;
+
+    private MockGlacier glacier;
+
+    private ArchiveTransferManager transferManager;
+
+    private CountingProgressListener progressListener;
+
+    @BeforeClass
+    public static void setupUploadFile() throws IOException {
+        uploadFile = File.createTempFile("glacier-upload", ".dat");
+        Random random = new Random(UPLOAD_SIZE);
+        byte[] block = new byte[MB];
+        FileOutputStream out = new FileOutputStream(uploadFile);
+        try {
+            for (int i = 0; i < UPLOAD_SIZE / MB; i++) {
+                random.nextBytes(block);
+                out.write(block);
+            }
+        } finally {
+            out.close();
+        }
+        uploadTreeHash = TreeHashGenerator.calculateTreeHash(uploadFile);
+    }
+
+    @AfterClass
+    public static void deleteUploadFile() {
+        uploadFile.delete();
+    }
+
+    @Before
+    public void setup() {
+        executorService = Executors.newFixedThreadPool(MAX_CONCURRENT_PARTS * 2);
+        glacier = new MockGlacier();
+        glacier.setTransferDelayMillis(50);
+        transferManager = new ArchiveTransferManager(glacier, null, null,
+                executorService, MAX_CONCURRENT_PARTS);
+        progressListener = new CountingProgressListener();
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+        System.clearProperty(CHUNK_SIZE_PROPERTY);
+    }
+
+    @Test
+    public void uploadsPartsConcurrently() throws Exception {
+        UploadResult result = transferManager.upload("-", "vault", "archive", uploadFile, progressListener);
+
+        assertEquals(uploadTreeHash, glacier.getArchiveChecksum(result.getArchiveId()));
+        assertTrue(glacier.getMaxInFlight() > 1);
+        assertTrue(glacier.getMaxInFlight() <= MAX_CONCURRENT_PARTS);
+        assertEquals(UPLOAD_PARTS, progressListener.count(ProgressEventType.TRANSFER_PART_STARTED_EVENT));
+        assertEquals(UPLOAD_PARTS, progressListener.count(ProgressEventType.TRANSFER_PART_COMPLETED_EVENT));
+        assertEquals(1, progressListener.count(ProgressEventType.TRANSFER_COMPLETED_EVENT));
+        assertEquals(UPLOAD_SIZE, progressListener.count(ProgressEventType.REQUEST_BYTE_TRANSFER_EVENT));
+    }
+
+    @Test
+    public void retriesFailedParts() throws Exception {
+        glacier.injectFailures(3);
+        UploadResult result = transferManager.upload("-", "vault", "archive", uploadFile, progressListener);
+
+        assertEquals(uploadTreeHash, glacier.getArchiveChecksum(result.getArchiveId()));
+        assertEquals(UPLOAD_PARTS, progressListener.count(ProgressEventType.TRANSFER_PART_COMPLETED_EVENT));
+        assertEquals(0, progressListener.count(ProgressEventType.TRANSFER_PART_FAILED_EVENT));
+    }
+
+    @Test
+    public void abortsUploadWhenPartKeepsFailing() throws Exception {
+        glacier.injectFailures(Integer.MAX_VALUE);
+        try {
+            transferManager.upload("-", "vault", "archive", uploadFile, progressListener);
+            fail("Expected AmazonClientException");
+        } catch (AmazonClientException expected) {
+        }
+        assertEquals(1, glacier.getAbortedUploads().size());
+        assertTrue(progressListener.count(ProgressEventType.TRANSFER_PART_FAILED_EVENT) >= 1);
+        assertEquals(1, progressListener.count(ProgressEventType.TRANSFER_FAILED_EVENT));
+        assertEquals(0, progressListener.count(ProgressEventType.TRANSFER_COMPLETED_EVENT));
+    }
+
+    @Test
+    public void downloadsChunksConcurrently() throws Exception {
+        System.setProperty(CHUNK_SIZE_PROPERTY, "1");
+        byte[] archive = randomBytes(8 * MB + 17);
+        String jobId = glacier.addJob(archive);
+        // A longer existing file must be truncated to the archive size
+        File file = File.createTempFile("glacier-download", ".dat");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(new byte[archive.length * 2]);
+            out.close();
+
+            transferManager.downloadJobOutput("-", "vault", jobId, file, progressListener);
+
+            assertArrayEquals(archive, readFile(file));
+            assertTrue(glacier.getMaxInFlight() > 1);
+            assertTrue(glacier.getMaxInFlight() <= MAX_CONCURRENT_PARTS);
+            assertEquals(9, progressListener.count(ProgressEventType.TRANSFER_PART_COMPLETED_EVENT));
+            assertEquals(1, progressListener.count(ProgressEventType.TRANSFER_COMPLETED_EVENT));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void retriesCorruptedChunks() throws Exception {
+        System.setProperty(CHUNK_SIZE_PROPERTY, "1");
+        byte[] archive = randomBytes(4 * MB);
+        String jobId = glacier.addJob(archive);
+        glacier.injectFailures(2);
+        File file = File.createTempFile("glacier-download", ".dat");
+        try {
+            transferManager.downloadJobOutput("-", "vault", jobId, file, progressListener);
+
+            assertArrayEquals(archive, readFile(file));
+            assertEquals(4, progressListener.count(ProgressEventType.TRANSFER_PART_COMPLETED_EVENT));
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            return IOUtils.toByteArray(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    /**
+     * Counts the events of each type, or the bytes of byte transfer events.
+     */
+    private static class CountingProgressListener extends SyncProgressListener {
+        private final Map<ProgressEventType, AtomicLong> counts =
+                new ConcurrentHashMap<ProgressEventType, AtomicLong>();
+
+        @Override
+        public synchronized void progressChanged(ProgressEvent progressEvent) {
+            AtomicLong count = counts.get(progressEvent.getEventType());
+            if (count == null) {
+                count = new AtomicLong();
+                counts.put(progressEvent.getEventType(), count);
+            }
+            count.addAndGet(progressEvent.getEventType().isByteCountEvent()
+                    ? progressEvent.getBytes() : 1);
+        }
+
+        long count(ProgressEventType type) {
+            AtomicLong count = counts.get(type);
+            return count == null ? 0 : count.get();
+        }
+    }
+}
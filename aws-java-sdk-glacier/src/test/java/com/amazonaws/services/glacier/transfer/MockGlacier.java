@@ -0,0 +1,272 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.glacier.transfer;
+
+import static com.amazonaws.event.SDKProgressPublisher.publishRequestBytesTransferred;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.glacier.AbstractAmazonGlacier;
+import com.amazonaws.services.glacier.TreeHashGenerator;
+import com.amazonaws.services.glacier.internal.TreeHashInputStream;
+import com.amazonaws.services.glacier.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.AbortMultipartUploadResult;
+import com.amazonaws.services.glacier.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.glacier.model.DescribeJobRequest;
+import com.amazonaws.services.glacier.model.DescribeJobResult;
+import com.amazonaws.services.glacier.model.GetJobOutputRequest;
+import com.amazonaws.services.glacier.model.GetJobOutputResult;
+import com.amazonaws.services.glacier.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.glacier.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.glacier.model.UploadMultipartPartRequest;
+import com.amazonaws.services.glacier.model.UploadMultipartPartResult;
+
+/**
+ * An in-memory Amazon Glacier endpoint for testing transfers without a
+ * network connection. Uploaded parts and archives are validated against their
+ * tree hashes, but only the hashes of multipart uploads are kept; job output
+ * is served from archives added with {@link #addJob(byte[])}.
+ */
+class MockGlacier extends AbstractAmazonGlacier {
+
+    private static final Pattern UPLOAD_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/\\*");
+
+    private static final Pattern DOWNLOAD_RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+    private final Map<String, SortedMap<Long, List<byte[]>>> uploads =
+            new ConcurrentHashMap<String, SortedMap<Long, List<byte[]>>>();
+
+    private final Map<String, String> archiveChecksums = new ConcurrentHashMap<String, String>();
+
+    private final Map<String, byte[]> jobs = new ConcurrentHashMap<String, byte[]>();
+
+    private final List<String> abortedUploads = new ArrayList<String>();
+
+    private final AtomicInteger failuresToInject = new AtomicInteger();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private volatile long transferDelayMillis;
+
+    /**
+     * Makes the given number of part uploads fail, or of job output chunks be
+     * returned with a wrong checksum.
+     */
+    public void injectFailures(int failures) {
+        failuresToInject.set(failures);
+    }
+
+    /**
+     * Sets how long each part upload or job output request takes.
+     */
+    public void setTransferDelayMillis(long transferDelayMillis) {
+        this.transferDelayMillis = transferDelayMillis;
+    }
+
+    /**
+     * Returns the largest number of part uploads or job output requests that
+     * were in flight at once.
+     */
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    public String getArchiveChecksum(String archiveId) {
+        return archiveChecksums.get(archiveId);
+    }
+
+    public synchronized List<String> getAbortedUploads() {
+        return new ArrayList<String>(abortedUploads);
+    }
+
+    /**
+     * Adds a completed archive retrieval job for the given archive data and
+     * returns its ID.
+     */
+    public String addJob(byte[] archive) {
+        String jobId = UUID.randomUUID().toString();
+        jobs.put(jobId, archive);
+        return jobId;
+    }
+
+    @Override
+    public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request) {
+        String uploadId = UUID.randomUUID().toString();
+        uploads.put(uploadId, new ConcurrentSkipListMap<Long, List<byte[]>>());
+        return new InitiateMultipartUploadResult().withUploadId(uploadId);
+    }
+
+    @Override
+    public UploadMultipartPartResult uploadMultipartPart(UploadMultipartPartRequest request) {
+        SortedMap<Long, List<byte[]>> parts = getUpload(request.getUploadId());
+        Matcher range = UPLOAD_RANGE.matcher(request.getRange());
+        if (!range.matches()) {
+            throw newServiceException("InvalidParameterValueException", "Invalid range: " + request.getRange());
+        }
+        long start = Long.parseLong(range.group(1));
+        long length = Long.parseLong(range.group(2)) - start + 1;
+
+        try {
+            beginTransfer();
+            TreeHashInputStream input = new TreeHashInputStream(request.getBody());
+            byte[] buffer = new byte[64 * 1024];
+            long read = 0;
+            int n;
+            while ((n = input.read(buffer)) != -1) {
+                read += n;
+                publishRequestBytesTransferred(request.getGeneralProgressListener(), n);
+            }
+            input.close();
+            if (failuresToInject.getAndDecrement() > 0) {
+                throw newServiceException("ServiceUnavailableException", "Injected failure");
+            }
+            if (read != length) {
+                throw newServiceException("InvalidParameterValueException",
+                        "Expected " + length + " bytes but received " + read);
+            }
+            String checksum = input.getTreeHash();
+            if (!checksum.equalsIgnoreCase(request.getChecksum())) {
+                throw newServiceException("InvalidParameterValueException", "Checksum mismatch");
+            }
+            parts.put(start, input.getChecksums());
+            return new UploadMultipartPartResult().withChecksum(checksum);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        SortedMap<Long, List<byte[]>> parts = uploads.remove(request.getUploadId());
+        if (parts == null) {
+            throw newServiceException("ResourceNotFoundException", "No such upload: " + request.getUploadId());
+        }
+        List<byte[]> checksums = new ArrayList<byte[]>();
+        for (List<byte[]> part : parts.values()) {
+            checksums.addAll(part);
+        }
+        String checksum = TreeHashGenerator.calculateTreeHash(checksums);
+        if (!checksum.equalsIgnoreCase(request.getChecksum())) {
+            throw newServiceException("InvalidParameterValueException", "Archive checksum mismatch");
+        }
+        String archiveId = UUID.randomUUID().toString();
+        archiveChecksums.put(archiveId, checksum);
+        return new CompleteMultipartUploadResult().withArchiveId(archiveId).withChecksum(checksum);
+    }
+
+    @Override
+    public synchronized AbortMultipartUploadResult abortMultipartUpload(AbortMultipartUploadRequest request) {
+        uploads.remove(request.getUploadId());
+        abortedUploads.add(request.getUploadId());
+        return new AbortMultipartUploadResult();
+    }
+
+    @Override
+    public DescribeJobResult describeJob(DescribeJobRequest request) {
+        return new DescribeJobResult()
+                .withJobId(request.getJobId())
+                .withCompleted(true)
+                .withArchiveSizeInBytes((long) getJob(request.getJobId()).length);
+    }
+
+    @Override
+    public GetJobOutputResult getJobOutput(GetJobOutputRequest request) {
+        byte[] archive = getJob(request.getJobId());
+        Matcher range = DOWNLOAD_RANGE.matcher(request.getRange());
+        if (!range.matches()) {
+            throw newServiceException("InvalidParameterValueException", "Invalid range: " + request.getRange());
+        }
+        int start = Integer.parseInt(range.group(1));
+        int end = Integer.parseInt(range.group(2));
+        byte[] chunk = Arrays.copyOfRange(archive, start, end + 1);
+
+        try {
+            beginTransfer();
+            String checksum = TreeHashGenerator.calculateTreeHash(new ByteArrayInputStream(chunk));
+            if (failuresToInject.getAndDecrement() > 0) {
+                checksum = TreeHashGenerator.calculateTreeHash(new ByteArrayInputStream(new byte[1]));
+            }
+            InputStream body = new ByteArrayInputStream(chunk);
+            return new GetJobOutputResult()
+                    .withBody(body)
+                    .withChecksum(checksum)
+                    .withContentRange("bytes " + start + "-" + end + "/" + archive.length);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void beginTransfer() {
+        int current = inFlight.incrementAndGet();
+        int max;
+        while ((max = maxInFlight.get()) < current && !maxInFlight.compareAndSet(max, current)) {
+            // retry
+        }
+        if (transferDelayMillis > 0) {
+            try {
+                Thread.sleep(transferDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private SortedMap<Long, List<byte[]>> getUpload(String uploadId) {
+        SortedMap<Long, List<byte[]>> parts = uploads.get(uploadId);
+        if (parts == null) {
+            throw newServiceException("ResourceNotFoundException", "No such upload: " + uploadId);
+        }
+        return parts;
+    }
+
+    private byte[] getJob(String jobId) {
+        byte[] archive = jobs.get(jobId);
+        if (archive == null) {
+            throw newServiceException("ResourceNotFoundException", "No such job: " + jobId);
+        }
+        return archive;
+    }
+
+    private static AmazonServiceException newServiceException(String errorCode, String message) {
+        AmazonServiceException e = new AmazonServiceException(message);
+        e.setErrorCode(errorCode);
+        e.setServiceName("AmazonGlacier");
+        e.setStatusCode("ServiceUnavailableException".equals(errorCode) ? 503 : 400);
+        return e;
+    }
+}
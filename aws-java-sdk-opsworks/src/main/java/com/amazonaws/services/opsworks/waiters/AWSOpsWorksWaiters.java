@@ -17,7 +17,7 @@ import com.amazonaws.services.opsworks.AWSOpsWorks;
 import com.amazonaws.services.opsworks.model.*;
 import com.amazonaws.waiters.*;
 
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Executors;
 
 public class AWSOpsWorksWaiters {
@@ -27,7 +27,7 @@ public class AWSOpsWorksWaiters {
      */
     private final AWSOpsWorks client;
 
-    private final ExecutorService executorService = Executors.newFixedThreadPool(50);
+    private final ScheduledExecutorService executorService = Executors.newScheduledThreadPool(50);
 
     /**
      * Constructs a new AWSOpsWorksWaiters with the given client
@@ -17,7 +17,7 @@ import com.amazonaws.services.redshift.AmazonRedshift;
 import com.amazonaws.services.redshift.model.*;
 import com.amazonaws.waiters.*;
 
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Executors;
 
 public class AmazonRedshiftWaiters {
@@ -27,7 +27,7 @@ public class AmazonRedshiftWaiters {
      */
     private final AmazonRedshift client;
 
-    private final ExecutorService executorService = Executors.newFixedThreadPool(50);
+    private final ScheduledExecutorService executorService = Executors.newScheduledThreadPool(50);
 
     /**
      * Constructs a new AmazonRedshiftWaiters with the given client
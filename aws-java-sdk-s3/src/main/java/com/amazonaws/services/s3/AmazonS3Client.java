@@ -36,6 +36,7 @@ import com.amazonaws.auth.Presigner;
 import com.amazonaws.auth.Signer;
 import com.amazonaws.auth.SignerFactory;
 import com.amazonaws.event.ProgressEventType;
+import com.amazonaws.event.CoalescingProgressListener;
 import com.amazonaws.event.ProgressInputStream;
 import com.amazonaws.event.ProgressListener;
 import com.amazonaws.handlers.HandlerChainFactory;
@@ -62,6 +63,7 @@ import com.amazonaws.services.s3.internal.Constants;
 import com.amazonaws.services.s3.internal.DeleteObjectsResponse;
 import com.amazonaws.services.s3.internal.DigestValidationInputStream;
 import com.amazonaws.services.s3.internal.DualstackEndpointBuilder;
+import com.amazonaws.services.s3.internal.FileRegionDigester;
 import com.amazonaws.services.s3.internal.InitiateMultipartUploadHeaderHandler;
 import com.amazonaws.services.s3.internal.InputSubstream;
 import com.amazonaws.services.s3.internal.ListPartsHeaderHandler;
@@ -1298,12 +1300,12 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
 
         // Populate the SSE-C parameters to the request header
         populateSSE_C(request, getObjectRequest.getSSECustomerKey());
-        final ProgressListener listener = getObjectRequest.getGeneralProgressListener();
+        final ProgressListener listener = progressListenerOf(getObjectRequest);
         publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
 
         try {
             S3Object s3Object = invoke(request, new S3ObjectResponseHandler(),
-                    getObjectRequest.getBucketName(), getObjectRequest.getKey());
+                    getObjectRequest.getBucketName(), getObjectRequest.getKey(), listener);
             /*
              * TODO: For now, it's easiest to set there here in the client, but
              *       we could push this back into the response handler with a
@@ -1458,10 +1460,12 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
         final String key = putObjectRequest.getKey();
         ObjectMetadata metadata = putObjectRequest.getMetadata();
         InputStream input = isOrig;
+        String contentSha256 = null;
         if (metadata == null)
             metadata = new ObjectMetadata();
         rejectNull(bucketName, "The bucket name parameter must be specified when uploading an object");
         rejectNull(key, "The key parameter must be specified when uploading an object");
+        Request<PutObjectRequest> request = createRequest(bucketName, key, putObjectRequest, HttpMethodName.PUT);
         // If a file is specified for upload, we need to pull some additional
         // information from it to auto-configure a few options
         if (file == null) {
@@ -1472,16 +1476,25 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
         } else {
             // Always set the content length, even if it's already set
             metadata.setContentLength(file.length());
-            final boolean calculateMD5 = metadata.getContentMD5() == null;
+            final boolean calculateMD5 = metadata.getContentMD5() == null
+                    && !skipMd5CheckStrategy.skipServerSideValidation(putObjectRequest);
             // Only set the content type if it hasn't already been set
             if (metadata.getContentType() == null) {
                 metadata.setContentType(Mimetypes.getInstance().getMimetype(file));
             }
 
-            if (calculateMD5 && !skipMd5CheckStrategy.skipServerSideValidation(putObjectRequest)) {
+            // Without chunked encoding a signed payload is hashed as a whole,
+            // so compute that hash in the same pass over the file as the MD5.
+            final boolean calculateSha256 = isWholePayloadSigned(request);
+            if (calculateMD5 || calculateSha256) {
                 try {
-                    String contentMd5_b64 = Md5Utils.md5AsBase64(file);
-                    metadata.setContentMD5(contentMd5_b64);
+                    FileRegionDigester digester = FileRegionDigester.digest(file, calculateSha256);
+                    if (calculateMD5) {
+                        metadata.setContentMD5(BinaryUtils.toBase64(digester.getMd5()));
+                    }
+                    if (calculateSha256) {
+                        contentSha256 = BinaryUtils.toHex(digester.getSha256());
+                    }
                 } catch (Exception e) {
                     throw new AmazonClientException(
                             "Unable to calculate MD5 hash: " + e.getMessage(), e);
@@ -1493,7 +1506,9 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
         final ObjectMetadata returnedMetadata;
         MD5DigestCalculatingInputStream md5DigestStream = null;
         try {
-            Request<PutObjectRequest> request = createRequest(bucketName, key, putObjectRequest, HttpMethodName.PUT);
+            if (contentSha256 != null) {
+                request.addHandlerContext(S3HandlerContextKeys.CONTENT_SHA256, contentSha256);
+            }
             // Make backward compatible with buffer size via system property
             final Integer bufsize = Constants.getS3StreamBufferSize();
             if (bufsize != null) {
@@ -1577,10 +1592,10 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
 
             populateRequestMetadata(request, metadata);
             request.setContent(input);
-            listener = putObjectRequest.getGeneralProgressListener();
+            listener = progressListenerOf(putObjectRequest);
             publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
             try {
-                returnedMetadata = invoke(request, new S3MetadataResponseHandler(), bucketName, key);
+                returnedMetadata = invoke(request, new S3MetadataResponseHandler(), bucketName, key, listener);
             } catch (Throwable t) {
                 publishProgress(listener, ProgressEventType.TRANSFER_FAILED_EVENT);
                 throw failure(t);
@@ -3013,8 +3028,35 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
                     uploadPartRequest.getFileOffset(),
                     partSize,
                     uploadPartRequest.isLastPart());
+            byte[] clientSideMd5 = null;
+            final boolean digestFileRegion = fileOrig != null && isWholePayloadSigned(request);
+            if (digestFileRegion) {
+                /*
+                 * Without chunked encoding a signed payload is hashed as a whole
+                 * before it is sent. Compute that hash and the MD5 in a single
+                 * pass over the file region, rather than reading the part once
+                 * for signing and once more through a digesting stream.
+                 */
+                try {
+                    FileRegionDigester digester = FileRegionDigester.digest(
+                            fileOrig, uploadPartRequest.getFileOffset(), partSize, true);
+                    request.addHandlerContext(S3HandlerContextKeys.CONTENT_SHA256,
+                            BinaryUtils.toHex(digester.getSha256()));
+                    if (uploadPartRequest.getMd5Digest() == null) {
+                        if (!skipMd5CheckStrategy.skipServerSideValidation(uploadPartRequest)) {
+                            request.addHeader(Headers.CONTENT_MD5, BinaryUtils.toBase64(digester.getMd5()));
+                        }
+                        if (!skipMd5CheckStrategy.skipClientSideValidationPerRequest(uploadPartRequest)) {
+                            clientSideMd5 = digester.getMd5();
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new AmazonClientException(
+                            "Unable to calculate MD5 hash: " + e.getMessage(), e);
+                }
+            }
             MD5DigestCalculatingInputStream md5DigestStream = null;
-            if (uploadPartRequest.getMd5Digest() == null
+            if (uploadPartRequest.getMd5Digest() == null && !digestFileRegion
                     && !skipMd5CheckStrategy.skipClientSideValidationPerRequest(uploadPartRequest)) {
                 /*
                  * If the user hasn't set the content MD5, then we don't want to buffer the whole
@@ -3023,10 +3065,10 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
                  */
                 isCurr = md5DigestStream = new MD5DigestCalculatingInputStream(isCurr);
             }
-            final ProgressListener listener = uploadPartRequest.getGeneralProgressListener();
+            final ProgressListener listener = progressListenerOf(uploadPartRequest);
             publishProgress(listener, ProgressEventType.TRANSFER_PART_STARTED_EVENT);
             return doUploadPart(bucketName, key, uploadId, partNumber,
-                    partSize, request, isCurr, md5DigestStream, listener);
+                    partSize, request, isCurr, md5DigestStream, clientSideMd5, listener);
         } finally {
             cleanupDataSource(uploadPartRequest, fileOrig, isOrig, isCurr, log);
         }
@@ -3037,15 +3079,18 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
             final long partSize, Request<UploadPartRequest> request,
             InputStream inputStream,
             MD5DigestCalculatingInputStream md5DigestStream,
+            byte[] clientSideMd5,
             final ProgressListener listener) {
         try {
             request.setContent(inputStream);
-            ObjectMetadata metadata = invoke(request, new S3MetadataResponseHandler(), bucketName, key);
+            ObjectMetadata metadata = invoke(request, new S3MetadataResponseHandler(), bucketName, key, listener);
             final String etag = metadata.getETag();
 
-            if (md5DigestStream != null
+            if ((md5DigestStream != null || clientSideMd5 != null)
                     && !skipMd5CheckStrategy.skipClientSideValidationPerUploadPartResponse(metadata)) {
-                byte[] clientSideHash = md5DigestStream.getMd5Digest();
+                byte[] clientSideHash = md5DigestStream != null
+                        ? md5DigestStream.getMd5Digest()
+                        : clientSideMd5;
                 byte[] serverSideHash = BinaryUtils.fromHex(etag);
 
                 if (!Arrays.equals(clientSideHash, serverSideHash)) {
@@ -3984,11 +4029,36 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
     private <X, Y extends AmazonWebServiceRequest> X invoke(Request<Y> request,
             HttpResponseHandler<AmazonWebServiceResponse<X>> responseHandler,
             String bucket, String key) {
+        return invoke(request, responseHandler, bucket, key, null);
+    }
+
+    /**
+     * Returns the listener the progress events of the given request are
+     * published to, which coalesces its byte transfer events if so configured.
+     * The transfer events this client publishes itself must go through the
+     * same listener as the events of the execution, by passing it to
+     * {@link #invoke(Request, HttpResponseHandler, String, String, ProgressListener)}.
+     */
+    private ProgressListener progressListenerOf(AmazonWebServiceRequest req) {
+        return CoalescingProgressListener.wrap(req.getGeneralProgressListener(), clientConfiguration);
+    }
+
+    /**
+     * @param progressListener
+     *            the listener the progress events of the execution are
+     *            published to, as returned by
+     *            {@link #progressListenerOf(AmazonWebServiceRequest)}; or
+     *            null if the client publishes no events of its own.
+     */
+    private <X, Y extends AmazonWebServiceRequest> X invoke(Request<Y> request,
+            HttpResponseHandler<AmazonWebServiceResponse<X>> responseHandler,
+            String bucket, String key, ProgressListener progressListener) {
 
         AmazonWebServiceRequest originalRequest = request.getOriginalRequest();
         checkHttps(originalRequest);
         S3SignerProvider signerProvider = new S3SignerProvider(this, getSigner());
         ExecutionContext executionContext = createExecutionContext(originalRequest, signerProvider);
+        executionContext.setProgressListener(progressListener);
         AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
         // Binds the request metrics to the current request.
         request.setAWSRequestMetrics(awsRequestMetrics);
@@ -4209,6 +4279,17 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
         return endpoint;
     }
 
+    /**
+     * Returns whether {@link AWSS3V4Signer} hashes the whole payload of the given request when
+     * signing it: the payload is signed, as it always is over HTTP but over HTTPS only when
+     * payload signing is enabled, and chunked encoding is disabled.
+     */
+    private boolean isWholePayloadSigned(Request<?> request) {
+        return clientOptions.isChunkedEncodingDisabled()
+                && (clientOptions.isPayloadSigningEnabled()
+                        || !"https".equals(request.getEndpoint().getScheme()));
+    }
+
     private static String getProtocol(Request<?> request) {
         if (request == null || request.getEndpoint() == null) {
             return null;
@@ -25,6 +25,7 @@ import com.amazonaws.internal.StaticCredentialsProvider;
 import com.amazonaws.metrics.RequestMetricCollector;
 import com.amazonaws.regions.Region;
 import com.amazonaws.services.kms.AWSKMSClient;
+import com.amazonaws.services.s3.internal.MultiBufferOutputStream;
 import com.amazonaws.services.s3.internal.MultiFileOutputStream;
 import com.amazonaws.services.s3.internal.PartCreationEvent;
 import com.amazonaws.services.s3.internal.S3Direct;
@@ -62,6 +63,7 @@ import com.amazonaws.util.VersionInfoUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
@@ -660,6 +662,12 @@ public class AmazonS3EncryptionClient extends AmazonS3Client implements
      * hitting the limit and will only resume when the in-flight uploads catch
      * up by releasing the temporary disk space upon successful uploads of the
      * completed parts</li>
+     * <li>the maximum memory to be used to buffer the parts in memory instead
+     * of in temporary files on disk, via
+     * {@link UploadObjectRequest#withMemoryLimit(long)}; the parts are then
+     * encrypted into a bounded pool of reusable buffers and uploaded straight
+     * from memory, with the encryption blocking when all buffers are in
+     * flight</li>
      * <li>the configuration of your own {@link MultiFileOutputStream} for
      * custom pipeline behavior</li>
      * <li>the configuration of your own {@link UploadObjectObserver} for custom
@@ -680,7 +688,10 @@ public class AmazonS3EncryptionClient extends AmazonS3Client implements
      * <li>A {@link MultiFileOutputStream} is constructed (or retrieved from the
      * request) which serves as the pipeline for incremental (but serial)
      * encryption to disk with concurrent multipart uploads to S3 whenever the
-     * parts on the disk are ready</li>
+     * parts on the disk are ready; or, if a memory limit is configured, no
+     * custom <code>MultiFileOutputStream</code> is configured and the
+     * <code>UploadObjectObserver</code> supports in-memory parts, a
+     * {@link MultiBufferOutputStream} which does the same in memory</li>
      * <li>Initialize the <code>MultiFileOutputStream</code></li>
      * <li>Kicks off the pipeline for incremental encryption to disk with
      * pipelined concurrent multi-part uploads to S3</li>
@@ -717,14 +728,22 @@ public class AmazonS3EncryptionClient extends AmazonS3Client implements
         final String uploadId = observer.onUploadInitiation(req);
         final List<PartETag> partETags = new ArrayList<PartETag>();
         MultiFileOutputStream mfos = req.getMultiFileOutputStream();
-        if (mfos == null)
-            mfos = new MultiFileOutputStream();
+        MultiBufferOutputStream mbos = null;
+        if (mfos == null) {
+            if (req.getMemoryLimit() > 0 && observer.isPartBufferSupported())
+                mbos = new MultiBufferOutputStream();
+            else
+                mfos = new MultiFileOutputStream();
+        }
         try {
-            // initialize the multi-file output stream
-            mfos.init(observer, req.getPartSize(), req.getDiskLimit());
+            // initialize the multi-file (or multi-buffer) output stream
+            final OutputStream os = mbos == null
+                ? mfos.init(observer, req.getPartSize(), req.getDiskLimit())
+                : mbos.init(observer, req.getPartSize(), req.getMemoryLimit(),
+                        req.isDirectBuffers());
             // Kicks off the encryption-upload pipeline;
-            // Note mfos is automatically closed upon method completion.
-            crypto.putLocalObjectSecurely(req, uploadId, mfos);
+            // Note os is automatically closed upon method completion.
+            crypto.putLocalObjectSecurely(req, uploadId, os);
             // block till all part have been uploaded
             for (Future<UploadPartResult> future: observer.getFutures()) {
                 UploadPartResult partResult = future.get();
@@ -743,7 +762,10 @@ public class AmazonS3EncryptionClient extends AmazonS3Client implements
         } finally {
             if (defaultExecutorService)
                 es.shutdownNow();   // shut down the locally created thread pool
-            mfos.cleanup();       // delete left-over temp files
+            if (mbos == null)
+                mfos.cleanup();   // delete left-over temp files
+            else
+                mbos.cleanup();
         }
         // Complete upload
         return observer.onCompletion(partETags);
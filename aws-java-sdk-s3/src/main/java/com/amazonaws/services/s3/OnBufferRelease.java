@@ -0,0 +1,33 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A service provider interface (SPI) used to notify that an in-memory part
+ * buffer is no longer in use and can be reused.
+ */
+public interface OnBufferRelease {
+    /**
+     * Called once the content of the given part buffer is no longer needed.
+     * <p>
+     * Implementation of this method should never block.
+     *
+     * @param buffer
+     *            the part buffer being released
+     */
+    public void onBufferRelease(ByteBuffer buffer);
+}
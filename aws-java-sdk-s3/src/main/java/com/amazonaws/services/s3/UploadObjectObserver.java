@@ -15,6 +15,7 @@
 package com.amazonaws.services.s3;
 
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
@@ -24,6 +25,8 @@ import java.util.concurrent.Future;
 import org.apache.commons.logging.LogFactory;
 
 import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.services.s3.internal.ByteBufferInputStream;
+import com.amazonaws.services.s3.internal.MultiBufferOutputStream;
 import com.amazonaws.services.s3.internal.MultiFileOutputStream;
 import com.amazonaws.services.s3.internal.PartCreationEvent;
 import com.amazonaws.services.s3.internal.S3DirectSpi;
@@ -119,11 +122,13 @@ public class UploadObjectObserver {
 
     /**
      * Notified from {@link MultiFileOutputStream#fos()} when a part ready for
-     * upload has been successfully created on disk. By default, this method
-     * performs the following:
+     * upload has been successfully created on disk, or from
+     * {@link MultiBufferOutputStream} when a part has been successfully
+     * created in memory. By default, this method performs the following:
      * <ol>
-     * <li>calls {@link #newUploadPartRequest(PartCreationEvent, File)} to
-     * create an upload-part request for the newly created ciphertext file</li>
+     * <li>calls {@link #newUploadPartRequest(PartCreationEvent, File)} or
+     * {@link #newUploadPartRequest(PartCreationEvent, ByteBuffer)} to create
+     * an upload-part request for the newly created ciphertext part</li>
      * <li>call {@link #appendUserAgent(AmazonWebServiceRequest, String)} to
      * append the necessary user agent string to the request</li>
      * <li>and finally submit a concurrent task, which calls the method
@@ -138,6 +143,10 @@ public class UploadObjectObserver {
      *            which is ready for multipart upload to S3.
      */
     public void onPartCreate(PartCreationEvent event) {
+        if (event.getPartBuffer() != null) {
+            onPartBufferCreate(event);
+            return;
+        }
         final File part = event.getPart();
         final UploadPartRequest reqUploadPart =
             newUploadPartRequest(event, part);
@@ -164,6 +173,65 @@ public class UploadObjectObserver {
         }));
     }
 
+    /**
+     * Returns true if the parts can be handed to this observer in memory,
+     * via {@link PartCreationEvent#getPartBuffer()}; or false if they must be
+     * created on disk, in which case the memory limit of the request is
+     * ignored. By default, this is false for observers that override
+     * {@link #onPartCreate(PartCreationEvent)} or
+     * {@link #newUploadPartRequest(PartCreationEvent, File)}, which expect
+     * {@link PartCreationEvent#getPart()} to be a file.
+     * <p>
+     * Custom observers that handle in-memory parts can override this method
+     * to return true.
+     */
+    protected boolean isPartBufferSupported() {
+        return !overrides("onPartCreate", PartCreationEvent.class)
+            && !overrides("newUploadPartRequest", PartCreationEvent.class, File.class);
+    }
+
+    /**
+     * Returns true if the given method is declared by a subclass of this
+     * class.
+     */
+    private boolean overrides(String name, Class<?>... parameterTypes) {
+        for (Class<?> c = getClass(); c != UploadObjectObserver.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod(name, parameterTypes);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // keep looking up the hierarchy
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Submits the upload of an in-memory part, releasing its buffer for reuse
+     * once done.
+     */
+    private void onPartBufferCreate(PartCreationEvent event) {
+        final ByteBuffer part = event.getPartBuffer();
+        final UploadPartRequest reqUploadPart =
+            newUploadPartRequest(event, part);
+        final OnBufferRelease bufferReleaseObserver = event.getBufferReleaseObserver();
+        appendUserAgent(reqUploadPart, AmazonS3EncryptionClient.USER_AGENT);
+        futures.add(es.submit(new Callable<UploadPartResult>() {
+            @Override public UploadPartResult call() {
+                // Upload the ciphertext directly via the non-encrypting
+                // s3 client
+                try {
+                    return uploadPart(reqUploadPart);
+                } finally {
+                    // make the buffer of the part already uploaded available
+                    // to the next part
+                    if (bufferReleaseObserver != null)
+                        bufferReleaseObserver.onBufferRelease(part);
+                }
+            }
+        }));
+    }
+
     /**
      * Notified from
      * {@link AmazonS3EncryptionClient#uploadObject(UploadObjectRequest)} when
@@ -226,6 +294,31 @@ public class UploadObjectObserver {
         return reqUploadPart;
     }
 
+    /**
+     * Creates and returns an upload-part request corresponding to an
+     * in-memory ciphertext part upon a part-creation event.
+     *
+     * @param event
+     *            the part-creation event of the ciphertxt part.
+     * @param part
+     *            the ciphertext, from the position to the limit of the buffer,
+     *            corresponding to the upload-part
+     */
+    protected UploadPartRequest newUploadPartRequest(PartCreationEvent event,
+            final ByteBuffer part) {
+        final UploadPartRequest reqUploadPart = new UploadPartRequest()
+            .withBucketName(req.getBucketName())
+            .withInputStream(new ByteBufferInputStream(part))
+            .withKey(req.getKey())
+            .withPartNumber(event.getPartNumber())
+            .withPartSize(part.remaining())
+            .withLastPart(event.isLastPart())
+            .withUploadId(uploadId)
+            .withObjectMetadata(req.getUploadPartMetadata())
+            ;
+        return reqUploadPart;
+    }
+
     /**
      * Uploads the ciphertext via the non-encrypting s3 client.
      * @param reqUploadPart part upload request
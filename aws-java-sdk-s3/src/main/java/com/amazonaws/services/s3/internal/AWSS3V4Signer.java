@@ -115,13 +115,26 @@ public class AWSS3V4Signer extends AWS4Signer {
                                 .calculateStreamContentLength(originalContentLength)));
                 return CONTENT_SHA_256;
             } else {
-                return super.calculateContentHash(request);
+                String precomputedHash = getPrecomputedContentHash(request);
+                return precomputedHash != null ? precomputedHash : super.calculateContentHash(request);
             }
         }
 
         return UNSIGNED_PAYLOAD;
     }
 
+    /**
+     * @return The hex encoded SHA-256 hash of the payload if it was already
+     *         computed by the client, null otherwise.
+     */
+    private String getPrecomputedContentHash(SignableRequest<?> signableRequest) {
+        if (signableRequest instanceof Request) {
+            Request<?> request = (Request<?>) signableRequest;
+            return request.getHandlerContext(S3HandlerContextKeys.CONTENT_SHA256);
+        }
+        return null;
+    }
+
     /**
      * Determine whether to use aws-chunked for signing
      */
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.amazonaws.internal.SdkFilterInputStream;
+
+/**
+ * InputStream wrapper for UTF-8 encoded XML documents that replaces every
+ * carriage return (\r) with the explicit XML character entity
+ * <code>&amp;#013;</code> as the document is read, to prevent the SAX parser
+ * from normalizing 0x0D characters in element text to 0x0A.
+ * <p>
+ * The replacement is done on the raw bytes without decoding the document: in
+ * UTF-8 the byte 0x0D only ever encodes the carriage return character and
+ * never appears inside a multi-byte sequence. Only a small fixed-size buffer
+ * is held, regardless of the size of the document.
+ * <p>
+ * Mark and reset are not supported.
+ */
+public class CarriageReturnEscapingInputStream extends SdkFilterInputStream {
+
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private static final byte[] ESCAPED_CARRIAGE_RETURN = { '&', '#', '0', '1', '3', ';' };
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /** Bytes read from the wrapped stream, before escaping. */
+    private final byte[] raw = new byte[BUFFER_SIZE];
+
+    /** Escaped bytes not yet returned to the caller. */
+    private byte[] escaped = new byte[BUFFER_SIZE];
+    private int escapedPosition;
+    private int escapedLimit;
+
+    private boolean eof;
+
+    public CarriageReturnEscapingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fillIfNecessary()) {
+            return -1;
+        }
+        return escaped[escapedPosition++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (!fillIfNecessary()) {
+            return -1;
+        }
+        int count = Math.min(len, escapedLimit - escapedPosition);
+        System.arraycopy(escaped, escapedPosition, b, off, count);
+        escapedPosition += count;
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && fillIfNecessary()) {
+            int count = (int) Math.min(n - skipped, escapedLimit - escapedPosition);
+            escapedPosition += count;
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        abortIfNeeded();
+        return escapedLimit - escapedPosition;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        // mark is not supported
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    /**
+     * Makes sure there is at least one escaped byte available, reading and
+     * escaping the next chunk of the wrapped stream if necessary.
+     *
+     * @return false if the end of the wrapped stream has been reached and all
+     *         the escaped bytes have been returned.
+     */
+    private boolean fillIfNecessary() throws IOException {
+        while (escapedPosition == escapedLimit) {
+            if (eof) {
+                return false;
+            }
+            abortIfNeeded();
+            int read = in.read(raw, 0, raw.length);
+            if (read == -1) {
+                eof = true;
+                return false;
+            }
+            escape(read);
+        }
+        return true;
+    }
+
+    private void escape(int length) {
+        int carriageReturns = 0;
+        for (int i = 0; i < length; i++) {
+            if (raw[i] == CARRIAGE_RETURN) {
+                carriageReturns++;
+            }
+        }
+        int escapedLength = length + carriageReturns * (ESCAPED_CARRIAGE_RETURN.length - 1);
+        if (escaped.length < escapedLength) {
+            escaped = new byte[escapedLength];
+        }
+        if (carriageReturns == 0) {
+            System.arraycopy(raw, 0, escaped, 0, length);
+        } else {
+            int j = 0;
+            for (int i = 0; i < length; i++) {
+                if (raw[i] == CARRIAGE_RETURN) {
+                    System.arraycopy(ESCAPED_CARRIAGE_RETURN, 0, escaped, j, ESCAPED_CARRIAGE_RETURN.length);
+                    j += ESCAPED_CARRIAGE_RETURN.length;
+                } else {
+                    escaped[j++] = raw[i];
+                }
+            }
+        }
+        escapedPosition = 0;
+        escapedLimit = escapedLength;
+    }
+}
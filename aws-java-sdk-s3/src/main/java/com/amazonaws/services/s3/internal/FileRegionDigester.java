@@ -0,0 +1,137 @@
+/*
+ * Copyright 2010-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.util.IOUtils;
+
+/**
+ * Computes the MD5 and, optionally, the SHA-256 digest of a region of a file
+ * in a single pass.
+ * <p>
+ * The region is read directly from the file channel with positional reads
+ * into one reusable block, and each block is fed to both digests while it is
+ * still in the CPU cache, instead of reading the file once per digest through
+ * a chain of wrapper streams.
+ * <p>
+ * Like the Glacier tree hasher, this doesn't map the file into memory: a
+ * mapping is only released when its buffer is garbage collected, which can
+ * keep the file locked on some platforms long after the upload.
+ */
+public class FileRegionDigester {
+    private static final Log LOG = LogFactory.getLog(FileRegionDigester.class);
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private final byte[] md5;
+    private final byte[] sha256;
+
+    private FileRegionDigester(byte[] md5, byte[] sha256) {
+        this.md5 = md5;
+        this.sha256 = sha256;
+    }
+
+    /**
+     * Digests the whole file.
+     *
+     * @param file
+     *            The file to digest.
+     * @param computeSha256
+     *            Whether the SHA-256 digest is computed along with the MD5
+     *            digest.
+     */
+    public static FileRegionDigester digest(File file, boolean computeSha256) throws IOException {
+        return digest(file, 0, file.length(), computeSha256);
+    }
+
+    /**
+     * Digests the given region of the file.
+     *
+     * @param file
+     *            The file to digest.
+     * @param offset
+     *            The position in the file of the first byte of the region.
+     * @param length
+     *            The length of the region; the region ends at the end of the
+     *            file if the file is shorter.
+     * @param computeSha256
+     *            Whether the SHA-256 digest is computed along with the MD5
+     *            digest.
+     */
+    public static FileRegionDigester digest(File file, long offset, long length, boolean computeSha256)
+            throws IOException {
+        final MessageDigest md5Digest = newDigest("MD5");
+        final MessageDigest sha256Digest = computeSha256 ? newDigest("SHA-256") : null;
+
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            final FileChannel channel = fis.getChannel();
+            final long end = Math.min(offset + length, channel.size());
+            final ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+            final byte[] blockArray = block.array();
+            long position = offset;
+            while (position < end) {
+                block.clear();
+                block.limit((int) Math.min(BLOCK_SIZE, end - position));
+                int read = channel.read(block, position);
+                if (read == -1) {
+                    break;
+                }
+                md5Digest.update(blockArray, 0, read);
+                if (sha256Digest != null) {
+                    sha256Digest.update(blockArray, 0, read);
+                }
+                position += read;
+            }
+        } finally {
+            IOUtils.closeQuietly(fis, LOG);
+        }
+        return new FileRegionDigester(md5Digest.digest(),
+                sha256Digest == null ? null : sha256Digest.digest());
+    }
+
+    private static MessageDigest newDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e) { // should never occur
+            throw new IllegalStateException("unexpected", e);
+        }
+    }
+
+    /**
+     * Returns the MD5 digest of the region.
+     */
+    public byte[] getMd5() {
+        return md5.clone();
+    }
+
+    /**
+     * Returns the SHA-256 digest of the region, or null if it was not
+     * requested.
+     */
+    public byte[] getSha256() {
+        return sha256 == null ? null : sha256.clone();
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import com.amazonaws.AbortedException;
+import com.amazonaws.services.s3.OnBufferRelease;
+import com.amazonaws.services.s3.UploadObjectObserver;
+
+/**
+ * Used to split an output stream into multiple in-memory parts for purposes
+ * such as parallel uploads, as an alternative to
+ * {@link MultiFileOutputStream} that doesn't involve any disk access.
+ * <p>
+ * Parts are written into a bounded pool of buffers of the part size, which
+ * are allocated as needed and reused once released by the observer; writing
+ * blocks when all the buffers are in flight.
+ */
+public class MultiBufferOutputStream extends OutputStream implements OnBufferRelease {
+    private final BlockingQueue<ByteBuffer> released = new LinkedBlockingQueue<ByteBuffer>();
+    private UploadObjectObserver observer;
+    private int partSize;
+    private int maxBuffers;
+    private boolean directBuffers;
+    private int buffersAllocated;
+    private int partsCreated;
+    /**
+     * Total number of bytes written to all parts so far.
+     */
+    private long totalBytesWritten;
+    private ByteBuffer curr;
+    private boolean closed;
+
+    /**
+     * Used to initialized this stream. This method is an SPI (service provider
+     * interface) that is called from <code>AmazonS3EncryptionClient</code>.
+     * <p>
+     * Implementation of this method should never block.
+     *
+     * @param observer
+     *            the upload object observer
+     * @param partSize
+     *            part size for multi-part upload
+     * @param memoryLimit
+     *            the maximum memory to be used for the part buffers of this
+     *            multi-part upload
+     * @param directBuffers
+     *            true to allocate direct part buffers; false otherwise
+     *
+     * @return this object
+     */
+    public MultiBufferOutputStream init(UploadObjectObserver observer,
+            long partSize, long memoryLimit, boolean directBuffers) {
+        if (observer == null)
+            throw new IllegalArgumentException("Observer must be specified");
+        if (partSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                "Part size must not exceed " + Integer.MAX_VALUE
+                + " bytes for in-memory parts: partSize=" + partSize);
+        }
+        if (memoryLimit < partSize << 1) {
+            throw new IllegalArgumentException(
+                "Maximum memory must be at least twice as large as the part size: partSize="
+                + partSize + ", memoryLimit=" + memoryLimit);
+        }
+        this.observer = observer;
+        this.partSize = (int) partSize;
+        this.maxBuffers = (int) Math.min(memoryLimit / partSize, Integer.MAX_VALUE);
+        this.directBuffers = directBuffers;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * This method would block as necessary if all part buffers are in flight.
+     */
+    @Override
+    public void write(int b) throws IOException {
+        buffer().put((byte) b);
+        totalBytesWritten++;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * This method would block as necessary if all part buffers are in flight.
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            final ByteBuffer buffer = buffer();
+            final int n = Math.min(len, buffer.remaining());
+            buffer.put(b, off, n);
+            off += n;
+            len -= n;
+            totalBytesWritten += n;
+        }
+    }
+
+    /**
+     * Returns the part buffer to be used for writing, blocking if necessary
+     * if all part buffers are in flight.
+     */
+    private ByteBuffer buffer() throws IOException {
+        if (closed)
+            throw new IOException("Output stream is already closed");
+        if (curr == null || !curr.hasRemaining()) {
+            if (curr != null) {
+                curr.flip();
+                // notify about the new part ready for processing
+                observer.onPartCreate(new PartCreationEvent(
+                        curr, partsCreated, false, this));
+            }
+            partsCreated++;
+            curr = acquire();
+        }
+        return curr;
+    }
+
+    /**
+     * Returns an empty part buffer, allocating a new one if the limit hasn't
+     * been reached, or else blocking the running thread until one is
+     * released.
+     *
+     * @throws AbortedException
+     *             if the running thread is interrupted while waiting
+     */
+    private ByteBuffer acquire() {
+        ByteBuffer buffer = released.poll();
+        if (buffer == null) {
+            if (buffersAllocated < maxBuffers) {
+                buffersAllocated++;
+                return directBuffers
+                     ? ByteBuffer.allocateDirect(partSize)
+                     : ByteBuffer.allocate(partSize);
+            }
+            try {
+                buffer = released.take();
+            } catch (InterruptedException e) {
+                // don't want to re-interrupt so it won't cause SDK stream to be
+                // closed in case the thread is reused for a different request
+                throw new AbortedException(e);
+            }
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    @Override
+    public void onBufferRelease(ByteBuffer buffer) {
+        released.offer(buffer);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        if (curr != null) {
+            if (curr.position() == 0) {
+                onBufferRelease(curr);
+            } else {
+                curr.flip();
+                // notify about the new part ready for processing
+                observer.onPartCreate(new PartCreationEvent(
+                        curr, partsCreated, true, this));
+            }
+            curr = null;
+        }
+    }
+
+    /**
+     * Drops the released part buffers so they can be garbage collected.
+     */
+    public void cleanup() {
+        released.clear();
+    }
+
+    /**
+     * @return the number of parts created so far.
+     */
+    public int getNumPartsCreated() {
+        return partsCreated;
+    }
+
+    public long getPartSize() {
+        return partSize;
+    }
+
+    public long getTotalBytesWritten() {
+        return totalBytesWritten;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public boolean isDirectBuffers() {
+        return directBuffers;
+    }
+}
@@ -15,32 +15,63 @@
 package com.amazonaws.services.s3.internal;
 
 import java.io.File;
+import java.nio.ByteBuffer;
 
+import com.amazonaws.services.s3.OnBufferRelease;
 import com.amazonaws.services.s3.OnFileDelete;
 
 public class PartCreationEvent {
     private final File part;
+    private final ByteBuffer partBuffer;
     private final int partNumber;
     private final boolean isLastPart;
     private final OnFileDelete fileDeleteObserver;
+    private final OnBufferRelease bufferReleaseObserver;
 
     PartCreationEvent(File part, int partNumber, boolean isLastPart,
             OnFileDelete fileDeleteObserver) {
         if (part == null)
             throw new IllegalArgumentException("part must not be specified");
         this.part = part;
+        this.partBuffer = null;
         this.partNumber = partNumber;
         this.isLastPart = isLastPart;
         this.fileDeleteObserver = fileDeleteObserver;
+        this.bufferReleaseObserver = null;
+    }
+
+    PartCreationEvent(ByteBuffer partBuffer, int partNumber, boolean isLastPart,
+            OnBufferRelease bufferReleaseObserver) {
+        if (partBuffer == null)
+            throw new IllegalArgumentException("part buffer must be specified");
+        this.part = null;
+        this.partBuffer = partBuffer;
+        this.partNumber = partNumber;
+        this.isLastPart = isLastPart;
+        this.fileDeleteObserver = null;
+        this.bufferReleaseObserver = bufferReleaseObserver;
     }
 
     /**
-     * Returns a non-null part (in the form of a file) for multi-part upload.
+     * Returns the part (in the form of a file) for multi-part upload; or null
+     * if the part is held in memory.
+     *
+     * @see #getPartBuffer()
      */
     public File getPart() {
         return part;
     }
 
+    /**
+     * Returns the part (in the form of a buffer, from its position to its
+     * limit) for multi-part upload; or null if the part is held in a file.
+     *
+     * @see #getPart()
+     */
+    public ByteBuffer getPartBuffer() {
+        return partBuffer;
+    }
+
     public int getPartNumber() {
         return partNumber;
     }
@@ -55,4 +86,12 @@ public class PartCreationEvent {
     public OnFileDelete getFileDeleteObserver() {
         return fileDeleteObserver;
     }
+
+    /**
+     * Returns an observer to be notified once the part buffer is no longer in
+     * use; or null if there is none.
+     */
+    public OnBufferRelease getBufferReleaseObserver() {
+        return bufferReleaseObserver;
+    }
 }
\ No newline at end of file
@@ -252,9 +252,11 @@ final class ContentCryptoMaterial {
      */
     private static SecretKey cek(byte[] cekSecured, String keyWrapAlgo,
             EncryptionMaterials materials, Provider securityProvider,
-            ContentCryptoScheme contentCryptoScheme, AWSKMSClient kms) {
+            ContentCryptoScheme contentCryptoScheme, AWSKMSClient kms,
+            KMSDataKeyCache dataKeyCache) {
         if (isKMSKeyWrapped(keyWrapAlgo))
-            return cekByKMS(cekSecured, keyWrapAlgo, materials, contentCryptoScheme, kms);
+            return cekByKMS(cekSecured, keyWrapAlgo, materials,
+                    contentCryptoScheme, kms, dataKeyCache);
         Key kek;
         if (materials.getKeyPair() != null) {
             // Do envelope decryption with private key from key pair
@@ -298,19 +300,44 @@ final class ContentCryptoMaterial {
     }
 
     /**
-     * Decrypts the secured CEK via KMS; involves network calls.
+     * Decrypts the secured CEK via KMS, unless found in the given data key
+     * cache; involves network calls.
      *
+     * @param dataKeyCache
+     *            the cache of data keys; or null if data keys are not cached
      * @return the CEK (in plaintext).
      */
     private static SecretKey cekByKMS(byte[] cekSecured, String keyWrapAlgo,
             EncryptionMaterials materials,
-            ContentCryptoScheme contentCryptoScheme, AWSKMSClient kms) {
+            ContentCryptoScheme contentCryptoScheme, AWSKMSClient kms,
+            KMSDataKeyCache dataKeyCache) {
+        final Map<String, String> encryptionContext = materials.getMaterialsDescription();
+        if (dataKeyCache != null) {
+            KMSDataKeyCache.DataKey cached =
+                    dataKeyCache.getDecryptionKey(cekSecured, encryptionContext);
+            if (cached != null) {
+                try {
+                    return new SecretKeySpec(cached.getPlaintext(),
+                            contentCryptoScheme.getKeyGeneratorAlgorithm());
+                } finally {
+                    cached.wipe();
+                }
+            }
+        }
         DecryptRequest kmsreq = new DecryptRequest()
-            .withEncryptionContext(materials.getMaterialsDescription())
+            .withEncryptionContext(encryptionContext)
             .withCiphertextBlob(ByteBuffer.wrap(cekSecured));
         DecryptResult result = kms.decrypt(kmsreq);
-        return new SecretKeySpec(copyAllBytesFrom(result.getPlaintext()),
-                contentCryptoScheme.getKeyGeneratorAlgorithm());
+        final byte[] plaintext = copyAllBytesFrom(result.getPlaintext());
+        try {
+            if (dataKeyCache != null) {
+                dataKeyCache.putDecryptionKey(cekSecured, encryptionContext, plaintext);
+            }
+            return new SecretKeySpec(plaintext,
+                    contentCryptoScheme.getKeyGeneratorAlgorithm());
+        } finally {
+            Arrays.fill(plaintext, (byte) 0);
+        }
     }
 
     /**
@@ -323,7 +350,7 @@ final class ContentCryptoMaterial {
             boolean keyWrapExpected,
             AWSKMSClient kms) {
         return fromObjectMetadata0(metadata, kekMaterialAccessor,
-                securityProvider, null, NONE, keyWrapExpected, kms);
+                securityProvider, null, NONE, keyWrapExpected, kms, null);
     }
 
     /**
@@ -340,9 +367,10 @@ final class ContentCryptoMaterial {
             long[] range,
             ExtraMaterialsDescription extra,
             boolean keyWrapExpected,
-            AWSKMSClient kms) {
+            AWSKMSClient kms,
+            KMSDataKeyCache dataKeyCache) {
         return fromObjectMetadata0(metadata, kekMaterialAccessor,
-                securityProvider, range, extra, keyWrapExpected, kms);
+                securityProvider, range, extra, keyWrapExpected, kms, dataKeyCache);
     }
 
     /**
@@ -355,7 +383,8 @@ final class ContentCryptoMaterial {
             long[] range,
             ExtraMaterialsDescription extra,
             boolean keyWrapExpected,
-            AWSKMSClient kms) {
+            AWSKMSClient kms,
+            KMSDataKeyCache dataKeyCache) {
         // CEK and IV
         Map<String, String> userMeta = metadata.getUserMetadata();
         String b64key = userMeta.get(Headers.CRYPTO_KEY_V2);
@@ -419,7 +448,7 @@ final class ContentCryptoMaterial {
         if (keyWrapExpected && keyWrapAlgo == null)
             throw newKeyWrapException();
         SecretKey cek = cek(cekWrapped, keyWrapAlgo, materials,
-                securityProvider, contentCryptoScheme, kms);
+                securityProvider, contentCryptoScheme, kms, dataKeyCache);
         return new ContentCryptoMaterial(merged, cekWrapped, keyWrapAlgo,
                 contentCryptoScheme.createCipherLite(cek, iv,
                         Cipher.DECRYPT_MODE, securityProvider));
@@ -440,7 +469,7 @@ final class ContentCryptoMaterial {
             boolean keyWrapExpected,
             AWSKMSClient kms) {
         return fromInstructionFile0(instFile, kekMaterialAccessor,
-                securityProvider, null, NONE, keyWrapExpected, kms);
+                securityProvider, null, NONE, keyWrapExpected, kms, null);
     }
 
     /**
@@ -457,9 +486,10 @@ final class ContentCryptoMaterial {
             long[] range,
             ExtraMaterialsDescription extra,
             boolean keyWrapExpected,
-            AWSKMSClient kms) {
+            AWSKMSClient kms,
+            KMSDataKeyCache dataKeyCache) {
         return fromInstructionFile0(instFile, kekMaterialAccessor,
-                securityProvider, range, extra, keyWrapExpected, kms);
+                securityProvider, range, extra, keyWrapExpected, kms, dataKeyCache);
     }
 
     /**
@@ -472,7 +502,8 @@ final class ContentCryptoMaterial {
             long[] range,
             ExtraMaterialsDescription extra,
             boolean keyWrapExpected,
-            AWSKMSClient kms) {
+            AWSKMSClient kms,
+            KMSDataKeyCache dataKeyCache) {
         // CEK and IV
         String b64key = instFile.get(Headers.CRYPTO_KEY_V2);
         if (b64key == null) {
@@ -537,7 +568,7 @@ final class ContentCryptoMaterial {
         if (keyWrapExpected && keyWrapAlgo == null)
             throw newKeyWrapException();
         SecretKey cek = cek(cekWrapped, keyWrapAlgo, materials,
-                securityProvider, contentCryptoScheme, kms);
+                securityProvider, contentCryptoScheme, kms, dataKeyCache);
         return new ContentCryptoMaterial(merged, cekWrapped, keyWrapAlgo,
                 contentCryptoScheme.createCipherLite(cek, iv,
                         Cipher.DECRYPT_MODE, securityProvider));
@@ -648,7 +679,7 @@ final class ContentCryptoMaterial {
                     + " from the encryption material provider");
         }
         SecretKey cek = cek(encryptedCEK, keyWrappingAlgorithm, origKEK, p,
-                getContentCryptoScheme(), kms);
+                getContentCryptoScheme(), kms, null);
         ContentCryptoMaterial output = create(cek, cipherLite.getIV(), newKEK,
                 getContentCryptoScheme(),  // must use same content crypto scheme
                 targetScheme,
@@ -698,7 +729,7 @@ final class ContentCryptoMaterial {
             origKEK = accessor.getEncryptionMaterials(kekMaterialsDescription);
         }
         SecretKey cek = cek(encryptedCEK, keyWrappingAlgorithm, origKEK, p,
-                getContentCryptoScheme(), kms);
+                getContentCryptoScheme(), kms, null);
         ContentCryptoMaterial output =
             create(cek, cipherLite.getIV(), newKEK,
                    getContentCryptoScheme(),  // must use same content crypto scheme
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal.crypto;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.amazonaws.services.s3.model.CryptoConfiguration;
+
+/**
+ * A bounded, least recently used cache of the plaintext data keys obtained
+ * from KMS, so that encrypting or decrypting a series of objects doesn't
+ * require a KMS round trip for each of them.
+ * <p>
+ * Data keys generated for encryption are cached by customer master key id,
+ * key spec and encryption context; decrypted data keys by their encrypted form
+ * and encryption context. An entry is evicted once it has been used the
+ * configured number of times or has been cached longer than the configured
+ * time to live, whichever comes first. The plaintext of an evicted entry is
+ * overwritten with zeros.
+ */
+final class KMSDataKeyCache {
+    private final int maxSize;
+    private final long timeToLiveNanos;
+    private final int maxUses;
+
+    /** Guarded by this. */
+    private final Map<List<Object>, Entry> entries =
+            new LinkedHashMap<List<Object>, Entry>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Object>, Entry> eldest) {
+            if (size() > maxSize) {
+                eldest.getValue().wipe();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    KMSDataKeyCache(int maxSize, long timeToLiveMillis, int maxUses) {
+        this.maxSize = maxSize;
+        this.timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(timeToLiveMillis);
+        this.maxUses = maxUses;
+    }
+
+    /**
+     * Returns a new data key cache for the given configuration; or null if
+     * data key caching is disabled.
+     */
+    static KMSDataKeyCache of(CryptoConfiguration cryptoConfig) {
+        if (cryptoConfig.getDataKeyCacheSize() <= 0
+                || cryptoConfig.getDataKeyCacheTimeToLiveMillis() <= 0
+                || cryptoConfig.getDataKeyCacheMaxUses() <= 0) {
+            return null;
+        }
+        return new KMSDataKeyCache(cryptoConfig.getDataKeyCacheSize(),
+                cryptoConfig.getDataKeyCacheTimeToLiveMillis(),
+                cryptoConfig.getDataKeyCacheMaxUses());
+    }
+
+    /**
+     * Returns a data key previously generated for encryption under the given
+     * customer master key, key spec and encryption context; or null if there
+     * is none.
+     */
+    DataKey getEncryptionKey(String cmkId, String keySpec,
+            Map<String, String> encryptionContext) {
+        return get(encryptionKeyOf(cmkId, keySpec, encryptionContext));
+    }
+
+    /**
+     * Caches a data key generated for encryption under the given customer
+     * master key, key spec and encryption context. The data key is also
+     * cached for the decryption of its encrypted form.
+     */
+    void putEncryptionKey(String cmkId, String keySpec,
+            Map<String, String> encryptionContext, byte[] plaintext,
+            byte[] ciphertext) {
+        put(encryptionKeyOf(cmkId, keySpec, encryptionContext), plaintext, ciphertext);
+        put(decryptionKeyOf(ciphertext, encryptionContext), plaintext, ciphertext);
+    }
+
+    /**
+     * Returns the plaintext data key of the given encrypted data key and
+     * encryption context; or null if it is not cached.
+     */
+    DataKey getDecryptionKey(byte[] ciphertext, Map<String, String> encryptionContext) {
+        return get(decryptionKeyOf(ciphertext, encryptionContext));
+    }
+
+    /**
+     * Caches the plaintext data key of the given encrypted data key and
+     * encryption context.
+     */
+    void putDecryptionKey(byte[] ciphertext, Map<String, String> encryptionContext,
+            byte[] plaintext) {
+        put(decryptionKeyOf(ciphertext, encryptionContext), plaintext, ciphertext);
+    }
+
+    private synchronized DataKey get(List<Object> key) {
+        final Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.createdNanos >= timeToLiveNanos) {
+            entries.remove(key);
+            entry.wipe();
+            return null;
+        }
+        final DataKey dataKey = new DataKey(entry.plaintext.clone(),
+                entry.ciphertext.clone());
+        if (++entry.uses >= maxUses) {
+            entries.remove(key);
+            entry.wipe();
+        }
+        return dataKey;
+    }
+
+    private synchronized void put(List<Object> key, byte[] plaintext, byte[] ciphertext) {
+        final Entry replaced = entries.put(key,
+                new Entry(plaintext.clone(), ciphertext.clone(), System.nanoTime()));
+        if (replaced != null) {
+            replaced.wipe();
+        }
+    }
+
+    private static List<Object> encryptionKeyOf(String cmkId, String keySpec,
+            Map<String, String> encryptionContext) {
+        return Arrays.<Object>asList("encrypt", cmkId, keySpec,
+                copyOf(encryptionContext));
+    }
+
+    private static List<Object> decryptionKeyOf(byte[] ciphertext,
+            Map<String, String> encryptionContext) {
+        return Arrays.<Object>asList("decrypt", ByteBuffer.wrap(ciphertext.clone()),
+                copyOf(encryptionContext));
+    }
+
+    private static Map<String, String> copyOf(Map<String, String> map) {
+        return map == null
+             ? Collections.<String, String>emptyMap()
+             : new HashMap<String, String>(map);
+    }
+
+    /**
+     * A copy of a cached data key, to be wiped by the caller once used.
+     */
+    static final class DataKey {
+        private final byte[] plaintext;
+        private final byte[] ciphertext;
+
+        DataKey(byte[] plaintext, byte[] ciphertext) {
+            this.plaintext = plaintext;
+            this.ciphertext = ciphertext;
+        }
+
+        byte[] getPlaintext() {
+            return plaintext;
+        }
+
+        byte[] getCiphertext() {
+            return ciphertext;
+        }
+
+        /**
+         * Overwrites the plaintext data key with zeros.
+         */
+        void wipe() {
+            Arrays.fill(plaintext, (byte) 0);
+        }
+    }
+
+    private static final class Entry {
+        private final byte[] plaintext;
+        private final byte[] ciphertext;
+        private final long createdNanos;
+        private int uses;
+
+        Entry(byte[] plaintext, byte[] ciphertext, long createdNanos) {
+            this.plaintext = plaintext;
+            this.ciphertext = ciphertext;
+            this.createdNanos = createdNanos;
+        }
+
+        void wipe() {
+            Arrays.fill(plaintext, (byte) 0);
+        }
+    }
+}
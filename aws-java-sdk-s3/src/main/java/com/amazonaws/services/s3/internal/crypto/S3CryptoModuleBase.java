@@ -34,6 +34,7 @@ import java.io.OutputStream;
 import java.security.KeyPair;
 import java.security.NoSuchAlgorithmException;
 import java.security.Provider;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -107,6 +108,8 @@ public abstract class S3CryptoModuleBase<T extends MultipartUploadCryptoContext>
         Collections.synchronizedMap(new HashMap<String,T>());
     protected final S3Direct s3;
     protected final AWSKMSClient kms;
+    /** The cache of KMS data keys; or null if data keys are not cached. */
+    protected final KMSDataKeyCache dataKeyCache;
 
     /**
      * @param cryptoConfig a read-only copy of the crypto configuration.
@@ -123,6 +126,7 @@ public abstract class S3CryptoModuleBase<T extends MultipartUploadCryptoContext>
         this.cryptoScheme = S3CryptoScheme.from(cryptoConfig.getCryptoMode());
         this.contentCryptoScheme = cryptoScheme.getContentCryptoScheme();
         this.kms = kms;
+        this.dataKeyCache = KMSDataKeyCache.of(cryptoConfig);
     }
 
     /**
@@ -138,6 +142,7 @@ public abstract class S3CryptoModuleBase<T extends MultipartUploadCryptoContext>
         this.cryptoScheme = S3CryptoScheme.from(cryptoConfig.getCryptoMode());
         this.contentCryptoScheme = cryptoScheme.getContentCryptoScheme();
         this.kms = null;
+        this.dataKeyCache = null;
     }
 
     /**
@@ -528,19 +533,39 @@ public abstract class S3CryptoModuleBase<T extends MultipartUploadCryptoContext>
         if (materials.isKMSEnabled()) {
             final Map<String, String> encryptionContext =
                     ContentCryptoMaterial.mergeMaterialDescriptions(materials, req);
-            GenerateDataKeyRequest keyGenReq = new GenerateDataKeyRequest()
-                .withEncryptionContext(encryptionContext)
-                .withKeyId(materials.getCustomerMasterKeyId())
-                .withKeySpec(contentCryptoScheme.getKeySpec());
-            keyGenReq
-                .withGeneralProgressListener(req.getGeneralProgressListener())
-                .withRequestMetricCollector(req.getRequestMetricCollector())
-                ;
-            GenerateDataKeyResult keyGenRes = kms.generateDataKey(keyGenReq);
-            final SecretKey cek =
-                new SecretKeySpec(copyAllBytesFrom(keyGenRes.getPlaintext()),
+            final String cmkId = materials.getCustomerMasterKeyId();
+            final String keySpec = contentCryptoScheme.getKeySpec();
+            final byte[] plaintext;
+            final byte[] keyBlob;
+            KMSDataKeyCache.DataKey cached = dataKeyCache == null ? null
+                    : dataKeyCache.getEncryptionKey(cmkId, keySpec, encryptionContext);
+            if (cached != null) {
+                plaintext = cached.getPlaintext();
+                keyBlob = cached.getCiphertext();
+            } else {
+                GenerateDataKeyRequest keyGenReq = new GenerateDataKeyRequest()
+                    .withEncryptionContext(encryptionContext)
+                    .withKeyId(cmkId)
+                    .withKeySpec(keySpec);
+                keyGenReq
+                    .withGeneralProgressListener(req.getGeneralProgressListener())
+                    .withRequestMetricCollector(req.getRequestMetricCollector())
+                    ;
+                GenerateDataKeyResult keyGenRes = kms.generateDataKey(keyGenReq);
+                plaintext = copyAllBytesFrom(keyGenRes.getPlaintext());
+                keyBlob = copyAllBytesFrom(keyGenRes.getCiphertextBlob());
+                if (dataKeyCache != null) {
+                    dataKeyCache.putEncryptionKey(cmkId, keySpec,
+                            encryptionContext, plaintext, keyBlob);
+                }
+            }
+            final SecretKey cek;
+            try {
+                cek = new SecretKeySpec(plaintext,
                         contentCryptoScheme.getKeyGeneratorAlgorithm());
-            byte[] keyBlob = copyAllBytesFrom(keyGenRes.getCiphertextBlob());
+            } finally {
+                Arrays.fill(plaintext, (byte) 0);
+            }
             return ContentCryptoMaterial.wrap(cek, iv,
                     contentCryptoScheme, provider,
                     new KMSSecuredCEK(keyBlob, encryptionContext));
@@ -0,0 +1,510 @@
+/*
+ * Copyright 2012-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.iterable;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.amazonaws.AbortedException;
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+/**
+ * Provides a way to iterate a large number of Amazon S3 objects by listing
+ * several partitions of the key space concurrently. For example:
+ *
+ * <pre class="brush: java">
+ * ParallelS3Objects.Listing listing = ParallelS3Objects.withPrefix(s3, &quot;my-bucket&quot;, &quot;photos/&quot;)
+ *         .withParallelism(16)
+ *         .iterator();
+ * try {
+ *     while (listing.hasNext()) {
+ *         System.out.printf(&quot;Object with key '%s'\n&quot;, listing.next().getKey());
+ *     }
+ * } finally {
+ *     listing.close();
+ * }
+ * </pre>
+ * <p>
+ * By default the key space is partitioned by the common prefixes found one
+ * level below the prefix using the delimiter (<code>"/"</code> unless changed
+ * with {@link #withDelimiter(String)}); each common prefix is then listed in
+ * full as one partition. Alternatively, the caller can supply sorted split
+ * points with {@link #withSplitPoints(String...)}, in which case partition
+ * <i>i</i> covers the keys greater than split point <i>i-1</i> and not greater
+ * than split point <i>i</i>.
+ * <p>
+ * Partitions are only discovered one level below the prefix: a common prefix
+ * is never split further, however many keys it holds, so a bucket whose keys
+ * mostly share one common prefix is listed by a single task. Use split points
+ * to partition such a key space.
+ * <p>
+ * At most {@link #withParallelism(int)} partitions are listed at the same
+ * time. Listed pages are handed to the iterator through a bounded queue, so
+ * listing pauses while the caller is not consuming results. Object summaries
+ * of a single partition are returned in key order, but summaries of different
+ * partitions are interleaved. Unlike {@link S3Objects}, the overall order of
+ * the returned summaries is therefore not lexicographic.
+ * <p>
+ * Listing starts when {@link #iterator()} is called. An iterator that is not
+ * consumed to the end should be closed to stop the listing.
+ */
+public class ParallelS3Objects implements Iterable<S3ObjectSummary> {
+
+    /** Default maximum number of partitions listed concurrently. */
+    public static final int DEFAULT_PARALLELISM = 10;
+
+    /** Default maximum number of listed pages waiting to be consumed. */
+    public static final int DEFAULT_QUEUE_CAPACITY = 20;
+
+    private static final String DEFAULT_DELIMITER = "/";
+
+    /** How long producers wait for queue space before checking for cancellation. */
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private static final List<S3ObjectSummary> END_OF_LISTING = Collections.emptyList();
+
+    private final AmazonS3 s3;
+    private final String bucketName;
+    private String prefix = null;
+    private String delimiter = DEFAULT_DELIMITER;
+    private List<String> splitPoints = null;
+    private Integer batchSize = null;
+    private int parallelism = DEFAULT_PARALLELISM;
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private ExecutorService executorService = null;
+
+    private ParallelS3Objects(AmazonS3 s3, String bucketName) {
+        this.s3 = s3;
+        this.bucketName = bucketName;
+    }
+
+    /**
+     * Constructs an iterable that covers all the objects in an Amazon S3
+     * bucket.
+     *
+     * @param s3
+     *            The Amazon S3 client.
+     * @param bucketName
+     *            The bucket name.
+     * @return An iterable for object summaries.
+     */
+    public static ParallelS3Objects inBucket(AmazonS3 s3, String bucketName) {
+        return new ParallelS3Objects(s3, bucketName);
+    }
+
+    /**
+     * Constructs an iterable that covers the objects in an Amazon S3 bucket
+     * where the key begins with the given prefix.
+     *
+     * @param s3
+     *            The Amazon S3 client.
+     * @param bucketName
+     *            The bucket name.
+     * @param prefix
+     *            The prefix.
+     * @return An iterable for object summaries.
+     */
+    public static ParallelS3Objects withPrefix(AmazonS3 s3, String bucketName, String prefix) {
+        ParallelS3Objects objects = new ParallelS3Objects(s3, bucketName);
+        objects.prefix = prefix;
+        return objects;
+    }
+
+    /**
+     * Sets the delimiter used to discover the partitions of the key space.
+     * Ignored if split points are specified.
+     *
+     * @param delimiter
+     *            The delimiter.
+     */
+    public ParallelS3Objects withDelimiter(String delimiter) {
+        this.delimiter = delimiter;
+        return this;
+    }
+
+    /**
+     * Sets the keys at which the key space is split into partitions, instead
+     * of discovering the partitions using the delimiter. The split points are
+     * sorted before use.
+     *
+     * @param splitPoints
+     *            The keys at which to split the key space.
+     */
+    public ParallelS3Objects withSplitPoints(String... splitPoints) {
+        List<String> sorted = new ArrayList<String>(Arrays.asList(splitPoints));
+        Collections.sort(sorted);
+        this.splitPoints = sorted;
+        return this;
+    }
+
+    /**
+     * Sets the batch size, i.e., how many {@link S3ObjectSummary}s will be
+     * fetched at once for each partition.
+     *
+     * @param batchSize
+     *            How many object summaries to fetch at once.
+     */
+    public ParallelS3Objects withBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of partitions listed concurrently.
+     *
+     * @param parallelism
+     *            The maximum number of concurrent listings.
+     */
+    public ParallelS3Objects withParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of listed pages that may be waiting to be
+     * consumed before listing pauses.
+     *
+     * @param queueCapacity
+     *            The maximum number of pages waiting to be consumed.
+     */
+    public ParallelS3Objects withQueueCapacity(int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("queueCapacity must be at least 1");
+        }
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * Sets the executor service used to run the listings. It must be able to
+     * run at least parallelism + 1 tasks concurrently, and is not shut down
+     * by this class. If not set, a thread pool is created for each iterator
+     * and shut down when the listing finishes.
+     *
+     * @param executorService
+     *            The executor service used to run the listings.
+     */
+    public ParallelS3Objects withExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+        return this;
+    }
+
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public String getDelimiter() {
+        return delimiter;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public AmazonS3 getS3() {
+        return s3;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Starts listing the objects and returns an iterator over their summaries.
+     */
+    @Override
+    public Listing iterator() {
+        return new Listing();
+    }
+
+    /**
+     * Iterator over the object summaries listed by a {@link ParallelS3Objects}.
+     * Closing the iterator stops any listing still in progress.
+     */
+    public class Listing implements Iterator<S3ObjectSummary>, Closeable {
+
+        private final BlockingQueue<List<S3ObjectSummary>> pages =
+                new ArrayBlockingQueue<List<S3ObjectSummary>>(queueCapacity);
+        private final Semaphore partitionPermits = new Semaphore(parallelism);
+        /** The discovery task and the partitions that have not finished yet. */
+        private final AtomicInteger pendingTasks = new AtomicInteger(1);
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        private final ExecutorService executor;
+        private final boolean ownsExecutor;
+
+        /** Set when the listing must stop, because of a failure or because the iterator was closed. */
+        private volatile boolean closed;
+        private volatile boolean iteratorClosed;
+        private Iterator<S3ObjectSummary> currentPage = Collections.<S3ObjectSummary>emptyList().iterator();
+        private boolean finished;
+
+        private Listing() {
+            ownsExecutor = executorService == null;
+            executor = ownsExecutor
+                    ? Executors.newFixedThreadPool(parallelism + 1, new DaemonThreadFactory())
+                    : executorService;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        discoverPartitions();
+                    } catch (Throwable t) {
+                        fail(t);
+                    } finally {
+                        taskFinished();
+                    }
+                }
+            });
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!currentPage.hasNext() && !finished) {
+                List<S3ObjectSummary> page;
+                try {
+                    page = pages.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    close();
+                    throw new AbortedException(e);
+                }
+                if (page == END_OF_LISTING) {
+                    finished = true;
+                    Throwable t = failure.get();
+                    if (t != null) {
+                        throw t instanceof AmazonClientException
+                                ? (AmazonClientException) t
+                                : new AmazonClientException("Unable to list objects in bucket "
+                                        + bucketName + ": " + t.getMessage(), t);
+                    }
+                } else {
+                    currentPage = page.iterator();
+                }
+            }
+            return currentPage.hasNext();
+        }
+
+        @Override
+        public S3ObjectSummary next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return currentPage.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Stops the listing. Summaries already returned are not affected;
+         * no further summaries are returned.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            iteratorClosed = true;
+            finished = true;
+            currentPage = Collections.<S3ObjectSummary>emptyList().iterator();
+            pages.clear();
+            if (ownsExecutor) {
+                executor.shutdownNow();
+            }
+        }
+
+        private void discoverPartitions() throws InterruptedException {
+            if (splitPoints != null) {
+                String lowerBound = null;
+                for (String splitPoint : splitPoints) {
+                    submitPartition(prefix, lowerBound, splitPoint);
+                    lowerBound = splitPoint;
+                }
+                submitPartition(prefix, lowerBound, null);
+                return;
+            }
+
+            ListObjectsRequest req = newListObjectsRequest(prefix, null);
+            req.setDelimiter(delimiter);
+            ObjectListing listing = s3.listObjects(req);
+            Set<String> discoveredPrefixes = new HashSet<String>();
+            while (!closed) {
+                // Objects directly under the prefix are not part of any
+                // partition, they are returned by the discovery listing itself.
+                publish(listing.getObjectSummaries());
+                for (String commonPrefix : listing.getCommonPrefixes()) {
+                    // Never list the same partition twice, even if a common
+                    // prefix is reported again on a following page
+                    if (discoveredPrefixes.add(commonPrefix)) {
+                        submitPartition(commonPrefix, null, null);
+                    }
+                }
+                if (!listing.isTruncated()) {
+                    return;
+                }
+                listing = s3.listNextBatchOfObjects(listing);
+            }
+        }
+
+        /**
+         * Lists, in a separate task, the keys starting with the given prefix
+         * that are greater than the lower bound and not greater than the
+         * upper bound. Blocks while the maximum number of partitions are
+         * being listed.
+         */
+        private void submitPartition(final String partitionPrefix, final String lowerBound,
+                final String upperBound) throws InterruptedException {
+            partitionPermits.acquire();
+            if (closed) {
+                partitionPermits.release();
+                return;
+            }
+            pendingTasks.incrementAndGet();
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        listPartition(partitionPrefix, lowerBound, upperBound);
+                    } catch (Throwable t) {
+                        fail(t);
+                    } finally {
+                        partitionPermits.release();
+                        taskFinished();
+                    }
+                }
+            });
+        }
+
+        private void listPartition(String partitionPrefix, String lowerBound, String upperBound)
+                throws InterruptedException {
+            ObjectListing listing = s3.listObjects(newListObjectsRequest(partitionPrefix, lowerBound));
+            while (!closed) {
+                List<S3ObjectSummary> summaries = listing.getObjectSummaries();
+                boolean reachedUpperBound = false;
+                if (upperBound != null && !summaries.isEmpty()
+                        && summaries.get(summaries.size() - 1).getKey().compareTo(upperBound) > 0) {
+                    List<S3ObjectSummary> inRange = new ArrayList<S3ObjectSummary>(summaries.size());
+                    for (S3ObjectSummary summary : summaries) {
+                        if (summary.getKey().compareTo(upperBound) > 0) {
+                            break;
+                        }
+                        inRange.add(summary);
+                    }
+                    summaries = inRange;
+                    reachedUpperBound = true;
+                }
+                publish(summaries);
+                if (reachedUpperBound || !listing.isTruncated()) {
+                    return;
+                }
+                listing = s3.listNextBatchOfObjects(listing);
+            }
+        }
+
+        private ListObjectsRequest newListObjectsRequest(String listingPrefix, String marker) {
+            ListObjectsRequest req = new ListObjectsRequest();
+            req.setBucketName(bucketName);
+            req.setPrefix(listingPrefix);
+            req.setMarker(marker);
+            req.setMaxKeys(batchSize);
+            return req;
+        }
+
+        /**
+         * Hands a page over to the iterator, waiting while the queue is full.
+         */
+        private void publish(List<S3ObjectSummary> summaries) throws InterruptedException {
+            if (summaries.isEmpty()) {
+                return;
+            }
+            while (!closed) {
+                if (pages.offer(summaries, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        }
+
+        private void fail(Throwable t) {
+            if (failure.compareAndSet(null, t)) {
+                closed = true;
+                // Make room for the end of listing marker
+                pages.clear();
+            }
+        }
+
+        private void taskFinished() {
+            if (pendingTasks.decrementAndGet() == 0) {
+                if (failure.get() != null) {
+                    pages.clear();
+                }
+                try {
+                    while (!pages.offer(END_OF_LISTING, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                        if (iteratorClosed) {
+                            break;
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                if (ownsExecutor) {
+                    executor.shutdown();
+                }
+            }
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadCount = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r);
+            thread.setName("s3-parallel-listing-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
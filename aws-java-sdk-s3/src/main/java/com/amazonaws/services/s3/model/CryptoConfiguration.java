@@ -32,6 +32,13 @@ public class CryptoConfiguration implements Cloneable,Serializable {
 
     private static final long serialVersionUID = -8646831898339939580L;
 
+    /** The default maximum number of cached KMS data keys; zero disables the cache. */
+    public static final int DEFAULT_DATA_KEY_CACHE_SIZE = 0;
+    /** The default time in milliseconds a KMS data key stays cached. */
+    public static final long DEFAULT_DATA_KEY_CACHE_TIME_TO_LIVE = 5 * 60 * 1000;
+    /** The default number of times a cached KMS data key is used. */
+    public static final int DEFAULT_DATA_KEY_CACHE_MAX_USES = 1000;
+
     private CryptoMode cryptoMode;
     private CryptoStorageMode storageMode;
     private Provider cryptoProvider;
@@ -48,6 +55,15 @@ public class CryptoConfiguration implements Cloneable,Serializable {
      * null if no explicit KMS region is specified.
      */
     private transient com.amazonaws.regions.Region awskmsRegion;
+    /**
+     * The maximum number of plaintext KMS data keys cached by the S3
+     * encryption client; or zero if data keys are not cached.
+     */
+    private int dataKeyCacheSize = DEFAULT_DATA_KEY_CACHE_SIZE;
+    /** The time in milliseconds a KMS data key stays cached. */
+    private long dataKeyCacheTimeToLiveMillis = DEFAULT_DATA_KEY_CACHE_TIME_TO_LIVE;
+    /** The number of times a cached KMS data key is used before being evicted. */
+    private int dataKeyCacheMaxUses = DEFAULT_DATA_KEY_CACHE_MAX_USES;
 
     /**
      * Creates a new CryptoConfiguration object with default storage mode and
@@ -224,6 +240,99 @@ public class CryptoConfiguration implements Cloneable,Serializable {
         return this;
     }
 
+    /**
+     * Returns the maximum number of plaintext data keys obtained from KMS that
+     * are cached by the S3 encryption client; or zero if data keys are not
+     * cached, which is the default.
+     * <p>
+     * When enabled, a data key generated by KMS is reused to encrypt other
+     * objects under the same customer master key and encryption context, and
+     * the data key of an object is only decrypted by KMS if not already
+     * cached. This saves a KMS request per object, at the expense of holding
+     * plaintext data keys in memory and of KMS authorization being checked
+     * only when a data key is first obtained. Cached data keys are evicted,
+     * and overwritten with zeros, after being used
+     * {@link #getDataKeyCacheMaxUses()} times or after
+     * {@link #getDataKeyCacheTimeToLiveMillis()} milliseconds.
+     */
+    public int getDataKeyCacheSize() {
+        return dataKeyCacheSize;
+    }
+
+    /**
+     * Sets the maximum number of plaintext data keys obtained from KMS that
+     * are cached by the S3 encryption client; or zero to not cache data keys.
+     *
+     * @see #getDataKeyCacheSize()
+     */
+    public void setDataKeyCacheSize(int dataKeyCacheSize) {
+        this.dataKeyCacheSize = dataKeyCacheSize;
+    }
+
+    /**
+     * Fluent API to set the maximum number of plaintext data keys obtained
+     * from KMS that are cached by the S3 encryption client.
+     *
+     * @see #getDataKeyCacheSize()
+     */
+    public CryptoConfiguration withDataKeyCacheSize(int dataKeyCacheSize) {
+        this.dataKeyCacheSize = dataKeyCacheSize;
+        return this;
+    }
+
+    /**
+     * Returns the time in milliseconds a data key obtained from KMS stays
+     * cached, when data key caching is enabled. Default is 5 minutes.
+     */
+    public long getDataKeyCacheTimeToLiveMillis() {
+        return dataKeyCacheTimeToLiveMillis;
+    }
+
+    /**
+     * Sets the time in milliseconds a data key obtained from KMS stays cached,
+     * when data key caching is enabled.
+     */
+    public void setDataKeyCacheTimeToLiveMillis(long dataKeyCacheTimeToLiveMillis) {
+        this.dataKeyCacheTimeToLiveMillis = dataKeyCacheTimeToLiveMillis;
+    }
+
+    /**
+     * Fluent API to set the time in milliseconds a data key obtained from KMS
+     * stays cached, when data key caching is enabled.
+     */
+    public CryptoConfiguration withDataKeyCacheTimeToLiveMillis(
+            long dataKeyCacheTimeToLiveMillis) {
+        this.dataKeyCacheTimeToLiveMillis = dataKeyCacheTimeToLiveMillis;
+        return this;
+    }
+
+    /**
+     * Returns the number of times a cached data key obtained from KMS is used,
+     * to encrypt or decrypt objects, before being evicted from the cache, when
+     * data key caching is enabled. Default is 1000.
+     */
+    public int getDataKeyCacheMaxUses() {
+        return dataKeyCacheMaxUses;
+    }
+
+    /**
+     * Sets the number of times a cached data key obtained from KMS is used
+     * before being evicted from the cache, when data key caching is enabled.
+     */
+    public void setDataKeyCacheMaxUses(int dataKeyCacheMaxUses) {
+        this.dataKeyCacheMaxUses = dataKeyCacheMaxUses;
+    }
+
+    /**
+     * Fluent API to set the number of times a cached data key obtained from
+     * KMS is used before being evicted from the cache, when data key caching
+     * is enabled.
+     */
+    public CryptoConfiguration withDataKeyCacheMaxUses(int dataKeyCacheMaxUses) {
+        this.dataKeyCacheMaxUses = dataKeyCacheMaxUses;
+        return this;
+    }
+
     /**
      * Checks if the crypto mode is supported by the runtime.
      * 
@@ -288,6 +397,26 @@ public class CryptoConfiguration implements Cloneable,Serializable {
         @Override public CryptoConfiguration withKmsRegion(Regions kmsRegion) {
             throw new UnsupportedOperationException();
         }
+        @Override public void setDataKeyCacheSize(int dataKeyCacheSize) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public CryptoConfiguration withDataKeyCacheSize(int dataKeyCacheSize) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public void setDataKeyCacheTimeToLiveMillis(
+                long dataKeyCacheTimeToLiveMillis) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public CryptoConfiguration withDataKeyCacheTimeToLiveMillis(
+                long dataKeyCacheTimeToLiveMillis) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public void setDataKeyCacheMaxUses(int dataKeyCacheMaxUses) {
+            throw new UnsupportedOperationException();
+        }
+        @Override public CryptoConfiguration withDataKeyCacheMaxUses(int dataKeyCacheMaxUses) {
+            throw new UnsupportedOperationException();
+        }
     }
 
     /**
@@ -310,6 +439,9 @@ public class CryptoConfiguration implements Cloneable,Serializable {
         that.cryptoProvider = this.cryptoProvider;
         that.ignoreMissingInstructionFile = this.ignoreMissingInstructionFile;
         that.awskmsRegion = this.awskmsRegion;
+        that.dataKeyCacheSize = this.dataKeyCacheSize;
+        that.dataKeyCacheTimeToLiveMillis = this.dataKeyCacheTimeToLiveMillis;
+        that.dataKeyCacheMaxUses = this.dataKeyCacheMaxUses;
         return that;
     }
 
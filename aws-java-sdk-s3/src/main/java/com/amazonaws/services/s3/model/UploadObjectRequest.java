@@ -73,6 +73,20 @@ public class UploadObjectRequest extends AbstractPutObjectRequest implements
      */
     private long diskLimit = Long.MAX_VALUE;
 
+    /**
+     * Limitation (in bytes) on the memory used to buffer the parts of this
+     * request in memory instead of on disk; must be at least twice the amount
+     * of the specified {@link #partSize}. The default is zero, which means
+     * parts are buffered in temporary files on disk.
+     */
+    private long memoryLimit;
+
+    /**
+     * True to use direct byte buffers when parts are buffered in memory; false
+     * otherwise. Default is false.
+     */
+    private boolean directBuffers;
+
     public UploadObjectRequest(String bucketName, String key, File file) {
         super(bucketName, key, file);
     }
@@ -127,6 +141,51 @@ public class UploadObjectRequest extends AbstractPutObjectRequest implements
         return this;
     }
 
+    /**
+     * Returns the maximum size (in bytes) of memory that will be used to
+     * buffer the parts of this request in memory; or zero if the parts are
+     * buffered in temporary files on disk.
+     */
+    public long getMemoryLimit() {
+        return memoryLimit;
+    }
+
+    /**
+     * Configures the maximum memory (in bytes) that will be used to buffer
+     * the parts of this request in memory, instead of in temporary files on
+     * disk. The maximum memory must be at least twice the size of
+     * {@link #partSize}; the encryption will block upon hitting the limit and
+     * resume when the in-flight uploads of the completed parts release their
+     * buffers. Zero, the default, means parts are buffered on disk. This is
+     * ignored if a custom multi-file output stream is configured, or if the
+     * configured upload object observer expects the parts to be files.
+     *
+     * @return this object for method chaining purposes
+     */
+    public UploadObjectRequest withMemoryLimit(long memoryLimit) {
+        this.memoryLimit = memoryLimit;
+        return this;
+    }
+
+    /**
+     * Returns true if direct byte buffers are used when parts are buffered in
+     * memory; false otherwise.
+     */
+    public boolean isDirectBuffers() {
+        return directBuffers;
+    }
+
+    /**
+     * Configures whether direct byte buffers are used when parts are buffered
+     * in memory, as configured via {@link #withMemoryLimit(long)}.
+     *
+     * @return this object for method chaining purposes
+     */
+    public UploadObjectRequest withDirectBuffers(boolean directBuffers) {
+        this.directBuffers = directBuffers;
+        return this;
+    }
+
     /**
      * Returns a custom executor service for concurrent uploads; or null there
      * is no customization.
@@ -251,6 +310,8 @@ public class UploadObjectRequest extends AbstractPutObjectRequest implements
                     ? null
                     : new HashMap<String, String>(materialsDescription))
                 .withDiskLimit(getDiskLimit())
+                .withMemoryLimit(getMemoryLimit())
+                .withDirectBuffers(isDirectBuffers())
                 .withExecutorService(getExecutorService())
                 .withMultiFileOutputStream(getMultiFileOutputStream())
                 .withPartSize(getPartSize())
@@ -38,4 +38,12 @@ public class S3HandlerContextKeys {
     public static final HandlerContextKey<Boolean> IS_PAYLOAD_SIGNING_ENABLED = new HandlerContextKey<Boolean>(
             "IsPayloadSigningEnabled");
 
+    /**
+     * Hex encoded SHA-256 hash of the request payload, computed by the client for file uploads
+     * together with the MD5 digest, so that {@link AWSS3V4Signer} doesn't have to read the
+     * payload again to sign it.
+     */
+    public static final HandlerContextKey<String> CONTENT_SHA256 = new HandlerContextKey<String>(
+            "ContentSha256");
+
 }
@@ -18,11 +18,15 @@ import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.net.SocketException;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.ExecutorService;
@@ -47,6 +51,7 @@ import com.amazonaws.services.s3.transfer.internal.AbstractTransfer;
 import com.amazonaws.services.s3.transfer.internal.DownloadImpl;
 import com.amazonaws.services.s3.transfer.internal.DownloadMonitor;
 import com.amazonaws.services.s3.transfer.internal.DownloadPartCallable;
+import com.amazonaws.services.s3.transfer.internal.DownloadRangeCallable;
 import com.amazonaws.util.IOUtils;
 
 @SdkInternalApi
@@ -65,9 +70,16 @@ final class DownloadCallable implements Callable<File> {
     /** The thread pool in which parts are downloaded downloaded. */
     private final ExecutorService executor;
     private final List<Future<File>> futureFiles;
+    private final List<Future<Integer>> futureRanges;
     private final boolean isDownloadParallel;
     private Integer lastFullyMergedPartNumber;
     private final boolean resumeOnRetry;
+    /** The size of each range for a ranged download; zero if the download is not ranged. */
+    private final long downloadRangeSize;
+    /** The last byte to download, used for ranged downloads. */
+    private final long lastByte;
+    /** The ranges already written into dstfile by a paused ranged download. */
+    private final int[] completedRangeNumbers;
 
     private long expectedFileLength;
 
@@ -78,6 +90,20 @@ final class DownloadCallable implements Callable<File> {
             ScheduledExecutorService timedExecutor,
             ExecutorService executor,
             Integer lastFullyDownloadedPartNumber, boolean isDownloadParallel, boolean resumeOnRetry)
+    {
+        this(s3, latch, req, resumeExistingDownload, download, dstfile, origStartingByte,
+                expectedFileLength, timeout, timedExecutor, executor, lastFullyDownloadedPartNumber,
+                isDownloadParallel, resumeOnRetry, 0, -1, null);
+    }
+
+    DownloadCallable(AmazonS3 s3, CountDownLatch latch,
+            GetObjectRequest req, boolean resumeExistingDownload,
+            DownloadImpl download, File dstfile, long origStartingByte,
+            long expectedFileLength, long timeout,
+            ScheduledExecutorService timedExecutor,
+            ExecutorService executor,
+            Integer lastFullyDownloadedPartNumber, boolean isDownloadParallel, boolean resumeOnRetry,
+            long downloadRangeSize, long lastByte, int[] completedRangeNumbers)
     {
         if (s3 == null || latch == null || req == null || dstfile == null || download == null)
             throw new IllegalArgumentException();
@@ -93,9 +119,13 @@ final class DownloadCallable implements Callable<File> {
         this.timedExecutor = timedExecutor;
         this.executor = executor;
         this.futureFiles = new ArrayList<Future<File>>();
+        this.futureRanges = new ArrayList<Future<Integer>>();
         this.lastFullyMergedPartNumber = lastFullyDownloadedPartNumber;
         this.isDownloadParallel = isDownloadParallel;
         this.resumeOnRetry = resumeOnRetry;
+        this.downloadRangeSize = downloadRangeSize;
+        this.lastByte = lastByte;
+        this.completedRangeNumbers = completedRangeNumbers;
     }
 
     /**
@@ -127,7 +157,10 @@ final class DownloadCallable implements Callable<File> {
 
             download.setState(TransferState.InProgress);
 
-            if (isDownloadParallel) {
+            if (isDownloadRanged()) {
+                downloadInRanges();
+                download.setState(TransferState.Completed);
+            } else if (isDownloadParallel) {
                 downloadInParallel(ServiceUtils.getPartCount(req, s3));
                 download.setState(TransferState.Completed);
             } else {
@@ -141,6 +174,9 @@ final class DownloadCallable implements Callable<File> {
             for (Future<File> f : futureFiles) {
                 f.cancel(true);
             }
+            for (Future<Integer> f : futureRanges) {
+                f.cancel(true);
+            }
             // Downloads aren't allowed to move from canceled to failed
             if (download.getState() != TransferState.Canceled) {
                 download.setState(TransferState.Failed);
@@ -193,6 +229,142 @@ final class DownloadCallable implements Callable<File> {
         combineFiles();
     }
 
+    /**
+     * Splits the object into ranges of downloadRangeSize bytes and downloads
+     * them concurrently. Each range is written directly at its offset in
+     * dstfile, which is preallocated to the full length of the download, so
+     * ranges can complete in any order. Ranges completed by a paused download
+     * are skipped when it is resumed.
+     */
+    private void downloadInRanges() throws Exception {
+        final long totalBytesToDownload = lastByte - origStartingByte + 1;
+        final int rangeCount = (int) ((totalBytesToDownload + downloadRangeSize - 1) / downloadRangeSize);
+        final BitSet completedRanges = new BitSet(rangeCount + 1);
+
+        RandomAccessFile raf = preallocateDestinationFile(totalBytesToDownload);
+        try {
+            if (resumeExistingDownload && completedRangeNumbers != null) {
+                long bytesAlreadyDownloaded = 0;
+                for (int rangeNumber : completedRangeNumbers) {
+                    if (rangeNumber >= 1 && rangeNumber <= rangeCount && !completedRanges.get(rangeNumber)) {
+                        completedRanges.set(rangeNumber);
+                        bytesAlreadyDownloaded += rangeLastByte(rangeNumber) - rangeFirstByte(rangeNumber) + 1;
+                    }
+                }
+                download.getProgress().updateProgress(bytesAlreadyDownloaded);
+            }
+
+            final FileChannel channel = raf.getChannel();
+            final CompletionService<Integer> completionService = new ExecutorCompletionService<Integer>(executor);
+            int pendingRanges = 0;
+            for (int i = 1; i <= rangeCount; i++) {
+                if (completedRanges.get(i)) {
+                    continue;
+                }
+                GetObjectRequest getRangeRequest = newRangeRequest(rangeFirstByte(i), rangeLastByte(i));
+                futureRanges.add(completionService.submit(new DownloadRangeCallable(s3, getRangeRequest,
+                        channel, rangeFirstByte(i) - origStartingByte, i, req.getGeneralProgressListener())));
+                pendingRanges++;
+            }
+
+            for (; pendingRanges > 0; pendingRanges--) {
+                completedRanges.set(completionService.take().get());
+                download.updatePersistableTransfer(toRangeNumbers(completedRanges));
+            }
+            channel.force(false);
+        } finally {
+            IOUtils.closeQuietly(raf, LOG);
+        }
+    }
+
+    /**
+     * Creates the destination file if necessary and sets its length to the
+     * full length of the download, so that every range can be written at its
+     * own offset.
+     */
+    private RandomAccessFile preallocateDestinationFile(long length) throws IOException {
+        File parentDirectory = dstfile.getParentFile();
+        if (parentDirectory != null && !parentDirectory.exists()) {
+            if (!(parentDirectory.mkdirs())) {
+                throw new AmazonClientException(
+                        "Unable to create directory in the path" + parentDirectory.getAbsolutePath());
+            }
+        }
+        if (!FileLocks.lock(dstfile)) {
+            throw new FileLockException("Fail to lock " + dstfile);
+        }
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(dstfile, "rw");
+            if (resumeExistingDownload && completedRangeNumbers != null && raf.length() != length) {
+                throw new AmazonClientException(
+                        "File " + dstfile.getAbsolutePath() + " has been modified since last pause.");
+            }
+            raf.setLength(length);
+            return raf;
+        } catch (IOException e) {
+            IOUtils.closeQuietly(raf, LOG);
+            throw e;
+        } catch (RuntimeException e) {
+            IOUtils.closeQuietly(raf, LOG);
+            throw e;
+        } finally {
+            FileLocks.unlock(dstfile);
+        }
+    }
+
+    /**
+     * Returns a copy of the original request for the given byte range. Unless
+     * the caller specified its own ETag constraints, the range is only
+     * returned if the object still has the ETag seen when the download
+     * started, so that ranges of different versions are never mixed.
+     * <p>
+     * The copy has no progress listener: the {@link DownloadRangeCallable}
+     * reports the bytes it writes instead, so that the bytes of a failed
+     * attempt can be taken back before the range is retried.
+     */
+    private GetObjectRequest newRangeRequest(long firstByte, long lastByte) {
+        GetObjectRequest getRangeRequest = new GetObjectRequest(req.getBucketName(), req.getKey(),
+                req.getVersionId()).withUnmodifiedSinceConstraint(req.getUnmodifiedSinceConstraint())
+                        .withModifiedSinceConstraint(req.getModifiedSinceConstraint())
+                        .withResponseHeaders(req.getResponseHeaders()).withSSECustomerKey(req.getSSECustomerKey());
+
+        getRangeRequest.setMatchingETagConstraints(req.getMatchingETagConstraints());
+        getRangeRequest.setNonmatchingETagConstraints(req.getNonmatchingETagConstraints());
+        getRangeRequest.setRequesterPays(req.isRequesterPays());
+        String eTag = download.getObjectMetadata().getETag();
+        if (eTag != null && isNullOrEmpty(req.getMatchingETagConstraints())
+                && isNullOrEmpty(req.getNonmatchingETagConstraints())) {
+            getRangeRequest.setMatchingETagConstraints(Arrays.asList(eTag));
+        }
+        return getRangeRequest.withRange(firstByte, lastByte);
+    }
+
+    private long rangeFirstByte(int rangeNumber) {
+        return origStartingByte + (rangeNumber - 1) * downloadRangeSize;
+    }
+
+    private long rangeLastByte(int rangeNumber) {
+        return Math.min(rangeFirstByte(rangeNumber) + downloadRangeSize - 1, lastByte);
+    }
+
+    private static int[] toRangeNumbers(BitSet ranges) {
+        int[] rangeNumbers = new int[ranges.cardinality()];
+        int i = 0;
+        for (int r = ranges.nextSetBit(0); r >= 0; r = ranges.nextSetBit(r + 1)) {
+            rangeNumbers[i++] = r;
+        }
+        return rangeNumbers;
+    }
+
+    private static boolean isNullOrEmpty(List<String> list) {
+        return list == null || list.isEmpty();
+    }
+
+    private boolean isDownloadRanged() {
+        return downloadRangeSize > 0;
+    }
+
     /**
      * Merges all the individual part Files into dstFile
      */
@@ -75,11 +75,32 @@ public final class PersistableDownload extends PersistableTransfer {
     @JsonProperty
     private final long lastModifiedTime;
 
+    /**
+     * The size in bytes of each range for a ranged download; null if the
+     * download is not a ranged download.
+     */
+    @JsonProperty
+    private final Long downloadRangeSize;
+
+    /**
+     * The numbers of the ranges that have been successfully written into the
+     * downloaded file, for a ranged download.
+     */
+    @JsonProperty
+    private final int[] completedRangeNumbers;
+
 
     public PersistableDownload() {
         this(null, null, null, null, null, false, null, null, 0L);
     }
 
+    public PersistableDownload(String bucketName, String key, String versionId, long[] range,
+            ResponseHeaderOverrides responseHeaders, boolean isRequesterPays, String file,
+            Integer lastFullyDownloadedPartNumber, long lastModifiedTime) {
+        this(bucketName, key, versionId, range, responseHeaders, isRequesterPays, file,
+                lastFullyDownloadedPartNumber, lastModifiedTime, null, null);
+    }
+
     public PersistableDownload(
             @JsonProperty(value = "bucketName") String bucketName,
             @JsonProperty(value = "key") String key,
@@ -89,7 +110,9 @@ public final class PersistableDownload extends PersistableTransfer {
             @JsonProperty(value = "isRequesterPays") boolean isRequesterPays,
             @JsonProperty(value = "file") String file,
             @JsonProperty(value = "lastFullyDownloadedPartNumber") Integer lastFullyDownloadedPartNumber,
-            @JsonProperty(value = "lastModifiedTime") long lastModifiedTime) {
+            @JsonProperty(value = "lastModifiedTime") long lastModifiedTime,
+            @JsonProperty(value = "downloadRangeSize") Long downloadRangeSize,
+            @JsonProperty(value = "completedRangeNumbers") int[] completedRangeNumbers) {
         this.bucketName = bucketName;
         this.key = key;
         this.versionId = versionId;
@@ -99,6 +122,8 @@ public final class PersistableDownload extends PersistableTransfer {
         this.file = file;
         this.lastFullyDownloadedPartNumber = lastFullyDownloadedPartNumber;
         this.lastModifiedTime = lastModifiedTime;
+        this.downloadRangeSize = downloadRangeSize;
+        this.completedRangeNumbers = completedRangeNumbers == null ? null : completedRangeNumbers.clone();
     }
 
     /**
@@ -169,4 +194,20 @@ public final class PersistableDownload extends PersistableTransfer {
     Long getlastModifiedTime() {
         return lastModifiedTime;
     }
+
+    /**
+     * Returns the size in bytes of each range for a ranged download; or null
+     * if the download is not a ranged download.
+     */
+    Long getDownloadRangeSize() {
+        return downloadRangeSize;
+    }
+
+    /**
+     * Returns the numbers of the ranges that were successfully written into
+     * the downloaded file.
+     */
+    int[] getCompletedRangeNumbers() {
+        return completedRangeNumbers == null ? null : completedRangeNumbers.clone();
+    }
 }
@@ -991,6 +991,28 @@ public class TransferManager {
             final Integer lastFullyDownloadedPart,
             final long lastModifiedTimeRecordedDuringPause,
             final boolean resumeOnRetry)
+    {
+        return doDownload(getObjectRequest, file, stateListener, s3progressListener,
+                resumeExistingDownload, timeoutMillis, lastFullyDownloadedPart,
+                lastModifiedTimeRecordedDuringPause, resumeOnRetry, null, null);
+    }
+
+    /**
+     * Same as public interface, but adds a state listener so that callers can
+     * be notified of state changes to the download.
+     *
+     * @see TransferManager#download(GetObjectRequest, File)
+     */
+    private Download doDownload(final GetObjectRequest getObjectRequest,
+            final File file, final TransferStateChangeListener stateListener,
+            final S3ProgressListener s3progressListener,
+            final boolean resumeExistingDownload,
+            final long timeoutMillis,
+            final Integer lastFullyDownloadedPart,
+            final long lastModifiedTimeRecordedDuringPause,
+            final boolean resumeOnRetry,
+            final Long resumedDownloadRangeSize,
+            final int[] completedRangeNumbers)
     {
         assertParameterNotNull(getObjectRequest,
                 "A valid GetObjectRequest must be provided to initiate download");
@@ -1035,13 +1057,28 @@ public class TransferManager {
         }
 
         final long origStartingByte = startingByte;
-        final boolean isDownloadParallel =
-                TransferManagerUtils.isDownloadParallelizable(s3, getObjectRequest, ServiceUtils.getPartCount(getObjectRequest, s3))
+
+        // A paused download is always resumed the way it was started, since
+        // the data already written into the file is laid out accordingly
+        final long downloadRangeSize = resumeExistingDownload
+                ? (resumedDownloadRangeSize == null ? 0 : resumedDownloadRangeSize)
+                : configuration.getDownloadRangeSize();
+        final long rangedLastByte = Math.min(lastByte, objectMetadata.getContentLength() - 1);
+        final boolean isDownloadRanged = downloadRangeSize > 0
+                && TransferManagerUtils.isDownloadRangeable(s3, getObjectRequest, rangedLastByte - startingByte + 1);
+        if (isDownloadRanged) {
+            lastByte = rangedLastByte;
+        }
+
+        final boolean isDownloadParallel = !isDownloadRanged
+                && TransferManagerUtils.isDownloadParallelizable(s3, getObjectRequest, ServiceUtils.getPartCount(getObjectRequest, s3))
                         && !configuration.isDisableParallelDownloads();
 
         // We still pass the unfiltered listener chain into DownloadImpl
         final DownloadImpl download = new DownloadImpl(description, transferProgress, listenerChain, null,
-                stateListener, getObjectRequest, file, objectMetadata, isDownloadParallel);
+                stateListener, getObjectRequest, file, objectMetadata, isDownloadParallel,
+                isDownloadRanged ? Long.valueOf(downloadRangeSize) : null,
+                isDownloadRanged && resumeExistingDownload ? completedRangeNumbers : null);
 
         long totalBytesToDownload = lastByte - startingByte + 1;
         transferProgress.setTotalBytesToTransfer(totalBytesToDownload);
@@ -1054,7 +1091,7 @@ public class TransferManager {
                         + " with key " + getObjectRequest.getKey() + " is modified on Amazon S3 since the last pause.");
             }
 
-            if (!isDownloadParallel) {
+            if (!isDownloadParallel && !isDownloadRanged) {
                 if (!FileLocks.lock(file)) {
                     throw new FileLockException("Fail to lock " + file + " for resume download");
                 }
@@ -1088,7 +1125,8 @@ public class TransferManager {
             new DownloadCallable(s3, latch,
                 getObjectRequest, resumeExistingDownload,
                 download, file, origStartingByte, fileLength, timeoutMillis, timedThreadPool,
-                executorService, lastFullyDownloadedPart, isDownloadParallel, resumeOnRetry));
+                executorService, lastFullyDownloadedPart, isDownloadParallel, resumeOnRetry,
+                isDownloadRanged ? downloadRangeSize : 0, lastByte, completedRangeNumbers));
         download.setMonitor(new DownloadMonitor(download, future));
         latch.countDown();
         return download;
@@ -1861,7 +1899,9 @@ public class TransferManager {
         return doDownload(request, new File(persistableDownload.getFile()), null, null,
                 APPEND_MODE, 0,
                 persistableDownload.getLastFullyDownloadedPartNumber(),
-                persistableDownload.getlastModifiedTime());
+                persistableDownload.getlastModifiedTime(), false,
+                persistableDownload.getDownloadRangeSize(),
+                persistableDownload.getCompletedRangeNumbers());
     }
 
     /**
@@ -101,6 +101,12 @@ public class TransferManagerConfiguration {
      */
     private boolean disableParallelDownloads = false;
 
+    /**
+     * The size in bytes of each byte range when a ranged download is carried
+     * out. A value of zero (the default) disables ranged downloads.
+     */
+    private long downloadRangeSize = 0;
+
     /**
      * Returns the minimum part size for upload parts.
      * Decreasing the minimum part size causes
@@ -292,4 +298,52 @@ public class TransferManagerConfiguration {
     public void setDisableParallelDownloads(boolean disableParallelDownloads) {
         this.disableParallelDownloads = disableParallelDownloads;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the size in bytes of each byte range fetched by a ranged
+     * download. A value of zero (the default) means ranged downloads are
+     * disabled.
+     *
+     * <p>
+     * When ranged downloads are enabled, TransferManager splits any object
+     * larger than the range size into byte ranges, regardless of how the
+     * object was uploaded, and fetches the ranges concurrently. Each range is
+     * written directly at its offset in the destination file, which is
+     * preallocated to the full object length, so no temporary part files are
+     * used. A paused ranged download resumes from the ranges that have not
+     * been completed yet.
+     * </p>
+     *
+     * @return The size in bytes of each range, or zero if ranged downloads
+     *         are disabled.
+     */
+    public long getDownloadRangeSize() {
+        return downloadRangeSize;
+    }
+
+    /**
+     * Sets the size in bytes of each byte range fetched by a ranged download.
+     * Setting a positive value enables ranged downloads; zero disables them.
+     * Ranged downloads take precedence over part based parallel downloads.
+     *
+     * <p>
+     * Decreasing the range size causes a larger number of smaller range
+     * requests to be issued. Setting this value too low has a negative effect
+     * on transfer speeds, causing extra latency and network communication
+     * for each range.
+     * </p>
+     *
+     * @param downloadRangeSize
+     *            The size in bytes of each range, or zero to disable ranged
+     *            downloads.
+     * @throws IllegalArgumentException
+     *             If the range size is negative.
+     */
+    public void setDownloadRangeSize(long downloadRangeSize) {
+        if (downloadRangeSize < 0) {
+            throw new IllegalArgumentException("The download range size must not be negative: "
+                    + downloadRangeSize);
+        }
+        this.downloadRangeSize = downloadRangeSize;
+    }
+}
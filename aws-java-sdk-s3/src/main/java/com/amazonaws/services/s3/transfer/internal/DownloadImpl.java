@@ -41,6 +41,16 @@ public class DownloadImpl extends AbstractTransfer implements Download {
      */
     private Integer lastFullyDownloadedPartNumber;
 
+    /**
+     * The size of each range for ranged downloads; null for other downloads.
+     */
+    private final Long downloadRangeSize;
+
+    /**
+     * The ranges that have been successfully written into the downloaded file.
+     */
+    private int[] completedRangeNumbers;
+
     private final GetObjectRequest getObjectRequest;
     private final File file;
     private final ObjectMetadata objectMetadata;
@@ -58,8 +68,19 @@ public class DownloadImpl extends AbstractTransfer implements Download {
             ProgressListenerChain progressListenerChain, S3Object s3Object, TransferStateChangeListener listener,
             GetObjectRequest getObjectRequest, File file,
             ObjectMetadata objectMetadata, boolean isDownloadParallel) {
+        this(description, transferProgress, progressListenerChain, s3Object, listener,
+                getObjectRequest, file, objectMetadata, isDownloadParallel, null, null);
+    }
+
+    public DownloadImpl(String description, TransferProgress transferProgress,
+            ProgressListenerChain progressListenerChain, S3Object s3Object, TransferStateChangeListener listener,
+            GetObjectRequest getObjectRequest, File file,
+            ObjectMetadata objectMetadata, boolean isDownloadParallel,
+            Long downloadRangeSize, int[] completedRangeNumbers) {
         super(description, transferProgress, progressListenerChain, listener);
         this.s3Object = s3Object;
+        this.downloadRangeSize = downloadRangeSize;
+        this.completedRangeNumbers = completedRangeNumbers;
         this.objectMetadata = objectMetadata;
         this.getObjectRequest = getObjectRequest;
         this.file = file;
@@ -114,6 +135,31 @@ public class DownloadImpl extends AbstractTransfer implements Download {
         S3ProgressPublisher.publishTransferPersistable(progressListenerChain, persistableDownload);
     }
 
+    /**
+     * Only for internal use.
+     * For ranged downloads, updates the persistableTransfer each time a
+     * range is successfully written into the download file.
+     * Then notify the listeners that new persistableTransfer is available.
+     */
+    @SdkInternalApi
+    public void updatePersistableTransfer(int[] completedRangeNumbers) {
+        synchronized (this) {
+            this.completedRangeNumbers = completedRangeNumbers;
+        }
+
+        persistableDownload = captureDownloadState(getObjectRequest, file);
+        S3ProgressPublisher.publishTransferPersistable(progressListenerChain, persistableDownload);
+    }
+
+    /**
+     * For ranged downloads, returns the numbers of the ranges that were
+     * successfully written into the download file.
+     * Returns null for other downloads.
+     */
+    public synchronized int[] getCompletedRangeNumbers() {
+        return completedRangeNumbers;
+    }
+
     /**
      * For parallel downloads, returns the last part number that was
      * successfully written into the download file.
@@ -190,7 +236,8 @@ public class DownloadImpl extends AbstractTransfer implements Download {
                     getObjectRequest.getVersionId(), getObjectRequest.getRange(),
                     getObjectRequest.getResponseHeaders(), getObjectRequest.isRequesterPays(),
                     file.getAbsolutePath(), getLastFullyDownloadedPartNumber(),
-                    getObjectMetadata().getLastModified().getTime());
+                    getObjectMetadata().getLastModified().getTime(),
+                    downloadRangeSize, getCompletedRangeNumbers());
         }
         return null;
     }
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2011-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Callable;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.event.ProgressListener;
+import com.amazonaws.event.SDKProgressPublisher;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.amazonaws.util.IOUtils;
+
+/**
+ * Helper class to get a byte range of an object from s3 and
+ * write the range data directly at its offset in the destination file.
+ * Returns the number of the range once it has been fully written.
+ * <p>
+ * The range request carries no progress listener of its own. Progress is
+ * reported to the download's listener as bytes are written to the file, and
+ * the bytes written by an attempt that fails are reported as discarded before
+ * the range is requested again, so the transfer progress never counts a byte
+ * twice.
+ */
+public class DownloadRangeCallable implements Callable<Integer> {
+    private static final Log LOG = LogFactory.getLog(DownloadRangeCallable.class);
+
+    /**
+     * A range that fails while its content is being read, or whose content is
+     * shorter or longer than the range, is requested again at most this many
+     * times. Writes are positional, so a retried range
+     * simply overwrites whatever was written by the failed attempt.
+     */
+    private static final int MAX_RETRIES = 1;
+
+    private final AmazonS3 s3;
+    private final GetObjectRequest getRangeRequest;
+    private final FileChannel destinationChannel;
+    private final long position;
+    private final int rangeNumber;
+    private final ProgressListener listener;
+
+    /** Bytes written to the file by the current attempt. */
+    private long bytesWritten;
+
+    /**
+     * @param s3
+     *            The Amazon s3 client.
+     * @param getRangeRequest
+     *            The request for the range, with the range already set.
+     * @param destinationChannel
+     *            The channel of the preallocated destination file, shared
+     *            by all the ranges of the download.
+     * @param position
+     *            The position in the destination file where the first
+     *            byte of the range is written.
+     * @param rangeNumber
+     *            The number of the range in the download.
+     * @param listener
+     *            The listener to report the bytes written to; may be null.
+     */
+    public DownloadRangeCallable(AmazonS3 s3, GetObjectRequest getRangeRequest,
+            FileChannel destinationChannel, long position, int rangeNumber, ProgressListener listener) {
+        this.s3 = s3;
+        this.getRangeRequest = getRangeRequest;
+        this.destinationChannel = destinationChannel;
+        this.position = position;
+        this.rangeNumber = rangeNumber;
+        this.listener = listener;
+    }
+
+    public Integer call() throws Exception {
+        final long[] range = getRangeRequest.getRange();
+        final long expectedLength = range[1] - range[0] + 1;
+
+        for (int retries = 0; ; retries++) {
+            S3Object s3Object = s3.getObject(getRangeRequest);
+            if (s3Object == null) {
+                throw new AmazonClientException(
+                        "There is no object in S3 satisfying this request. The getObject method returned null");
+            }
+            S3ObjectInputStream in = s3Object.getObjectContent();
+            bytesWritten = 0;
+            try {
+                writeToChannel(in, expectedLength);
+                if (bytesWritten != expectedLength) {
+                    throw new IOException("Expected " + expectedLength + " bytes but received "
+                            + bytesWritten);
+                }
+                IOUtils.closeQuietly(in, LOG);
+                return rangeNumber;
+            } catch (ClosedChannelException e) {
+                // The download has been cancelled
+                in.abort();
+                throw e;
+            } catch (IOException e) {
+                in.abort();
+                SDKProgressPublisher.publishResponseBytesDiscarded(listener, bytesWritten);
+                if (retries >= MAX_RETRIES) {
+                    throw new AmazonClientException(
+                            "Unable to download range " + rangeNumber + " of " + getRangeRequest.getKey()
+                                    + ": " + e.getMessage(), e);
+                }
+                LOG.info("Retry the download of range " + rangeNumber + " of object " + getRangeRequest.getKey()
+                        + " (bucket " + getRangeRequest.getBucketName() + ")", e);
+            } catch (RuntimeException e) {
+                in.abort();
+                throw e;
+            }
+        }
+    }
+
+    private void writeToChannel(S3ObjectInputStream in, long expectedLength) throws IOException {
+        byte[] buffer = new byte[1024 * 10];
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        int bytesRead;
+        while ((bytesRead = in.read(buffer)) > -1) {
+            if (bytesWritten + bytesRead > expectedLength) {
+                // Never write over the next range
+                throw new IOException("Received more than the expected " + expectedLength + " bytes");
+            }
+            byteBuffer.clear().limit(bytesRead);
+            while (byteBuffer.hasRemaining()) {
+                bytesWritten += destinationChannel.write(byteBuffer, position + bytesWritten);
+            }
+            SDKProgressPublisher.publishResponseBytesTransferred(listener, bytesRead);
+        }
+    }
+}
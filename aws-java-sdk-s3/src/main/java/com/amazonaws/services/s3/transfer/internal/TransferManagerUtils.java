@@ -210,4 +210,31 @@ public class TransferManagerUtils {
         }
         return true;
     }
+
+    /**
+     * Returns true if the specified download request can be split into byte
+     * ranges that are downloaded in parallel.
+     *
+     * @param s3
+     *            The Amazon s3 client.
+     *
+     * @param getObjectRequest
+     *            The request to check.
+     *
+     * @param totalBytesToDownload
+     *            The number of bytes the request downloads.
+     *
+     * @return True if this request can use parallel range downloads.
+     */
+    public static boolean isDownloadRangeable(final AmazonS3 s3, final GetObjectRequest getObjectRequest,
+            long totalBytesToDownload) {
+        ValidationUtils.assertNotNull(s3, "S3 client");
+        ValidationUtils.assertNotNull(getObjectRequest, "GetObjectRequest");
+
+        if (s3 instanceof AmazonS3Encryption || getObjectRequest.getPartNumber() != null
+                || totalBytesToDownload <= 0) {
+            return false;
+        }
+        return true;
+    }
 }
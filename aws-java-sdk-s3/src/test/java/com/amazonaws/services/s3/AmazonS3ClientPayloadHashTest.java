@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.Request;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.internal.SdkFilterInputStream;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.IOUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * File uploads that sign the whole payload hash it in the same pass over the
+ * file as the MD5, so the signer must not read the request content to hash it
+ * again before it is sent.
+ */
+public class AmazonS3ClientPayloadHashTest {
+
+    private static final int CONTENT_LENGTH = 256 * 1024;
+
+    private final byte[] content = new byte[CONTENT_LENGTH];
+
+    /** Bytes read from the request content, by the signer or while sending it. */
+    private final AtomicLong contentBytesRead = new AtomicLong();
+
+    private File file;
+    private HttpServer server;
+    private volatile String receivedSha256Header;
+    private volatile byte[] receivedBody;
+    private AmazonS3Client s3;
+
+    @Before
+    public void setUp() throws Exception {
+        new Random(42).nextBytes(content);
+        file = File.createTempFile("payload-hash", ".bin");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                receivedSha256Header = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+                receivedBody = IOUtils.toByteArray(exchange.getRequestBody());
+                String etag = BinaryUtils.toHex(digest("MD5", receivedBody));
+                exchange.getResponseHeaders().add("ETag", "\"" + etag + "\"");
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+
+        s3 = new AmazonS3Client(new BasicAWSCredentials("akid", "skid"), new ClientConfiguration());
+        s3.setEndpoint("http://localhost:" + server.getAddress().getPort());
+        s3.setSignerRegionOverride("us-east-1");
+        s3.setS3ClientOptions(S3ClientOptions.builder()
+                .setPathStyleAccess(true)
+                .disableChunkedEncoding()
+                .build());
+        s3.addRequestHandler(new RequestHandler2() {
+            @Override
+            public void beforeRequest(Request<?> request) {
+                // Runs before the request is signed, so it sees any read made to hash the payload.
+                request.setContent(new CountingInputStream(request.getContent()));
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        s3.shutdown();
+        server.stop(0);
+        file.delete();
+    }
+
+    @Test
+    public void putObject_SignsWithPrecomputedHashAndReadsTheFileOnce() throws Exception {
+        s3.putObject(new PutObjectRequest("bucket", "key", file));
+
+        assertPayloadHashedOnce(content);
+    }
+
+    @Test
+    public void uploadPart_SignsWithPrecomputedHashAndReadsTheRegionOnce() throws Exception {
+        final int offset = 1000;
+        final int partSize = 100 * 1024;
+        s3.uploadPart(new UploadPartRequest()
+                .withBucketName("bucket")
+                .withKey("key")
+                .withUploadId("upload-id")
+                .withPartNumber(1)
+                .withFile(file)
+                .withFileOffset(offset)
+                .withPartSize(partSize));
+
+        byte[] part = new byte[partSize];
+        System.arraycopy(content, offset, part, 0, partSize);
+        assertPayloadHashedOnce(part);
+    }
+
+    private void assertPayloadHashedOnce(byte[] expected) throws Exception {
+        assertEquals(BinaryUtils.toHex(digest("SHA-256", expected)), receivedSha256Header);
+        assertEquals(expected.length, receivedBody.length);
+        // A signer that hashed the content itself would have read it twice.
+        assertEquals(expected.length, contentBytesRead.get());
+    }
+
+    private static byte[] digest(String algorithm, byte[] bytes) {
+        try {
+            return MessageDigest.getInstance(algorithm).digest(bytes);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private class CountingInputStream extends SdkFilterInputStream {
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                contentBytesRead.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                contentBytesRead.addAndGet(read);
+            }
+            return read;
+        }
+    }
+}
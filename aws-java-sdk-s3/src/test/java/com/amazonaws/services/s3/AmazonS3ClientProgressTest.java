@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AnonymousAWSCredentials;
+import com.amazonaws.event.ProgressEvent;
+import com.amazonaws.event.ProgressEventType;
+import com.amazonaws.event.ProgressListener;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.IOUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+public class AmazonS3ClientProgressTest {
+
+    private static final int CONTENT_LENGTH = 64 * 1024;
+
+    private final byte[] content = new byte[CONTENT_LENGTH];
+
+    private HttpServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        final String etag = BinaryUtils.toHex(MessageDigest.getInstance("MD5").digest(content));
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().add("ETag", "\"" + etag + "\"");
+                exchange.getResponseHeaders().add("Content-Type", "application/octet-stream");
+                exchange.sendResponseHeaders(200, content.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(content);
+                out.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    /**
+     * The transfer events getObject publishes itself must go through the
+     * same coalescing listener as the byte transfer events of the download,
+     * or the completion of the transfer is delivered before its bytes.
+     */
+    @Test
+    public void getObject_DeliversCoalescedBytesBeforeTransferCompleted() throws Exception {
+        AmazonS3Client s3 = new AmazonS3Client(new AnonymousAWSCredentials(), new ClientConfiguration()
+                .withProgressEventCoalescing(true)
+                .withProgressEventCoalescingInterval(60 * 1000)
+                .withProgressEventCoalescingByteThreshold(CONTENT_LENGTH * 2));
+        s3.setEndpoint("http://localhost:" + server.getAddress().getPort());
+        s3.setS3ClientOptions(S3ClientOptions.builder().setPathStyleAccess(true).build());
+        RecordingListener listener = new RecordingListener();
+
+        try {
+            S3Object object = s3.getObject(new GetObjectRequest("bucket", "key")
+                    .<GetObjectRequest>withGeneralProgressListener(listener));
+            assertEquals(CONTENT_LENGTH, IOUtils.toByteArray(object.getObjectContent()).length);
+            object.close();
+
+            assertTrue(listener.completed.await(10, TimeUnit.SECONDS));
+            synchronized (listener) {
+                assertEquals(ProgressEventType.TRANSFER_STARTED_EVENT, listener.types.get(0));
+                assertEquals(CONTENT_LENGTH, listener.bytesBeforeCompleted);
+            }
+        } finally {
+            s3.shutdown();
+        }
+    }
+
+    private static class RecordingListener implements ProgressListener {
+
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private final List<ProgressEventType> types = new ArrayList<ProgressEventType>();
+        private long bytes;
+        private long bytesBeforeCompleted = -1;
+
+        @Override
+        public synchronized void progressChanged(ProgressEvent progressEvent) {
+            types.add(progressEvent.getEventType());
+            if (progressEvent.getEventType() == ProgressEventType.RESPONSE_BYTE_TRANSFER_EVENT) {
+                bytes += progressEvent.getBytes();
+            } else if (progressEvent.getEventType() == ProgressEventType.TRANSFER_COMPLETED_EVENT) {
+                bytesBeforeCompleted = bytes;
+                completed.countDown();
+            }
+        }
+    }
+}
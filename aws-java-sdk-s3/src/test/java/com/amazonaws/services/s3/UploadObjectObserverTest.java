@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.internal.MultiBufferOutputStream;
+import com.amazonaws.services.s3.internal.PartCreationEvent;
+import com.amazonaws.services.s3.model.UploadObjectRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import com.amazonaws.util.IOUtils;
+
+public class UploadObjectObserverTest {
+
+    private static final int PART_SIZE = 16;
+
+    private final ExecutorService es = Executors.newFixedThreadPool(2);
+
+    @After
+    public void tearDown() {
+        es.shutdownNow();
+    }
+
+    @Test
+    public void bufferParts_AreUploadedFromMemoryAndTheirBuffersReused() throws Exception {
+        RecordingObserver observer = new RecordingObserver(false);
+        observer.init(new UploadObjectRequest("bucket", "key", (File) null), null, null, es);
+        MultiBufferOutputStream os = new MultiBufferOutputStream().init(observer, PART_SIZE, 2 * PART_SIZE, false);
+        byte[] content = new byte[5 * PART_SIZE + 3];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+
+        // Writing more parts than there are buffers only completes if the
+        // buffers of uploaded parts are released
+        os.write(content);
+        os.close();
+        for (Future<UploadPartResult> future : observer.getFutures()) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(6, observer.requests.size());
+        byte[] uploaded = new byte[content.length];
+        for (UploadPartRequest request : observer.requests) {
+            int offset = (request.getPartNumber() - 1) * PART_SIZE;
+            byte[] part = observer.contents.get(request.getPartNumber());
+            assertEquals(part.length, request.getPartSize());
+            assertEquals(request.getPartNumber() == 6, request.isLastPart());
+            System.arraycopy(part, 0, uploaded, offset, part.length);
+        }
+        assertArrayEquals(content, uploaded);
+    }
+
+    @Test
+    public void bufferParts_AreReleasedEvenIfTheirUploadFails() throws Exception {
+        RecordingObserver observer = new RecordingObserver(true);
+        observer.init(new UploadObjectRequest("bucket", "key", (File) null), null, null, es);
+        MultiBufferOutputStream os = new MultiBufferOutputStream().init(observer, PART_SIZE, 2 * PART_SIZE, false);
+
+        os.write(new byte[5 * PART_SIZE]);
+        os.close();
+
+        assertEquals(5, observer.getFutures().size());
+        for (Future<UploadPartResult> future : observer.getFutures()) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                fail("Expected ExecutionException");
+            } catch (ExecutionException expected) {
+                assertTrue(expected.getCause() instanceof AmazonClientException);
+            }
+        }
+    }
+
+    @Test
+    public void partBuffers_AreSupportedUnlessFilePartsAreExpected() {
+        assertTrue(new UploadObjectObserver().isPartBufferSupported());
+        assertTrue(new RecordingObserver(false).isPartBufferSupported());
+        assertFalse(new UploadObjectObserver() {
+            @Override
+            public void onPartCreate(PartCreationEvent event) {
+                event.getPart().length();
+            }
+        }.isPartBufferSupported());
+        assertFalse(new UploadObjectObserver() {
+            @Override
+            protected UploadPartRequest newUploadPartRequest(PartCreationEvent event, File part) {
+                return super.newUploadPartRequest(event, part);
+            }
+        }.isPartBufferSupported());
+        assertFalse(new FilePartObserver() {
+        }.isPartBufferSupported());
+        assertTrue(new FilePartObserver() {
+            @Override
+            protected boolean isPartBufferSupported() {
+                return true;
+            }
+        }.isPartBufferSupported());
+    }
+
+    private static class FilePartObserver extends UploadObjectObserver {
+        @Override
+        public void onPartCreate(PartCreationEvent event) {
+            super.onPartCreate(event);
+        }
+    }
+
+    /**
+     * Records the requests and content of the part uploads, failing them if
+     * so configured.
+     */
+    private static class RecordingObserver extends UploadObjectObserver {
+        private final boolean fail;
+        private final List<UploadPartRequest> requests = new ArrayList<UploadPartRequest>();
+        private final List<byte[]> contents = new ArrayList<byte[]>();
+
+        RecordingObserver(boolean fail) {
+            this.fail = fail;
+        }
+
+        @Override
+        protected UploadPartResult uploadPart(UploadPartRequest reqUploadPart) {
+            if (fail) {
+                throw new AmazonClientException("Upload failed");
+            }
+            byte[] content;
+            try {
+                content = IOUtils.toByteArray(reqUploadPart.getInputStream());
+                // Retries rewind the part content
+                reqUploadPart.getInputStream().reset();
+                assertArrayEquals(content, IOUtils.toByteArray(reqUploadPart.getInputStream()));
+            } catch (IOException e) {
+                throw new AmazonClientException(e);
+            }
+            synchronized (this) {
+                requests.add(reqUploadPart);
+                while (contents.size() <= reqUploadPart.getPartNumber()) {
+                    contents.add(null);
+                }
+                contents.set(reqUploadPart.getPartNumber(), content);
+            }
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(reqUploadPart.getPartNumber());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.amazonaws.util.IOUtils;
+
+public class ByteBufferInputStreamTest {
+
+    private static final byte[] CONTENT = { 0, 1, 2, (byte) 0xff, 4, 5, 6, 7 };
+
+    @Test
+    public void readsTheRemainingBytesWithoutMovingTheBuffer() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(CONTENT);
+        buffer.position(2);
+        ByteBufferInputStream in = new ByteBufferInputStream(buffer);
+
+        assertEquals(6, in.available());
+        assertEquals(2, in.read());
+        assertEquals(0xff, in.read());
+        byte[] rest = new byte[10];
+        assertEquals(0, in.read(rest, 0, 0));
+        assertEquals(4, in.read(rest, 1, 9));
+        assertArrayEquals(new byte[] { 0, 4, 5, 6, 7 }, Arrays.copyOf(rest, 5));
+        assertEquals(-1, in.read());
+        assertEquals(-1, in.read(rest, 0, 10));
+        assertEquals(0, in.available());
+        assertEquals(2, buffer.position());
+    }
+
+    @Test
+    public void resetRewindsToTheStartAnyNumberOfTimes() throws IOException {
+        ByteBufferInputStream in = new ByteBufferInputStream(ByteBuffer.wrap(CONTENT));
+        assertTrue(in.markSupported());
+
+        assertArrayEquals(CONTENT, IOUtils.toByteArray(in));
+        in.reset();
+        assertArrayEquals(CONTENT, IOUtils.toByteArray(in));
+        in.reset();
+        assertArrayEquals(CONTENT, IOUtils.toByteArray(in));
+    }
+
+    @Test
+    public void resetRewindsToTheMark() throws IOException {
+        ByteBufferInputStream in = new ByteBufferInputStream(ByteBuffer.wrap(CONTENT));
+        assertEquals(3, in.skip(3));
+        in.mark(0);
+        assertEquals(0xff, in.read());
+        assertEquals(4, in.skip(10));
+
+        in.reset();
+
+        assertEquals(0xff, in.read());
+    }
+
+    @Test
+    public void readsDirectBuffers() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CONTENT.length);
+        buffer.put(CONTENT).flip();
+        ByteBufferInputStream in = new ByteBufferInputStream(buffer);
+
+        assertArrayEquals(CONTENT, IOUtils.toByteArray(in));
+        in.reset();
+        assertArrayEquals(CONTENT, IOUtils.toByteArray(in));
+    }
+
+    @Test
+    public void skipNeverGoesPastTheEnd() {
+        ByteBufferInputStream in = new ByteBufferInputStream(ByteBuffer.wrap(CONTENT));
+        assertEquals(0, in.skip(-1));
+        assertEquals(CONTENT.length, in.skip(100));
+        assertEquals(0, in.skip(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void bufferMustBeSpecified() {
+        new ByteBufferInputStream(null);
+    }
+}
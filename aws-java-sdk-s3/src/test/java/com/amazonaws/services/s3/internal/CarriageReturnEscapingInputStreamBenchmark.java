@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.services.s3.model.transform.XmlResponsesSaxParser;
+import com.amazonaws.util.IOUtils;
+import com.amazonaws.util.StringUtils;
+
+/**
+ * Measures the time to escape the carriage returns of a list objects response
+ * by streaming it through {@link CarriageReturnEscapingInputStream}, compared
+ * to reading it into a string and replacing them there, and the time to parse
+ * the response with {@link XmlResponsesSaxParser}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CarriageReturnEscapingInputStreamBenchmark {
+
+    @Param({"1000"})
+    public int keys;
+
+    private byte[] document;
+
+    private final byte[] buffer = new byte[8192];
+
+    @Setup
+    public void setup() {
+        StringBuilder xml = new StringBuilder(
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<ListBucketResult xmlns=\"http://s3.amazonaws.com/doc/2006-03-01/\">"
+                + "<Name>bucket</Name><Prefix></Prefix><Marker></Marker>"
+                + "<MaxKeys>1000</MaxKeys><IsTruncated>false</IsTruncated>\r\n");
+        for (int i = 0; i < keys; i++) {
+            xml.append("<Contents><Key>photos/2016/")
+                .append(i % 10 == 0 ? "key\rwith carriage return " : "key ")
+                .append(i)
+                .append(".jpg</Key><LastModified>2016-10-17T12:00:00.000Z</LastModified>")
+                .append("<ETag>&quot;fba9dede5f27731c9771645a39863328&quot;</ETag>")
+                .append("<Size>434234</Size><StorageClass>STANDARD</StorageClass>")
+                .append("<Owner><ID>75aa57f09aa0c8caeab4f8c24e99d10f8e7faeebf76c078efc7c6caea54ba06a</ID>")
+                .append("<DisplayName>owner</DisplayName></Owner></Contents>\r\n");
+        }
+        xml.append("</ListBucketResult>");
+        document = xml.toString().getBytes(StringUtils.UTF8);
+    }
+
+    @Benchmark
+    public int streamingEscape() throws Exception {
+        InputStream in = new CarriageReturnEscapingInputStream(new ByteArrayInputStream(document));
+        int total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            total += read;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int inMemoryEscape() throws Exception {
+        String xml = IOUtils.toString(new ByteArrayInputStream(document));
+        byte[] escaped = xml.replaceAll("\r", "&#013;").getBytes(StringUtils.UTF8);
+        return new ByteArrayInputStream(escaped).available();
+    }
+
+    @Benchmark
+    public Object parseListing() throws Exception {
+        return new XmlResponsesSaxParser()
+                .parseListBucketObjectsResponse(new ByteArrayInputStream(document), false)
+                .getObjectListing();
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+
+import org.junit.Test;
+
+import com.amazonaws.util.IOUtils;
+
+public class CarriageReturnEscapingInputStreamTest {
+
+    /** The size of the chunks the stream reads from the wrapped stream. */
+    private static final int BUFFER_SIZE = 8192;
+
+    @Test
+    public void escapesEveryCarriageReturn() throws IOException {
+        byte[] content = "<Key>a\rb\r\r\nc\u00e9</Key>\r".getBytes("UTF-8");
+
+        byte[] escaped = IOUtils.toByteArray(new CarriageReturnEscapingInputStream(new ByteArrayInputStream(content)));
+
+        assertArrayEquals("<Key>a&#013;b&#013;&#013;\nc\u00e9</Key>&#013;".getBytes("UTF-8"), escaped);
+    }
+
+    @Test
+    public void documentWithoutCarriageReturns_IsUnchanged() throws IOException {
+        byte[] content = content(3 * BUFFER_SIZE + 1, -1);
+
+        byte[] escaped = IOUtils.toByteArray(new CarriageReturnEscapingInputStream(new ByteArrayInputStream(content)));
+
+        assertArrayEquals(content, escaped);
+    }
+
+    @Test
+    public void carriageReturnsAtBufferEdges_AreEscaped() throws IOException {
+        byte[] content = content(2 * BUFFER_SIZE + 1, 0, BUFFER_SIZE - 1, BUFFER_SIZE, 2 * BUFFER_SIZE);
+
+        byte[] escaped = IOUtils.toByteArray(new CarriageReturnEscapingInputStream(new ByteArrayInputStream(content)));
+
+        assertArrayEquals(escape(content), escaped);
+    }
+
+    @Test
+    public void shortReadsOfTheWrappedStream_AreEscaped() throws IOException {
+        byte[] content = content(BUFFER_SIZE, 0, 1, 2, 100, BUFFER_SIZE - 1);
+        InputStream in = new CarriageReturnEscapingInputStream(new OneByteAtATimeInputStream(content));
+
+        assertArrayEquals(escape(content), IOUtils.toByteArray(in));
+    }
+
+    @Test
+    public void escapedCarriageReturns_CanBeSplitAcrossReads() throws IOException {
+        byte[] content = content(BUFFER_SIZE + 10, 3, BUFFER_SIZE - 1, BUFFER_SIZE + 5);
+        InputStream in = new CarriageReturnEscapingInputStream(new ByteArrayInputStream(content));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[7];
+        assertEquals(0, in.read(buffer, 0, 0));
+        int read;
+        while ((read = in.read(buffer, 1, 4)) != -1) {
+            out.write(buffer, 1, read);
+        }
+
+        assertArrayEquals(escape(content), out.toByteArray());
+        assertEquals(-1, in.read(buffer, 0, 7));
+    }
+
+    @Test
+    public void singleByteReads_ReturnUnsignedBytesThenEndOfStream() throws IOException {
+        byte[] content = "\r\u00e9\r".getBytes("UTF-8");
+        InputStream in = new CarriageReturnEscapingInputStream(new ByteArrayInputStream(content));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            assertEquals(b & 0xFF, b);
+            out.write(b);
+        }
+
+        assertArrayEquals("&#013;\u00e9&#013;".getBytes("UTF-8"), out.toByteArray());
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    public void skip_CountsEscapedBytes() throws IOException {
+        InputStream in = new CarriageReturnEscapingInputStream(new ByteArrayInputStream("a\rb".getBytes("UTF-8")));
+
+        assertEquals(4, in.skip(4));
+        assertEquals('1', in.read());
+        assertEquals(3, in.skip(10));
+        assertEquals(0, in.skip(1));
+    }
+
+    @Test
+    public void markAndReset_AreNotSupported() throws IOException {
+        InputStream in = new CarriageReturnEscapingInputStream(new ByteArrayInputStream("a\rb".getBytes("UTF-8")));
+        assertFalse(in.markSupported());
+
+        in.mark(100);
+        assertEquals('a', in.read());
+        try {
+            in.reset();
+            fail("Expected IOException");
+        } catch (IOException expected) {
+        }
+        // A failed reset leaves the stream where it was
+        assertEquals('&', in.read());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void readPastTheEndOfTheBuffer_IsRejected() throws IOException {
+        new CarriageReturnEscapingInputStream(new ByteArrayInputStream(new byte[1])).read(new byte[4], 2, 3);
+    }
+
+    /**
+     * Returns an ASCII content of the given length, with carriage returns at
+     * the given positions.
+     */
+    private static byte[] content(int length, int... carriageReturns) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) ('a' + i % 26);
+        }
+        for (int position : carriageReturns) {
+            if (position >= 0) {
+                content[position] = '\r';
+            }
+        }
+        return content;
+    }
+
+    private static byte[] escape(byte[] content) throws UnsupportedEncodingException {
+        return new String(content, "ISO-8859-1").replace("\r", "&#013;").getBytes("ISO-8859-1");
+    }
+
+    /**
+     * Returns at most one byte per read, like a slow network connection.
+     */
+    private static class OneByteAtATimeInputStream extends FilterInputStream {
+        OneByteAtATimeInputStream(byte[] content) {
+            super(new ByteArrayInputStream(content));
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(len, 1));
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.amazonaws.services.s3.UploadObjectObserver;
+
+public class MultiBufferOutputStreamTest {
+
+    private static final int PART_SIZE = 16;
+
+    @Test
+    public void contentIsSplitIntoPartsOfThePartSize() throws IOException {
+        RecordingObserver observer = new RecordingObserver(true);
+        MultiBufferOutputStream os = new MultiBufferOutputStream().init(observer, PART_SIZE, 2 * PART_SIZE, false);
+        byte[] content = content(2 * PART_SIZE + 8);
+
+        os.write(content[0]);
+        os.write(content, 1, content.length - 1);
+        os.close();
+
+        assertEquals(3, observer.events.size());
+        assertEquals(3, os.getNumPartsCreated());
+        assertEquals(content.length, os.getTotalBytesWritten());
+        ByteArrayOutputStream parts = new ByteArrayOutputStream();
+        for (int i = 0; i < observer.events.size(); i++) {
+            PartCreationEvent event = observer.events.get(i);
+            assertEquals(i + 1, event.getPartNumber());
+            assertEquals(i == 2, event.isLastPart());
+            assertSame(os, event.getBufferReleaseObserver());
+            assertEquals(null, event.getPart());
+            parts.write(observer.contents.get(i));
+        }
+        assertArrayEquals(content, parts.toByteArray());
+        assertEquals(8, observer.contents.get(2).length);
+    }
+
+    @Test
+    public void directBuffers_AreUsedIfConfigured() throws IOException {
+        RecordingObserver observer = new RecordingObserver(true);
+        MultiBufferOutputStream os = new MultiBufferOutputStream().init(observer, PART_SIZE, 2 * PART_SIZE, true);
+
+        os.write(content(PART_SIZE));
+        os.close();
+
+        assertTrue(observer.events.get(0).getPartBuffer().isDirect());
+        assertArrayEquals(content(PART_SIZE), observer.contents.get(0));
+    }
+
+    @Test
+    public void writing_BlocksWhileAllBuffersAreInFlight() throws Exception {
+        final RecordingObserver observer = new RecordingObserver(false);
+        final MultiBufferOutputStream os =
+                new MultiBufferOutputStream().init(observer, PART_SIZE, 2 * PART_SIZE, false);
+        final byte[] content = content(3 * PART_SIZE);
+        Thread writer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    os.write(content);
+                    os.close();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        writer.start();
+        writer.join(500);
+        assertTrue("writer should be blocked", writer.isAlive());
+        assertEquals(2, observer.events.size());
+
+        ByteBuffer released = observer.events.get(0).getPartBuffer();
+        os.onBufferRelease(released);
+        writer.join(10000);
+
+        assertFalse(writer.isAlive());
+        assertEquals(3, observer.events.size());
+        assertSame(released, observer.events.get(2).getPartBuffer());
+        assertArrayEquals(content(3 * PART_SIZE), concat(observer.contents));
+    }
+
+    @Test
+    public void writing_FailsOnceClosed() throws IOException {
+        MultiBufferOutputStream os =
+                new MultiBufferOutputStream().init(new RecordingObserver(true), PART_SIZE, 2 * PART_SIZE, false);
+        os.close();
+        assertTrue(os.isClosed());
+        try {
+            os.write(1);
+            fail("Expected IOException");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void memoryLimit_MustHoldAtLeastTwoParts() {
+        new MultiBufferOutputStream().init(new RecordingObserver(true), PART_SIZE, 2 * PART_SIZE - 1, false);
+    }
+
+    private static byte[] content(int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) i;
+        }
+        return content;
+    }
+
+    private static byte[] concat(List<byte[]> parts) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Records the part creation events and a copy of each part, releasing the
+     * part buffers right away if so configured.
+     */
+    private static class RecordingObserver extends UploadObjectObserver {
+        private final boolean releaseImmediately;
+        private final List<PartCreationEvent> events = new ArrayList<PartCreationEvent>();
+        private final List<byte[]> contents = new ArrayList<byte[]>();
+
+        RecordingObserver(boolean releaseImmediately) {
+            this.releaseImmediately = releaseImmediately;
+        }
+
+        @Override
+        public synchronized void onPartCreate(PartCreationEvent event) {
+            ByteBuffer part = event.getPartBuffer().duplicate();
+            byte[] content = new byte[part.remaining()];
+            part.get(content);
+            events.add(event);
+            contents.add(content);
+            if (releaseImmediately) {
+                event.getBufferReleaseObserver().onBufferRelease(event.getPartBuffer());
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.amazonaws.services.s3.model.CryptoConfiguration;
+
+public class KMSDataKeyCacheTest {
+
+    private static final String CMK_ID = "cmk";
+    private static final String KEY_SPEC = "AES_256";
+    private static final Map<String, String> CONTEXT = Collections.singletonMap("kms_cmk_id", CMK_ID);
+
+    private static final byte[] PLAINTEXT = { 1, 2, 3, 4 };
+    private static final byte[] CIPHERTEXT = { 5, 6, 7, 8 };
+
+    @Test
+    public void cacheIsDisabledByDefault() {
+        assertNull(KMSDataKeyCache.of(new CryptoConfiguration()));
+        assertNotNull(KMSDataKeyCache.of(new CryptoConfiguration().withDataKeyCacheSize(1)));
+    }
+
+    @Test
+    public void encryptionKey_MissesUntilPutThenHits() {
+        KMSDataKeyCache cache = new KMSDataKeyCache(10, 60000, 100);
+        assertNull(cache.getEncryptionKey(CMK_ID, KEY_SPEC, CONTEXT));
+
+        cache.putEncryptionKey(CMK_ID, KEY_SPEC, CONTEXT, PLAINTEXT, CIPHERTEXT);
+
+        KMSDataKeyCache.DataKey dataKey = cache.getEncryptionKey(CMK_ID, KEY_SPEC, CONTEXT);
+        assertArrayEquals(PLAINTEXT, dataKey.getPlaintext());
+        assertArrayEquals(CIPHERTEXT, dataKey.getCiphertext());
+    }
+
+    @Test
+    public void encryptionKey_AlsoSeedsDecryption() {
+        KMSDataKeyCache cache = new KMSDataKeyCache(10, 60000, 100);
+        assertNull(cache.getDecryptionKey(CIPHERTEXT, CONTEXT));
+
+        cache.putEncryptionKey(CMK_ID, KEY_SPEC, CONTEXT, PLAINTEXT, CIPHERTEXT);
+
+        assertArrayEquals(PLAINTEXT, cache.getDecryptionKey(CIPHERTEXT.clone(), CONTEXT).getPlaintext());
+    }
+
+    @Test
+    public void wipingAReturnedKey_DoesNotWipeTheCachedKey() {
+        KMSDataKeyCache cache = new KMSDataKeyCache(10, 60000, 100);
+        byte[] plaintext = PLAINTEXT.clone();
+        cache.putDecryptionKey(CIPHERTEXT, CONTEXT, plaintext);
+        plaintext[0] = 0;
+
+        cache.getDecryptionKey(CIPHERTEXT, CONTEXT).wipe();
+
+        assertArrayEquals(PLAINTEXT, cache.getDecryptionKey(CIPHERTEXT, CONTEXT).getPlaintext());
+    }
+
+    @Test
+    public void keysAreNotSharedAcrossEncryptionContexts() {
+        KMSDataKeyCache cache = new KMSDataKeyCache(10, 60000, 100);
+        Map<String, String> context = new HashMap<String, String>(CONTEXT);
+        cache.putEncryptionKey(CMK_ID, KEY_SPEC, context, PLAINTEXT, CIPHERTEXT);
+        // The cache keeps a copy of the context it was given
+        context.put("department", "finance");
+
+        assertNull(cache.getEncryptionKey(CMK_ID, KEY_SPEC, context));
+        assertNull(cache.getDecryptionKey(CIPHERTEXT, context));
+        assertNull(cache.getEncryptionKey(CMK_ID, KEY_SPEC, null));
+        assertNull(cache.getDecryptionKey(CIPHERTEXT, null));
+        assertNull(cache.getEncryptionKey("other-cmk", KEY_SPEC, CONTEXT));
+        assertNull(cache.getEncryptionKey(CMK_ID, "AES_128", CONTEXT));
+        assertNotNull(cache.getEncryptionKey(CMK_ID, KEY_SPEC, CONTEXT));
+        assertNotNull(cache.getDecryptionKey(CIPHERTEXT, CONTEXT));
+    }
+
+    @Test
+    public void keysExpireAfterTheTimeToLive() throws InterruptedException {
+        KMSDataKeyCache cache = new KMSDataKeyCache(10, 1, 100);
+        cache.putEncryptionKey(CMK_ID, KEY_SPEC, CONTEXT, PLAINTEXT, CIPHERTEXT);
+
+        Thread.sleep(10);
+
+        assertNull(cache.getEncryptionKey(CMK_ID, KEY_SPEC, CONTEXT));
+        assertNull(cache.getDecryptionKey(CIPHERTEXT, CONTEXT));
+    }
+
+    @Test
+    public void keysAreEvictedAfterTheMaximumNumberOfUses() {
+        KMSDataKeyCache cache = new KMSDataKeyCache(10, 60000, 2);
+        cache.putEncryptionKey(CMK_ID, KEY_SPEC, CONTEXT, PLAINTEXT, CIPHERTEXT);
+
+        assertNotNull(cache.getEncryptionKey(CMK_ID, KEY_SPEC, CONTEXT));
+        assertNotNull(cache.getEncryptionKey(CMK_ID, KEY_SPEC, CONTEXT));
+        assertNull(cache.getEncryptionKey(CMK_ID, KEY_SPEC, CONTEXT));
+        // Uses are counted per entry
+        assertNotNull(cache.getDecryptionKey(CIPHERTEXT, CONTEXT));
+    }
+
+    @Test
+    public void leastRecentlyUsedKeyIsEvictedOnceFull() {
+        KMSDataKeyCache cache = new KMSDataKeyCache(2, 60000, 100);
+        cache.putDecryptionKey(new byte[] { 1 }, CONTEXT, PLAINTEXT);
+        cache.putDecryptionKey(new byte[] { 2 }, CONTEXT, PLAINTEXT);
+        assertNotNull(cache.getDecryptionKey(new byte[] { 1 }, CONTEXT));
+
+        cache.putDecryptionKey(new byte[] { 3 }, CONTEXT, PLAINTEXT);
+
+        assertNull(cache.getDecryptionKey(new byte[] { 2 }, CONTEXT));
+        assertNotNull(cache.getDecryptionKey(new byte[] { 1 }, CONTEXT));
+        assertNotNull(cache.getDecryptionKey(new byte[] { 3 }, CONTEXT));
+    }
+}
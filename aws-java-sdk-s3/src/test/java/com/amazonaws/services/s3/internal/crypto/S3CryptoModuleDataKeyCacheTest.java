@@ -0,0 +1,195 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal.crypto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.amazonaws.services.kms.AWSKMSClient;
+import com.amazonaws.services.kms.model.DecryptRequest;
+import com.amazonaws.services.kms.model.DecryptResult;
+import com.amazonaws.services.kms.model.GenerateDataKeyRequest;
+import com.amazonaws.services.kms.model.GenerateDataKeyResult;
+import com.amazonaws.services.kms.model.InvalidCiphertextException;
+import com.amazonaws.services.s3.model.CryptoConfiguration;
+import com.amazonaws.services.s3.model.CryptoMode;
+import com.amazonaws.services.s3.model.EncryptedPutObjectRequest;
+import com.amazonaws.services.s3.model.ExtraMaterialsDescription;
+import com.amazonaws.services.s3.model.KMSEncryptionMaterialsProvider;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+
+/**
+ * Tests the use of the KMS data key cache by the crypto module when building
+ * the content crypto material of uploads, and by
+ * {@link ContentCryptoMaterial} when decrypting the data key of downloads.
+ */
+public class S3CryptoModuleDataKeyCacheTest {
+
+    private static final byte[] CONTENT = "plaintext content".getBytes();
+
+    private final FakeKMS kms = new FakeKMS();
+
+    @Test
+    public void withoutCache_EveryUploadAndDownloadCallsKMS() throws Exception {
+        S3CryptoModuleEO module = newModule(new CryptoConfiguration(CryptoMode.EncryptionOnly));
+
+        ContentCryptoMaterial first = module.createContentCryptoMaterial(newPutRequest());
+        module.createContentCryptoMaterial(newPutRequest());
+        assertEquals(2, kms.generateDataKeyCalls);
+
+        assertDecrypts(first, decrypt(first, module));
+        assertDecrypts(first, decrypt(first, module));
+        assertEquals(2, kms.decryptCalls);
+    }
+
+    @Test
+    public void uploads_ReuseTheDataKeyOfTheSameEncryptionContext() throws Exception {
+        S3CryptoModuleEO module = newModule(cachingConfig());
+
+        ContentCryptoMaterial first = module.createContentCryptoMaterial(newPutRequest());
+        ContentCryptoMaterial second = module.createContentCryptoMaterial(newPutRequest());
+
+        assertEquals(1, kms.generateDataKeyCalls);
+        assertArrayEquals(first.getEncryptedCEK(), second.getEncryptedCEK());
+        // A freshly generated key is also cached for decryption
+        assertDecrypts(first, decrypt(first, module));
+        assertDecrypts(second, decrypt(second, module));
+        assertEquals(0, kms.decryptCalls);
+    }
+
+    @Test
+    public void uploads_DoNotShareDataKeysAcrossEncryptionContexts() throws Exception {
+        S3CryptoModuleEO module = newModule(cachingConfig());
+
+        ContentCryptoMaterial finance = module.createContentCryptoMaterial(newPutRequest("finance"));
+        ContentCryptoMaterial marketing = module.createContentCryptoMaterial(newPutRequest("marketing"));
+        module.createContentCryptoMaterial(newPutRequest("finance"));
+
+        assertEquals(2, kms.generateDataKeyCalls);
+        assertDecrypts(finance, decrypt(finance, module));
+        assertDecrypts(marketing, decrypt(marketing, module));
+        assertEquals(0, kms.decryptCalls);
+    }
+
+    @Test
+    public void downloads_DecryptEachDataKeyOnce() throws Exception {
+        ContentCryptoMaterial uploaded = newModule(cachingConfig()).createContentCryptoMaterial(newPutRequest());
+        S3CryptoModuleEO module = newModule(cachingConfig());
+
+        assertDecrypts(uploaded, decrypt(uploaded, module));
+        assertDecrypts(uploaded, decrypt(uploaded, module));
+
+        assertEquals(1, kms.decryptCalls);
+    }
+
+    @Test
+    public void downloads_ReachKMSOnceTheCachedKeyHasBeenUsedUp() throws Exception {
+        ContentCryptoMaterial uploaded = newModule(cachingConfig()).createContentCryptoMaterial(newPutRequest());
+        S3CryptoModuleEO module = newModule(cachingConfig().withDataKeyCacheMaxUses(2));
+
+        for (int i = 0; i < 4; i++) {
+            assertDecrypts(uploaded, decrypt(uploaded, module));
+        }
+
+        assertEquals(2, kms.decryptCalls);
+    }
+
+    private static CryptoConfiguration cachingConfig() {
+        return new CryptoConfiguration(CryptoMode.EncryptionOnly).withDataKeyCacheSize(10);
+    }
+
+    private S3CryptoModuleEO newModule(CryptoConfiguration config) {
+        return new S3CryptoModuleEO(kms, null, new KMSEncryptionMaterialsProvider("cmk"), config.readOnly());
+    }
+
+    private static PutObjectRequest newPutRequest() {
+        return new PutObjectRequest("bucket", "key", "redirect");
+    }
+
+    private static PutObjectRequest newPutRequest(String department) {
+        return new EncryptedPutObjectRequest("bucket", "key", "redirect")
+                .withMaterialsDescription(Collections.singletonMap("department", department));
+    }
+
+    /**
+     * Returns the content crypto material a download of an object uploaded
+     * with the given material would use.
+     */
+    private static ContentCryptoMaterial decrypt(ContentCryptoMaterial uploaded, S3CryptoModuleEO module) {
+        ObjectMetadata metadata = uploaded.toObjectMetadata(new ObjectMetadata(), CryptoMode.EncryptionOnly);
+        return ContentCryptoMaterial.fromObjectMetadata(metadata, null, null, null,
+                ExtraMaterialsDescription.NONE, false, module.kms, module.dataKeyCache);
+    }
+
+    private static void assertDecrypts(ContentCryptoMaterial uploaded, ContentCryptoMaterial downloaded)
+            throws Exception {
+        byte[] ciphertext = uploaded.getCipherLite().recreate().doFinal(CONTENT);
+        assertArrayEquals(CONTENT, downloaded.getCipherLite().doFinal(ciphertext));
+    }
+
+    /**
+     * Generates random data keys, whose encrypted form is bound to the
+     * encryption context they were generated with.
+     */
+    private static class FakeKMS extends AWSKMSClient {
+        private final SecureRandom random = new SecureRandom();
+        private final Map<ByteBuffer, DataKey> dataKeys = new HashMap<ByteBuffer, DataKey>();
+        private int generateDataKeyCalls;
+        private int decryptCalls;
+
+        @Override
+        public GenerateDataKeyResult generateDataKey(GenerateDataKeyRequest request) {
+            generateDataKeyCalls++;
+            byte[] plaintext = new byte[32];
+            random.nextBytes(plaintext);
+            byte[] ciphertext = new byte[16];
+            random.nextBytes(ciphertext);
+            dataKeys.put(ByteBuffer.wrap(ciphertext), new DataKey(plaintext, request.getEncryptionContext()));
+            return new GenerateDataKeyResult()
+                    .withKeyId(request.getKeyId())
+                    .withPlaintext(ByteBuffer.wrap(plaintext.clone()))
+                    .withCiphertextBlob(ByteBuffer.wrap(ciphertext.clone()));
+        }
+
+        @Override
+        public DecryptResult decrypt(DecryptRequest request) {
+            decryptCalls++;
+            DataKey dataKey = dataKeys.get(request.getCiphertextBlob());
+            if (dataKey == null || !dataKey.encryptionContext.equals(request.getEncryptionContext())) {
+                throw new InvalidCiphertextException("Invalid ciphertext or encryption context");
+            }
+            return new DecryptResult().withPlaintext(ByteBuffer.wrap(dataKey.plaintext.clone()));
+        }
+    }
+
+    private static class DataKey {
+        private final byte[] plaintext;
+        private final Map<String, String> encryptionContext;
+
+        DataKey(byte[] plaintext, Map<String, String> encryptionContext) {
+            this.plaintext = plaintext;
+            this.encryptionContext = new HashMap<String, String>(encryptionContext);
+        }
+    }
+}
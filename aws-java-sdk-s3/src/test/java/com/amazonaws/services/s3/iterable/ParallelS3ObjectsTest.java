@@ -0,0 +1,307 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.iterable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.model.ListNextBatchOfObjectsRequest;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+/**
+ * Parallel listings against a fake client that pages through an in-memory
+ * set of keys.
+ */
+public class ParallelS3ObjectsTest {
+
+    private static final String BUCKET = "bucket";
+
+    @Test
+    public void listsEveryObjectOnceAcrossDiscoveredPrefixes() {
+        FakeS3 s3 = new FakeS3(keys("a/", 7), keys("b/", 1), keys("c/", 12), keys("c/nested/", 5),
+                keys("top-", 4));
+
+        List<String> listed = list(ParallelS3Objects.inBucket(s3, BUCKET)
+                .withBatchSize(3)
+                .withParallelism(2)
+                .withQueueCapacity(1));
+
+        assertListedOnce(s3.keys, listed);
+        // A common prefix is listed in full, including the keys below its own sub-prefixes
+        assertOrderedWithin(listed, "a/", "b/", "c/", "top-");
+    }
+
+    @Test
+    public void listsOnlyTheKeysUnderThePrefix() {
+        FakeS3 s3 = new FakeS3(keys("photos/2015/", 6), keys("photos/2016/", 9), keys("videos/", 3));
+
+        List<String> listed = list(ParallelS3Objects.withPrefix(s3, BUCKET, "photos/").withBatchSize(4));
+
+        assertListedOnce(new TreeSet<String>(s3.keys.headSet("photos0")), listed);
+    }
+
+    @Test
+    public void listsEveryObjectOnceBetweenSplitPoints() {
+        FakeS3 s3 = new FakeS3(keys("a", 10), keys("c", 10), keys("g", 10), keys("m", 10));
+
+        // Split points are sorted before use, and may be keys that exist
+        List<String> listed = list(ParallelS3Objects.inBucket(s3, BUCKET)
+                .withSplitPoints("g", "c05")
+                .withBatchSize(4)
+                .withParallelism(3));
+
+        assertListedOnce(s3.keys, listed);
+        List<String> lower = new ArrayList<String>();
+        List<String> middle = new ArrayList<String>();
+        List<String> upper = new ArrayList<String>();
+        for (String key : listed) {
+            if (key.compareTo("c05") <= 0) {
+                lower.add(key);
+            } else if (key.compareTo("g") <= 0) {
+                middle.add(key);
+            } else {
+                upper.add(key);
+            }
+        }
+        assertSorted(lower);
+        assertSorted(middle);
+        assertSorted(upper);
+    }
+
+    @Test
+    public void listingErrorsSurfaceFromTheIterator() {
+        final AmazonServiceException error = new AmazonServiceException("Access Denied");
+        FakeS3 s3 = new FakeS3(keys("a/", 5), keys("b/", 5), keys("c/", 5)) {
+            @Override
+            void beforeListing(ListObjectsRequest request) {
+                if ("b/".equals(request.getPrefix())) {
+                    throw error;
+                }
+            }
+        };
+
+        ParallelS3Objects.Listing listing = ParallelS3Objects.inBucket(s3, BUCKET).withBatchSize(2).iterator();
+        try {
+            while (listing.hasNext()) {
+                listing.next();
+            }
+            fail("Expected the listing error");
+        } catch (AmazonServiceException e) {
+            assertSame(error, e);
+        }
+        assertFalse(listing.hasNext());
+    }
+
+    @Test
+    public void unexpectedErrorsAreWrapped() {
+        final IllegalStateException error = new IllegalStateException("boom");
+        FakeS3 s3 = new FakeS3(keys("a/", 5)) {
+            @Override
+            void beforeListing(ListObjectsRequest request) {
+                if (request.getMarker() != null) {
+                    throw error;
+                }
+            }
+        };
+
+        ParallelS3Objects.Listing listing = ParallelS3Objects.inBucket(s3, BUCKET).withBatchSize(2).iterator();
+        try {
+            while (listing.hasNext()) {
+                listing.next();
+            }
+            fail("Expected the listing error");
+        } catch (AmazonClientException e) {
+            assertSame(error, e.getCause());
+        }
+    }
+
+    @Test
+    public void closingTheIteratorEarlyStopsTheListing() throws Exception {
+        FakeS3 s3 = new FakeS3(keys("a/", 200), keys("b/", 200), keys("c/", 200));
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            ParallelS3Objects.Listing listing = ParallelS3Objects.inBucket(s3, BUCKET)
+                    .withBatchSize(1)
+                    .withParallelism(2)
+                    .withQueueCapacity(1)
+                    .withExecutorService(executor)
+                    .iterator();
+            assertTrue(listing.hasNext());
+            listing.next();
+            listing.close();
+
+            assertFalse(listing.hasNext());
+            try {
+                listing.next();
+                fail("Expected NoSuchElementException");
+            } catch (NoSuchElementException expected) {
+            }
+
+            // Producers blocked on the full queue give up once the listing is closed
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+            assertTrue("Listed " + s3.listings.get() + " pages",
+                    s3.listings.get() < s3.keys.size() / 2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<String> list(ParallelS3Objects objects) {
+        List<String> keys = new ArrayList<String>();
+        for (S3ObjectSummary summary : objects) {
+            assertEquals(BUCKET, summary.getBucketName());
+            keys.add(summary.getKey());
+        }
+        return keys;
+    }
+
+    private static void assertListedOnce(TreeSet<String> expected, List<String> listed) {
+        List<String> sorted = new ArrayList<String>(listed);
+        Collections.sort(sorted);
+        assertEquals(new ArrayList<String>(expected), sorted);
+    }
+
+    /** Keys sharing one of the given prefixes must come out in key order. */
+    private static void assertOrderedWithin(List<String> listed, String... prefixes) {
+        Map<String, List<String>> partitions = new HashMap<String, List<String>>();
+        for (String prefix : prefixes) {
+            partitions.put(prefix, new ArrayList<String>());
+        }
+        for (String key : listed) {
+            for (String prefix : prefixes) {
+                if (key.startsWith(prefix)) {
+                    partitions.get(prefix).add(key);
+                }
+            }
+        }
+        for (List<String> partition : partitions.values()) {
+            assertSorted(partition);
+        }
+    }
+
+    private static void assertSorted(List<String> keys) {
+        List<String> sorted = new ArrayList<String>(keys);
+        Collections.sort(sorted);
+        assertEquals(sorted, keys);
+    }
+
+    private static String[] keys(String prefix, int count) {
+        String[] keys = new String[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = String.format("%s%02d", prefix, i);
+        }
+        return keys;
+    }
+
+    private static class FakeS3 extends AbstractAmazonS3 {
+        final TreeSet<String> keys = new TreeSet<String>();
+        final AtomicInteger listings = new AtomicInteger();
+
+        FakeS3(String[]... keyLists) {
+            for (String[] keyList : keyLists) {
+                keys.addAll(Arrays.asList(keyList));
+            }
+        }
+
+        /** Called before each page is listed, to inject failures. */
+        void beforeListing(ListObjectsRequest request) {
+        }
+
+        @Override
+        public ObjectListing listObjects(ListObjectsRequest request) {
+            listings.incrementAndGet();
+            beforeListing(request);
+            String prefix = request.getPrefix() == null ? "" : request.getPrefix();
+            String marker = request.getMarker();
+            String delimiter = request.getDelimiter();
+            int maxKeys = request.getMaxKeys() == null ? 1000 : request.getMaxKeys();
+
+            ObjectListing listing = new ObjectListing();
+            listing.setBucketName(BUCKET);
+            listing.setPrefix(request.getPrefix());
+            listing.setDelimiter(delimiter);
+            listing.setMaxKeys(maxKeys);
+            int count = 0;
+            String last = null;
+            boolean lastWasCommonPrefix = false;
+            for (String key : marker == null ? keys : keys.tailSet(marker, false)) {
+                if (!key.startsWith(prefix)) {
+                    continue;
+                }
+                String commonPrefix = null;
+                if (delimiter != null) {
+                    int end = key.indexOf(delimiter, prefix.length());
+                    if (end >= 0) {
+                        commonPrefix = key.substring(0, end + delimiter.length());
+                    }
+                }
+                if (commonPrefix != null && commonPrefix.equals(last)) {
+                    continue;
+                }
+                if (count == maxKeys) {
+                    listing.setTruncated(true);
+                    break;
+                }
+                if (commonPrefix != null) {
+                    listing.getCommonPrefixes().add(commonPrefix);
+                    last = commonPrefix;
+                    lastWasCommonPrefix = true;
+                } else {
+                    S3ObjectSummary summary = new S3ObjectSummary();
+                    summary.setBucketName(BUCKET);
+                    summary.setKey(key);
+                    listing.getObjectSummaries().add(summary);
+                    last = key;
+                    lastWasCommonPrefix = false;
+                }
+                count++;
+            }
+            if (listing.isTruncated()) {
+                // Resume past every key rolled up into the last common prefix
+                listing.setNextMarker(lastWasCommonPrefix ? last + Character.MAX_VALUE : last);
+            }
+            return listing;
+        }
+
+        @Override
+        public ObjectListing listNextBatchOfObjects(ListNextBatchOfObjectsRequest request) {
+            return listObjects(request.toListObjectsRequest());
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.AbortedException;
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.event.ProgressEvent;
+import com.amazonaws.event.SyncProgressListener;
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.amazonaws.services.s3.transfer.internal.DownloadImpl;
+import com.amazonaws.util.IOUtils;
+
+/**
+ * Ranged downloads through {@link TransferManager}, against a fake client
+ * serving the ranges of an in-memory object.
+ */
+public class RangedDownloadTest {
+
+    private static final int RANGE_SIZE = 4096;
+
+    /** Two full ranges and a partial last one. */
+    private static final int OBJECT_LENGTH = 2 * RANGE_SIZE + 1808;
+
+    private static final Date LAST_MODIFIED = new Date(1234567890000L);
+
+    private final byte[] content = new byte[OBJECT_LENGTH];
+
+    private File file;
+    private final List<TransferManager> transferManagers = new ArrayList<TransferManager>();
+
+    @Before
+    public void setUp() throws IOException {
+        new Random(7).nextBytes(content);
+        file = File.createTempFile("ranged-download", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        for (TransferManager tm : transferManagers) {
+            tm.shutdownNow(false);
+        }
+        file.delete();
+    }
+
+    @Test
+    public void splitsTheObjectIntoRangesIncludingAPartialLastRange() throws Exception {
+        FakeS3 s3 = new FakeS3();
+        NetBytesListener listener = new NetBytesListener();
+
+        Download download = newTransferManager(s3).download(newRequest(listener), file);
+        download.waitForCompletion();
+
+        assertEquals(Arrays.asList("0-4095", "4096-8191", "8192-9999"), s3.sortedRequestedRanges());
+        assertDownloaded(download, listener);
+        assertArrayEquals(new int[] {1, 2, 3}, ((DownloadImpl) download).getCompletedRangeNumbers());
+    }
+
+    @Test
+    public void writesRangesThatCompleteOutOfOrder() throws Exception {
+        final CountDownLatch laterRangesWritten = new CountDownLatch(2);
+        FakeS3 s3 = new FakeS3() {
+            @Override
+            InputStream rangeContent(long firstByte, long lastByte, int attempt) throws InterruptedException {
+                if (firstByte == 0) {
+                    assertTrue(laterRangesWritten.await(30, TimeUnit.SECONDS));
+                    return super.rangeContent(firstByte, lastByte, attempt);
+                }
+                return new EndOfStreamCallback(super.rangeContent(firstByte, lastByte, attempt),
+                        laterRangesWritten);
+            }
+        };
+        NetBytesListener listener = new NetBytesListener();
+
+        Download download = newTransferManager(s3).download(newRequest(listener), file);
+        download.waitForCompletion();
+
+        assertDownloaded(download, listener);
+    }
+
+    @Test
+    public void retriesAShortReadWithoutCountingItsBytesTwice() throws Exception {
+        FakeS3 s3 = new FakeS3() {
+            @Override
+            InputStream rangeContent(long firstByte, long lastByte, int attempt) throws InterruptedException {
+                if (firstByte == RANGE_SIZE && attempt == 1) {
+                    // The connection ends halfway through the range
+                    return new ByteArrayInputStream(content, (int) firstByte, RANGE_SIZE / 2);
+                }
+                return super.rangeContent(firstByte, lastByte, attempt);
+            }
+        };
+        NetBytesListener listener = new NetBytesListener();
+
+        Download download = newTransferManager(s3).download(newRequest(listener), file);
+        download.waitForCompletion();
+
+        assertEquals(2, s3.attempts("4096-8191"));
+        assertDownloaded(download, listener);
+    }
+
+    @Test
+    public void resumesAPausedDownloadFromTheRangesNotCompletedYet() throws Exception {
+        FakeS3 stalling = new FakeS3() {
+            @Override
+            InputStream rangeContent(long firstByte, long lastByte, int attempt) throws InterruptedException {
+                if (firstByte == RANGE_SIZE) {
+                    // Holds the middle range until the download is paused
+                    new CountDownLatch(1).await();
+                }
+                return super.rangeContent(firstByte, lastByte, attempt);
+            }
+        };
+        DownloadImpl download = (DownloadImpl) newTransferManager(stalling).download(newRequest(null), file);
+        long deadline = System.currentTimeMillis() + 30000;
+        while (!Arrays.equals(new int[] {1, 3}, download.getCompletedRangeNumbers())) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Ranges 1 and 3 weren't completed");
+            }
+            Thread.sleep(10);
+        }
+
+        PersistableDownload paused = download.pause();
+        assertArrayEquals(new int[] {1, 3}, paused.getCompletedRangeNumbers());
+        assertEquals(Long.valueOf(RANGE_SIZE), paused.getDownloadRangeSize());
+
+        FakeS3 s3 = new FakeS3();
+        Download resumed = newTransferManager(s3).resumeDownload(paused);
+        resumed.waitForCompletion();
+
+        assertEquals(Collections.singletonList("4096-8191"), s3.sortedRequestedRanges());
+        assertArrayEquals(content, readFile());
+        assertEquals(OBJECT_LENGTH, resumed.getProgress().getBytesTransferred());
+    }
+
+    @Test
+    public void rejectsANegativeDownloadRangeSize() {
+        TransferManagerConfiguration configuration = new TransferManagerConfiguration();
+        configuration.setDownloadRangeSize(0);
+        assertEquals(0, configuration.getDownloadRangeSize());
+        configuration.setDownloadRangeSize(RANGE_SIZE);
+        assertEquals(RANGE_SIZE, configuration.getDownloadRangeSize());
+        try {
+            configuration.setDownloadRangeSize(-1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(RANGE_SIZE, configuration.getDownloadRangeSize());
+    }
+
+    private TransferManager newTransferManager(FakeS3 s3) {
+        TransferManager tm = new TransferManager(s3);
+        TransferManagerConfiguration configuration = new TransferManagerConfiguration();
+        configuration.setDownloadRangeSize(RANGE_SIZE);
+        tm.setConfiguration(configuration);
+        transferManagers.add(tm);
+        return tm;
+    }
+
+    private GetObjectRequest newRequest(NetBytesListener listener) {
+        GetObjectRequest request = new GetObjectRequest("bucket", "key");
+        if (listener != null) {
+            request.setGeneralProgressListener(listener);
+        }
+        return request;
+    }
+
+    private void assertDownloaded(Download download, NetBytesListener listener) throws IOException {
+        assertArrayEquals(content, readFile());
+        assertEquals(OBJECT_LENGTH, download.getProgress().getBytesTransferred());
+        // Unlike the transfer progress, which is capped at the total, this reveals bytes counted twice.
+        assertEquals(OBJECT_LENGTH, listener.netBytes.get());
+    }
+
+    private byte[] readFile() throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            return IOUtils.toByteArray(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /** Sums the bytes reported to the listener of the download, minus those discarded. */
+    private static class NetBytesListener extends SyncProgressListener {
+        private final AtomicLong netBytes = new AtomicLong();
+
+        @Override
+        public void progressChanged(ProgressEvent progressEvent) {
+            netBytes.addAndGet(progressEvent.getBytesTransferred());
+        }
+    }
+
+    /** Counts down a latch once the wrapped stream has been read to its end. */
+    private static class EndOfStreamCallback extends FilterInputStream {
+        private final CountDownLatch latch;
+
+        EndOfStreamCallback(InputStream in, CountDownLatch latch) {
+            super(in);
+            this.latch = latch;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read == -1) {
+                latch.countDown();
+            }
+            return read;
+        }
+    }
+
+    private class FakeS3 extends AbstractAmazonS3 {
+        private final ConcurrentMap<String, AtomicInteger> requestedRanges =
+                new ConcurrentHashMap<String, AtomicInteger>();
+
+        @Override
+        public ObjectMetadata getObjectMetadata(GetObjectMetadataRequest getObjectMetadataRequest) {
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(OBJECT_LENGTH);
+            metadata.setLastModified(LAST_MODIFIED);
+            metadata.setHeader(Headers.ETAG, "etag");
+            return metadata;
+        }
+
+        @Override
+        public S3Object getObject(GetObjectRequest getObjectRequest) {
+            long[] range = getObjectRequest.getRange();
+            assertEquals(Collections.singletonList("etag"), getObjectRequest.getMatchingETagConstraints());
+            String key = range[0] + "-" + range[1];
+            requestedRanges.putIfAbsent(key, new AtomicInteger());
+            int attempt = requestedRanges.get(key).incrementAndGet();
+
+            S3Object object = new S3Object();
+            try {
+                object.setObjectContent(new S3ObjectInputStream(rangeContent(range[0], range[1], attempt), null));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AbortedException();
+            }
+            return object;
+        }
+
+        InputStream rangeContent(long firstByte, long lastByte, int attempt) throws InterruptedException {
+            if (lastByte >= OBJECT_LENGTH) {
+                throw new AmazonClientException("Range past the end of the object: " + lastByte);
+            }
+            return new ByteArrayInputStream(content, (int) firstByte, (int) (lastByte - firstByte + 1));
+        }
+
+        int attempts(String range) {
+            AtomicInteger attempts = requestedRanges.get(range);
+            return attempts == null ? 0 : attempts.get();
+        }
+
+        List<String> sortedRequestedRanges() {
+            List<String> ranges = new ArrayList<String>(requestedRanges.keySet());
+            Collections.sort(ranges, new Comparator<String>() {
+                @Override
+                public int compare(String a, String b) {
+                    return Long.valueOf(a.split("-")[0]).compareTo(Long.valueOf(b.split("-")[0]));
+                }
+            });
+            return ranges;
+        }
+    }
+}
@@ -13,8 +13,14 @@
 package com.amazonaws.services.sqs;
 
 import com.amazonaws.services.sqs.model.*;
+import com.amazonaws.services.sqs.model.transform.*;
+import com.amazonaws.*;
 import com.amazonaws.client.AwsAsyncClientParams;
 import com.amazonaws.annotation.ThreadSafe;
+import com.amazonaws.http.*;
+import com.amazonaws.protocol.json.*;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
 
 /**
  * Interface for accessing Amazon SQS asynchronously. Each asynchronous method will return a Java Future object
@@ -289,26 +295,27 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public java.util.concurrent.Future<AddPermissionResult> addPermissionAsync(final AddPermissionRequest request,
             final com.amazonaws.handlers.AsyncHandler<AddPermissionRequest, AddPermissionResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<AddPermissionResult>() {
-            @Override
-            public AddPermissionResult call() throws Exception {
-                AddPermissionResult result;
-
-                try {
-                    result = addPermission(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<AddPermissionRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new AddPermissionRequestMarshaller().marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            StaxResponseHandler<AddPermissionResult> responseHandler = new StaxResponseHandler<AddPermissionResult>(new AddPermissionResultStaxUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -345,26 +352,28 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public java.util.concurrent.Future<ChangeMessageVisibilityResult> changeMessageVisibilityAsync(final ChangeMessageVisibilityRequest request,
             final com.amazonaws.handlers.AsyncHandler<ChangeMessageVisibilityRequest, ChangeMessageVisibilityResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<ChangeMessageVisibilityResult>() {
-            @Override
-            public ChangeMessageVisibilityResult call() throws Exception {
-                ChangeMessageVisibilityResult result;
-
-                try {
-                    result = changeMessageVisibility(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<ChangeMessageVisibilityRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new ChangeMessageVisibilityRequestMarshaller().marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            StaxResponseHandler<ChangeMessageVisibilityResult> responseHandler = new StaxResponseHandler<ChangeMessageVisibilityResult>(
+                    new ChangeMessageVisibilityResultStaxUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -403,26 +412,28 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public java.util.concurrent.Future<ChangeMessageVisibilityBatchResult> changeMessageVisibilityBatchAsync(final ChangeMessageVisibilityBatchRequest request,
             final com.amazonaws.handlers.AsyncHandler<ChangeMessageVisibilityBatchRequest, ChangeMessageVisibilityBatchResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<ChangeMessageVisibilityBatchResult>() {
-            @Override
-            public ChangeMessageVisibilityBatchResult call() throws Exception {
-                ChangeMessageVisibilityBatchResult result;
-
-                try {
-                    result = changeMessageVisibilityBatch(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<ChangeMessageVisibilityBatchRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new ChangeMessageVisibilityBatchRequestMarshaller().marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            StaxResponseHandler<ChangeMessageVisibilityBatchResult> responseHandler = new StaxResponseHandler<ChangeMessageVisibilityBatchResult>(
+                    new ChangeMessageVisibilityBatchResultStaxUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -459,26 +470,27 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public java.util.concurrent.Future<CreateQueueResult> createQueueAsync(final CreateQueueRequest request,
             final com.amazonaws.handlers.AsyncHandler<CreateQueueRequest, CreateQueueResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<CreateQueueResult>() {
-            @Override
-            public CreateQueueResult call() throws Exception {
-                CreateQueueResult result;
-
-                try {
-                    result = createQueue(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<CreateQueueRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new CreateQueueRequestMarshaller().marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            StaxResponseHandler<CreateQueueResult> responseHandler = new StaxResponseHandler<CreateQueueResult>(new CreateQueueResultStaxUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -513,26 +525,27 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public java.util.concurrent.Future<DeleteMessageResult> deleteMessageAsync(final DeleteMessageRequest request,
             final com.amazonaws.handlers.AsyncHandler<DeleteMessageRequest, DeleteMessageResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<DeleteMessageResult>() {
-            @Override
-            public DeleteMessageResult call() throws Exception {
-                DeleteMessageResult result;
-
-                try {
-                    result = deleteMessage(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<DeleteMessageRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new DeleteMessageRequestMarshaller().marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            StaxResponseHandler<DeleteMessageResult> responseHandler = new StaxResponseHandler<DeleteMessageResult>(new DeleteMessageResultStaxUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -567,26 +580,28 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public java.util.concurrent.Future<DeleteMessageBatchResult> deleteMessageBatchAsync(final DeleteMessageBatchRequest request,
             final com.amazonaws.handlers.AsyncHandler<DeleteMessageBatchRequest, DeleteMessageBatchResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<DeleteMessageBatchResult>() {
-            @Override
-            public DeleteMessageBatchResult call() throws Exception {
-                DeleteMessageBatchResult result;
-
-                try {
-                    result = deleteMessageBatch(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<DeleteMessageBatchRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new DeleteMessageBatchRequestMarshaller().marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            StaxResponseHandler<DeleteMessageBatchResult> responseHandler = new StaxResponseHandler<DeleteMessageBatchResult>(
+                    new DeleteMessageBatchResultStaxUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -622,26 +637,27 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public java.util.concurrent.Future<DeleteQueueResult> deleteQueueAsync(final DeleteQueueRequest request,
             final com.amazonaws.handlers.AsyncHandler<DeleteQueueRequest, DeleteQueueResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<DeleteQueueResult>() {
-            @Override
-            public DeleteQueueResult call() throws Exception {
-                DeleteQueueResult result;
-
-                try {
-                    result = deleteQueue(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<DeleteQueueRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new DeleteQueueRequestMarshaller().marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            StaxResponseHandler<DeleteQueueResult> responseHandler = new StaxResponseHandler<DeleteQueueResult>(new DeleteQueueResultStaxUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -676,26 +692,28 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public java.util.concurrent.Future<GetQueueAttributesResult> getQueueAttributesAsync(final GetQueueAttributesRequest request,
             final com.amazonaws.handlers.AsyncHandler<GetQueueAttributesRequest, GetQueueAttributesResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<GetQueueAttributesResult>() {
-            @Override
-            public GetQueueAttributesResult call() throws Exception {
-                GetQueueAttributesResult result;
-
-                try {
-                    result = getQueueAttributes(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<GetQueueAttributesRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new GetQueueAttributesRequestMarshaller().marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            StaxResponseHandler<GetQueueAttributesResult> responseHandler = new StaxResponseHandler<GetQueueAttributesResult>(
+                    new GetQueueAttributesResultStaxUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -730,26 +748,27 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public java.util.concurrent.Future<GetQueueUrlResult> getQueueUrlAsync(final GetQueueUrlRequest request,
             final com.amazonaws.handlers.AsyncHandler<GetQueueUrlRequest, GetQueueUrlResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<GetQueueUrlResult>() {
-            @Override
-            public GetQueueUrlResult call() throws Exception {
-                GetQueueUrlResult result;
-
-                try {
-                    result = getQueueUrl(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<GetQueueUrlRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new GetQueueUrlRequestMarshaller().marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            StaxResponseHandler<GetQueueUrlResult> responseHandler = new StaxResponseHandler<GetQueueUrlResult>(new GetQueueUrlResultStaxUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -784,26 +803,28 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public java.util.concurrent.Future<ListDeadLetterSourceQueuesResult> listDeadLetterSourceQueuesAsync(final ListDeadLetterSourceQueuesRequest request,
             final com.amazonaws.handlers.AsyncHandler<ListDeadLetterSourceQueuesRequest, ListDeadLetterSourceQueuesResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<ListDeadLetterSourceQueuesResult>() {
-            @Override
-            public ListDeadLetterSourceQueuesResult call() throws Exception {
-                ListDeadLetterSourceQueuesResult result;
-
-                try {
-                    result = listDeadLetterSourceQueues(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<ListDeadLetterSourceQueuesRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new ListDeadLetterSourceQueuesRequestMarshaller().marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            StaxResponseHandler<ListDeadLetterSourceQueuesResult> responseHandler = new StaxResponseHandler<ListDeadLetterSourceQueuesResult>(
+                    new ListDeadLetterSourceQueuesResultStaxUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     @Override
@@ -816,26 +837,27 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public java.util.concurrent.Future<ListQueuesResult> listQueuesAsync(final ListQueuesRequest request,
             final com.amazonaws.handlers.AsyncHandler<ListQueuesRequest, ListQueuesResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<ListQueuesResult>() {
-            @Override
-            public ListQueuesResult call() throws Exception {
-                ListQueuesResult result;
-
-                try {
-                    result = listQueues(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<ListQueuesRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new ListQueuesRequestMarshaller().marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            StaxResponseHandler<ListQueuesResult> responseHandler = new StaxResponseHandler<ListQueuesResult>(new ListQueuesResultStaxUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -891,26 +913,27 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public java.util.concurrent.Future<PurgeQueueResult> purgeQueueAsync(final PurgeQueueRequest request,
             final com.amazonaws.handlers.AsyncHandler<PurgeQueueRequest, PurgeQueueResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<PurgeQueueResult>() {
-            @Override
-            public PurgeQueueResult call() throws Exception {
-                PurgeQueueResult result;
-
-                try {
-                    result = purgeQueue(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<PurgeQueueRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new PurgeQueueRequestMarshaller().marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            StaxResponseHandler<PurgeQueueResult> responseHandler = new StaxResponseHandler<PurgeQueueResult>(new PurgeQueueResultStaxUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     @Override
@@ -923,26 +946,28 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public java.util.concurrent.Future<ReceiveMessageResult> receiveMessageAsync(final ReceiveMessageRequest request,
             final com.amazonaws.handlers.AsyncHandler<ReceiveMessageRequest, ReceiveMessageResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<ReceiveMessageResult>() {
-            @Override
-            public ReceiveMessageResult call() throws Exception {
-                ReceiveMessageResult result;
-
-                try {
-                    result = receiveMessage(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<ReceiveMessageRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new ReceiveMessageRequestMarshaller().marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            StaxResponseHandler<ReceiveMessageResult> responseHandler = new StaxResponseHandler<ReceiveMessageResult>(
+                    new ReceiveMessageResultStaxUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -977,26 +1002,28 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public java.util.concurrent.Future<RemovePermissionResult> removePermissionAsync(final RemovePermissionRequest request,
             final com.amazonaws.handlers.AsyncHandler<RemovePermissionRequest, RemovePermissionResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<RemovePermissionResult>() {
-            @Override
-            public RemovePermissionResult call() throws Exception {
-                RemovePermissionResult result;
-
-                try {
-                    result = removePermission(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<RemovePermissionRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new RemovePermissionRequestMarshaller().marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            StaxResponseHandler<RemovePermissionResult> responseHandler = new StaxResponseHandler<RemovePermissionResult>(
+                    new RemovePermissionResultStaxUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -1031,26 +1058,27 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public java.util.concurrent.Future<SendMessageResult> sendMessageAsync(final SendMessageRequest request,
             final com.amazonaws.handlers.AsyncHandler<SendMessageRequest, SendMessageResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<SendMessageResult>() {
-            @Override
-            public SendMessageResult call() throws Exception {
-                SendMessageResult result;
-
-                try {
-                    result = sendMessage(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<SendMessageRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new SendMessageRequestMarshaller().marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            StaxResponseHandler<SendMessageResult> responseHandler = new StaxResponseHandler<SendMessageResult>(new SendMessageResultStaxUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -1085,26 +1113,28 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public java.util.concurrent.Future<SendMessageBatchResult> sendMessageBatchAsync(final SendMessageBatchRequest request,
             final com.amazonaws.handlers.AsyncHandler<SendMessageBatchRequest, SendMessageBatchResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<SendMessageBatchResult>() {
-            @Override
-            public SendMessageBatchResult call() throws Exception {
-                SendMessageBatchResult result;
-
-                try {
-                    result = sendMessageBatch(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<SendMessageBatchRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new SendMessageBatchRequestMarshaller().marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            StaxResponseHandler<SendMessageBatchResult> responseHandler = new StaxResponseHandler<SendMessageBatchResult>(
+                    new SendMessageBatchResultStaxUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
@@ -1139,26 +1169,28 @@ public class AmazonSQSAsyncClient extends AmazonSQSClient implements AmazonSQSAs
     public java.util.concurrent.Future<SetQueueAttributesResult> setQueueAttributesAsync(final SetQueueAttributesRequest request,
             final com.amazonaws.handlers.AsyncHandler<SetQueueAttributesRequest, SetQueueAttributesResult> asyncHandler) {
 
-        return executorService.submit(new java.util.concurrent.Callable<SetQueueAttributesResult>() {
-            @Override
-            public SetQueueAttributesResult call() throws Exception {
-                SetQueueAttributesResult result;
-
-                try {
-                    result = setQueueAttributes(request);
-                } catch (Exception ex) {
-                    if (asyncHandler != null) {
-                        asyncHandler.onError(ex);
-                    }
-                    throw ex;
-                }
-
-                if (asyncHandler != null) {
-                    asyncHandler.onSuccess(request, result);
-                }
-                return result;
+        ExecutionContext executionContext = createExecutionContext(request);
+        AWSRequestMetrics awsRequestMetrics = executionContext.getAwsRequestMetrics();
+        awsRequestMetrics.startEvent(Field.ClientExecuteTime);
+        Request<SetQueueAttributesRequest> marshalled = null;
+
+        try {
+            awsRequestMetrics.startEvent(Field.RequestMarshallTime);
+            try {
+                marshalled = new SetQueueAttributesRequestMarshaller().marshall(super.beforeMarshalling(request));
+                // Binds the request metrics to the current request.
+                marshalled.setAWSRequestMetrics(awsRequestMetrics);
+            } finally {
+                awsRequestMetrics.endEvent(Field.RequestMarshallTime);
             }
-        });
+
+            StaxResponseHandler<SetQueueAttributesResult> responseHandler = new StaxResponseHandler<SetQueueAttributesResult>(
+                    new SetQueueAttributesResultStaxUnmarshaller());
+            return invokeAsync(request, marshalled, responseHandler, executionContext, asyncHandler);
+        } catch (RuntimeException e) {
+            endClientExecution(awsRequestMetrics, marshalled, null);
+            return failedAsync(e, asyncHandler);
+        }
     }
 
     /**
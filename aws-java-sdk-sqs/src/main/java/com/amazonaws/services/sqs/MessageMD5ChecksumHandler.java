@@ -14,13 +14,6 @@
  */
 package com.amazonaws.services.sqs;
 
-import static com.amazonaws.util.StringUtils.UTF8;
-
-import java.io.UnsupportedEncodingException;
-import java.nio.ByteBuffer;
-import java.security.MessageDigest;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,6 +24,7 @@ import org.apache.commons.logging.LogFactory;
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.Request;
 import com.amazonaws.handlers.AbstractRequestHandler;
+import com.amazonaws.services.sqs.internal.MessageMD5Digest;
 import com.amazonaws.services.sqs.model.Message;
 import com.amazonaws.services.sqs.model.MessageAttributeValue;
 import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
@@ -41,22 +35,24 @@ import com.amazonaws.services.sqs.model.SendMessageBatchResult;
 import com.amazonaws.services.sqs.model.SendMessageBatchResultEntry;
 import com.amazonaws.services.sqs.model.SendMessageRequest;
 import com.amazonaws.services.sqs.model.SendMessageResult;
-import com.amazonaws.util.BinaryUtils;
-import com.amazonaws.util.Md5Utils;
 import com.amazonaws.util.TimingInfo;
 
 /**
  * SQS operations on sending and receiving messages will return the MD5 digest of the message body.
  * This custom request handler will verify that the message is correctly received by SQS, by
  * comparing the returned MD5 with the calculation according to the original request.
+ * <p>
+ * By default every message is verified. Setting the
+ * {@value #MD5_VALIDATION_SAMPLE_INTERVAL_PROPERTY} system property to N verifies about one in N
+ * messages instead, and setting it to 0 disables the verification.
  */
 public class MessageMD5ChecksumHandler extends AbstractRequestHandler {
 
-    private static final int INTEGER_SIZE_IN_BYTES = 4;
-    private static final byte STRING_TYPE_FIELD_INDEX = 1;
-    private static final byte BINARY_TYPE_FIELD_INDEX = 2;
-    private static final byte STRING_LIST_TYPE_FIELD_INDEX = 3;
-    private static final byte BINARY_LIST_TYPE_FIELD_INDEX = 4;
+    /**
+     * System property for one in how many messages to verify the MD5 checksums of.
+     */
+    public static final String MD5_VALIDATION_SAMPLE_INTERVAL_PROPERTY =
+            "com.amazonaws.services.sqs.md5ValidationSampleInterval";
 
     /*
      * Constant strings for composing error message.
@@ -70,9 +66,49 @@ public class MessageMD5ChecksumHandler extends AbstractRequestHandler {
 
     private static final Log log = LogFactory.getLog(MessageMD5ChecksumHandler.class);
 
+    private final int sampleInterval;
+
+    /**
+     * Creates a handler verifying the messages sampled according to the
+     * {@value #MD5_VALIDATION_SAMPLE_INTERVAL_PROPERTY} system property, or all of them if it is
+     * not set.
+     */
+    public MessageMD5ChecksumHandler() {
+        this(getSampleIntervalProperty());
+    }
+
+    /**
+     * @param sampleInterval
+     *            One in how many messages to verify, or zero to verify none.
+     */
+    public MessageMD5ChecksumHandler(int sampleInterval) {
+        if (sampleInterval < 0) {
+            throw new IllegalArgumentException("sampleInterval must not be negative");
+        }
+        this.sampleInterval = sampleInterval;
+    }
+
+    private static int getSampleIntervalProperty() {
+        String property = System.getProperty(MD5_VALIDATION_SAMPLE_INTERVAL_PROPERTY);
+        if (property == null) {
+            return 1;
+        }
+        try {
+            int sampleInterval = Integer.parseInt(property.trim());
+            if (sampleInterval >= 0) {
+                return sampleInterval;
+            }
+        } catch (NumberFormatException e) {
+            // fall through
+        }
+        log.warn("Ignoring invalid value of " + MD5_VALIDATION_SAMPLE_INTERVAL_PROPERTY + ": " + property
+                + "; verifying every message");
+        return 1;
+    }
+
     @Override
     public void afterResponse(Request<?> request, Object response, TimingInfo timingInfo) {
-        if (request != null && response != null) {
+        if (request != null && response != null && sampleInterval != 0) {
             // SendMessage
             if (request.getOriginalRequest() instanceof SendMessageRequest && response instanceof SendMessageResult) {
                 SendMessageRequest sendMessageRequest = (SendMessageRequest) request.getOriginalRequest();
@@ -102,23 +138,26 @@ public class MessageMD5ChecksumHandler extends AbstractRequestHandler {
      * Throw an exception if the MD5 checksums returned in the SendMessageResult do not match the
      * client-side calculation based on the original message in the SendMessageRequest.
      */
-    private static void sendMessageOperationMd5Check(SendMessageRequest sendMessageRequest,
-                                                     SendMessageResult sendMessageResult) {
+    private void sendMessageOperationMd5Check(SendMessageRequest sendMessageRequest,
+                                              SendMessageResult sendMessageResult) {
+        if (!isSampled(sendMessageRequest)) {
+            return;
+        }
         String messageBodySent = sendMessageRequest.getMessageBody();
         String bodyMd5Returned = sendMessageResult.getMD5OfMessageBody();
-        String clientSideBodyMd5 = calculateMessageBodyMd5(messageBodySent);
-        if (!clientSideBodyMd5.equals(bodyMd5Returned)) {
-            throw new AmazonClientException(String.format(MD5_MISMATCH_ERROR_MESSAGE, MESSAGE_BODY, clientSideBodyMd5,
-                    bodyMd5Returned));
+        MessageMD5Digest clientSideBodyMd5 = calculateMessageBodyMd5(messageBodySent);
+        if (!clientSideBodyMd5.matches(bodyMd5Returned)) {
+            throw new AmazonClientException(String.format(MD5_MISMATCH_ERROR_MESSAGE, MESSAGE_BODY,
+                    clientSideBodyMd5.toHex(), bodyMd5Returned));
         }
 
         Map<String, MessageAttributeValue> messageAttrSent = sendMessageRequest.getMessageAttributes();
         if (messageAttrSent != null && !messageAttrSent.isEmpty()) {
-            String clientSideAttrMd5 = calculateMessageAttributesMd5(messageAttrSent);
+            MessageMD5Digest clientSideAttrMd5 = calculateMessageAttributesMd5(messageAttrSent);
             String attrMd5Returned = sendMessageResult.getMD5OfMessageAttributes();
-            if (!clientSideAttrMd5.equals(attrMd5Returned)) {
+            if (!clientSideAttrMd5.matches(attrMd5Returned)) {
                 throw new AmazonClientException(String.format(MD5_MISMATCH_ERROR_MESSAGE, MESSAGE_ATTRIBUTES,
-                        clientSideAttrMd5, attrMd5Returned));
+                        clientSideAttrMd5.toHex(), attrMd5Returned));
             }
         }
     }
@@ -127,24 +166,27 @@ public class MessageMD5ChecksumHandler extends AbstractRequestHandler {
      * Throw an exception if the MD5 checksums included in the ReceiveMessageResult do not match the
      * client-side calculation on the received messages.
      */
-    private static void receiveMessageResultMd5Check(ReceiveMessageResult receiveMessageResult) {
+    private void receiveMessageResultMd5Check(ReceiveMessageResult receiveMessageResult) {
         if (receiveMessageResult.getMessages() != null) {
             for (Message messageReceived : receiveMessageResult.getMessages()) {
+                if (!isSampled(messageReceived)) {
+                    continue;
+                }
                 String messageBody = messageReceived.getBody();
                 String bodyMd5Returned = messageReceived.getMD5OfBody();
-                String clientSideBodyMd5 = calculateMessageBodyMd5(messageBody);
-                if (!clientSideBodyMd5.equals(bodyMd5Returned)) {
+                MessageMD5Digest clientSideBodyMd5 = calculateMessageBodyMd5(messageBody);
+                if (!clientSideBodyMd5.matches(bodyMd5Returned)) {
                     throw new AmazonClientException(String.format(MD5_MISMATCH_ERROR_MESSAGE, MESSAGE_BODY,
-                            clientSideBodyMd5, bodyMd5Returned));
+                            clientSideBodyMd5.toHex(), bodyMd5Returned));
                 }
 
                 Map<String, MessageAttributeValue> messageAttr = messageReceived.getMessageAttributes();
                 if (messageAttr != null && !messageAttr.isEmpty()) {
                     String attrMd5Returned = messageReceived.getMD5OfMessageAttributes();
-                    String clientSideAttrMd5 = calculateMessageAttributesMd5(messageAttr);
-                    if (!clientSideAttrMd5.equals(attrMd5Returned)) {
+                    MessageMD5Digest clientSideAttrMd5 = calculateMessageAttributesMd5(messageAttr);
+                    if (!clientSideAttrMd5.matches(attrMd5Returned)) {
                         throw new AmazonClientException(String.format(MD5_MISMATCH_ERROR_MESSAGE, MESSAGE_ATTRIBUTES,
-                                clientSideAttrMd5, attrMd5Returned));
+                                clientSideAttrMd5.toHex(), attrMd5Returned));
                     }
                 }
             }
@@ -155,133 +197,89 @@ public class MessageMD5ChecksumHandler extends AbstractRequestHandler {
      * Throw an exception if the MD5 checksums returned in the SendMessageBatchResult do not match
      * the client-side calculation based on the original messages in the SendMessageBatchRequest.
      */
-    private static void sendMessageBatchOperationMd5Check(SendMessageBatchRequest sendMessageBatchRequest,
-                                                          SendMessageBatchResult sendMessageBatchResult) {
-        Map<String, SendMessageBatchRequestEntry> idToRequestEntryMap = new HashMap<String, SendMessageBatchRequestEntry>();
-        if (sendMessageBatchRequest.getEntries() != null) {
-            for (SendMessageBatchRequestEntry entry : sendMessageBatchRequest.getEntries()) {
-                idToRequestEntryMap.put(entry.getId(), entry);
-            }
+    private void sendMessageBatchOperationMd5Check(SendMessageBatchRequest sendMessageBatchRequest,
+                                                   SendMessageBatchResult sendMessageBatchResult) {
+        List<SendMessageBatchRequestEntry> requestEntries = sendMessageBatchRequest.getEntries();
+        List<SendMessageBatchResultEntry> resultEntries = sendMessageBatchResult.getSuccessful();
+        if (requestEntries == null || resultEntries == null || resultEntries.isEmpty()) {
+            return;
+        }
+        Map<String, SendMessageBatchRequestEntry> idToRequestEntryMap = new HashMap<String, SendMessageBatchRequestEntry>(
+                2 * requestEntries.size());
+        for (SendMessageBatchRequestEntry entry : requestEntries) {
+            idToRequestEntryMap.put(entry.getId(), entry);
         }
 
-        if (sendMessageBatchResult.getSuccessful() != null) {
-            for (SendMessageBatchResultEntry entry : sendMessageBatchResult.getSuccessful()) {
-                String messageBody = idToRequestEntryMap.get(entry.getId()).getMessageBody();
-                String bodyMd5Returned = entry.getMD5OfMessageBody();
-                String clientSideBodyMd5 = calculateMessageBodyMd5(messageBody);
-                if (!clientSideBodyMd5.equals(bodyMd5Returned)) {
-                    throw new AmazonClientException(String.format(MD5_MISMATCH_ERROR_MESSAGE_WITH_ID, MESSAGE_BODY,
-                            entry.getId(), clientSideBodyMd5, bodyMd5Returned));
-                }
+        for (SendMessageBatchResultEntry entry : resultEntries) {
+            if (!isSampled(entry)) {
+                continue;
+            }
+            String messageBody = idToRequestEntryMap.get(entry.getId()).getMessageBody();
+            String bodyMd5Returned = entry.getMD5OfMessageBody();
+            MessageMD5Digest clientSideBodyMd5 = calculateMessageBodyMd5(messageBody);
+            if (!clientSideBodyMd5.matches(bodyMd5Returned)) {
+                throw new AmazonClientException(String.format(MD5_MISMATCH_ERROR_MESSAGE_WITH_ID, MESSAGE_BODY,
+                        entry.getId(), clientSideBodyMd5.toHex(), bodyMd5Returned));
+            }
 
-                Map<String, MessageAttributeValue> messageAttr = idToRequestEntryMap.get(entry.getId())
-                        .getMessageAttributes();
-                if (messageAttr != null && !messageAttr.isEmpty()) {
-                    String attrMd5Returned = entry.getMD5OfMessageAttributes();
-                    String clientSideAttrMd5 = calculateMessageAttributesMd5(messageAttr);
-                    if (!clientSideAttrMd5.equals(attrMd5Returned)) {
-                        throw new AmazonClientException(String.format(MD5_MISMATCH_ERROR_MESSAGE_WITH_ID,
-                                MESSAGE_ATTRIBUTES, entry.getId(), clientSideAttrMd5, attrMd5Returned));
-                    }
+            Map<String, MessageAttributeValue> messageAttr = idToRequestEntryMap.get(entry.getId())
+                    .getMessageAttributes();
+            if (messageAttr != null && !messageAttr.isEmpty()) {
+                String attrMd5Returned = entry.getMD5OfMessageAttributes();
+                MessageMD5Digest clientSideAttrMd5 = calculateMessageAttributesMd5(messageAttr);
+                if (!clientSideAttrMd5.matches(attrMd5Returned)) {
+                    throw new AmazonClientException(String.format(MD5_MISMATCH_ERROR_MESSAGE_WITH_ID,
+                            MESSAGE_ATTRIBUTES, entry.getId(), clientSideAttrMd5.toHex(), attrMd5Returned));
                 }
             }
         }
     }
 
     /**
-     * Returns the hex-encoded MD5 hash String of the given message body.
+     * Returns whether to verify the checksums of the given message or entry, sampled by its
+     * identity hash code so that no counter is shared between threads.
+     */
+    private boolean isSampled(Object message) {
+        return sampleInterval == 1 || (System.identityHashCode(message) & Integer.MAX_VALUE) % sampleInterval == 0;
+    }
+
+    /**
+     * Returns the MD5 hash of the given message body, in the digest of the current thread.
      */
-    private static String calculateMessageBodyMd5(String messageBody) {
+    private static MessageMD5Digest calculateMessageBodyMd5(String messageBody) {
         if (log.isDebugEnabled()) {
             log.debug("Message body: " + messageBody);
         }
-        byte[] expectedMd5;
+        MessageMD5Digest expectedMd5;
         try {
-            expectedMd5 = Md5Utils.computeMD5Hash(messageBody.getBytes(UTF8));
+            expectedMd5 = MessageMD5Digest.get().digestBody(messageBody);
         } catch (Exception e) {
             throw new AmazonClientException("Unable to calculate the MD5 hash of the message body. " + e.getMessage(),
                     e);
         }
-        String expectedMd5Hex = BinaryUtils.toHex(expectedMd5);
         if (log.isDebugEnabled()) {
-            log.debug("Expected  MD5 of message body: " + expectedMd5Hex);
+            log.debug("Expected  MD5 of message body: " + expectedMd5.toHex());
         }
-        return expectedMd5Hex;
+        return expectedMd5;
     }
 
     /**
-     * Returns the hex-encoded MD5 hash String of the given message attributes.
+     * Returns the MD5 hash of the given message attributes, in the digest of the current thread.
      */
-    private static String calculateMessageAttributesMd5(final Map<String, MessageAttributeValue> messageAttributes) {
+    private static MessageMD5Digest calculateMessageAttributesMd5(final Map<String, MessageAttributeValue> messageAttributes) {
         if (log.isDebugEnabled()) {
             log.debug("Message attribtues: " + messageAttributes);
         }
-        List<String> sortedAttributeNames = new ArrayList<String>(messageAttributes.keySet());
-        Collections.sort(sortedAttributeNames);
-
-        MessageDigest md5Digest = null;
+        MessageMD5Digest expectedMd5;
         try {
-            md5Digest = MessageDigest.getInstance("MD5");
-
-            for (String attrName : sortedAttributeNames) {
-                MessageAttributeValue attrValue = messageAttributes.get(attrName);
-
-                // Encoded Name
-                updateLengthAndBytes(md5Digest, attrName);
-                // Encoded Type
-                updateLengthAndBytes(md5Digest, attrValue.getDataType());
-
-                // Encoded Value
-                if (attrValue.getStringValue() != null) {
-                    md5Digest.update(STRING_TYPE_FIELD_INDEX);
-                    updateLengthAndBytes(md5Digest, attrValue.getStringValue());
-                } else if (attrValue.getBinaryValue() != null) {
-                    md5Digest.update(BINARY_TYPE_FIELD_INDEX);
-                    updateLengthAndBytes(md5Digest, attrValue.getBinaryValue());
-                } else if (attrValue.getStringListValues().size() > 0) {
-                    md5Digest.update(STRING_LIST_TYPE_FIELD_INDEX);
-                    for (String strListMember : attrValue.getStringListValues()) {
-                        updateLengthAndBytes(md5Digest, strListMember);
-                    }
-                } else if (attrValue.getBinaryListValues().size() > 0) {
-                    md5Digest.update(BINARY_LIST_TYPE_FIELD_INDEX);
-                    for (ByteBuffer byteListMember : attrValue.getBinaryListValues()) {
-                        updateLengthAndBytes(md5Digest, byteListMember);
-                    }
-                }
-            }
+            expectedMd5 = MessageMD5Digest.get().digestAttributes(messageAttributes);
         } catch (Exception e) {
             throw new AmazonClientException("Unable to calculate the MD5 hash of the message attributes. "
                     + e.getMessage(), e);
         }
-
-        String expectedMd5Hex = BinaryUtils.toHex(md5Digest.digest());
         if (log.isDebugEnabled()) {
-            log.debug("Expected  MD5 of message attributes: " + expectedMd5Hex);
+            log.debug("Expected  MD5 of message attributes: " + expectedMd5.toHex());
         }
-        return expectedMd5Hex;
-    }
-
-    /**
-     * Update the digest using a sequence of bytes that consists of the length (in 4 bytes) of the
-     * input String and the actual utf8-encoded byte values.
-     */
-    private static void updateLengthAndBytes(MessageDigest digest, String str) throws UnsupportedEncodingException {
-        byte[] utf8Encoded = str.getBytes(UTF8);
-        ByteBuffer lengthBytes = ByteBuffer.allocate(INTEGER_SIZE_IN_BYTES).putInt(utf8Encoded.length);
-        digest.update(lengthBytes.array());
-        digest.update(utf8Encoded);
-    }
-
-    /**
-     * Update the digest using a sequence of bytes that consists of the length (in 4 bytes) of the
-     * input ByteBuffer and all the bytes it contains.
-     */
-    private static void updateLengthAndBytes(MessageDigest digest, ByteBuffer binaryValue) {
-        ByteBuffer readOnlyBuffer = binaryValue.asReadOnlyBuffer();
-        int size = readOnlyBuffer.remaining();
-        ByteBuffer lengthBytes = ByteBuffer.allocate(INTEGER_SIZE_IN_BYTES).putInt(size);
-        digest.update(lengthBytes.array());
-        digest.update(readOnlyBuffer);
+        return expectedMd5;
     }
 }
@@ -125,6 +125,7 @@ public class AmazonSQSBufferedAsyncClient implements AmazonSQSAsync {
     public ChangeMessageVisibilityBatchResult changeMessageVisibilityBatch(ChangeMessageVisibilityBatchRequest changeMessageVisibilityBatchRequest)
             throws AmazonServiceException, AmazonClientException {
         ResultConverter.appendUserAgent(changeMessageVisibilityBatchRequest, USER_AGENT);
+        stopExtendingVisibility(changeMessageVisibilityBatchRequest);
         return realSQS.changeMessageVisibilityBatch(changeMessageVisibilityBatchRequest);
     }
 
@@ -158,6 +159,7 @@ public class AmazonSQSBufferedAsyncClient implements AmazonSQSAsync {
     public DeleteMessageBatchResult deleteMessageBatch(DeleteMessageBatchRequest deleteMessageBatchRequest)
             throws AmazonServiceException, AmazonClientException {
         ResultConverter.appendUserAgent(deleteMessageBatchRequest, USER_AGENT);
+        stopExtendingVisibility(deleteMessageBatchRequest);
         return realSQS.deleteMessageBatch(deleteMessageBatchRequest);
     }
 
@@ -188,6 +190,7 @@ public class AmazonSQSBufferedAsyncClient implements AmazonSQSAsync {
     public Future<ChangeMessageVisibilityBatchResult> changeMessageVisibilityBatchAsync(ChangeMessageVisibilityBatchRequest changeMessageVisibilityBatchRequest)
             throws AmazonServiceException, AmazonClientException {
         ResultConverter.appendUserAgent(changeMessageVisibilityBatchRequest, USER_AGENT);
+        stopExtendingVisibility(changeMessageVisibilityBatchRequest);
         return realSQS.changeMessageVisibilityBatchAsync(changeMessageVisibilityBatchRequest);
     }
 
@@ -223,6 +226,7 @@ public class AmazonSQSBufferedAsyncClient implements AmazonSQSAsync {
     public Future<DeleteMessageBatchResult> deleteMessageBatchAsync(DeleteMessageBatchRequest deleteMessageBatchRequest)
             throws AmazonServiceException, AmazonClientException {
         ResultConverter.appendUserAgent(deleteMessageBatchRequest, USER_AGENT);
+        stopExtendingVisibility(deleteMessageBatchRequest);
         return realSQS.deleteMessageBatchAsync(deleteMessageBatchRequest);
     }
 
@@ -379,6 +383,40 @@ public class AmazonSQSBufferedAsyncClient implements AmazonSQSAsync {
         return toReturn;
     }
 
+    /**
+     * Stops the buffer of the queue, if there is one, from extending the visibility timeout of the
+     * messages being deleted directly.
+     */
+    private void stopExtendingVisibility(DeleteMessageBatchRequest request) {
+        QueueBuffer buffer = getExistingQBuffer(request.getQueueUrl());
+        if (buffer != null) {
+            for (DeleteMessageBatchRequestEntry entry : request.getEntries()) {
+                buffer.stopExtendingVisibility(entry.getReceiptHandle());
+            }
+        }
+    }
+
+    /**
+     * Stops the buffer of the queue, if there is one, from extending the visibility timeout of the
+     * messages whose visibility is being changed directly.
+     */
+    private void stopExtendingVisibility(ChangeMessageVisibilityBatchRequest request) {
+        QueueBuffer buffer = getExistingQBuffer(request.getQueueUrl());
+        if (buffer != null) {
+            for (ChangeMessageVisibilityBatchRequestEntry entry : request.getEntries()) {
+                buffer.stopExtendingVisibility(entry.getReceiptHandle());
+            }
+        }
+    }
+
+    /**
+     * @return the queue buffer associated with the provided queue URL if visibility timeouts are
+     *         being extended and there is one, otherwise null
+     */
+    private synchronized QueueBuffer getExistingQBuffer(String qUrl) {
+        return bufferConfigExemplar.isAutoExtendVisibility() ? buffers.get(qUrl) : null;
+    }
+
     class CachingMap extends LinkedHashMap<String, QueueBuffer> {
         private static final long serialVersionUID = 1;
         private static final int MAX_ENTRIES = 100;
@@ -502,6 +540,7 @@ public class AmazonSQSBufferedAsyncClient implements AmazonSQSAsync {
     public Future<ChangeMessageVisibilityBatchResult> changeMessageVisibilityBatchAsync(ChangeMessageVisibilityBatchRequest changeMessageVisibilityBatchRequest,
                                                                                         AsyncHandler<ChangeMessageVisibilityBatchRequest, ChangeMessageVisibilityBatchResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
+        stopExtendingVisibility(changeMessageVisibilityBatchRequest);
         return realSQS.changeMessageVisibilityBatchAsync(changeMessageVisibilityBatchRequest, asyncHandler);
     }
 
@@ -657,6 +696,7 @@ public class AmazonSQSBufferedAsyncClient implements AmazonSQSAsync {
     public Future<DeleteMessageBatchResult> deleteMessageBatchAsync(DeleteMessageBatchRequest deleteMessageBatchRequest,
                                                                     AsyncHandler<DeleteMessageBatchRequest, DeleteMessageBatchResult> asyncHandler)
             throws AmazonServiceException, AmazonClientException {
+        stopExtendingVisibility(deleteMessageBatchRequest);
         return realSQS.deleteMessageBatchAsync(deleteMessageBatchRequest, asyncHandler);
     }
 
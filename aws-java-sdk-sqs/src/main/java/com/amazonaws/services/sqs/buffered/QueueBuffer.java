@@ -18,6 +18,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -62,13 +63,21 @@ class QueueBuffer {
      * for each queue. The DaemonThreadFactory creates daemon threads, which means they won't block
      * the JVM from exiting if only they are still around.
      */
-    static ExecutorService executor = Executors.newCachedThreadPool(new DaemonThreadFactory());;
+    static ExecutorService executor = Executors.newCachedThreadPool(new DaemonThreadFactory("SQSQueueBufferWorkerThread-"));;
+
+    /**
+     * The scheduler for visibility timeout extensions, shared among all queue buffers. Its single
+     * thread only hands the extensions over to the executor, and is not started until auto
+     * extending visibility is used.
+     */
+    static ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory(
+            "SQSQueueBufferSchedulerThread-"));
 
     QueueBuffer(QueueBufferConfig paramConfig, String url, AmazonSQSAsync sqs) {
         realSqs = sqs;
         config = paramConfig;
         sendBuffer = new SendQueueBuffer(sqs, executor, paramConfig, url);
-        receiveBuffer = new ReceiveQueueBuffer(sqs, executor, paramConfig, url);
+        receiveBuffer = new ReceiveQueueBuffer(sqs, executor, scheduler, paramConfig, url);
     }
 
     /**
@@ -109,6 +118,7 @@ class QueueBuffer {
         if (handler != null) {
             callback = new QueueBufferCallback<DeleteMessageRequest, DeleteMessageResult>(handler, request);
         }
+        receiveBuffer.stopExtendingVisibility(request.getReceiptHandle());
 
         QueueBufferFuture<DeleteMessageRequest, DeleteMessageResult> future = sendBuffer.deleteMessage(request, callback);
         future.setBuffer(this);
@@ -137,6 +147,7 @@ class QueueBuffer {
         if (handler != null) {
             callback = new QueueBufferCallback<ChangeMessageVisibilityRequest, ChangeMessageVisibilityResult>(handler, request);
         }
+        receiveBuffer.stopExtendingVisibility(request.getReceiptHandle());
 
         QueueBufferFuture<ChangeMessageVisibilityRequest, ChangeMessageVisibilityResult> future =
                 sendBuffer.changeMessageVisibility(request, callback);
@@ -150,6 +161,7 @@ class QueueBuffer {
      * @return
      */
     public ChangeMessageVisibilityResult changeMessageVisibilitySync(ChangeMessageVisibilityRequest request) {
+        receiveBuffer.stopExtendingVisibility(request.getReceiptHandle());
         Future<ChangeMessageVisibilityResult> future = sendBuffer.changeMessageVisibility(request, null);
         return waitForFuture(future);
     }
@@ -189,6 +201,14 @@ class QueueBuffer {
         return waitForFuture(future);
     }
 
+    /**
+     * Stops extending the visibility timeout of a message received through this buffer, because
+     * the caller is deleting it or changing its visibility directly.
+     */
+    void stopExtendingVisibility(String receiptHandle) {
+        receiveBuffer.stopExtendingVisibility(receiptHandle);
+    }
+
     /**
      * Shuts down the queue buffer. Once this method has been called, the queue buffer is not
      * operational and all subsequent calls to it may fail.
@@ -289,11 +309,17 @@ class QueueBuffer {
     private static class DaemonThreadFactory implements ThreadFactory {
         static AtomicInteger threadCount = new AtomicInteger(0);
 
+        private final String namePrefix;
+
+        DaemonThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
         public Thread newThread(Runnable r) {
             int threadNumber = threadCount.addAndGet(1);
             Thread thread = new Thread(r);
             thread.setDaemon(true);
-            thread.setName("SQSQueueBufferWorkerThread-" + threadNumber);
+            thread.setName(namePrefix + threadNumber);
             return thread;
         }
 
@@ -118,6 +118,38 @@ public class QueueBufferConfig {
      */
     private boolean flushOnShutdown = false;
 
+    /**
+     * If true, the number of receive batches pre-fetched and kept in flight is sized from the
+     * observed consumption rate and receive latency, up to maxDoneReceiveBatches and
+     * maxInflightReceiveBatches, instead of always pre-fetching up to those limits.
+     */
+    private boolean adaptivePrefetching;
+
+    /** false */
+    public static final boolean ADAPTIVE_PREFETCHING_DEFAULT = false;
+
+    /**
+     * If true, the visibility timeout of pre-fetched messages and of messages handed out by the
+     * buffer is extended in batches until they are deleted, their visibility is changed by the
+     * caller, or maxVisibilityExtensionSeconds have passed since they were received.
+     */
+    private boolean autoExtendVisibility;
+
+    /** false */
+    public static final boolean AUTO_EXTEND_VISIBILITY_DEFAULT = false;
+
+    /**
+     * The maximum time, in seconds since it was received, for which the visibility timeout of a
+     * message will be automatically extended. Only used if autoExtendVisibility is enabled.
+     */
+    private int maxVisibilityExtensionSeconds;
+
+    /** 1 hour */
+    public static final int MAX_VISIBILITY_EXTENSION_SECONDS_DEFAULT = 3600;
+
+    /** 12 hours, the longest a message can be kept invisible after it is received */
+    public static final int SERVICE_MAX_VISIBILITY_EXTENSION_SECONDS = 43200;
+
     public QueueBufferConfig(long maxBatchOpenMs, int maxInflightOutboundBatches, int maxInflightReceiveBatches,
             int maxDoneReceiveBatches, boolean paramLongPoll, long maxBatchSizeBytes, int visibilityTimeout,
             int longPollTimeout, int maxBatch) {
@@ -131,6 +163,9 @@ public class QueueBufferConfig {
         this.visibilityTimeoutSeconds = visibilityTimeout;
         this.longPollWaitTimeoutSeconds = longPollTimeout;
         this.maxBatchSize = maxBatch;
+        this.adaptivePrefetching = ADAPTIVE_PREFETCHING_DEFAULT;
+        this.autoExtendVisibility = AUTO_EXTEND_VISIBILITY_DEFAULT;
+        this.maxVisibilityExtensionSeconds = MAX_VISIBILITY_EXTENSION_SECONDS_DEFAULT;
     }
 
     public QueueBufferConfig() {
@@ -150,6 +185,9 @@ public class QueueBufferConfig {
         maxInflightOutboundBatches = other.maxInflightOutboundBatches;
         maxInflightReceiveBatches = other.maxInflightReceiveBatches;
         visibilityTimeoutSeconds = other.visibilityTimeoutSeconds;
+        adaptivePrefetching = other.adaptivePrefetching;
+        autoExtendVisibility = other.autoExtendVisibility;
+        maxVisibilityExtensionSeconds = other.maxVisibilityExtensionSeconds;
     }
 
     @Override
@@ -158,7 +196,9 @@ public class QueueBufferConfig {
                 + longPoll + ", maxInflightOutboundBatches=" + maxInflightOutboundBatches
                 + ", maxInflightReceiveBatches=" + maxInflightReceiveBatches + ", maxDoneReceiveBatches="
                 + maxDoneReceiveBatches + ", maxBatchSizeBytes=" + maxBatchSizeBytes + ", visibilityTimeoutSeconds="
-                + visibilityTimeoutSeconds + ", longPollWaitTimeoutSeconds=" + longPollWaitTimeoutSeconds + "]";
+                + visibilityTimeoutSeconds + ", longPollWaitTimeoutSeconds=" + longPollWaitTimeoutSeconds
+                + ", adaptivePrefetching=" + adaptivePrefetching + ", autoExtendVisibility=" + autoExtendVisibility
+                + ", maxVisibilityExtensionSeconds=" + maxVisibilityExtensionSeconds + "]";
     }
 
     /**
@@ -473,6 +513,102 @@ public class QueueBufferConfig {
         return this;
     }
 
+    /**
+     * If true, the number of receive batches pre-fetched and kept in flight is sized from the
+     * observed consumption rate and receive latency, up to maxDoneReceiveBatches and
+     * maxInflightReceiveBatches, instead of always pre-fetching up to those limits. Without
+     * autoExtendVisibility, pre-fetching is also limited to what can be consumed within half the
+     * visibility timeout.
+     */
+    public boolean isAdaptivePrefetching() {
+        return adaptivePrefetching;
+    }
+
+    /**
+     * If true, the number of receive batches pre-fetched and kept in flight is sized from the
+     * observed consumption rate and receive latency, up to maxDoneReceiveBatches and
+     * maxInflightReceiveBatches, instead of always pre-fetching up to those limits. Without
+     * autoExtendVisibility, pre-fetching is also limited to what can be consumed within half the
+     * visibility timeout.
+     */
+    public void setAdaptivePrefetching(boolean adaptivePrefetching) {
+        this.adaptivePrefetching = adaptivePrefetching;
+    }
+
+    /**
+     * If true, the number of receive batches pre-fetched and kept in flight is sized from the
+     * observed consumption rate and receive latency, up to maxDoneReceiveBatches and
+     * maxInflightReceiveBatches, instead of always pre-fetching up to those limits. Without
+     * autoExtendVisibility, pre-fetching is also limited to what can be consumed within half the
+     * visibility timeout.
+     */
+    public QueueBufferConfig withAdaptivePrefetching(boolean adaptivePrefetching) {
+        setAdaptivePrefetching(adaptivePrefetching);
+        return this;
+    }
+
+    /**
+     * If true, the visibility timeout of pre-fetched messages and of messages handed out by the
+     * buffer is extended with ChangeMessageVisibilityBatch calls shortly before it expires, so that
+     * they are not delivered again while they wait in the buffer or are being processed. A message
+     * stops being extended when it is deleted or its visibility is changed through the buffered
+     * client, or once maxVisibilityExtensionSeconds have passed since it was received.
+     */
+    public boolean isAutoExtendVisibility() {
+        return autoExtendVisibility;
+    }
+
+    /**
+     * If true, the visibility timeout of pre-fetched messages and of messages handed out by the
+     * buffer is extended with ChangeMessageVisibilityBatch calls shortly before it expires, so that
+     * they are not delivered again while they wait in the buffer or are being processed. A message
+     * stops being extended when it is deleted or its visibility is changed through the buffered
+     * client, or once maxVisibilityExtensionSeconds have passed since it was received.
+     */
+    public void setAutoExtendVisibility(boolean autoExtendVisibility) {
+        this.autoExtendVisibility = autoExtendVisibility;
+    }
+
+    /**
+     * If true, the visibility timeout of pre-fetched messages and of messages handed out by the
+     * buffer is extended with ChangeMessageVisibilityBatch calls shortly before it expires, so that
+     * they are not delivered again while they wait in the buffer or are being processed. A message
+     * stops being extended when it is deleted or its visibility is changed through the buffered
+     * client, or once maxVisibilityExtensionSeconds have passed since it was received.
+     */
+    public QueueBufferConfig withAutoExtendVisibility(boolean autoExtendVisibility) {
+        setAutoExtendVisibility(autoExtendVisibility);
+        return this;
+    }
+
+    /**
+     * The maximum time, in seconds since it was received, for which the visibility timeout of a
+     * message will be automatically extended. Only used if autoExtendVisibility is enabled, and
+     * may not exceed 12 hours.
+     */
+    public int getMaxVisibilityExtensionSeconds() {
+        return maxVisibilityExtensionSeconds;
+    }
+
+    /**
+     * The maximum time, in seconds since it was received, for which the visibility timeout of a
+     * message will be automatically extended. Only used if autoExtendVisibility is enabled, and
+     * may not exceed 12 hours.
+     */
+    public void setMaxVisibilityExtensionSeconds(int maxVisibilityExtensionSeconds) {
+        this.maxVisibilityExtensionSeconds = maxVisibilityExtensionSeconds;
+    }
+
+    /**
+     * The maximum time, in seconds since it was received, for which the visibility timeout of a
+     * message will be automatically extended. Only used if autoExtendVisibility is enabled, and
+     * may not exceed 12 hours.
+     */
+    public QueueBufferConfig withMaxVisibilityExtensionSeconds(int maxVisibilityExtensionSeconds) {
+        setMaxVisibilityExtensionSeconds(maxVisibilityExtensionSeconds);
+        return this;
+    }
+
     /**
      * this method checks the config for validity. If the config is deemed to be invalid, an
      * informative exception is thrown.
@@ -484,6 +620,11 @@ public class QueueBufferConfig {
         if (visibilityTimeoutSeconds == 0) {
             throw new AmazonClientException("Visibility timeout value may not be equal to zero ");
         }
+        if (autoExtendVisibility && (maxVisibilityExtensionSeconds <= 0
+                || maxVisibilityExtensionSeconds > SERVICE_MAX_VISIBILITY_EXTENSION_SECONDS)) {
+            throw new AmazonClientException("Maximum visibility extension must be between 1 and "
+                    + SERVICE_MAX_VISIBILITY_EXTENSION_SECONDS + " seconds");
+        }
     }
 
 }
@@ -16,19 +16,34 @@
 package com.amazonaws.services.sqs.buffered;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
 import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
 import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
 import com.amazonaws.services.sqs.model.GetQueueAttributesRequest;
 import com.amazonaws.services.sqs.model.Message;
 import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
@@ -39,12 +54,19 @@ import com.amazonaws.services.sqs.model.ReceiveMessageResult;
  * It uses the provided executor to pre-fetch messages from the server and keeps them in a buffer
  * which it uses to satisfy incoming requests. The number of requests pre-fetched and kept in the
  * buffer, as well as the maximum number of threads used to retrieve the messages are configurable.
+ * With adaptive pre-fetching, the number of batches pre-fetched is instead sized from the observed
+ * consumption rate and receive latency, within those limits.
  * <p>
- * Synchronization strategy: - Threads must hold the TaskSpawnSyncPoint object monitor to spawn a
- * new task or modify the number of inflight tasks - Threads must hold the monitor of the "futures"
- * list to modify the list - Threads must hold the monitor of the "finishedTasks" list to modify the
- * list - If you need to lock both futures and finishedTasks, lock futures first and finishedTasks
- * second
+ * If auto extending visibility is enabled, the buffer periodically extends the visibility timeout
+ * of pre-fetched messages, and of messages it handed out until they are deleted or their visibility
+ * is changed through the queue buffer, with batched {@code ChangeMessageVisibility} calls.
+ * <p>
+ * Synchronization strategy: no locks are taken. - Issued futures and finished batches are kept in
+ * concurrent queues that any thread can add to - Futures are matched with finished batches by a
+ * single thread at a time: the thread that increments the "drainRequests" counter from zero drains
+ * the queues, and keeps draining while other threads increment it in the meantime - Receive tasks
+ * are spawned by reserving an inflight slot with compare-and-set on "inflightReceiveMessageBatches"
+ * - The messages of a batch are taken with compare-and-set on its remaining message count
  */
 public class ReceiveQueueBuffer {
 
@@ -64,6 +86,15 @@ public class ReceiveQueueBuffer {
 
     private static Log log = LogFactory.getLog(ReceiveQueueBuffer.class);
 
+    /** The shortest interval between two rounds of visibility timeout extensions. */
+    private static final long MIN_EXTENSION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /** The interval over which the consumption rate is measured. */
+    private static final long CONSUMPTION_RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /** Weight of the latest measurement in the smoothed pre-fetch statistics. */
+    private static final double SMOOTHING_FACTOR = 0.5;
+
     private final QueueBufferConfig config;
 
     private final String qUrl;
@@ -72,7 +103,10 @@ public class ReceiveQueueBuffer {
 
     private final AmazonSQS sqsClient;
 
-    private long bufferCounter = 0;
+    /** Schedules the rounds of visibility timeout extensions. */
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong bufferCounter = new AtomicLong();
 
     /**
      * This buffer's queue visibility timeout. Used to detect expired message that should not be
@@ -82,28 +116,64 @@ public class ReceiveQueueBuffer {
     private volatile long visibilityTimeoutNanos = -1;
 
     /**
-     * Used as permits controlling the number of in flight receive batches. Synchronized by
-     * {@code taskSpawnSyncPoint}.
+     * Used as permits controlling the number of in flight receive batches.
      */
-    private volatile int inflightReceiveMessageBatches;
-
-    /**
-     * synchronize on this object to create new receive batches or modify inflight message count
-     */
-    private final Object taskSpawnSyncPoint = new Object();
+    private final AtomicInteger inflightReceiveMessageBatches = new AtomicInteger();
 
     /** shutdown buffer does not retrieve any more messages from sqs */
     volatile boolean shutDown = false;
 
     /** message delivery futures we gave out */
-    private final LinkedList<ReceiveMessageFuture> futures = new LinkedList<ReceiveMessageFuture>();
+    private final Queue<ReceiveMessageFuture> futures = new ConcurrentLinkedQueue<ReceiveMessageFuture>();
+
+    /** finished batches are stored in this queue. */
+    private final Queue<ReceiveMessageBatchTask> finishedTasks = new ConcurrentLinkedQueue<ReceiveMessageBatchTask>();
+
+    /** The number of batches in finishedTasks, whose size() is not constant time. */
+    private final AtomicInteger finishedTaskCount = new AtomicInteger();
+
+    /**
+     * The number of times futures were matched with finished batches was requested since the
+     * current drain started, or zero if no thread is draining.
+     */
+    private final AtomicInteger drainRequests = new AtomicInteger();
+
+    /**
+     * Messages handed out by this buffer whose visibility timeout is being extended, by receipt
+     * handle. Only used if auto extending visibility is enabled.
+     */
+    private final Map<String, VisibilityLease> handedOutMessages = new ConcurrentHashMap<String, VisibilityLease>();
+
+    /** Whether the next round of visibility timeout extensions is scheduled or running. */
+    private final AtomicBoolean extensionScheduled = new AtomicBoolean(false);
+
+    /** Number of batches ever added to finishedTasks. */
+    private final AtomicLong finishedBatchCount = new AtomicLong();
 
-    /** finished batches are stored in this list. */
-    private LinkedList<ReceiveMessageBatchTask> finishedTasks = new LinkedList<ReceiveMessageBatchTask>();
+    /** Smoothed number of messages handed out per second. */
+    private volatile double consumptionRate;
 
-    ReceiveQueueBuffer(AmazonSQS paramSQS, Executor paramExecutor, QueueBufferConfig paramConfig, String url) {
+    /** Number of messages handed out since {@code consumptionWindowStartNanos}. */
+    private final AtomicLong consumedInWindow = new AtomicLong();
+
+    private final AtomicLong consumptionWindowStartNanos = new AtomicLong(System.nanoTime());
+
+    /*
+     * Smoothed receive statistics, updated without synchronization: a sample lost to a concurrent
+     * update only delays the smoothing.
+     */
+
+    /** Smoothed duration of the receive calls that returned messages. */
+    private volatile double receiveLatencyNanos;
+
+    /** Smoothed number of messages returned by the receive calls that returned messages. */
+    private volatile double messagesPerBatch;
+
+    ReceiveQueueBuffer(AmazonSQS paramSQS, Executor paramExecutor, ScheduledExecutorService paramScheduler,
+            QueueBufferConfig paramConfig, String url) {
         config = paramConfig;
         executor = paramExecutor;
+        scheduler = paramScheduler;
         sqsClient = paramSQS;
         qUrl = url;
 
@@ -115,8 +185,9 @@ public class ReceiveQueueBuffer {
      */
     public void shutdown() {
         shutDown = true;
+        handedOutMessages.clear();
         try {
-            while (inflightReceiveMessageBatches > 0)
+            while (inflightReceiveMessageBatches.get() > 0)
                 Thread.sleep(100);
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -153,51 +224,53 @@ public class ReceiveQueueBuffer {
     }
 
     /**
-     * Creates and returns a new future object. Sleeps if the list of already-issued but as yet
-     * unsatisfied futures is over a throttle limit.
+     * Creates and returns a new future object.
      * 
      * @return never null
      */
     private ReceiveMessageFuture issueFuture(int size,
                                              QueueBufferCallback<ReceiveMessageRequest, ReceiveMessageResult> callback) {
-        synchronized (futures) {
-            ReceiveMessageFuture theFuture = new ReceiveMessageFuture(callback, size);
-            futures.addLast(theFuture);
-            return theFuture;
-        }
+        ReceiveMessageFuture theFuture = new ReceiveMessageFuture(callback, size);
+        futures.add(theFuture);
+        return theFuture;
     }
 
     /**
      * Attempts to satisfy some or all of the already-issued futures from the local buffer. If the
      * buffer is empty or there are no futures, this method won't do anything.
+     * <p>
+     * Only one thread at a time matches futures with finished batches. A thread that finds another
+     * one doing so leaves it to that thread, which checks the queues again before it stops.
      */
     private void satisfyFuturesFromBuffer() {
-        synchronized (futures) {
-            synchronized (finishedTasks) {
-                // attempt to satisfy futures until we run out of either futures or
-                // finished tasks
-                while ((!futures.isEmpty()) && (!finishedTasks.isEmpty())) {
-                    // Remove any expired tasks before attempting to fufill the future
-                    pruneExpiredTasks();
-                    // Fufill the future from a non expired task if there is one. There is still a
-                    // slight chance that the first task could have expired between the time we
-                    // pruned and the time we fufill the future
-                    if (!finishedTasks.isEmpty()) {
-                        fufillFuture(futures.poll());
-                    }
+        if (drainRequests.getAndIncrement() != 0) {
+            return;
+        }
+        int requests = 1;
+        do {
+            // attempt to satisfy futures until we run out of either futures or
+            // finished tasks
+            while (!futures.isEmpty() && !finishedTasks.isEmpty()) {
+                // Remove any expired tasks before attempting to fufill the future
+                pruneExpiredTasks();
+                // Fufill the future from a non expired task if there is one. There is still a
+                // slight chance that the first task could have expired between the time we
+                // pruned and the time we fufill the future
+                ReceiveMessageBatchTask task = finishedTasks.peek();
+                if (task != null) {
+                    fufillFuture(futures.poll(), task);
                 }
             }
-        }
+            requests = drainRequests.addAndGet(-requests);
+        } while (requests != 0);
     }
 
     /**
      * Fills the future with whatever results were received by the full batch currently at the head
      * of the completed batch queue. Those results may be retrieved messages, or an exception. This
-     * method assumes that you are holding the finished tasks lock locks when invoking it. violate
-     * this assumption at your own peril
+     * method must only be called by the thread matching futures with finished batches.
      */
-    private void fufillFuture(ReceiveMessageFuture future) {
-        ReceiveMessageBatchTask task = finishedTasks.getFirst();
+    private void fufillFuture(ReceiveMessageFuture future, ReceiveMessageBatchTask task) {
         ReceiveMessageResult result = new ReceiveMessageResult();
         LinkedList<Message> messages = new LinkedList<Message>();
         result.setMessages(messages);
@@ -219,10 +292,22 @@ public class ReceiveQueueBuffer {
         // we may have just drained the batch.
         batchDone = batchDone || task.isEmpty() || (exception != null);
         if (batchDone) {
-            finishedTasks.removeFirst();
+            removeFinishedTask(task);
         }
         result.setMessages(messages);
 
+        if (config.isAdaptivePrefetching()) {
+            updateConsumptionRate(numRetrieved);
+        }
+        if (config.isAutoExtendVisibility() && !messages.isEmpty()) {
+            // tracked before the future is signalled, so the caller can not delete them first
+            for (Message message : messages) {
+                handedOutMessages.put(message.getReceiptHandle(),
+                        new VisibilityLease(task.receivedNano, task.visibilityDeadlineNano));
+            }
+            scheduleVisibilityExtension();
+        }
+
         // if after the above runs the exception is not null,
         // the finished batch has encountered an error, and we will
         // report that in the Future. Otherwise, we will fill
@@ -234,9 +319,18 @@ public class ReceiveQueueBuffer {
         }
     }
 
+    /**
+     * Removes a batch from the finished batches, unless it was already removed by {@link #clear()}.
+     */
+    private void removeFinishedTask(ReceiveMessageBatchTask task) {
+        if (finishedTasks.remove(task)) {
+            finishedTaskCount.decrementAndGet();
+        }
+    }
+
     /**
      * Prune any expired tasks that do not have an exception associated with them. This method
-     * assumes that you are holding the finishedTasks lock when invoking it
+     * must only be called by the thread matching futures with finished batches.
      */
     private void pruneExpiredTasks() {
         int numberExpiredTasksPruned = pruneHeadTasks(new Predicate<ReceiveQueueBuffer.ReceiveMessageBatchTask>() {
@@ -260,7 +354,7 @@ public class ReceiveQueueBuffer {
     /**
      * Prune all tasks at the beginning of the finishedTasks list that meet the given condition.
      * Once a task is found that does not meet the given condition the pruning stops. This method
-     * assumes that you are holding the finishedTasks lock when invoking it.
+     * must only be called by the thread matching futures with finished batches.
      * 
      * @param pruneCondition
      *            Condition on whether a task is eligible to be pruned
@@ -268,9 +362,10 @@ public class ReceiveQueueBuffer {
      */
     private int pruneHeadTasks(Predicate<ReceiveMessageBatchTask> pruneCondition) {
         int numberPruned = 0;
-        while (!finishedTasks.isEmpty()) {
-            if (pruneCondition.test(finishedTasks.getFirst())) {
-                finishedTasks.removeFirst();
+        ReceiveMessageBatchTask task;
+        while ((task = finishedTasks.peek()) != null) {
+            if (pruneCondition.test(task)) {
+                removeFinishedTask(task);
                 numberPruned++;
             } else {
                 break;
@@ -290,63 +385,298 @@ public class ReceiveQueueBuffer {
 
         int desiredBatches = config.getMaxDoneReceiveBatches();
         desiredBatches = desiredBatches < 1 ? 1 : desiredBatches;
+        if (config.isAdaptivePrefetching()) {
+            desiredBatches = getAdaptivePrefetchBatches(desiredBatches);
+        }
 
-        synchronized (finishedTasks) {
-            if (finishedTasks.size() >= desiredBatches)
-                return;
+        int finishedBatches = finishedTaskCount.get();
+        if (finishedBatches >= desiredBatches)
+            return;
 
-            // if we have some finished batches already, and
-            // existing inflight batches will bring us to the limit,
-            // don't spawn more. if our finished tasks cache is empty, we will
-            // always spawn a thread.
-            if (finishedTasks.size() > 0 && (finishedTasks.size() + inflightReceiveMessageBatches) >= desiredBatches) {
-                return;
-            }
+        // if we have some finished batches already, and
+        // existing inflight batches will bring us to the limit,
+        // don't spawn more. if our finished tasks cache is empty, we will
+        // always spawn a thread.
+        if (finishedBatches > 0 && (finishedBatches + inflightReceiveMessageBatches.get()) >= desiredBatches) {
+            return;
         }
 
-        synchronized (taskSpawnSyncPoint) {
-            if (visibilityTimeoutNanos == -1) {
-                GetQueueAttributesRequest request = new GetQueueAttributesRequest().withQueueUrl(qUrl)
-                        .withAttributeNames("VisibilityTimeout");
-                ResultConverter.appendUserAgent(request, AmazonSQSBufferedAsyncClient.USER_AGENT);
-                long visibilityTimeoutSeconds = Long.parseLong(sqsClient.getQueueAttributes(request).getAttributes()
-                        .get("VisibilityTimeout"));
-                visibilityTimeoutNanos = TimeUnit.NANOSECONDS.convert(visibilityTimeoutSeconds, TimeUnit.SECONDS);
-            }
+        if (visibilityTimeoutNanos == -1) {
+            // concurrent callers may all fetch the attribute, which is harmless
+            GetQueueAttributesRequest request = new GetQueueAttributesRequest().withQueueUrl(qUrl)
+                    .withAttributeNames("VisibilityTimeout");
+            ResultConverter.appendUserAgent(request, AmazonSQSBufferedAsyncClient.USER_AGENT);
+            long visibilityTimeoutSeconds = Long.parseLong(sqsClient.getQueueAttributes(request).getAttributes()
+                    .get("VisibilityTimeout"));
+            visibilityTimeoutNanos = TimeUnit.NANOSECONDS.convert(visibilityTimeoutSeconds, TimeUnit.SECONDS);
+        }
 
-            int max = config.getMaxInflightReceiveBatches();
-            // must allow at least one inflight receive task, or receive won't
-            // work at all.
-            max = max > 0 ? max : 1;
-            int toSpawn = max - inflightReceiveMessageBatches;
-            if (toSpawn > 0) {
-                ReceiveMessageBatchTask task = new ReceiveMessageBatchTask(this);
-                ++inflightReceiveMessageBatches;
-                ++bufferCounter;
-                if (log.isTraceEnabled()) {
-                    log.trace("Spawned receive batch #" + bufferCounter + " (" + inflightReceiveMessageBatches + " of "
-                            + max + " inflight) for queue " + qUrl);
-                }
-                executor.execute(task);
+        int max = config.getMaxInflightReceiveBatches();
+        // must allow at least one inflight receive task, or receive won't
+        // work at all.
+        max = max > 0 ? max : 1;
+        if (config.isAdaptivePrefetching()) {
+            max = Math.min(max, desiredBatches);
+        }
+        int inflight;
+        do {
+            inflight = inflightReceiveMessageBatches.get();
+            if (inflight >= max) {
+                return;
             }
+        } while (!inflightReceiveMessageBatches.compareAndSet(inflight, inflight + 1));
+
+        ReceiveMessageBatchTask task = new ReceiveMessageBatchTask(this);
+        long batchNumber = bufferCounter.incrementAndGet();
+        if (log.isTraceEnabled()) {
+            log.trace("Spawned receive batch #" + batchNumber + " (" + (inflight + 1) + " of " + max
+                    + " inflight) for queue " + qUrl);
         }
+        executor.execute(task);
     }
 
     /**
      * This method is called by the batches after they have finished retrieving the messages.
      */
     void reportBatchFinished(ReceiveMessageBatchTask batch) {
-        synchronized (finishedTasks) {
-            finishedTasks.addLast(batch);
-            if (log.isTraceEnabled()) {
-                log.info("Queue " + qUrl + " now has " + finishedTasks.size() + " receive results cached ");
-            }
+        if (config.isAdaptivePrefetching() && batch.exception == null && !batch.messages.isEmpty()) {
+            receiveLatencyNanos = smooth(receiveLatencyNanos, batch.latencyNano);
+            messagesPerBatch = smooth(messagesPerBatch, batch.messages.size());
         }
-        synchronized (taskSpawnSyncPoint) {
-            --inflightReceiveMessageBatches;
+        finishedTasks.add(batch);
+        int finishedBatches = finishedTaskCount.incrementAndGet();
+        finishedBatchCount.incrementAndGet();
+        if (log.isTraceEnabled()) {
+            log.info("Queue " + qUrl + " now has " + finishedBatches + " receive results cached ");
         }
+        inflightReceiveMessageBatches.decrementAndGet();
         satisfyFuturesFromBuffer();
         spawnMoreReceiveTasks();
+        if (config.isAutoExtendVisibility()) {
+            scheduleVisibilityExtension();
+        }
+    }
+
+    /**
+     * Folds the messages just handed out into the consumption rate, which is re-estimated once per
+     * measurement window by the thread that starts the next window.
+     */
+    private void updateConsumptionRate(int consumed) {
+        if (consumed > 0) {
+            consumedInWindow.addAndGet(consumed);
+        }
+        long windowStart = consumptionWindowStartNanos.get();
+        long now = System.nanoTime();
+        long elapsed = now - windowStart;
+        if (elapsed >= CONSUMPTION_RATE_WINDOW_NANOS && consumptionWindowStartNanos.compareAndSet(windowStart, now)) {
+            consumptionRate = smooth(consumptionRate, consumedInWindow.getAndSet(0)
+                    * (double) TimeUnit.SECONDS.toNanos(1) / elapsed);
+        }
+    }
+
+    private static double smooth(double average, double sample) {
+        return average == 0 ? sample : SMOOTHING_FACTOR * sample + (1 - SMOOTHING_FACTOR) * average;
+    }
+
+    /**
+     * Returns the number of batches to pre-fetch so that the messages consumed while a receive call
+     * is outstanding are already in the buffer, plus one batch of slack. Without auto extending
+     * visibility, the batches are further limited to what can be consumed within half the
+     * visibility timeout, so that pre-fetched messages do not expire in the buffer.
+     *
+     * @param maxBatches
+     *            the configured maximum number of batches to pre-fetch
+     * @return a number of batches between one and maxBatches
+     */
+    private int getAdaptivePrefetchBatches(int maxBatches) {
+        // a window without any consumption also lowers the rate
+        updateConsumptionRate(0);
+        if (consumptionRate == 0 || messagesPerBatch == 0) {
+            return 1;
+        }
+        double batchesPerNano = consumptionRate / messagesPerBatch / TimeUnit.SECONDS.toNanos(1);
+        double desired = Math.ceil(batchesPerNano * receiveLatencyNanos) + 1;
+        long timeoutNanos = getVisibilityTimeoutNanos();
+        if (!config.isAutoExtendVisibility() && timeoutNanos > 0) {
+            desired = Math.min(desired, Math.floor(batchesPerNano * timeoutNanos / 2));
+        }
+        return (int) Math.max(1, Math.min(maxBatches, desired));
+    }
+
+    /**
+     * @return the visibility timeout of the received messages, or a negative number if it is not
+     *         known yet
+     */
+    private long getVisibilityTimeoutNanos() {
+        if (config.getVisibilityTimeoutSeconds() > 0) {
+            return TimeUnit.SECONDS.toNanos(config.getVisibilityTimeoutSeconds());
+        }
+        return visibilityTimeoutNanos;
+    }
+
+    /**
+     * Stops extending the visibility timeout of a message handed out by this buffer, because it is
+     * being deleted or its visibility is being changed by the caller.
+     */
+    void stopExtendingVisibility(String receiptHandle) {
+        if (receiptHandle != null) {
+            handedOutMessages.remove(receiptHandle);
+        }
+    }
+
+    /**
+     * Schedules the next round of visibility timeout extensions, unless one is already pending.
+     * Rounds are scheduled only while there are messages to extend, so an idle buffer does not use
+     * any threads.
+     */
+    private void scheduleVisibilityExtension() {
+        long timeoutNanos = getVisibilityTimeoutNanos();
+        if (shutDown || timeoutNanos <= 0 || !extensionScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                // the scheduler thread is shared by all buffers, so the calls to SQS are made on
+                // the executor
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        extendVisibility();
+                    }
+                });
+            }
+        }, getExtensionIntervalNanos(timeoutNanos), TimeUnit.NANOSECONDS);
+    }
+
+    private static long getExtensionIntervalNanos(long timeoutNanos) {
+        return Math.max(timeoutNanos / 4, MIN_EXTENSION_INTERVAL_NANOS);
+    }
+
+    /**
+     * Extends the visibility timeout of the pre-fetched and handed out messages that would expire
+     * within half the visibility timeout or the next two rounds, and schedules the next round if there are messages left to
+     * extend. Messages that already expired, or have been extended for as long as allowed, are left
+     * to become visible again.
+     */
+    private void extendVisibility() {
+        long seenBatchCount = -1;
+        boolean pending = false;
+        try {
+            if (shutDown) {
+                handedOutMessages.clear();
+                return;
+            }
+            long timeoutNanos = getVisibilityTimeoutNanos();
+            int timeoutSeconds = (int) TimeUnit.NANOSECONDS.toSeconds(timeoutNanos);
+            long maxExtensionNanos = TimeUnit.SECONDS.toNanos(config.getMaxVisibilityExtensionSeconds());
+            long now = System.nanoTime();
+            // at least two rounds before the deadline, in case one fails
+            long threshold = now + Math.max(timeoutNanos / 2, 2 * getExtensionIntervalNanos(timeoutNanos));
+
+            Set<String> receiptHandles = new LinkedHashSet<String>();
+            Map<ReceiveMessageBatchTask, List<String>> batches = new HashMap<ReceiveMessageBatchTask, List<String>>();
+            List<ReceiveMessageBatchTask> tasks;
+            seenBatchCount = finishedBatchCount.get();
+            tasks = new ArrayList<ReceiveMessageBatchTask>(finishedTasks);
+            for (ReceiveMessageBatchTask task : tasks) {
+                long deadline = task.visibilityDeadlineNano;
+                if (task.exception != null || deadline <= now
+                        || now - task.receivedNano + timeoutNanos > maxExtensionNanos) {
+                    continue;
+                }
+                List<String> batchHandles = task.getReceiptHandles();
+                pending |= !batchHandles.isEmpty();
+                if (deadline <= threshold) {
+                    batches.put(task, batchHandles);
+                    receiptHandles.addAll(batchHandles);
+                }
+            }
+            for (Map.Entry<String, VisibilityLease> entry : handedOutMessages.entrySet()) {
+                VisibilityLease lease = entry.getValue();
+                if (lease.deadlineNano > threshold) {
+                    continue;
+                }
+                if (lease.deadlineNano <= now || now - lease.receivedNano + timeoutNanos > maxExtensionNanos) {
+                    handedOutMessages.remove(entry.getKey());
+                } else {
+                    receiptHandles.add(entry.getKey());
+                }
+            }
+
+            Set<String> rejected = new HashSet<String>();
+            Set<String> extended = changeVisibility(receiptHandles, timeoutSeconds, rejected);
+            long deadline = now + timeoutNanos;
+            for (Map.Entry<ReceiveMessageBatchTask, List<String>> batch : batches.entrySet()) {
+                if (extended.containsAll(batch.getValue())) {
+                    batch.getKey().visibilityDeadlineNano = deadline;
+                }
+            }
+            for (String receiptHandle : extended) {
+                VisibilityLease lease = handedOutMessages.get(receiptHandle);
+                if (lease != null) {
+                    lease.deadlineNano = deadline;
+                }
+            }
+            for (String receiptHandle : rejected) {
+                handedOutMessages.remove(receiptHandle);
+            }
+        } finally {
+            extensionScheduled.set(false);
+            // batches that finished during this round could not schedule the next one
+            pending |= finishedBatchCount.get() != seenBatchCount;
+            if (pending || !handedOutMessages.isEmpty()) {
+                scheduleVisibilityExtension();
+            }
+        }
+    }
+
+    /**
+     * Sets the visibility timeout of the given messages with as few batch calls as possible.
+     * Failed calls are logged, and the messages are tried again in the next round.
+     *
+     * @param rejected
+     *            collects the receipt handles SQS rejected, which should not be extended any more
+     * @return the receipt handles of the messages whose visibility timeout was changed
+     */
+    private Set<String> changeVisibility(Collection<String> receiptHandles, int timeoutSeconds,
+            Collection<String> rejected) {
+        Set<String> extended = new HashSet<String>();
+        int batchSize = Math.max(1, config.getMaxBatchSize());
+        List<String> handles = new ArrayList<String>(receiptHandles);
+        for (int first = 0; first < handles.size(); first += batchSize) {
+            List<String> batch = handles.subList(first, Math.min(first + batchSize, handles.size()));
+            ChangeMessageVisibilityBatchRequest batchRequest = new ChangeMessageVisibilityBatchRequest()
+                    .withQueueUrl(qUrl);
+            ResultConverter.appendUserAgent(batchRequest, AmazonSQSBufferedAsyncClient.USER_AGENT);
+
+            List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<ChangeMessageVisibilityBatchRequestEntry>(
+                    batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                entries.add(new ChangeMessageVisibilityBatchRequestEntry().withId(Integer.toString(i))
+                        .withReceiptHandle(batch.get(i)).withVisibilityTimeout(timeoutSeconds));
+            }
+            batchRequest.setEntries(entries);
+
+            try {
+                ChangeMessageVisibilityBatchResult batchResult = sqsClient.changeMessageVisibilityBatch(batchRequest);
+                Set<String> failed = new HashSet<String>();
+                for (BatchResultErrorEntry errorEntry : batchResult.getFailed()) {
+                    failed.add(batch.get(Integer.parseInt(errorEntry.getId())));
+                }
+                for (String receiptHandle : batch) {
+                    if (!failed.contains(receiptHandle)) {
+                        extended.add(receiptHandle);
+                    }
+                }
+                rejected.addAll(failed);
+            } catch (AmazonClientException e) {
+                // Log and try again in the next round.
+                log.warn("Queue " + qUrl + ": extending the visibility timeout of " + batch.size()
+                        + " messages failed " + e);
+            }
+        }
+        return extended;
     }
 
     /**
@@ -355,12 +685,10 @@ public class ReceiveQueueBuffer {
     public void clear() {
         boolean done = false;
         while (!done) {
-            ReceiveMessageBatchTask currentBatch = null;
-            synchronized (finishedTasks) {
-                currentBatch = finishedTasks.poll();
-            }
+            ReceiveMessageBatchTask currentBatch = finishedTasks.poll();
 
             if (currentBatch != null) {
+                finishedTaskCount.decrementAndGet();
                 currentBatch.clear();
             } else {
                 // ran out of batches to clear
@@ -369,6 +697,22 @@ public class ReceiveQueueBuffer {
         }
     }
 
+    /**
+     * The visibility timeout of a message handed out by the buffer.
+     */
+    private static class VisibilityLease {
+        /** when the receive call for the message was made */
+        private final long receivedNano;
+
+        /** when the message becomes visible again unless its visibility timeout is extended */
+        private volatile long deadlineNano;
+
+        VisibilityLease(long receivedNano, long deadlineNano) {
+            this.receivedNano = receivedNano;
+            this.deadlineNano = deadlineNano;
+        }
+    }
+
     private class ReceiveMessageFuture extends QueueBufferFuture<ReceiveMessageRequest, ReceiveMessageResult> {
         /* how many messages did the request ask for */
         private int requestedSize;
@@ -388,13 +732,18 @@ public class ReceiveQueueBuffer {
      * Task to receive messages from SQS.
      * <p>
      * The batch task is constructed {@code !open} until the {@code ReceiveMessage} completes. At
-     * that point, the batch opens and its messages (if any) become available to read.
+     * that point, the batch opens and its messages (if any) become available to read. The received
+     * messages are never modified: they are taken from the end of the list by decrementing the
+     * number of messages remaining.
      */
     private class ReceiveMessageBatchTask implements Runnable {
         private Exception exception = null;
         private List<Message> messages;
-        private long visibilityDeadlineNano;
-        private boolean open = false;
+        private final AtomicInteger remaining = new AtomicInteger();
+        private volatile long visibilityDeadlineNano;
+        private long receivedNano;
+        private long latencyNano;
+        private volatile boolean open = false;
         private ReceiveQueueBuffer parentBuffer;
 
         /**
@@ -408,18 +757,18 @@ public class ReceiveQueueBuffer {
             messages = Collections.emptyList();
         }
 
-        synchronized boolean isEmpty() {
+        boolean isEmpty() {
             if (!open) {
                 throw new IllegalStateException("batch is not open");
             }
 
-            return messages.isEmpty();
+            return remaining.get() == 0;
         }
 
         /**
          * @return the exception that was thrown during execution, or null if there was no exception
          */
-        synchronized Exception getException() {
+        Exception getException() {
             if (!open) {
                 throw new IllegalStateException("batch is not open");
             }
@@ -434,21 +783,40 @@ public class ReceiveQueueBuffer {
          * 
          * @return a message or {@code null} if none is available
          */
-        synchronized Message removeMessage() {
+        Message removeMessage() {
             if (!open) {
                 throw new IllegalStateException("batch is not open");
             }
 
             // our messages expired.
             if (isExpired()) {
-                messages.clear();
+                remaining.set(0);
                 return null;
             }
 
-            if (messages.isEmpty())
-                return null;
-            else
-                return messages.remove(messages.size() - 1);
+            int count;
+            do {
+                count = remaining.get();
+                if (count == 0) {
+                    return null;
+                }
+            } while (!remaining.compareAndSet(count, count - 1));
+            return messages.get(count - 1);
+        }
+
+        /**
+         * @return the receipt handles of the messages remaining in the batch, or an empty list if
+         *         they expired
+         */
+        List<String> getReceiptHandles() {
+            int count = remaining.get();
+            List<String> receiptHandles = new ArrayList<String>(count);
+            if (!isExpired()) {
+                for (Message m : messages.subList(0, count)) {
+                    receiptHandles.add(m.getReceiptHandle());
+                }
+            }
+            return receiptHandles;
         }
 
         boolean isExpired() {
@@ -458,21 +826,22 @@ public class ReceiveQueueBuffer {
         /**
          * Nacks and clears all messages remaining in the batch.
          */
-        synchronized void clear() {
+        void clear() {
             if (!open) {
                 throw new IllegalStateException("batch is not open");
             }
 
-            if (!isExpired()) {
+            int count = remaining.getAndSet(0);
+            if (count > 0 && !isExpired()) {
                 ChangeMessageVisibilityBatchRequest batchRequest = new ChangeMessageVisibilityBatchRequest()
                         .withQueueUrl(qUrl);
                 ResultConverter.appendUserAgent(batchRequest, AmazonSQSBufferedAsyncClient.USER_AGENT);
 
                 List<ChangeMessageVisibilityBatchRequestEntry> entries = new ArrayList<ChangeMessageVisibilityBatchRequestEntry>(
-                        messages.size());
+                        count);
 
                 int i = 0;
-                for (Message m : messages) {
+                for (Message m : messages.subList(0, count)) {
 
                     entries.add(new ChangeMessageVisibilityBatchRequestEntry().withId(Integer.toString(i))
                             .withReceiptHandle(m.getReceiptHandle()).withVisibilityTimeout(0));
@@ -487,7 +856,6 @@ public class ReceiveQueueBuffer {
                     log.warn("ReceiveMessageBatchTask: changeMessageVisibility failed " + e);
                 }
             }
-            messages.clear();
         }
 
         /**
@@ -497,14 +865,15 @@ public class ReceiveQueueBuffer {
         public void run() {
 
             try {
-                visibilityDeadlineNano = System.nanoTime() + visibilityTimeoutNanos;
+                receivedNano = System.nanoTime();
+                visibilityDeadlineNano = receivedNano + visibilityTimeoutNanos;
                 ReceiveMessageRequest request = new ReceiveMessageRequest(qUrl).withMaxNumberOfMessages(config
                         .getMaxBatchSize());
                 ResultConverter.appendUserAgent(request, AmazonSQSBufferedAsyncClient.USER_AGENT);
 
                 if (config.getVisibilityTimeoutSeconds() > 0) {
                     request.setVisibilityTimeout(config.getVisibilityTimeoutSeconds());
-                    visibilityDeadlineNano = System.nanoTime()
+                    visibilityDeadlineNano = receivedNano
                             + TimeUnit.NANOSECONDS.convert(config.getVisibilityTimeoutSeconds(), TimeUnit.SECONDS);
                 }
 
@@ -513,6 +882,8 @@ public class ReceiveQueueBuffer {
                 }
 
                 messages = sqsClient.receiveMessage(request).getMessages();
+                remaining.set(messages.size());
+                latencyNano = System.nanoTime() - receivedNano;
             } catch (AmazonClientException e) {
                 exception = e;
             } finally {
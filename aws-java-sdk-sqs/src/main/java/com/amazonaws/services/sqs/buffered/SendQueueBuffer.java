@@ -15,10 +15,19 @@
 package com.amazonaws.services.sqs.buffered;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -56,6 +65,10 @@ import com.amazonaws.services.sqs.model.SendMessageResult;
  * Internally, the batch objects maintain a list of futures corresponding to the requests added to
  * them. When a batch completes, it loads the results into the futures and marks the futures as
  * complete.
+ * <p>
+ * Requests are added without taking any lock: a request reserves a slot in the open batch by
+ * compare-and-set on the batch state, and the caller that finds the open batch closed installs a
+ * new one by compare-and-set. Only the number of batches in flight blocks callers.
  */
 public class SendQueueBuffer {
     private static Log log = LogFactory.getLog(SendQueueBuffer.class);
@@ -82,37 +95,19 @@ public class SendQueueBuffer {
     private final Executor executor;
 
     /**
-     * Object used to serialize sendMessage calls.
+     * Current batching task for sendMessage. Replaced by compare-and-set once it closes.
      */
-    private final Object sendMessageLock = new Object();
+    private final AtomicReference<SendMessageBatchTask> openSendMessageBatchTask = new AtomicReference<SendMessageBatchTask>();
 
     /**
-     * Object used to serialize deleteMessage calls.
+     * Current batching task for deleteMessage. Replaced by compare-and-set once it closes.
      */
-    private final Object deleteMessageLock = new Object();
+    private final AtomicReference<DeleteMessageBatchTask> openDeleteMessageBatchTask = new AtomicReference<DeleteMessageBatchTask>();
 
     /**
-     * Object used to serialize changeMessageVisibility calls.
+     * Current batching task for changeMessageVisibility. Replaced by compare-and-set once it closes.
      */
-    private final Object changeMessageVisibilityLock = new Object();
-
-    /**
-     * Current batching task for sendMessage. Using a size 1 array to allow "passing by reference".
-     * Synchronized by {@code sendMessageLock}.
-     */
-    private final SendMessageBatchTask[] openSendMessageBatchTask = new SendMessageBatchTask[1];
-
-    /**
-     * Current batching task for deleteMessage. Using a size 1 array to allow
-     * "passing by reference". Synchronized by {@code deleteMessageLock}.
-     */
-    private final DeleteMessageBatchTask[] openDeleteMessageBatchTask = new DeleteMessageBatchTask[1];
-
-    /**
-     * Current batching task for changeMessageVisibility. Using a size 1 array to allow
-     * "passing by reference". Synchronized by {@code changeMessageVisibilityLock}.
-     */
-    private final ChangeMessageVisibilityBatchTask[] openChangeMessageVisibilityBatchTask = new ChangeMessageVisibilityBatchTask[1];
+    private final AtomicReference<ChangeMessageVisibilityBatchTask> openChangeMessageVisibilityBatchTask = new AtomicReference<ChangeMessageVisibilityBatchTask>();
 
     /**
      * Permits controlling the number of in flight SendMessage batches.
@@ -129,6 +124,12 @@ public class SendQueueBuffer {
      */
     private final Semaphore inflightChangeMessageVisibilityBatches;
 
+    /**
+     * Batches of any type that have been opened and have not completed yet.
+     */
+    private final Set<OutboundBatchTask<?, ?>> unfinishedBatches = Collections
+            .newSetFromMap(new ConcurrentHashMap<OutboundBatchTask<?, ?>, Boolean>());
+
     SendQueueBuffer(AmazonSQS sqsClient, Executor executor, QueueBufferConfig paramConfig, String url) {
         this.sqsClient = sqsClient;
         this.executor = executor;
@@ -152,7 +153,7 @@ public class SendQueueBuffer {
      */
     public QueueBufferFuture<SendMessageRequest, SendMessageResult> sendMessage(SendMessageRequest request,
                                                                                 QueueBufferCallback<SendMessageRequest, SendMessageResult> callback) {
-        QueueBufferFuture<SendMessageRequest, SendMessageResult> result = submitOutboundRequest(sendMessageLock,
+        QueueBufferFuture<SendMessageRequest, SendMessageResult> result = submitOutboundRequest(
                 openSendMessageBatchTask, request, inflightSendMessageBatches, callback);
         return result;
     }
@@ -162,8 +163,7 @@ public class SendQueueBuffer {
      */
     public QueueBufferFuture<DeleteMessageRequest, DeleteMessageResult> deleteMessage(DeleteMessageRequest request,
                                                                        QueueBufferCallback<DeleteMessageRequest, DeleteMessageResult> callback) {
-        return submitOutboundRequest(deleteMessageLock, openDeleteMessageBatchTask, request,
-                inflightDeleteMessageBatches, callback);
+        return submitOutboundRequest(openDeleteMessageBatchTask, request, inflightDeleteMessageBatches, callback);
     }
 
     /**
@@ -171,7 +171,7 @@ public class SendQueueBuffer {
      */
     public QueueBufferFuture<ChangeMessageVisibilityRequest, ChangeMessageVisibilityResult> changeMessageVisibility(ChangeMessageVisibilityRequest request,
                                                                                            QueueBufferCallback<ChangeMessageVisibilityRequest, ChangeMessageVisibilityResult> callback) {
-        return submitOutboundRequest(changeMessageVisibilityLock, openChangeMessageVisibilityBatchTask, request,
+        return submitOutboundRequest(openChangeMessageVisibilityBatchTask, request,
                 inflightChangeMessageVisibilityBatches, callback);
     }
 
@@ -202,17 +202,8 @@ public class SendQueueBuffer {
     public void flush() {
 
         try {
-            synchronized (sendMessageLock) {
-                inflightSendMessageBatches.acquire(config.getMaxInflightOutboundBatches());
-                inflightSendMessageBatches.release(config.getMaxInflightOutboundBatches());
-            }
-            synchronized (deleteMessageLock) {
-                inflightDeleteMessageBatches.acquire(config.getMaxInflightOutboundBatches());
-                inflightDeleteMessageBatches.release(config.getMaxInflightOutboundBatches());
-            }
-            synchronized (changeMessageVisibilityLock) {
-                inflightChangeMessageVisibilityBatches.acquire(config.getMaxInflightOutboundBatches());
-                inflightChangeMessageVisibilityBatches.release(config.getMaxInflightOutboundBatches());
+            for (OutboundBatchTask<?, ?> batch : new ArrayList<OutboundBatchTask<?, ?>>(unfinishedBatches)) {
+                batch.awaitCompletion();
             }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -223,9 +214,6 @@ public class SendQueueBuffer {
      * Submits an outbound request for delivery to the queue associated with this buffer.
      * <p>
      *
-     * @param operationLock
-     *            the lock synchronizing calls for the call type ( {@code sendMessage},
-     *            {@code deleteMessage}, {@code changeMessageVisibility} )
      * @param openOutboundBatchTask
      *            the open batch task for this call type
      * @param request
@@ -237,59 +225,63 @@ public class SendQueueBuffer {
      *             (see the various outbound calls for details)
      */
     @SuppressWarnings("unchecked")
-    <OBT extends OutboundBatchTask<R, Result>, R extends AmazonWebServiceRequest, Result> QueueBufferFuture<R, Result> submitOutboundRequest(Object operationLock,
-                                                                                                                                             OBT[] openOutboundBatchTask,
+    <OBT extends OutboundBatchTask<R, Result>, R extends AmazonWebServiceRequest, Result> QueueBufferFuture<R, Result> submitOutboundRequest(AtomicReference<OBT> openOutboundBatchTask,
                                                                                                                                              R request,
                                                                                                                                              final Semaphore inflightOperationBatches,
                                                                                                                                              QueueBufferCallback<R, Result> callback) {
         /*
          * Callers add requests to a single batch task (openOutboundBatchTask) until it is full or
-         * maxBatchOpenMs elapses. The total number of batch task in flight is controlled by the
-         * inflightOperationBatch semaphore capped at maxInflightOutboundBatches.
+         * maxBatchOpenMs elapses. The caller that finds it closed installs a new batch task, and
+         * callers that lose that race add their request to the winner's batch. The total number
+         * of batch task in flight is controlled by the inflightOperationBatch semaphore capped at
+         * maxInflightOutboundBatches.
          */
-        QueueBufferFuture<R, Result> theFuture = null;
-        try {
-            synchronized (operationLock) {
-                if (openOutboundBatchTask[0] == null
-                        || ((theFuture = openOutboundBatchTask[0].addRequest(request, callback))) == null) {
-
-                    OBT obt = (OBT) newOutboundBatchTask(request);
-                    inflightOperationBatches.acquire();
-                    openOutboundBatchTask[0] = obt;
-
-                    // Register a listener for the event signaling that the
-                    // batch task has completed (successfully or not).
-                    openOutboundBatchTask[0].setOnCompleted(new Listener<OutboundBatchTask<R, Result>>() {
-                        @Override
-                        public void invoke(OutboundBatchTask<R, Result> task) {
-                            inflightOperationBatches.release();
-                        }
-                    });
-
-                    if (log.isTraceEnabled()) {
-                        log.trace("Queue " + qUrl + " created new batch for " + request.getClass().toString() + " "
-                                + inflightOperationBatches.availablePermits() + " free slots remain");
-                    }
+        while (true) {
+            OBT openBatch = openOutboundBatchTask.get();
+            QueueBufferFuture<R, Result> theFuture;
+            if (openBatch != null && (theFuture = openBatch.addRequest(request, callback)) != null) {
+                return theFuture;
+            }
 
-                    theFuture = openOutboundBatchTask[0].addRequest(request, callback);
-                    executor.execute(openOutboundBatchTask[0]);
-                    if (null == theFuture) {
-                        // this can happen only if the request itself is flawed,
-                        // so that it can't be added to any batch, even a brand
-                        // new one
-                        throw new AmazonClientException("Failed to schedule request " + request + " for execution");
-                    }
+            OBT obt = (OBT) newOutboundBatchTask(request);
+            theFuture = obt.addRequest(request, callback);
+            if (null == theFuture) {
+                // this can happen only if the request itself is flawed,
+                // so that it can't be added to any batch, even a brand
+                // new one
+                throw new AmazonClientException("Failed to schedule request " + request + " for execution");
+            }
+
+            // registered before it is visible to other callers, so that flush waits for any
+            // request they add to it
+            unfinishedBatches.add(obt);
+            if (!openOutboundBatchTask.compareAndSet(openBatch, obt)) {
+                unfinishedBatches.remove(obt);
+                continue;
+            }
+
+            // Other callers may already have added requests to the new batch, which must be sent
+            // even if this thread is interrupted.
+            inflightOperationBatches.acquireUninterruptibly();
+
+            // Register a listener for the event signaling that the
+            // batch task has completed (successfully or not).
+            obt.setOnCompleted(new Listener<OutboundBatchTask<R, Result>>() {
+                @Override
+                public void invoke(OutboundBatchTask<R, Result> task) {
+                    inflightOperationBatches.release();
+                    unfinishedBatches.remove(task);
                 }
+            });
+
+            if (log.isTraceEnabled()) {
+                log.trace("Queue " + qUrl + " created new batch for " + request.getClass().toString() + " "
+                        + inflightOperationBatches.availablePermits() + " free slots remain");
             }
 
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            AmazonClientException toThrow = new AmazonClientException("Interrupted while waiting for lock.");
-            toThrow.initCause(e);
-            throw toThrow;
+            executor.execute(obt);
+            return theFuture;
         }
-
-        return theFuture;
     }
 
     /**
@@ -300,7 +292,9 @@ public class SendQueueBuffer {
      * are assembled into a single batch request to SQS. Specialized for each type of outbound
      * request.
      * <p>
-     * Instances of this class (and subclasses) are thread-safe.
+     * Instances of this class (and subclasses) are thread-safe. Requests are added without locking:
+     * the number of requests and their total size are reserved together by compare-and-set on a
+     * single state word, and the requests are then stored in the reserved slots.
      *
      * @param <R>
      *            the type of the SQS request to batch
@@ -309,108 +303,157 @@ public class SendQueueBuffer {
      */
     private abstract class OutboundBatchTask<R extends AmazonWebServiceRequest, Result> implements Runnable {
 
-        protected final List<R> requests;
-        protected final ArrayList<QueueBufferFuture<R, Result>> futures;
+        /** Set in {@code state} once the batch is closed. */
+        private static final long CLOSED = Long.MIN_VALUE;
+
+        private static final long SIZE_MASK = 0xFFFFFFFFL;
+
+        private final AtomicReferenceArray<R> requests;
+        private final AtomicReferenceArray<QueueBufferFuture<R, Result>> futures;
+
+        /**
+         * The number of requests added in the upper half (below the {@code CLOSED} bit), and their
+         * total size in the lower half.
+         */
+        private final AtomicLong state = new AtomicLong();
+
+        /** The number of added requests already stored in their slots. */
+        private final AtomicInteger stored = new AtomicInteger();
+
+        /** The thread waiting for the batch to close, if any. */
+        private volatile Thread runner;
+
+        /** The exception the batch failed with, if any. */
+        private volatile Exception failure;
 
-        private boolean closed;
+        private final CountDownLatch completed = new CountDownLatch(1);
 
         private volatile Listener<OutboundBatchTask<R, Result>> onCompleted;
 
         public OutboundBatchTask() {
-            this.requests = new ArrayList<R>(config.getMaxBatchSize());
-            this.futures = new ArrayList<QueueBufferFuture<R, Result>>(config.getMaxBatchSize());
+            int capacity = Math.max(1, config.getMaxBatchSize());
+            this.requests = new AtomicReferenceArray<R>(capacity);
+            this.futures = new AtomicReferenceArray<QueueBufferFuture<R, Result>>(capacity);
         }
 
         public void setOnCompleted(Listener<OutboundBatchTask<R, Result>> value) {
             onCompleted = value;
         }
 
+        /**
+         * Waits until the batch has been processed, successfully or not.
+         */
+        public void awaitCompletion() throws InterruptedException {
+            completed.await();
+        }
+
         /**
          * Adds a request to the batch if it is still open and has capacity.
          *
          * @return the future that can be used to get the results of the execution, or null if the
          *         addition failed.
          */
-        public synchronized QueueBufferFuture<R, Result> addRequest(R request, QueueBufferCallback<R, Result> callback) {
-
-            if (closed) {
-                return null;
+        public QueueBufferFuture<R, Result> addRequest(R request, QueueBufferCallback<R, Result> callback) {
+            long size = sizeOf(request);
+            int index;
+            while (true) {
+                long current = state.get();
+                if ((current & CLOSED) != 0) {
+                    return null;
+                }
+                int count = (int) (current >>> 32);
+                long batchSize = current & SIZE_MASK;
+                if (!isOkToAdd(count, batchSize, size)) {
+                    // the addition did not work, so we can close the batch.
+                    close();
+                    return null;
+                }
+                long next = ((long) (count + 1) << 32) | (batchSize + size);
+                if (isFull(count + 1, batchSize + size)) {
+                    next |= CLOSED;
+                }
+                if (state.compareAndSet(current, next)) {
+                    index = count;
+                    break;
+                }
             }
 
-            QueueBufferFuture<R, Result> theFuture = addIfAllowed(request, callback);
-
-            // if the addition did not work, or this addition made us full,
-            // we can close the request.
-            if ((null == theFuture) || isFull()) {
-                closed = true;
-                notify();
+            QueueBufferFuture<R, Result> theFuture = new QueueBufferFuture<R, Result>(callback);
+            requests.set(index, request);
+            futures.set(index, theFuture);
+            stored.incrementAndGet();
+            // the batch may have failed before this future was stored, in which case failAll
+            // didn't see it
+            Exception failed = failure;
+            if (failed != null) {
+                theFuture.setFailure(failed);
+            }
+            if (isClosed()) {
+                wakeRunner();
             }
-
             return theFuture;
         }
 
         /**
-         * Adds the request to the batch if capacity allows it. Called by {@code addRequest} with a
-         * lock on {@code this} held.
+         * Closes the batch, so that it accepts no more requests.
          *
-         * @param request
-         * @return the future that will be signaled when the request is completed and can be used to
-         *         retrieve the result. Can be null if the addition could not be done
+         * @return the number of requests in the batch
          */
-        private QueueBufferFuture<R, Result> addIfAllowed(R request, QueueBufferCallback<R, Result> callback) {
-
-            if (isOkToAdd(request)) {
-
-                requests.add(request);
-
-                QueueBufferFuture<R, Result> theFuture = new QueueBufferFuture<R, Result>(callback);
+        private int close() {
+            long current;
+            while (((current = state.get()) & CLOSED) == 0 && !state.compareAndSet(current, current | CLOSED)) {
+                // retry
+            }
+            wakeRunner();
+            return (int) ((current & ~CLOSED) >>> 32);
+        }
 
-                futures.add(theFuture);
-                onRequestAdded(request);
-                return theFuture;
+        private boolean isClosed() {
+            return (state.get() & CLOSED) != 0;
+        }
 
-            } else {
-                return null;
+        private void wakeRunner() {
+            Thread thread = runner;
+            if (thread != null) {
+                LockSupport.unpark(thread);
             }
         }
 
         /**
-         * Checks whether it's okay to add the request to this buffer. Called by
-         * {@code addIfAllowed} with a lock on {@code this} held.
-         *
-         * @param request
-         *            the request to add
-         * @return true if the request is okay to add, false otherwise
+         * Returns the size a request takes up in the batch, as limited by {@code isOkToAdd} and
+         * {@code isFull}.
          */
-        protected boolean isOkToAdd(R request) {
-            return requests.size() < config.getMaxBatchSize();
+        protected long sizeOf(R request) {
+            return 0;
         }
 
         /**
-         * A hook to be run when a request is successfully added to this buffer. Called by
-         * {@code addIfAllowed} with a lock on {@code this} held.
+         * Checks whether it's okay to add a request to this batch.
          *
-         * @param request
-         *            the request that was added
+         * @param count
+         *            the number of requests already in the batch
+         * @param batchSize
+         *            the total size of the requests already in the batch
+         * @param size
+         *            the size of the request to add
+         * @return true if the request is okay to add, false otherwise
          */
-        protected void onRequestAdded(R request) {
-            // to be overridden by subclasses
+        protected boolean isOkToAdd(int count, long batchSize, long size) {
+            return count < config.getMaxBatchSize();
         }
 
         /**
-         * Checks whether the buffer is now full. Called by {@code addIfAllowed} with a lock on
-         * {@code this} held.
+         * Checks whether the batch is full once a request has been added.
          *
-         * @return whether the buffer is filled to capacity
+         * @return whether the batch is filled to capacity
          */
-        protected boolean isFull() {
-            return requests.size() >= config.getMaxBatchSize();
+        protected boolean isFull(int count, long batchSize) {
+            return count >= config.getMaxBatchSize();
         }
 
         /**
-         * Processes the batch once closed. Is <em>NOT</em> called with a lock on {@code this}.
-         * However, it's passed a local copy of both the {@code requests} and {@code futures} lists
-         * made while holding the lock.
+         * Processes the batch once closed. Is passed a copy of both the {@code requests} and
+         * {@code futures} made once the batch closed.
          */
         protected abstract void process(List<R> requests, List<QueueBufferFuture<R, Result>> futures);
 
@@ -418,26 +461,31 @@ public class SendQueueBuffer {
         public final void run() {
             try {
 
-                long deadlineMs = TimeUnit.MILLISECONDS.convert(System.nanoTime(), TimeUnit.NANOSECONDS)
-                        + config.getMaxBatchOpenMs() + 1;
-                long t = TimeUnit.MILLISECONDS.convert(System.nanoTime(), TimeUnit.NANOSECONDS);
+                long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getMaxBatchOpenMs() + 1);
 
-                List<R> requests;
-                List<QueueBufferFuture<R, Result>> futures;
-
-                synchronized (this) {
-                    while (!closed && (t < deadlineMs)) {
-                        t = TimeUnit.MILLISECONDS.convert(System.nanoTime(), TimeUnit.NANOSECONDS);
-
-                        // zero means "wait forever", can't have that.
-                        long toWait = Math.max(1, deadlineMs - t);
-                        wait(toWait);
+                // published before checking whether the batch is closed, so that a request that
+                // closes it afterwards wakes this thread up
+                runner = Thread.currentThread();
+                long toWait;
+                while (!isClosed() && (toWait = deadlineNanos - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(this, toWait);
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
                     }
+                }
+                runner = null;
 
-                    closed = true;
+                int count = close();
+                // requests that reserved a slot before the batch closed are stored right after
+                while (stored.get() < count) {
+                    Thread.yield();
+                }
 
-                    requests = new ArrayList<R>(this.requests);
-                    futures = new ArrayList<QueueBufferFuture<R, Result>>(this.futures);
+                List<R> requests = new ArrayList<R>(count);
+                List<QueueBufferFuture<R, Result>> futures = new ArrayList<QueueBufferFuture<R, Result>>(count);
+                for (int i = 0; i < count; i++) {
+                    requests.add(this.requests.get(i));
+                    futures.add(this.futures.get(i));
                 }
 
                 process(requests, futures);
@@ -459,34 +507,42 @@ public class SendQueueBuffer {
                 if (listener != null) {
                     listener.invoke(this);
                 }
+                completed.countDown();
             }
         }
 
+        /**
+         * Fails the futures of all requests added to the batch. Requests that reserved a slot but
+         * are not stored yet fail their own future in {@code addRequest}, so this doesn't wait
+         * for them.
+         */
         private void failAll(Exception e) {
-            for (QueueBufferFuture<R, Result> f : futures) {
-                f.setFailure(e);
+            failure = e;
+            close();
+            for (int i = 0; i < futures.length(); i++) {
+                QueueBufferFuture<R, Result> f = futures.get(i);
+                if (f != null) {
+                    f.setFailure(e);
+                }
             }
         }
     }
 
     private class SendMessageBatchTask extends OutboundBatchTask<SendMessageRequest, SendMessageResult> {
 
-        int batchSizeBytes = 0;
-
         @Override
-        protected boolean isOkToAdd(SendMessageRequest request) {
-            return (requests.size() < config.getMaxBatchSize())
-                    && ((request.getMessageBody().getBytes().length + batchSizeBytes) < config.getMaxBatchSizeBytes());
+        protected long sizeOf(SendMessageRequest request) {
+            return request.getMessageBody().getBytes().length;
         }
 
         @Override
-        protected void onRequestAdded(SendMessageRequest request) {
-            batchSizeBytes += request.getMessageBody().getBytes().length;
+        protected boolean isOkToAdd(int count, long batchSizeBytes, long size) {
+            return (count < config.getMaxBatchSize()) && ((size + batchSizeBytes) < config.getMaxBatchSizeBytes());
         }
 
         @Override
-        protected boolean isFull() {
-            return (requests.size() >= config.getMaxBatchSize()) || (batchSizeBytes >= config.getMaxBatchSizeBytes());
+        protected boolean isFull(int count, long batchSizeBytes) {
+            return (count >= config.getMaxBatchSize()) || (batchSizeBytes >= config.getMaxBatchSizeBytes());
         }
 
         @Override
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.sqs.internal;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.annotation.SdkInternalApi;
+import com.amazonaws.services.sqs.model.MessageAttributeValue;
+
+/**
+ * Per-thread MD5 digest of SQS message bodies and message attributes, into
+ * which strings are encoded as UTF-8 directly, through a reused buffer, rather
+ * than being converted to byte arrays first.
+ * <p>
+ * Instances are not thread safe; use {@link #get()} to obtain the one of the
+ * current thread.
+ */
+@SdkInternalApi
+public final class MessageMD5Digest {
+
+    private static final int BUFFER_SIZE = 1024;
+    private static final int MD5_LENGTH = 16;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final byte STRING_TYPE_FIELD_INDEX = 1;
+    private static final byte BINARY_TYPE_FIELD_INDEX = 2;
+    private static final byte STRING_LIST_TYPE_FIELD_INDEX = 3;
+    private static final byte BINARY_LIST_TYPE_FIELD_INDEX = 4;
+
+    private static final ThreadLocal<MessageMD5Digest> INSTANCE = new ThreadLocal<MessageMD5Digest>() {
+        @Override
+        protected MessageMD5Digest initialValue() {
+            return new MessageMD5Digest();
+        }
+    };
+
+    private final MessageDigest md5;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final byte[] digest = new byte[MD5_LENGTH];
+    private int position;
+    /** Reused to sort the attribute names. */
+    private String[] names = new String[16];
+
+    private MessageMD5Digest() {
+        try {
+            md5 = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new AmazonClientException("Unable to get MD5 Function" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the instance of the current thread.
+     */
+    public static MessageMD5Digest get() {
+        return INSTANCE.get();
+    }
+
+    /**
+     * Computes the MD5 hash of the UTF-8 encoding of the given message body.
+     */
+    public MessageMD5Digest digestBody(String body) {
+        reset();
+        appendUtf8(body);
+        return finish();
+    }
+
+    /**
+     * Computes the MD5 hash of the given message attributes, as SQS does:
+     * each attribute in the order of their names is encoded as its
+     * length-prefixed name, data type and value, preceded by a byte
+     * identifying the type of value.
+     */
+    public MessageMD5Digest digestAttributes(Map<String, MessageAttributeValue> messageAttributes) {
+        reset();
+        final int count = messageAttributes.size();
+        if (names.length < count) {
+            names = new String[Math.max(count, 2 * names.length)];
+        }
+        final String[] sortedNames = messageAttributes.keySet().toArray(names);
+        try {
+            Arrays.sort(sortedNames, 0, count);
+            for (int i = 0; i < count; i++) {
+                final MessageAttributeValue attrValue = messageAttributes.get(sortedNames[i]);
+
+                // Encoded Name
+                appendLengthAndUtf8(sortedNames[i]);
+                // Encoded Type
+                appendLengthAndUtf8(attrValue.getDataType());
+
+                // Encoded Value
+                if (attrValue.getStringValue() != null) {
+                    writeByte(STRING_TYPE_FIELD_INDEX);
+                    appendLengthAndUtf8(attrValue.getStringValue());
+                } else if (attrValue.getBinaryValue() != null) {
+                    writeByte(BINARY_TYPE_FIELD_INDEX);
+                    appendLengthAndBytes(attrValue.getBinaryValue());
+                } else if (attrValue.getStringListValues().size() > 0) {
+                    writeByte(STRING_LIST_TYPE_FIELD_INDEX);
+                    for (String strListMember : attrValue.getStringListValues()) {
+                        appendLengthAndUtf8(strListMember);
+                    }
+                } else if (attrValue.getBinaryListValues().size() > 0) {
+                    writeByte(BINARY_LIST_TYPE_FIELD_INDEX);
+                    for (ByteBuffer byteListMember : attrValue.getBinaryListValues()) {
+                        appendLengthAndBytes(byteListMember);
+                    }
+                }
+            }
+        } finally {
+            // Don't keep the names of the attributes reachable from the thread
+            Arrays.fill(names, 0, count, null);
+        }
+        return finish();
+    }
+
+    /**
+     * Returns whether the last computed hash is the one the given hex string
+     * encodes, in lower case as SQS returns it.
+     */
+    public boolean matches(String md5Hex) {
+        if (md5Hex == null || md5Hex.length() != 2 * MD5_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < MD5_LENGTH; i++) {
+            if (md5Hex.charAt(2 * i) != HEX[(digest[i] >> 4) & 0xf]
+                    || md5Hex.charAt(2 * i + 1) != HEX[digest[i] & 0xf]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the last computed hash, hex encoded.
+     */
+    public String toHex() {
+        final char[] hex = new char[2 * MD5_LENGTH];
+        for (int i = 0; i < MD5_LENGTH; i++) {
+            hex[2 * i] = HEX[(digest[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX[digest[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    private void reset() {
+        md5.reset();
+        position = 0;
+    }
+
+    private MessageMD5Digest finish() {
+        flush();
+        try {
+            md5.digest(digest, 0, MD5_LENGTH);
+        } catch (DigestException e) {
+            throw new AmazonClientException("Unable to calculate the MD5 hash. " + e.getMessage(), e);
+        }
+        return this;
+    }
+
+    /**
+     * Appends the length in 4 bytes of the UTF-8 encoding of the given string,
+     * followed by the encoding.
+     */
+    private void appendLengthAndUtf8(String value) {
+        writeInt(utf8Length(value));
+        appendUtf8(value);
+    }
+
+    /**
+     * Appends the length in 4 bytes of the remaining content of the given
+     * buffer, followed by the content, without changing the buffer's position.
+     */
+    private void appendLengthAndBytes(ByteBuffer binaryValue) {
+        writeInt(binaryValue.remaining());
+        flush();
+        if (binaryValue.hasArray()) {
+            md5.update(binaryValue.array(), binaryValue.arrayOffset() + binaryValue.position(),
+                    binaryValue.remaining());
+        } else {
+            md5.update(binaryValue.asReadOnlyBuffer());
+        }
+    }
+
+    private void appendUtf8(String value) {
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            final char ch = value.charAt(i);
+            if (ch < 0x80) {
+                writeByte(ch);
+            } else {
+                i = appendNonAscii(value, i);
+            }
+        }
+    }
+
+    /**
+     * Appends the UTF-8 encoding of the non-ASCII character at the given
+     * index, and returns the index of its last char.
+     */
+    private int appendNonAscii(String value, int index) {
+        final char ch = value.charAt(index);
+        if (ch < 0x800) {
+            writeByte(0xc0 | (ch >> 6));
+            writeByte(0x80 | (ch & 0x3f));
+        } else if (isSurrogatePair(value, index)) {
+            final int codePoint = Character.toCodePoint(ch, value.charAt(index + 1));
+            writeByte(0xf0 | (codePoint >> 18));
+            writeByte(0x80 | ((codePoint >> 12) & 0x3f));
+            writeByte(0x80 | ((codePoint >> 6) & 0x3f));
+            writeByte(0x80 | (codePoint & 0x3f));
+            return index + 1;
+        } else if (ch >= Character.MIN_SURROGATE && ch <= Character.MAX_SURROGATE) {
+            // Unpaired surrogates are replaced, as String.getBytes does
+            writeByte('?');
+        } else {
+            writeByte(0xe0 | (ch >> 12));
+            writeByte(0x80 | ((ch >> 6) & 0x3f));
+            writeByte(0x80 | (ch & 0x3f));
+        }
+        return index;
+    }
+
+    /**
+     * Returns the number of bytes {@link #appendUtf8(String)} appends for the
+     * given string.
+     */
+    private static int utf8Length(String value) {
+        final int length = value.length();
+        int utf8Length = length;
+        for (int i = 0; i < length; i++) {
+            final char ch = value.charAt(i);
+            if (ch < 0x80) {
+                continue;
+            } else if (ch < 0x800) {
+                utf8Length += 1;
+            } else if (isSurrogatePair(value, i)) {
+                // four bytes for two chars
+                utf8Length += 2;
+                i++;
+            } else if (ch < Character.MIN_SURROGATE || ch > Character.MAX_SURROGATE) {
+                utf8Length += 2;
+            }
+        }
+        return utf8Length;
+    }
+
+    private static boolean isSurrogatePair(String value, int index) {
+        return Character.isHighSurrogate(value.charAt(index)) && index + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(index + 1));
+    }
+
+    private void writeInt(int value) {
+        writeByte(value >>> 24);
+        writeByte(value >>> 16);
+        writeByte(value >>> 8);
+        writeByte(value);
+    }
+
+    private void writeByte(int b) {
+        if (position == BUFFER_SIZE) {
+            flush();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    private void flush() {
+        if (position > 0) {
+            md5.update(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
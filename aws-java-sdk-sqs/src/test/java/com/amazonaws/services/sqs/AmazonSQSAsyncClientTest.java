@@ -0,0 +1,205 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.sqs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.handlers.AsyncHandler;
+import com.amazonaws.services.sqs.model.GetQueueUrlRequest;
+import com.amazonaws.services.sqs.model.GetQueueUrlResult;
+import com.amazonaws.util.IOUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Checks that the asynchronous client sends its requests on the non-blocking transport rather
+ * than parking a thread of its executor on each of them.
+ */
+public class AmazonSQSAsyncClientTest {
+
+    private static final int IN_FLIGHT = 20;
+
+    private final CountDownLatch arrived = new CountDownLatch(IN_FLIGHT);
+    private final CountDownLatch respond = new CountDownLatch(1);
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private ThreadPoolExecutor clientExecutor;
+    private AmazonSQSAsyncClient sqs;
+
+    @Before
+    public void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                String queueName = queueNameOf(IOUtils.toString(exchange.getRequestBody()));
+                arrived.countDown();
+                try {
+                    respond.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                String body;
+                if (queueName.startsWith("missing")) {
+                    body = "<ErrorResponse><Error><Type>Sender</Type>"
+                            + "<Code>AWS.SimpleQueueService.NonExistentQueue</Code>"
+                            + "<Message>The specified queue does not exist.</Message></Error>"
+                            + "<RequestId>request-id</RequestId></ErrorResponse>";
+                    send(exchange, 400, body);
+                } else {
+                    body = "<GetQueueUrlResponse><GetQueueUrlResult><QueueUrl>http://localhost/"
+                            + queueName + "</QueueUrl></GetQueueUrlResult><ResponseMetadata>"
+                            + "<RequestId>request-id</RequestId></ResponseMetadata></GetQueueUrlResponse>";
+                    send(exchange, 200, body);
+                }
+            }
+        });
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.start();
+
+        clientExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        sqs = new AmazonSQSAsyncClient(new BasicAWSCredentials("akid", "skid"),
+                new ClientConfiguration().withMaxErrorRetry(0), clientExecutor);
+        sqs.setEndpoint("http://localhost:" + server.getAddress().getPort());
+    }
+
+    @After
+    public void tearDown() {
+        respond.countDown();
+        sqs.shutdown();
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    public void requestsInFlightDoNotHoldAThreadEach() throws Exception {
+        final Map<GetQueueUrlRequest, GetQueueUrlResult> notified =
+                new ConcurrentHashMap<GetQueueUrlRequest, GetQueueUrlResult>();
+        AsyncHandler<GetQueueUrlRequest, GetQueueUrlResult> handler =
+                new AsyncHandler<GetQueueUrlRequest, GetQueueUrlResult>() {
+                    @Override
+                    public void onError(Exception exception) {
+                    }
+
+                    @Override
+                    public void onSuccess(GetQueueUrlRequest request, GetQueueUrlResult result) {
+                        notified.put(request, result);
+                    }
+                };
+
+        List<GetQueueUrlRequest> requests = new ArrayList<GetQueueUrlRequest>();
+        List<Future<GetQueueUrlResult>> futures = new ArrayList<Future<GetQueueUrlResult>>();
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            GetQueueUrlRequest request = new GetQueueUrlRequest("queue-" + i);
+            requests.add(request);
+            futures.add(sqs.getQueueUrlAsync(request, handler));
+        }
+
+        // With one executor thread, a thread-per-request client could only have one call on the wire.
+        assertTrue("Requests weren't all in flight at once", arrived.await(30, TimeUnit.SECONDS));
+        for (Future<GetQueueUrlResult> future : futures) {
+            assertFalse(future.isDone());
+        }
+        respond.countDown();
+
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            GetQueueUrlResult result = futures.get(i).get(30, TimeUnit.SECONDS);
+            assertEquals("http://localhost/queue-" + i, result.getQueueUrl());
+            // The handler is told about the caller's request before the future completes.
+            assertSame(result, notified.get(requests.get(i)));
+        }
+        assertEquals(0, clientExecutor.getTaskCount());
+    }
+
+    @Test
+    public void serviceErrorsFailTheFutureAndNotifyTheHandler() throws Exception {
+        final List<Exception> errors = new ArrayList<Exception>();
+        respond.countDown();
+
+        Future<GetQueueUrlResult> future = sqs.getQueueUrlAsync(new GetQueueUrlRequest("missing"),
+                new AsyncHandler<GetQueueUrlRequest, GetQueueUrlResult>() {
+                    @Override
+                    public void onError(Exception exception) {
+                        errors.add(exception);
+                    }
+
+                    @Override
+                    public void onSuccess(GetQueueUrlRequest request, GetQueueUrlResult result) {
+                        fail("Unexpected success");
+                    }
+                });
+
+        try {
+            future.get(30, TimeUnit.SECONDS);
+            fail("Expected the request to fail");
+        } catch (ExecutionException e) {
+            AmazonServiceException cause = (AmazonServiceException) e.getCause();
+            assertEquals("AWS.SimpleQueueService.NonExistentQueue", cause.getErrorCode());
+            assertEquals(1, errors.size());
+            assertSame(cause, errors.get(0));
+        }
+        assertEquals(0, clientExecutor.getTaskCount());
+    }
+
+    private static String queueNameOf(String form) throws IOException {
+        for (String pair : form.split("&")) {
+            if (pair.startsWith("QueueName=")) {
+                return URLDecoder.decode(pair.substring("QueueName=".length()), "UTF-8");
+            }
+        }
+        return "";
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes("UTF-8");
+        exchange.getResponseHeaders().add("Content-Type", "text/xml");
+        exchange.sendResponseHeaders(status, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.sqs;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.services.sqs.internal.MessageMD5Digest;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.MessageAttributeValue;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.StringUtils;
+
+/**
+ * Measures the time {@link MessageMD5ChecksumHandler} takes to verify a batch
+ * of 10 received messages, verifying all of them or one in 10, against a
+ * fresh digest and intermediate byte arrays per message as a baseline.
+ * <p>
+ * Which messages are sampled depends on their identity hash codes, so the
+ * cost of sampled verification varies between forks.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageMD5ChecksumHandlerBenchmark {
+
+    @Param({"0", "10"})
+    public int attributesPerMessage;
+
+    private final MessageMD5ChecksumHandler handler = new MessageMD5ChecksumHandler(1);
+
+    private final MessageMD5ChecksumHandler sampledHandler = new MessageMD5ChecksumHandler(10);
+
+    private final DefaultRequest<ReceiveMessageRequest> request = new DefaultRequest<ReceiveMessageRequest>(
+            new ReceiveMessageRequest(), "AmazonSQS");
+
+    private ReceiveMessageResult result;
+
+    @Setup
+    public void setup() {
+        List<Message> messages = new ArrayList<Message>();
+        for (int i = 0; i < 10; i++) {
+            StringBuilder body = new StringBuilder();
+            for (int j = 0; j < 100; j++) {
+                body.append("message body ").append(i);
+            }
+            Map<String, MessageAttributeValue> attributes = new HashMap<String, MessageAttributeValue>();
+            for (int j = 0; j < attributesPerMessage; j++) {
+                attributes.put("attribute" + j,
+                        new MessageAttributeValue().withDataType("String").withStringValue("value " + j));
+            }
+            Message message = new Message().withBody(body.toString()).withMessageAttributes(attributes);
+            message.setMD5OfBody(MessageMD5Digest.get().digestBody(message.getBody()).toHex());
+            if (!attributes.isEmpty()) {
+                message.setMD5OfMessageAttributes(MessageMD5Digest.get().digestAttributes(attributes).toHex());
+            }
+            messages.add(message);
+        }
+        result = new ReceiveMessageResult().withMessages(messages);
+    }
+
+    @Benchmark
+    public void verifyAll() {
+        handler.afterResponse(request, result, null);
+    }
+
+    @Benchmark
+    public void verifySampled() {
+        sampledHandler.afterResponse(request, result, null);
+    }
+
+    @Benchmark
+    public boolean baseline() throws Exception {
+        boolean matches = true;
+        for (Message message : result.getMessages()) {
+            MessageDigest md5 = MessageDigest.getInstance("MD5");
+            matches &= BinaryUtils.toHex(md5.digest(message.getBody().getBytes(StringUtils.UTF8)))
+                    .equals(message.getMD5OfBody());
+            if (!message.getMessageAttributes().isEmpty()) {
+                List<String> names = new ArrayList<String>(message.getMessageAttributes().keySet());
+                Collections.sort(names);
+                md5 = MessageDigest.getInstance("MD5");
+                for (String name : names) {
+                    MessageAttributeValue value = message.getMessageAttributes().get(name);
+                    updateLengthAndBytes(md5, name);
+                    updateLengthAndBytes(md5, value.getDataType());
+                    md5.update((byte) 1);
+                    updateLengthAndBytes(md5, value.getStringValue());
+                }
+                matches &= BinaryUtils.toHex(md5.digest()).equals(message.getMD5OfMessageAttributes());
+            }
+        }
+        return matches;
+    }
+
+    private static void updateLengthAndBytes(MessageDigest digest, String value) {
+        byte[] bytes = value.getBytes(StringUtils.UTF8);
+        digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+}
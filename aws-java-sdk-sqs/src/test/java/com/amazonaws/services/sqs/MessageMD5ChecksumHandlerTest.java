@@ -0,0 +1,232 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.sqs;
+
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.MessageAttributeValue;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.StringUtils;
+
+/**
+ * Checks the streamed MD5 checksums of message bodies and attributes against
+ * a straightforward computation over their encoded bytes, for random
+ * messages.
+ */
+public class MessageMD5ChecksumHandlerTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void acceptsChecksumsOfRandomMessages() {
+        MessageMD5ChecksumHandler handler = new MessageMD5ChecksumHandler();
+        for (int i = 0; i < 200; i++) {
+            handler.afterResponse(receiveRequest(), new ReceiveMessageResult().withMessages(randomMessage()), null);
+        }
+    }
+
+    @Test
+    public void rejectsWrongChecksums() {
+        MessageMD5ChecksumHandler handler = new MessageMD5ChecksumHandler();
+        for (int i = 0; i < 50; i++) {
+            Message message = randomMessage();
+            if (i % 2 == 0) {
+                message.setMD5OfBody(flipLastDigit(message.getMD5OfBody()));
+            } else {
+                message.setMD5OfMessageAttributes(flipLastDigit(message.getMD5OfMessageAttributes()));
+            }
+            try {
+                handler.afterResponse(receiveRequest(), new ReceiveMessageResult().withMessages(message), null);
+                fail("wrong checksum accepted");
+            } catch (AmazonClientException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void verifiesNoMessageWithZeroSampleInterval() {
+        Message message = randomMessage().withMD5OfBody("0");
+        new MessageMD5ChecksumHandler(0).afterResponse(receiveRequest(),
+                new ReceiveMessageResult().withMessages(message), null);
+    }
+
+    @Test
+    public void verifiesSampledMessages() {
+        MessageMD5ChecksumHandler handler = new MessageMD5ChecksumHandler(4);
+        int rejected = 0;
+        for (int i = 0; i < 400; i++) {
+            try {
+                handler.afterResponse(receiveRequest(),
+                        new ReceiveMessageResult().withMessages(randomMessage().withMD5OfBody("0")), null);
+            } catch (AmazonClientException expected) {
+                rejected++;
+            }
+        }
+        if (rejected == 0 || rejected == 400) {
+            fail(rejected + " of 400 messages verified");
+        }
+    }
+
+    private static DefaultRequest<ReceiveMessageRequest> receiveRequest() {
+        return new DefaultRequest<ReceiveMessageRequest>(new ReceiveMessageRequest(), "AmazonSQS");
+    }
+
+    private Message randomMessage() {
+        // Longer than the digest's buffer half of the time
+        Message message = new Message().withBody(randomString(random.nextInt(2048)));
+        Map<String, MessageAttributeValue> attributes = new HashMap<String, MessageAttributeValue>();
+        int count = random.nextInt(40);
+        for (int i = 0; i < count; i++) {
+            attributes.put(randomString(1 + random.nextInt(10)), randomAttribute());
+        }
+        message.setMessageAttributes(attributes);
+        message.setMD5OfBody(md5Hex(bytes(message.getBody())));
+        message.setMD5OfMessageAttributes(referenceAttributesMd5(attributes));
+        return message;
+    }
+
+    private MessageAttributeValue randomAttribute() {
+        switch (random.nextInt(4)) {
+        case 0:
+            return new MessageAttributeValue().withDataType("String").withStringValue(randomString(random.nextInt(30)));
+        case 1:
+            return new MessageAttributeValue().withDataType("Binary").withBinaryValue(randomBuffer());
+        case 2:
+            return new MessageAttributeValue().withDataType("String").withStringListValues(
+                    randomString(5), randomString(1500));
+        default:
+            return new MessageAttributeValue().withDataType("Binary.custom").withBinaryListValues(
+                    randomBuffer(), randomBuffer());
+        }
+    }
+
+    /**
+     * Returns a string mixing one, two, three and four byte characters, and
+     * unpaired surrogates.
+     */
+    private String randomString(int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            switch (random.nextInt(6)) {
+            case 0:
+                builder.append((char) (0x80 + random.nextInt(0x780)));
+                break;
+            case 1:
+                builder.append((char) (0x800 + random.nextInt(0xd000)));
+                break;
+            case 2:
+                builder.appendCodePoint(0x10000 + random.nextInt(0x100000));
+                break;
+            case 3:
+                builder.append((char) (Character.MIN_SURROGATE + random.nextInt(0x800)));
+                break;
+            default:
+                builder.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns a heap buffer positioned within its array, or a direct buffer.
+     */
+    private ByteBuffer randomBuffer() {
+        byte[] bytes = new byte[random.nextInt(3000)];
+        random.nextBytes(bytes);
+        if (random.nextBoolean()) {
+            ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+            direct.put(bytes).flip();
+            return direct;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[bytes.length + 10]);
+        buffer.position(3);
+        buffer = buffer.slice();
+        buffer.put(bytes).flip();
+        return buffer;
+    }
+
+    /**
+     * Computes the MD5 of message attributes by concatenating their encoded
+     * bytes, as the SQS documentation describes it.
+     */
+    private static String referenceAttributesMd5(Map<String, MessageAttributeValue> attributes) {
+        List<String> names = new ArrayList<String>(attributes.keySet());
+        Collections.sort(names);
+        ByteBuffer encoded = ByteBuffer.allocate(1 << 20);
+        for (String name : names) {
+            MessageAttributeValue value = attributes.get(name);
+            putLengthAndBytes(encoded, bytes(name));
+            putLengthAndBytes(encoded, bytes(value.getDataType()));
+            if (value.getStringValue() != null) {
+                encoded.put((byte) 1);
+                putLengthAndBytes(encoded, bytes(value.getStringValue()));
+            } else if (value.getBinaryValue() != null) {
+                encoded.put((byte) 2);
+                putLengthAndBytes(encoded, BinaryUtils.copyAllBytesFrom(value.getBinaryValue()));
+            } else if (!value.getStringListValues().isEmpty()) {
+                encoded.put((byte) 3);
+                for (String member : value.getStringListValues()) {
+                    putLengthAndBytes(encoded, bytes(member));
+                }
+            } else {
+                encoded.put((byte) 4);
+                for (ByteBuffer member : value.getBinaryListValues()) {
+                    putLengthAndBytes(encoded, BinaryUtils.copyAllBytesFrom(member));
+                }
+            }
+        }
+        byte[] all = new byte[encoded.position()];
+        encoded.flip();
+        encoded.get(all);
+        return md5Hex(all);
+    }
+
+    private static void putLengthAndBytes(ByteBuffer encoded, byte[] bytes) {
+        encoded.putInt(bytes.length).put(bytes);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StringUtils.UTF8);
+    }
+
+    private static String md5Hex(byte[] bytes) {
+        try {
+            return BinaryUtils.toHex(MessageDigest.getInstance("MD5").digest(bytes));
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String flipLastDigit(String hex) {
+        char last = hex.charAt(hex.length() - 1);
+        return hex.substring(0, hex.length() - 1) + (last == '0' ? '1' : '0');
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.sqs.buffered;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+
+public class AmazonSQSBufferedAsyncClientTest {
+
+    private static final String QUEUE_URL = "https://sqs.us-east-1.amazonaws.com/123456789012/queue";
+
+    /** Short enough for messages to expire during the tests. */
+    private static final int VISIBILITY_TIMEOUT_SECONDS = 2;
+
+    /**
+     * Rounds of visibility extensions are at least a second apart, so a
+     * message extended this many times has been held past its original
+     * visibility timeout.
+     */
+    private static final int EXTENSIONS_PAST_TIMEOUT = VISIBILITY_TIMEOUT_SECONDS + 1;
+
+    /** How long to wait for the buffers to do something before failing. */
+    private static final long AWAIT_TIMEOUT_MILLIS = 30000;
+
+    private final MockSQS sqs = new MockSQS(VISIBILITY_TIMEOUT_SECONDS);
+
+    private AmazonSQSBufferedAsyncClient client;
+
+    @After
+    public void tearDown() {
+        if (client != null) {
+            client.shutdown();
+        }
+    }
+
+    @Test
+    public void extendsVisibilityOfMessagesUntilDeleted() throws Exception {
+        client = newClient(newConfig().withAutoExtendVisibility(true));
+        sendMessages(2);
+
+        Message deleted = receiveOne();
+        Message kept = receiveOne();
+        awaitVisibilityChanges(deleted, EXTENSIONS_PAST_TIMEOUT);
+
+        assertEquals(0, sqs.getVisibleMessages());
+        assertEquals(0, sqs.getRedeliveries());
+
+        // Deleted right after a round, as rounds are at least a second apart, so the next round
+        // extends the other message but not the deleted one
+        int deletedChanges = sqs.getVisibilityChanges(deleted.getReceiptHandle());
+        int keptChanges = sqs.getVisibilityChanges(kept.getReceiptHandle());
+        client.deleteMessage(QUEUE_URL, deleted.getReceiptHandle());
+        assertEquals(1, sqs.getMessages());
+        awaitVisibilityChanges(kept, keptChanges + 1);
+        assertEquals(deletedChanges, sqs.getVisibilityChanges(deleted.getReceiptHandle()));
+    }
+
+    @Test
+    public void stopsExtendingDirectlyDeletedMessages() throws Exception {
+        client = newClient(newConfig().withAutoExtendVisibility(true));
+        sendMessages(2);
+
+        Message deleted = receiveOne();
+        Message kept = receiveOne();
+        client.deleteMessageBatch(QUEUE_URL, Collections.singletonList(
+                new DeleteMessageBatchRequestEntry("0", deleted.getReceiptHandle())));
+        // Both messages were received together, so they would be extended by the same rounds
+        awaitVisibilityChanges(kept, 1);
+
+        assertEquals(1, sqs.getMessages());
+        assertEquals(0, sqs.getVisibilityChanges(deleted.getReceiptHandle()));
+    }
+
+    @Test
+    public void stopsExtendingAfterMaximumExtension() throws Exception {
+        // A single batch in the buffer, so that no receive is waiting when the message reappears
+        client = newClient(newConfig().withAutoExtendVisibility(true).withMaxVisibilityExtensionSeconds(3)
+                .withMaxDoneReceiveBatches(1).withMaxInflightReceiveBatches(1));
+        sendMessages(1);
+
+        receiveOne();
+
+        await("the message to become visible again", new Condition() {
+            @Override
+            public boolean holds() {
+                return sqs.getVisibleMessages() == 1;
+            }
+        });
+    }
+
+    @Test
+    public void extendsVisibilityOfPrefetchedMessages() throws Exception {
+        client = newClient(newConfig().withAutoExtendVisibility(true).withMaxDoneReceiveBatches(2)
+                .withMaxInflightReceiveBatches(2));
+        sendMessages(30);
+
+        Set<String> bodies = new HashSet<String>();
+        Message first = receiveOne();
+        bodies.add(first.getBody());
+        client.deleteMessage(QUEUE_URL, first.getReceiptHandle());
+        await("the pre-fetched messages to be held past their visibility timeout", new Condition() {
+            @Override
+            public boolean holds() {
+                return sqs.getLeastVisibilityChangesInflight() >= EXTENSIONS_PAST_TIMEOUT;
+            }
+        });
+
+        while (bodies.size() < 30) {
+            for (Message message : client.receiveMessage(new ReceiveMessageRequest(QUEUE_URL)).getMessages()) {
+                assertTrue("duplicate " + message.getBody(), bodies.add(message.getBody()));
+                client.deleteMessage(QUEUE_URL, message.getReceiptHandle());
+            }
+        }
+        assertEquals(0, sqs.getRedeliveries());
+        assertEquals(0, sqs.getMessages());
+    }
+
+    @Test
+    public void adaptivePrefetchingFollowsConsumption() throws Exception {
+        sqs.setReceiveDelayMillis(20);
+        client = newClient(newConfig().withAdaptivePrefetching(true));
+        sendMessages(500);
+
+        // A single receive does not pre-fetch up to the configured maximum. Receives are spawned
+        // as soon as earlier ones finish, so a buffer pre-fetching more would still be receiving.
+        receiveOne();
+        await("the pre-fetching to settle", new Condition() {
+            @Override
+            public boolean holds() {
+                return sqs.getActiveReceives() == 0;
+            }
+        });
+        assertTrue(sqs.getReceiveCalls() <= 2);
+
+        // A fast consumer still drains the queue, without expired messages
+        int received = 1;
+        while (received < 500) {
+            List<Message> messages = client.receiveMessage(new ReceiveMessageRequest(QUEUE_URL)
+                    .withMaxNumberOfMessages(10)).getMessages();
+            for (Message message : messages) {
+                client.deleteMessageAsync(QUEUE_URL, message.getReceiptHandle());
+            }
+            received += messages.size();
+        }
+        client.flush();
+        assertEquals(0, sqs.getRedeliveries());
+    }
+
+    @Test
+    public void fixedPrefetchingFillsBuffer() throws Exception {
+        sqs.setReceiveDelayMillis(20);
+        client = newClient(newConfig());
+        sendMessages(500);
+
+        receiveOne();
+
+        await("the buffer to fill", new Condition() {
+            @Override
+            public boolean holds() {
+                return sqs.getReceiveCalls() >= QueueBufferConfig.MAX_DONE_RECEIVE_BATCHES_DEFAULT;
+            }
+        });
+    }
+
+    private AmazonSQSBufferedAsyncClient newClient(QueueBufferConfig config) {
+        return new AmazonSQSBufferedAsyncClient(sqs, config);
+    }
+
+    private static QueueBufferConfig newConfig() {
+        // Short long polls, so that shutting down does not wait for an empty receive
+        return new QueueBufferConfig().withLongPollWaitTimeoutSeconds(1);
+    }
+
+    private void sendMessages(int count) {
+        for (int i = 0; i < count; i++) {
+            sqs.sendMessage(QUEUE_URL, "message " + i);
+        }
+    }
+
+    private Message receiveOne() {
+        List<Message> messages;
+        do {
+            messages = client.receiveMessage(new ReceiveMessageRequest(QUEUE_URL).withMaxNumberOfMessages(1))
+                    .getMessages();
+        } while (messages.isEmpty());
+        return messages.get(0);
+    }
+
+    private void awaitVisibilityChanges(final Message message, final int changes) throws InterruptedException {
+        await(changes + " visibility changes of message " + message.getBody(), new Condition() {
+            @Override
+            public boolean holds() {
+                return sqs.getVisibilityChanges(message.getReceiptHandle()) >= changes;
+            }
+        });
+    }
+
+    /**
+     * Waits for the given condition to hold, failing the test if it does not
+     * within {@link #AWAIT_TIMEOUT_MILLIS}.
+     */
+    private static void await(String description, Condition condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(AWAIT_TIMEOUT_MILLIS);
+        while (!condition.holds()) {
+            if (System.nanoTime() - deadline > 0) {
+                fail("Timed out waiting for " + description);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private interface Condition {
+        boolean holds();
+    }
+}
@@ -0,0 +1,361 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.sqs.buffered;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.sqs.AbstractAmazonSQSAsync;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResultEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityRequest;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResult;
+import com.amazonaws.services.sqs.model.DeleteMessageBatchResultEntry;
+import com.amazonaws.services.sqs.model.DeleteMessageRequest;
+import com.amazonaws.services.sqs.model.DeleteMessageResult;
+import com.amazonaws.services.sqs.model.GetQueueAttributesRequest;
+import com.amazonaws.services.sqs.model.GetQueueAttributesResult;
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequest;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchResultEntry;
+import com.amazonaws.services.sqs.model.SendMessageRequest;
+import com.amazonaws.services.sqs.model.SendMessageResult;
+
+/**
+ * An in-memory Amazon SQS queue for testing the buffered client without a
+ * network connection. Every queue URL refers to the same queue, which delivers
+ * messages in the order they were sent and hides them for the visibility
+ * timeout of the receive request or of the queue, like SQS does.
+ */
+class MockSQS extends AbstractAmazonSQSAsync {
+
+    private final int visibilityTimeoutSeconds;
+
+    /** Messages that can be received, in the order they were sent. */
+    private final LinkedList<StoredMessage> visible = new LinkedList<StoredMessage>();
+
+    /** Received messages that are not visible, by their latest receipt handle. */
+    private final Map<String, StoredMessage> inflight = new HashMap<String, StoredMessage>();
+
+    private final AtomicInteger messageIds = new AtomicInteger();
+
+    private final AtomicInteger receiveCalls = new AtomicInteger();
+
+    private final AtomicInteger activeReceives = new AtomicInteger();
+
+    private final AtomicInteger changeVisibilityCalls = new AtomicInteger();
+
+    private final AtomicInteger redeliveries = new AtomicInteger();
+
+    /** The number of visibility changes requested for each receipt handle, deleted or not. */
+    private final Map<String, Integer> visibilityChanges = new HashMap<String, Integer>();
+
+    private volatile long receiveDelayMillis;
+
+    MockSQS(int visibilityTimeoutSeconds) {
+        this.visibilityTimeoutSeconds = visibilityTimeoutSeconds;
+    }
+
+    /**
+     * Sets how long each receive call takes, in addition to any long polling.
+     */
+    public void setReceiveDelayMillis(long receiveDelayMillis) {
+        this.receiveDelayMillis = receiveDelayMillis;
+    }
+
+    public int getReceiveCalls() {
+        return receiveCalls.get();
+    }
+
+    /**
+     * Returns the number of receive calls in progress.
+     */
+    public int getActiveReceives() {
+        return activeReceives.get();
+    }
+
+    public int getChangeVisibilityCalls() {
+        return changeVisibilityCalls.get();
+    }
+
+    /**
+     * Returns how many times a change of the visibility timeout of the message
+     * with the given receipt handle was requested, whether or not the message
+     * had been deleted.
+     */
+    public synchronized int getVisibilityChanges(String receiptHandle) {
+        Integer changes = visibilityChanges.get(receiptHandle);
+        return changes == null ? 0 : changes;
+    }
+
+    /**
+     * Returns the fewest visibility changes requested for any of the received
+     * messages that are not visible, or -1 if there are none.
+     */
+    public synchronized int getLeastVisibilityChangesInflight() {
+        expireInflight();
+        int least = -1;
+        for (String receiptHandle : inflight.keySet()) {
+            int changes = getVisibilityChanges(receiptHandle);
+            if (least == -1 || changes < least) {
+                least = changes;
+            }
+        }
+        return least;
+    }
+
+    /**
+     * Returns how many times messages were received again after their
+     * visibility timeout expired.
+     */
+    public int getRedeliveries() {
+        return redeliveries.get();
+    }
+
+    /**
+     * Returns the number of messages that can currently be received.
+     */
+    public synchronized int getVisibleMessages() {
+        expireInflight();
+        return visible.size();
+    }
+
+    /**
+     * Returns the number of messages that have not been deleted.
+     */
+    public synchronized int getMessages() {
+        return visible.size() + inflight.size();
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    @Override
+    public GetQueueAttributesResult getQueueAttributes(GetQueueAttributesRequest request) {
+        return new GetQueueAttributesResult().addAttributesEntry("VisibilityTimeout",
+                Integer.toString(visibilityTimeoutSeconds));
+    }
+
+    @Override
+    public synchronized SendMessageResult sendMessage(SendMessageRequest request) {
+        return new SendMessageResult().withMessageId(store(request.getMessageBody()));
+    }
+
+    @Override
+    public synchronized SendMessageBatchResult sendMessageBatch(SendMessageBatchRequest request) {
+        SendMessageBatchResult result = new SendMessageBatchResult();
+        for (SendMessageBatchRequestEntry entry : request.getEntries()) {
+            result.getSuccessful().add(new SendMessageBatchResultEntry().withId(entry.getId())
+                    .withMessageId(store(entry.getMessageBody())));
+        }
+        return result;
+    }
+
+    @Override
+    public ReceiveMessageResult receiveMessage(ReceiveMessageRequest request) {
+        receiveCalls.incrementAndGet();
+        activeReceives.incrementAndGet();
+        try {
+            return doReceiveMessage(request);
+        } finally {
+            activeReceives.decrementAndGet();
+        }
+    }
+
+    private ReceiveMessageResult doReceiveMessage(ReceiveMessageRequest request) {
+        sleep(receiveDelayMillis);
+        int maxMessages = request.getMaxNumberOfMessages() == null ? 1 : request.getMaxNumberOfMessages();
+        int timeoutSeconds = request.getVisibilityTimeout() == null ? visibilityTimeoutSeconds
+                : request.getVisibilityTimeout();
+        long waitNanos = request.getWaitTimeSeconds() == null ? 0
+                : TimeUnit.SECONDS.toNanos(request.getWaitTimeSeconds());
+        long waitDeadline = System.nanoTime() + waitNanos;
+
+        List<Message> messages = new ArrayList<Message>(maxMessages);
+        synchronized (this) {
+            expireInflight();
+            while (visible.isEmpty() && System.nanoTime() < waitDeadline) {
+                try {
+                    // wake up regularly to make expired messages visible again
+                    wait(Math.max(1, Math.min(100, TimeUnit.NANOSECONDS.toMillis(waitDeadline - System.nanoTime()))));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                expireInflight();
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+            while (messages.size() < maxMessages && !visible.isEmpty()) {
+                StoredMessage message = visible.removeFirst();
+                if (message.receiveCount++ > 0) {
+                    redeliveries.incrementAndGet();
+                }
+                message.receiptHandle = UUID.randomUUID().toString();
+                message.visibilityDeadline = deadline;
+                inflight.put(message.receiptHandle, message);
+                messages.add(new Message().withMessageId(message.messageId).withBody(message.body)
+                        .withReceiptHandle(message.receiptHandle));
+            }
+        }
+        return new ReceiveMessageResult().withMessages(messages);
+    }
+
+    @Override
+    public synchronized DeleteMessageResult deleteMessage(DeleteMessageRequest request) {
+        if (inflight.remove(request.getReceiptHandle()) == null) {
+            throw invalidReceiptHandle(request.getReceiptHandle());
+        }
+        return new DeleteMessageResult();
+    }
+
+    @Override
+    public synchronized DeleteMessageBatchResult deleteMessageBatch(DeleteMessageBatchRequest request) {
+        DeleteMessageBatchResult result = new DeleteMessageBatchResult();
+        for (DeleteMessageBatchRequestEntry entry : request.getEntries()) {
+            if (inflight.remove(entry.getReceiptHandle()) == null) {
+                result.getFailed().add(invalidReceiptHandleEntry(entry.getId()));
+            } else {
+                result.getSuccessful().add(new DeleteMessageBatchResultEntry().withId(entry.getId()));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized ChangeMessageVisibilityResult changeMessageVisibility(ChangeMessageVisibilityRequest request) {
+        changeVisibilityCalls.incrementAndGet();
+        if (!changeVisibility(request.getReceiptHandle(), request.getVisibilityTimeout())) {
+            throw invalidReceiptHandle(request.getReceiptHandle());
+        }
+        return new ChangeMessageVisibilityResult();
+    }
+
+    @Override
+    public synchronized ChangeMessageVisibilityBatchResult changeMessageVisibilityBatch(
+            ChangeMessageVisibilityBatchRequest request) {
+        changeVisibilityCalls.incrementAndGet();
+        ChangeMessageVisibilityBatchResult result = new ChangeMessageVisibilityBatchResult();
+        for (ChangeMessageVisibilityBatchRequestEntry entry : request.getEntries()) {
+            if (changeVisibility(entry.getReceiptHandle(), entry.getVisibilityTimeout())) {
+                result.getSuccessful().add(new ChangeMessageVisibilityBatchResultEntry().withId(entry.getId()));
+            } else {
+                result.getFailed().add(invalidReceiptHandleEntry(entry.getId()));
+            }
+        }
+        return result;
+    }
+
+    private String store(String body) {
+        StoredMessage message = new StoredMessage();
+        message.messageId = Integer.toString(messageIds.incrementAndGet());
+        message.body = body;
+        visible.addLast(message);
+        notifyAll();
+        return message.messageId;
+    }
+
+    private boolean changeVisibility(String receiptHandle, Integer timeoutSeconds) {
+        visibilityChanges.put(receiptHandle, getVisibilityChanges(receiptHandle) + 1);
+        expireInflight();
+        StoredMessage message = inflight.get(receiptHandle);
+        if (message == null) {
+            return false;
+        }
+        if (timeoutSeconds == null || timeoutSeconds == 0) {
+            inflight.remove(receiptHandle);
+            visible.addFirst(message);
+            notifyAll();
+        } else {
+            message.visibilityDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        }
+        return true;
+    }
+
+    /**
+     * Makes the received messages whose visibility timeout expired visible
+     * again, which also invalidates their receipt handles.
+     */
+    private void expireInflight() {
+        long now = System.nanoTime();
+        List<StoredMessage> expired = null;
+        for (Iterator<StoredMessage> it = inflight.values().iterator(); it.hasNext();) {
+            StoredMessage message = it.next();
+            if (message.visibilityDeadline <= now) {
+                it.remove();
+                if (expired == null) {
+                    expired = new ArrayList<StoredMessage>();
+                }
+                expired.add(message);
+            }
+        }
+        if (expired != null) {
+            Collections.reverse(expired);
+            for (StoredMessage message : expired) {
+                visible.addFirst(message);
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static AmazonServiceException invalidReceiptHandle(String receiptHandle) {
+        AmazonServiceException e = new AmazonServiceException("Invalid receipt handle: " + receiptHandle);
+        e.setErrorCode("ReceiptHandleIsInvalid");
+        e.setServiceName("AmazonSQS");
+        e.setStatusCode(400);
+        return e;
+    }
+
+    private static BatchResultErrorEntry invalidReceiptHandleEntry(String id) {
+        return new BatchResultErrorEntry().withId(id).withCode("ReceiptHandleIsInvalid").withSenderFault(true)
+                .withMessage("Invalid receipt handle");
+    }
+
+    private static class StoredMessage {
+        String messageId;
+        String body;
+        String receiptHandle;
+        long visibilityDeadline;
+        int receiveCount;
+    }
+}
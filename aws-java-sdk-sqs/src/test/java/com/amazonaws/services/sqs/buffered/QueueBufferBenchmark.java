@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.sqs.buffered;
+
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+import com.amazonaws.services.sqs.model.SendMessageResult;
+
+/**
+ * Measures the number of calls per second the buffered client handles for a
+ * single queue when many threads send, receive and delete messages at once,
+ * against an in-memory queue so that the buffers dominate the cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueueBufferBenchmark {
+
+    private static final String QUEUE_URL = "https://sqs.us-east-1.amazonaws.com/123456789012/queue";
+
+    private AmazonSQSBufferedAsyncClient client;
+
+    @Setup
+    public void setup() {
+        client = new AmazonSQSBufferedAsyncClient(new MockSQS(3600), new QueueBufferConfig().withLongPoll(false));
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.shutdown();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Future<SendMessageResult> send() {
+        return client.sendMessageAsync(QUEUE_URL, "message");
+    }
+
+    @Benchmark
+    @Group("sendAndReceive")
+    @GroupThreads(8)
+    public Future<SendMessageResult> producer() {
+        return client.sendMessageAsync(QUEUE_URL, "message");
+    }
+
+    @Benchmark
+    @Group("sendAndReceive")
+    @GroupThreads(8)
+    public int consumer() {
+        List<Message> messages = client.receiveMessage(new ReceiveMessageRequest(QUEUE_URL)
+                .withMaxNumberOfMessages(10)).getMessages();
+        for (Message message : messages) {
+            client.deleteMessageAsync(QUEUE_URL, message.getReceiptHandle());
+        }
+        return messages.size();
+    }
+}
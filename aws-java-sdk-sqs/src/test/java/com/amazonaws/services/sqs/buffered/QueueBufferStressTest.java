@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.sqs.buffered;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.logging.LogFactory;
+import org.junit.After;
+import org.junit.Test;
+
+import com.amazonaws.services.sqs.model.Message;
+import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
+
+/**
+ * Sends and receives messages through the buffered client from many threads
+ * at once, against an in-memory queue, and checks that every message is
+ * received exactly once.
+ */
+public class QueueBufferStressTest {
+
+    private static final String QUEUE_URL = "https://sqs.us-east-1.amazonaws.com/123456789012/queue";
+
+    private static final int PRODUCERS = 16;
+
+    private static final int CONSUMERS = 200;
+
+    private static final int MESSAGES_PER_PRODUCER = 1250;
+
+    private static final int MESSAGES = PRODUCERS * MESSAGES_PER_PRODUCER;
+
+    /** Long enough for no message to expire during the test. */
+    private final MockSQS sqs = new MockSQS(60);
+
+    /**
+     * Without long polling, so that the consumers left waiting once all the
+     * messages were received return right away.
+     */
+    private final AmazonSQSBufferedAsyncClient client = new AmazonSQSBufferedAsyncClient(sqs,
+            new QueueBufferConfig().withLongPoll(false));
+
+    private final ConcurrentMap<String, Integer> received = new ConcurrentHashMap<String, Integer>();
+
+    private final AtomicInteger receivedCount = new AtomicInteger();
+
+    /** When the last message was received. */
+    private volatile long finishedNanos;
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+    @After
+    public void tearDown() {
+        client.shutdown();
+    }
+
+    @Test
+    public void receivesEveryMessageExactlyOnce() throws Exception {
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < PRODUCERS; i++) {
+            final int producer = i;
+            threads.add(new Thread(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < MESSAGES_PER_PRODUCER; j++) {
+                        client.sendMessageAsync(QUEUE_URL, producer + "-" + j);
+                    }
+                }
+            }));
+        }
+        for (int i = 0; i < CONSUMERS; i++) {
+            threads.add(new Thread(new Runnable() {
+                public void run() {
+                    while (receivedCount.get() < MESSAGES && failure.get() == null) {
+                        List<Message> messages = client.receiveMessage(new ReceiveMessageRequest(QUEUE_URL)
+                                .withMaxNumberOfMessages(10)).getMessages();
+                        for (Message message : messages) {
+                            Integer previous = received.putIfAbsent(message.getBody(), 1);
+                            if (previous != null) {
+                                throw new AssertionError("received twice: " + message.getBody());
+                            }
+                            client.deleteMessageAsync(QUEUE_URL, message.getReceiptHandle());
+                        }
+                        if (receivedCount.addAndGet(messages.size()) == MESSAGES) {
+                            finishedNanos = System.nanoTime();
+                        }
+                    }
+                }
+            }));
+        }
+
+        long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+                public void uncaughtException(Thread t, Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.MINUTES.toMillis(2));
+            assertTrue("timed out", !thread.isAlive());
+        }
+        client.flush();
+
+        assertNull(failure.get());
+        assertEquals(MESSAGES, received.size());
+        assertEquals(0, sqs.getRedeliveries());
+        assertEquals(0, sqs.getMessages());
+        LogFactory.getLog(QueueBufferStressTest.class).debug("Sent and received " + MESSAGES + " messages at "
+                + (MESSAGES * TimeUnit.SECONDS.toNanos(1) / (finishedNanos - start)) + " messages/sec");
+    }
+}
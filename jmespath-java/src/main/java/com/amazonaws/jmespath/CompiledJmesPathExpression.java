@@ -0,0 +1,465 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.jmespath;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A JmesPath expression compiled into a chain of getter invocations, so
+ * that it can be evaluated directly against a typed object such as a
+ * service result without first converting the whole object into a JSON
+ * tree.
+ * <p>
+ * Only the final value of the expression (and the operands of comparisons
+ * and functions) is converted into a JSON node, which yields the same
+ * result as evaluating the expression with {@link JmesPathEvaluationVisitor}
+ * over the JSON tree of the object. Whenever the expression cannot be
+ * evaluated against the typed object, such as an object projection over a
+ * bean, that evaluation falls back to the JSON tree; whether to fall back is
+ * decided for each input.
+ * <p>
+ * Instances of this class are thread safe.
+ */
+public final class CompiledJmesPathExpression {
+
+    private static final JmesPathEvaluationVisitor TREE_VISITOR = new JmesPathEvaluationVisitor();
+
+    /**
+     * Thrown by a compiled node when the input cannot be evaluated without
+     * the JSON tree; preallocated since it is only used for control flow.
+     */
+    private static final UnsupportedInputException UNSUPPORTED = new UnsupportedInputException();
+
+    /**
+     * Represents the source expression used by the JSON tree fallback
+     */
+    private final JmesPathExpression ast;
+
+    private final Node root;
+
+    private CompiledJmesPathExpression(JmesPathExpression ast, Node root) {
+        this.ast = ast;
+        this.root = root;
+    }
+
+    /**
+     * Compiles the given JmesPath expression.
+     *
+     * @param ast JmesPath expression to be compiled
+     * @return Compiled expression
+     */
+    public static CompiledJmesPathExpression compile(JmesPathExpression ast) {
+        return new CompiledJmesPathExpression(ast, ast.accept(new Compiler(), null));
+    }
+
+    /**
+     * Evaluates this expression against the given object.
+     *
+     * @param input Object against which evaluation is done, typically
+     *              the result of a service operation
+     * @return Result of the evaluation as a json node
+     */
+    public JsonNode evaluate(Object input) {
+        try {
+            return toJsonNode(root.evaluate(input));
+        } catch (UnsupportedInputException e) {
+            // Only this input needs the JSON tree
+        }
+        JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(input);
+        return ast.accept(TREE_VISITOR, queryNode);
+    }
+
+    private static JsonNode toJsonNode(Object value) {
+        if (value == null) {
+            return NullNode.getInstance();
+        } else if (value instanceof JsonNode) {
+            return (JsonNode) value;
+        } else if (value instanceof String) {
+            return TextNode.valueOf((String) value);
+        } else if (value instanceof Boolean) {
+            return BooleanNode.valueOf((Boolean) value);
+        }
+        return ObjectMapperSingleton.getObjectMapper().valueToTree(value);
+    }
+
+    /**
+     * Returns the given value if it is serialized as a JSON array, or null
+     * if it is serialized as anything other than an array.
+     */
+    private static Collection<?> asArray(Object value) {
+        if (value instanceof Collection) {
+            return (Collection<?>) value;
+        } else if (value instanceof JsonNode || (value != null && value.getClass().isArray())) {
+            throw UNSUPPORTED;
+        }
+        return null;
+    }
+
+    /**
+     * Returns true if the given value is a bean whose properties can be
+     * read with getters, or false if it is serialized as a JSON scalar or
+     * array.
+     */
+    private static boolean isBean(Object value) {
+        if (value == null
+            || value instanceof String
+            || value instanceof Number
+            || value instanceof Boolean
+            || value instanceof Character
+            || value instanceof Date
+            || value instanceof Enum
+            || value instanceof ByteBuffer
+            || value instanceof Collection) {
+            return false;
+        } else if (value instanceof JsonNode
+                   || value.getClass().isArray()
+                   || value.getClass().getName().startsWith("java")) {
+            throw UNSUPPORTED;
+        }
+        return true;
+    }
+
+    private static final class UnsupportedInputException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+
+    /**
+     * A node of a compiled expression.
+     */
+    private static abstract class Node {
+        abstract Object evaluate(Object input);
+    }
+
+    /**
+     * Compiles each type of JmesPath expression into its node.
+     */
+    private static final class Compiler implements JmesPathVisitor<Void, Node> {
+
+        @Override
+        public Node visit(JmesPathSubExpression subExpression, Void aVoid) {
+            final List<Node> nodes = compile(subExpression.getExpressions());
+            return new Node() {
+                @Override
+                Object evaluate(Object input) {
+                    Object result = input;
+                    for (Node node : nodes) {
+                        result = node.evaluate(result);
+                    }
+                    return result;
+                }
+            };
+        }
+
+        @Override
+        public Node visit(JmesPathField fieldNode, Void aVoid) {
+            return new FieldNode(fieldNode.getValue());
+        }
+
+        @Override
+        public Node visit(JmesPathProjection jmesPathProjection, Void aVoid) {
+            final Node lhs = jmesPathProjection.getLhsExpr().accept(this, null);
+            final Node projection = jmesPathProjection.getProjectionExpr().accept(this, null);
+            return new Node() {
+                @Override
+                Object evaluate(Object input) {
+                    Collection<?> elements = asArray(lhs.evaluate(input));
+                    if (elements == null) {
+                        return null;
+                    }
+                    List<Object> projected = new ArrayList<Object>(elements.size());
+                    for (Object element : elements) {
+                        projected.add(projection.evaluate(element));
+                    }
+                    return projected;
+                }
+            };
+        }
+
+        @Override
+        public Node visit(JmesPathFlatten flatten, Void aVoid) {
+            final Node expr = flatten.getFlattenExpr().accept(this, null);
+            return new Node() {
+                @Override
+                Object evaluate(Object input) {
+                    Collection<?> elements = asArray(expr.evaluate(input));
+                    if (elements == null) {
+                        return null;
+                    }
+                    List<Object> flattened = new ArrayList<Object>(elements.size());
+                    for (Object element : elements) {
+                        Collection<?> inner = asArray(element);
+                        if (inner != null) {
+                            flattened.addAll(inner);
+                        } else {
+                            flattened.add(element);
+                        }
+                    }
+                    return flattened;
+                }
+            };
+        }
+
+        @Override
+        public Node visit(JmesPathIdentity jmesPathIdentity, Void aVoid) {
+            return new Node() {
+                @Override
+                Object evaluate(Object input) {
+                    return input;
+                }
+            };
+        }
+
+        @Override
+        public Node visit(JmesPathValueProjection valueProjection, Void aVoid) {
+            final Node lhs = valueProjection.getLhsExpr().accept(this, null);
+            final Node rhs = valueProjection.getRhsExpr().accept(this, null);
+            return new Node() {
+                @Override
+                Object evaluate(Object input) {
+                    Object object = lhs.evaluate(input);
+                    if (!(object instanceof Map)) {
+                        if (isBean(object)) {
+                            // Values of a bean are ordered as serialized
+                            throw UNSUPPORTED;
+                        }
+                        return null;
+                    }
+                    Collection<?> values = ((Map<?, ?>) object).values();
+                    List<Object> projected = new ArrayList<Object>(values.size());
+                    for (Object value : values) {
+                        projected.add(rhs.evaluate(value));
+                    }
+                    return projected;
+                }
+            };
+        }
+
+        @Override
+        public Node visit(final JmesPathFunction function, Void aVoid) {
+            final List<Node> arguments = compile(function.getExpressions());
+            return new Node() {
+                @Override
+                Object evaluate(Object input) {
+                    List<JsonNode> evaluatedArguments = new ArrayList<JsonNode>(arguments.size());
+                    for (Node argument : arguments) {
+                        evaluatedArguments.add(toJsonNode(argument.evaluate(input)));
+                    }
+                    return function.evaluate(evaluatedArguments);
+                }
+            };
+        }
+
+        @Override
+        public Node visit(final JmesPathLiteral literal, Void aVoid) {
+            return new Node() {
+                @Override
+                Object evaluate(Object input) {
+                    return literal.getValue();
+                }
+            };
+        }
+
+        @Override
+        public Node visit(JmesPathFilter filter, Void aVoid) {
+            final Node lhs = filter.getLhsExpr().accept(this, null);
+            final Node comparator = filter.getComparator().accept(this, null);
+            final Node rhs = filter.getRhsExpr().accept(this, null);
+            return new Node() {
+                @Override
+                Object evaluate(Object input) {
+                    Collection<?> elements = asArray(lhs.evaluate(input));
+                    if (elements == null) {
+                        return null;
+                    }
+                    List<Object> projected = new ArrayList<Object>();
+                    for (Object element : elements) {
+                        if (BooleanNode.TRUE.equals(toJsonNode(comparator.evaluate(element)))) {
+                            projected.add(rhs.evaluate(element));
+                        }
+                    }
+                    return projected;
+                }
+            };
+        }
+
+        @Override
+        public Node visit(final Comparator op, Void aVoid) {
+            final Node lhs = op.getLhsExpr().accept(this, null);
+            final Node rhs = op.getRhsExpr().accept(this, null);
+            return new Node() {
+                @Override
+                Object evaluate(Object input) {
+                    JsonNode lhsNode = toJsonNode(lhs.evaluate(input));
+                    JsonNode rhsNode = toJsonNode(rhs.evaluate(input));
+                    return op.matches(lhsNode, rhsNode) ? BooleanNode.TRUE : BooleanNode.FALSE;
+                }
+            };
+        }
+
+        @Override
+        public Node visit(JmesPathNotExpression notExpression, Void aVoid) {
+            final Node expr = notExpression.getExpr().accept(this, null);
+            return new Node() {
+                @Override
+                Object evaluate(Object input) {
+                    if (toJsonNode(expr.evaluate(input)) != BooleanNode.TRUE) {
+                        return BooleanNode.TRUE;
+                    }
+                    return BooleanNode.FALSE;
+                }
+            };
+        }
+
+        @Override
+        public Node visit(JmesPathAndExpression andExpression, Void aVoid) {
+            final Node lhs = andExpression.getLhsExpr().accept(this, null);
+            final Node rhs = andExpression.getRhsExpr().accept(this, null);
+            return new Node() {
+                @Override
+                Object evaluate(Object input) {
+                    Object lhsResult = lhs.evaluate(input);
+                    Object rhsResult = rhs.evaluate(input);
+                    return toJsonNode(lhsResult) == BooleanNode.TRUE ? rhsResult : lhsResult;
+                }
+            };
+        }
+
+        @Override
+        public Node visit(JmesPathMultiSelectList multiSelectList, Void aVoid) {
+            final List<Node> nodes = compile(multiSelectList.getExpressions());
+            return new Node() {
+                @Override
+                Object evaluate(Object input) {
+                    List<Object> evaluated = new ArrayList<Object>(nodes.size());
+                    for (Node node : nodes) {
+                        evaluated.add(node.evaluate(input));
+                    }
+                    return evaluated;
+                }
+            };
+        }
+
+        private List<Node> compile(List<JmesPathExpression> expressions) {
+            List<Node> nodes = new ArrayList<Node>(expressions.size());
+            for (JmesPathExpression expression : expressions) {
+                nodes.add(expression.accept(this, null));
+            }
+            return nodes;
+        }
+    }
+
+    /**
+     * Retrieves the value of a field by invoking the corresponding getter,
+     * which is looked up once per class. Classes without such a getter are
+     * remembered as well, so that inputs of those classes fall back to the
+     * JSON tree without looking the getter up again.
+     */
+    private static final class FieldNode extends Node {
+
+        private final String name;
+
+        /**
+         * Key of the field as serialized by the JSON tree
+         */
+        private final String key;
+
+        private final ConcurrentHashMap<Class<?>, Method> getters =
+                new ConcurrentHashMap<Class<?>, Method>();
+
+        private final Set<Class<?>> classesWithoutGetter =
+                Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+
+        FieldNode(String name) {
+            this.name = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            this.key = CamelCaseUtils.toCamelCase(name);
+        }
+
+        @Override
+        Object evaluate(Object input) {
+            if (input instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) input;
+                if (!map.containsKey(key)) {
+                    throw UNSUPPORTED;
+                }
+                return map.get(key);
+            }
+            if (!isBean(input)) {
+                return null;
+            }
+            try {
+                return getter(input.getClass()).invoke(input);
+            } catch (IllegalAccessException e) {
+                throw UNSUPPORTED;
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new RuntimeException(cause);
+            }
+        }
+
+        private Method getter(Class<?> clazz) {
+            Method getter = getters.get(clazz);
+            if (getter == null) {
+                if (classesWithoutGetter.contains(clazz)) {
+                    throw UNSUPPORTED;
+                }
+                getter = findGetter(clazz);
+                if (getter == null) {
+                    classesWithoutGetter.add(clazz);
+                    throw UNSUPPORTED;
+                }
+                getters.put(clazz, getter);
+            }
+            return getter;
+        }
+
+        private Method findGetter(Class<?> clazz) {
+            try {
+                return clazz.getMethod("get" + name);
+            } catch (NoSuchMethodException e) {
+                try {
+                    return clazz.getMethod("is" + name);
+                } catch (NoSuchMethodException e2) {
+                    return null;
+                }
+            }
+        }
+    }
+}
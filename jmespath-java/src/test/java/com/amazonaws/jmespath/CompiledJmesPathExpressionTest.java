@@ -0,0 +1,280 @@
+/*
+ * Copyright 2016-2016 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.jmespath;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Checks that compiled expressions evaluate to the same nodes as the JSON
+ * tree evaluation, over expressions taken from the generated waiters.
+ */
+public class CompiledJmesPathExpressionTest {
+
+    /** Reservations[].Instances[].State.Name */
+    private static final JmesPathExpression INSTANCE_STATES = new JmesPathProjection(new JmesPathFlatten(
+            new JmesPathProjection(new JmesPathFlatten(new JmesPathField("Reservations")), new JmesPathField("Instances"))),
+            new JmesPathSubExpression(new JmesPathField("State"), new JmesPathField("Name")));
+
+    /** length(Reservations[]) > `0` */
+    private static final JmesPathExpression HAS_RESERVATIONS = new OpGreaterThan(
+            new JmesPathLengthFunction(new JmesPathFlatten(new JmesPathField("Reservations"))), new JmesPathLiteral("0"));
+
+    /**
+     * contains(AutoScalingGroups[].[length(Instances[?LifecycleState=='InService']) >= MinSize][], `false`)
+     */
+    private static final JmesPathExpression GROUP_IN_SERVICE = new JmesPathContainsFunction(new JmesPathProjection(
+            new JmesPathFlatten(new JmesPathProjection(new JmesPathFlatten(new JmesPathField("AutoScalingGroups")),
+                    new JmesPathMultiSelectList(new OpGreaterThanOrEqualTo(new JmesPathLengthFunction(
+                            new JmesPathFilter(new JmesPathField("Instances"), new JmesPathIdentity(),
+                                    new OpEquals(new JmesPathField("LifecycleState"), new JmesPathLiteral("\"InService\"")))),
+                            new JmesPathField("MinSize"))))), new JmesPathIdentity()),
+            new JmesPathLiteral("false"));
+
+    /**
+     * length(services[?!(length(deployments) == `1` && runningCount == desiredCount)]) == `0`
+     */
+    private static final JmesPathExpression SERVICES_STABLE = new OpEquals(new JmesPathLengthFunction(
+            new JmesPathFilter(new JmesPathField("services"), new JmesPathIdentity(),
+                    new JmesPathNotExpression(new JmesPathAndExpression(
+                            new OpEquals(new JmesPathLengthFunction(new JmesPathField("deployments")), new JmesPathLiteral("1")),
+                            new OpEquals(new JmesPathField("runningCount"), new JmesPathField("desiredCount")))))),
+            new JmesPathLiteral("0"));
+
+    /** VerificationAttributes.*.VerificationStatus */
+    private static final JmesPathExpression VERIFICATION_STATUSES = new JmesPathValueProjection(
+            new JmesPathField("VerificationAttributes"), new JmesPathField("VerificationStatus"));
+
+    @Test
+    public void projectionsOfBeans_EvaluateAsTheJsonTree() {
+        assertEquivalent(INSTANCE_STATES, new DescribeResult());
+        assertEquivalent(INSTANCE_STATES, new DescribeResult(
+                new Reservation(new Instance("running", null), new Instance("pending", null)),
+                new Reservation(),
+                new Reservation(new Instance(null, null))));
+        assertEquivalent(HAS_RESERVATIONS, new DescribeResult());
+        assertEquivalent(HAS_RESERVATIONS, new DescribeResult(new Reservation()));
+    }
+
+    @Test
+    public void filtersAndFunctions_EvaluateAsTheJsonTree() {
+        DescribeResult result = new DescribeResult();
+        assertEquivalent(GROUP_IN_SERVICE, result);
+        result.autoScalingGroups.add(new AutoScalingGroup(1,
+                new Instance(null, "InService"), new Instance(null, "Pending")));
+        assertEquivalent(GROUP_IN_SERVICE, result);
+        result.autoScalingGroups.add(new AutoScalingGroup(2, new Instance(null, "InService")));
+        assertEquivalent(GROUP_IN_SERVICE, result);
+    }
+
+    @Test
+    public void notAndExpressions_EvaluateAsTheJsonTree() {
+        DescribeResult result = new DescribeResult();
+        assertEquivalent(SERVICES_STABLE, result);
+        result.services.add(new Service(2, 2, "primary"));
+        assertEquivalent(SERVICES_STABLE, result);
+        result.services.add(new Service(1, 2, "primary"));
+        assertEquivalent(SERVICES_STABLE, result);
+        result.services.add(new Service(2, 2, "primary", "active"));
+        assertEquivalent(SERVICES_STABLE, result);
+    }
+
+    @Test
+    public void valueProjectionOfAMap_EvaluatesAsTheJsonTree() {
+        DescribeResult result = new DescribeResult();
+        assertEquivalent(VERIFICATION_STATUSES, result);
+        result.verificationAttributes.put("example.com", new VerificationAttribute("Success"));
+        result.verificationAttributes.put("example.org", new VerificationAttribute("Pending"));
+        assertEquivalent(VERIFICATION_STATUSES, result);
+    }
+
+    @Test
+    public void unsupportedInput_OnlyFallsBackForThatEvaluation() {
+        CompiledJmesPathExpression compiled = CompiledJmesPathExpression.compile(INSTANCE_STATES);
+        // A JSON tree can't be walked with getters
+        JsonNode tree = ObjectMapperSingleton.getObjectMapper().valueToTree(
+                new DescribeResult(new Reservation(new Instance("pending", null))));
+        assertEquals(evaluateTree(INSTANCE_STATES, tree), compiled.evaluate(tree));
+
+        // Serializing the result to a JSON tree would read all its properties
+        CountingResult result = new CountingResult(new Reservation(new Instance("running", null)));
+        assertEquals(evaluateTree(INSTANCE_STATES, result), compiled.evaluate(result));
+        result.unrelatedReads = 0;
+        compiled.evaluate(result);
+        assertEquals(0, result.unrelatedReads);
+    }
+
+    private static void assertEquivalent(JmesPathExpression ast, Object input) {
+        assertEquals(evaluateTree(ast, input), CompiledJmesPathExpression.compile(ast).evaluate(input));
+    }
+
+    private static JsonNode evaluateTree(JmesPathExpression ast, Object input) {
+        JsonNode queryNode = ObjectMapperSingleton.getObjectMapper().valueToTree(input);
+        return ast.accept(new JmesPathEvaluationVisitor(), queryNode);
+    }
+
+    public static class DescribeResult {
+        private final List<Reservation> reservations;
+        private final List<AutoScalingGroup> autoScalingGroups = new ArrayList<AutoScalingGroup>();
+        private final List<Service> services = new ArrayList<Service>();
+        private final Map<String, VerificationAttribute> verificationAttributes =
+                new LinkedHashMap<String, VerificationAttribute>();
+
+        DescribeResult(Reservation... reservations) {
+            this.reservations = Arrays.asList(reservations);
+        }
+
+        public List<Reservation> getReservations() {
+            return reservations;
+        }
+
+        public List<AutoScalingGroup> getAutoScalingGroups() {
+            return autoScalingGroups;
+        }
+
+        public List<Service> getServices() {
+            return services;
+        }
+
+        public Map<String, VerificationAttribute> getVerificationAttributes() {
+            return verificationAttributes;
+        }
+    }
+
+    public static class CountingResult {
+        private final List<Reservation> reservations;
+        private int unrelatedReads;
+
+        CountingResult(Reservation... reservations) {
+            this.reservations = Arrays.asList(reservations);
+        }
+
+        public List<Reservation> getReservations() {
+            return reservations;
+        }
+
+        public String getUnrelated() {
+            unrelatedReads++;
+            return "unrelated";
+        }
+    }
+
+    public static class Reservation {
+        private final List<Instance> instances;
+
+        Reservation(Instance... instances) {
+            this.instances = Arrays.asList(instances);
+        }
+
+        public List<Instance> getInstances() {
+            return instances;
+        }
+    }
+
+    public static class Instance {
+        private final State state;
+        private final String lifecycleState;
+
+        Instance(String stateName, String lifecycleState) {
+            this.state = stateName == null ? null : new State(stateName);
+            this.lifecycleState = lifecycleState;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public String getLifecycleState() {
+            return lifecycleState;
+        }
+    }
+
+    public static class State {
+        private final String name;
+
+        State(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    public static class AutoScalingGroup {
+        private final Integer minSize;
+        private final List<Instance> instances;
+
+        AutoScalingGroup(Integer minSize, Instance... instances) {
+            this.minSize = minSize;
+            this.instances = Arrays.asList(instances);
+        }
+
+        public Integer getMinSize() {
+            return minSize;
+        }
+
+        public List<Instance> getInstances() {
+            return instances;
+        }
+    }
+
+    public static class Service {
+        private final Integer runningCount;
+        private final Integer desiredCount;
+        private final List<String> deployments;
+
+        Service(Integer runningCount, Integer desiredCount, String... deployments) {
+            this.runningCount = runningCount;
+            this.desiredCount = desiredCount;
+            this.deployments = Collections.unmodifiableList(Arrays.asList(deployments));
+        }
+
+        public Integer getRunningCount() {
+            return runningCount;
+        }
+
+        public Integer getDesiredCount() {
+            return desiredCount;
+        }
+
+        public List<String> getDeployments() {
+            return deployments;
+        }
+    }
+
+    public static class VerificationAttribute {
+        private final String verificationStatus;
+
+        VerificationAttribute(String verificationStatus) {
+            this.verificationStatus = verificationStatus;
+        }
+
+        public String getVerificationStatus() {
+            return verificationStatus;
+        }
+    }
+}